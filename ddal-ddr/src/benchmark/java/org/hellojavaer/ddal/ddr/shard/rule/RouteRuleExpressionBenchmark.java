@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.ddr.shard.RangeShardValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编译后的路由规则与SpEL求值的耗时对比, 规则模板与{@link CompiledRouteRuleExpressionTest}中的一致.
+ * 与测试相同, 单点的RangeShardValue走SpEL求值.
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec
+ * </pre>
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteRuleExpressionBenchmark {
+
+    @Param({ "{scName}_{format('%02d', sdValue % 8)}", "{scName}_{sdValue.hashCode() % 16}",
+            "{scName}_{sdValue % 5000}", "{scName}_{sdValue / 100}", "{scName}_{format('%02d', sdValue / 16 % 8)}" })
+    private String             template;
+
+    private SpelShardRouteRule rule;
+    private long               sdValue;
+
+    @Setup
+    public void setup() {
+        if (CompiledRouteRuleExpression.compile(template) == null) {
+            throw new IllegalArgumentException("Template '" + template + "' can't be compiled");
+        }
+        rule = new SpelShardRouteRule(template, null);
+    }
+
+    @Benchmark
+    public String compiled() {
+        long value = sdValue++ & 4095;
+        return rule.parseScName("db", value);
+    }
+
+    @Benchmark
+    public String spel() {
+        long value = sdValue++ & 4095;
+        return rule.parseScName("db", new RangeShardValue(value, value));
+    }
+}
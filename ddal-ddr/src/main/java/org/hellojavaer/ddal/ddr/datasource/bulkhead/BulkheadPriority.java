@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.bulkhead;
+
+/**
+ * 数据源繁忙时按优先级丢弃请求: LOW不排队, NORMAL不能占用保留的排队位置, HIGH可以使用全部排队位置
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 22/09/2017.
+ */
+public enum BulkheadPriority {
+
+    LOW,
+
+    NORMAL,
+
+    HIGH;
+
+    private static final ThreadLocal<BulkheadPriority> CURRENT = new ThreadLocal<BulkheadPriority>();
+
+    /**
+     * 设置当前线程获取连接时使用的优先级, 使用完后需要调用{@link #clear()}
+     */
+    public static void set(BulkheadPriority priority) {
+        CURRENT.set(priority);
+    }
+
+    public static BulkheadPriority get() {
+        BulkheadPriority priority = CURRENT.get();
+        if (priority == null) {
+            return NORMAL;
+        } else {
+            return priority;
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
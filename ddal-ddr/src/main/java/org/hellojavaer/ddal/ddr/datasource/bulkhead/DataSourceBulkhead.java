@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.bulkhead;
+
+import org.hellojavaer.ddal.ddr.datasource.exception.DataSourceBulkheadRejectedException;
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 物理数据源的舱壁隔离: 在从连接池获取连接前申请许可, 连接关闭后释放许可.
+ * 某个分片变慢时, 超出并发和排队上限的请求会被快速拒绝, 而不是占满应用的所有线程
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 22/09/2017.
+ */
+public class DataSourceBulkhead {
+
+    private final String                   name;
+    private final DataSourceBulkheadConfig config;
+    private final Semaphore                semaphore;
+    private final AtomicInteger            waitingCount  = new AtomicInteger();
+    private final AtomicLong               rejectedCount = new AtomicLong();
+
+    public DataSourceBulkhead(String name, DataSourceBulkheadConfig config) {
+        if (config == null) {
+            throw new IllegalArgumentException("config can't be null");
+        }
+        if (config.getMaxConcurrency() <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be greater than 0, config:" + config);
+        }
+        if (config.getMaxWaitQueueSize() < 0 || config.getReservedWaitQueueSize() < 0
+            || config.getReservedWaitQueueSize() > config.getMaxWaitQueueSize()) {
+            throw new IllegalArgumentException("Illegal wait queue size, config:" + config);
+        }
+        this.name = name;
+        this.config = config;
+        this.semaphore = new Semaphore(config.getMaxConcurrency(), true);
+    }
+
+    public void acquire(BulkheadPriority priority) throws DataSourceBulkheadRejectedException {
+        if (semaphore.tryAcquire()) {
+            return;
+        }
+        int waitQueueLimit = getWaitQueueLimit(priority);
+        if (waitingCount.incrementAndGet() > waitQueueLimit) {
+            waitingCount.decrementAndGet();
+            rejectedCount.incrementAndGet();
+            throw new DataSourceBulkheadRejectedException("Bulkhead of datasource '" + name
+                                                          + "' is full, priority:" + priority + ", active:"
+                                                          + getActiveCount() + ", waiting:" + waitingCount.get());
+        }
+        try {
+            if (!semaphore.tryAcquire(config.getMaxWaitMillis(), TimeUnit.MILLISECONDS)) {
+                rejectedCount.incrementAndGet();
+                throw new DataSourceBulkheadRejectedException("Wait for bulkhead of datasource '" + name
+                                                              + "' timeout after " + config.getMaxWaitMillis()
+                                                              + "ms, priority:" + priority);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedCount.incrementAndGet();
+            throw new DataSourceBulkheadRejectedException("Interrupted while waiting for bulkhead of datasource '"
+                                                          + name + "'", e);
+        } finally {
+            waitingCount.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        semaphore.release();
+    }
+
+    private int getWaitQueueLimit(BulkheadPriority priority) {
+        if (priority == BulkheadPriority.HIGH) {
+            return config.getMaxWaitQueueSize();
+        } else if (priority == BulkheadPriority.LOW) {
+            return 0;
+        } else {
+            return config.getMaxWaitQueueSize() - config.getReservedWaitQueueSize();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataSourceBulkheadConfig getConfig() {
+        return config;
+    }
+
+    public int getActiveCount() {
+        return config.getMaxConcurrency() - semaphore.availablePermits();
+    }
+
+    public int getWaitingCount() {
+        return waitingCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("name", name)//
+        .append("config", config)//
+        .append("active", getActiveCount())//
+        .append("waiting", getWaitingCount())//
+        .append("rejected", getRejectedCount())//
+        .toString();
+    }
+}
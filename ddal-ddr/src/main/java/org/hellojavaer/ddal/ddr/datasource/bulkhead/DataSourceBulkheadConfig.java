@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.bulkhead;
+
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+/**
+ * <pre>
+ * maxConcurrency: 同一个物理数据源上同时持有的最大连接数
+ * maxWaitQueueSize: 超过maxConcurrency后最多允许多少个线程排队等待
+ * reservedWaitQueueSize: 等待队列中为HIGH优先级保留的位置, NORMAL优先级只能使用剩余部分, LOW优先级不排队
+ * maxWaitMillis: 排队等待的最长时间
+ * </pre>
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 22/09/2017.
+ */
+public class DataSourceBulkheadConfig {
+
+    private int  maxConcurrency;
+    private int  maxWaitQueueSize      = 0;
+    private int  reservedWaitQueueSize = 0;
+    private long maxWaitMillis         = 1000;
+
+    public DataSourceBulkheadConfig() {
+    }
+
+    public DataSourceBulkheadConfig(int maxConcurrency, int maxWaitQueueSize, long maxWaitMillis) {
+        this.maxConcurrency = maxConcurrency;
+        this.maxWaitQueueSize = maxWaitQueueSize;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public DataSourceBulkheadConfig(int maxConcurrency, int maxWaitQueueSize, int reservedWaitQueueSize,
+                                    long maxWaitMillis) {
+        this.maxConcurrency = maxConcurrency;
+        this.maxWaitQueueSize = maxWaitQueueSize;
+        this.reservedWaitQueueSize = reservedWaitQueueSize;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getMaxWaitQueueSize() {
+        return maxWaitQueueSize;
+    }
+
+    public void setMaxWaitQueueSize(int maxWaitQueueSize) {
+        this.maxWaitQueueSize = maxWaitQueueSize;
+    }
+
+    public int getReservedWaitQueueSize() {
+        return reservedWaitQueueSize;
+    }
+
+    public void setReservedWaitQueueSize(int reservedWaitQueueSize) {
+        this.reservedWaitQueueSize = reservedWaitQueueSize;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("maxConcurrency", maxConcurrency)//
+        .append("maxWaitQueueSize", maxWaitQueueSize)//
+        .append("reservedWaitQueueSize", reservedWaitQueueSize)//
+        .append("maxWaitMillis", maxWaitMillis)//
+        .toString();
+    }
+}
@@ -15,24 +15,31 @@
  */
 package org.hellojavaer.ddal.ddr.datasource.jdbc;
 
+import org.hellojavaer.ddal.ddr.datasource.bulkhead.BulkheadPriority;
+import org.hellojavaer.ddal.ddr.datasource.bulkhead.DataSourceBulkhead;
+import org.hellojavaer.ddal.ddr.datasource.bulkhead.DataSourceBulkheadConfig;
+import org.hellojavaer.ddal.ddr.datasource.exception.CrossDataSourceException;
 import org.hellojavaer.ddal.ddr.datasource.exception.DataSourceNotFoundException;
 import org.hellojavaer.ddal.ddr.datasource.exception.UninitializedStatusException;
 import org.hellojavaer.ddal.ddr.datasource.exception.UnsupportedConnectionInvocationException;
 import org.hellojavaer.ddal.ddr.datasource.exception.UnsupportedDataSourceInvocationException;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.fanout.FanOutExecutor;
 import org.hellojavaer.ddal.ddr.datasource.jdbc.init.UninitializedConnectionProcessor;
 import org.hellojavaer.ddal.ddr.datasource.jdbc.init.UninitializedDataSourceProcessor;
 import org.hellojavaer.ddal.ddr.datasource.jdbc.property.ConnectionProperty;
 import org.hellojavaer.ddal.ddr.datasource.jdbc.property.DataSourceProperty;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.retry.ReadRetryPolicy;
 import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
+import java.io.Closeable;
 import java.io.PrintWriter;
 import java.sql.*;
-import java.util.Map;
-import java.util.Properties;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 
 /**
@@ -41,7 +48,113 @@ import java.util.concurrent.Executor;
  */
 public abstract class AbstractDDRDataSource implements DDRDataSource {
 
-    private Logger logger = LoggerFactory.getLogger(this.getClass());
+    private Logger                                                  logger                   = LoggerFactory.getLogger(this.getClass());
+
+    // pin each schema of a logical connection to one read-only datasource for the connection's lifetime
+    private boolean                                                 stickyReadOnlyDataSource = false;
+    // retry failed read-only statements on another read-only datasource, null means disabled
+    private ReadRetryPolicy                                         readRetryPolicy          = null;
+    // executes sub statements of a statement which is routed to multiple tables in parallel
+    private FanOutExecutor                                          fanOutExecutor           = new FanOutExecutor();
+
+    // bulkhead of every physical datasource, null means disabled
+    private DataSourceBulkheadConfig                                defaultBulkheadConfig    = null;
+    // bulkhead of specified physical datasources, which overrides 'defaultBulkheadConfig'
+    private Map<DataSource, DataSourceBulkheadConfig>               bulkheadConfigs          = null;
+    private final ConcurrentHashMap<DataSource, DataSourceBulkhead> bulkheads                = new ConcurrentHashMap<DataSource, DataSourceBulkhead>();
+
+    public boolean isStickyReadOnlyDataSource() {
+        return stickyReadOnlyDataSource;
+    }
+
+    public void setStickyReadOnlyDataSource(boolean stickyReadOnlyDataSource) {
+        this.stickyReadOnlyDataSource = stickyReadOnlyDataSource;
+    }
+
+    public ReadRetryPolicy getReadRetryPolicy() {
+        return readRetryPolicy;
+    }
+
+    public void setReadRetryPolicy(ReadRetryPolicy readRetryPolicy) {
+        this.readRetryPolicy = readRetryPolicy;
+    }
+
+    public FanOutExecutor getFanOutExecutor() {
+        return fanOutExecutor;
+    }
+
+    public void setFanOutExecutor(FanOutExecutor fanOutExecutor) {
+        this.fanOutExecutor = fanOutExecutor;
+    }
+
+    public DataSourceBulkheadConfig getDefaultBulkheadConfig() {
+        return defaultBulkheadConfig;
+    }
+
+    public void setDefaultBulkheadConfig(DataSourceBulkheadConfig defaultBulkheadConfig) {
+        this.defaultBulkheadConfig = defaultBulkheadConfig;
+    }
+
+    public Map<DataSource, DataSourceBulkheadConfig> getBulkheadConfigs() {
+        return bulkheadConfigs;
+    }
+
+    public void setBulkheadConfigs(Map<DataSource, DataSourceBulkheadConfig> bulkheadConfigs) {
+        this.bulkheadConfigs = bulkheadConfigs;
+    }
+
+    /**
+     * runtime state of bulkheads which have been used
+     */
+    public Collection<DataSourceBulkhead> getBulkheads() {
+        return Collections.unmodifiableCollection(bulkheads.values());
+    }
+
+    private DataSourceBulkhead getBulkhead(DataSource dataSource) {
+        DataSourceBulkhead bulkhead = bulkheads.get(dataSource);
+        if (bulkhead != null) {
+            return bulkhead;
+        }
+        DataSourceBulkheadConfig config = null;
+        if (bulkheadConfigs != null) {
+            config = bulkheadConfigs.get(dataSource);
+        }
+        if (config == null) {
+            config = defaultBulkheadConfig;
+        }
+        if (config == null) {
+            return null;
+        }
+        bulkhead = new DataSourceBulkhead(dataSource.toString(), config);
+        DataSourceBulkhead old = bulkheads.putIfAbsent(dataSource, bulkhead);
+        return old == null ? bulkhead : old;
+    }
+
+    /**
+     * 先申请舱壁许可再从连接池获取连接, 获取失败时归还许可
+     */
+    private ConnectionResult openConnection(DataSourceWrapper dataSourceWrapper, String username, String password,
+                                            boolean withUser) throws SQLException {
+        DataSourceBulkhead bulkhead = getBulkhead(dataSourceWrapper.getDataSource());
+        if (bulkhead != null) {
+            bulkhead.acquire(BulkheadPriority.get());
+        }
+        boolean succeed = false;
+        try {
+            Connection connection = null;
+            if (withUser) {
+                connection = dataSourceWrapper.getDataSource().getConnection(username, password);
+            } else {
+                connection = dataSourceWrapper.getDataSource().getConnection();
+            }
+            succeed = true;
+            return new ConnectionResult(connection, dataSourceWrapper, bulkhead);
+        } finally {
+            if (!succeed && bulkhead != null) {
+                bulkhead.release();
+            }
+        }
+    }
 
     private DataSourceWrapper getDataSource0(DataSourceParam param) throws SQLException {
         DataSourceWrapper dataSourceWrapper = this.getDataSource(param);
@@ -109,9 +222,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
 
             @Override
             public ConnectionResult getConnection(DataSourceParam param) throws SQLException {
-                DataSourceWrapper dataSourceWrapper = getDataSource0(param);
-                return new ConnectionResult(dataSourceWrapper.getDataSource().getConnection(),
-                                            dataSourceWrapper.getSchemas());
+                return openConnection(getDataSource0(param), null, null, false);
             }
         };
     }
@@ -122,21 +233,32 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
 
             @Override
             public ConnectionResult getConnection(DataSourceParam param) throws SQLException {
-                DataSourceWrapper dataSourceWrapper = getDataSource0(param);
-                return new ConnectionResult(dataSourceWrapper.getDataSource().getConnection(username, password),
-                                            dataSourceWrapper.getSchemas());
+                return openConnection(getDataSource0(param), username, password, true);
             }
         };
     }
 
     private class ConnectionResult {
 
-        private Connection  connection;
-        private Set<String> schemas;
+        private Connection         connection;
+        private DataSourceWrapper  dataSourceWrapper;
+        private DataSourceBulkhead bulkhead;
 
-        public ConnectionResult(Connection connection, Set<String> schemas) {
+        public ConnectionResult(Connection connection, DataSourceWrapper dataSourceWrapper,
+                                DataSourceBulkhead bulkhead) {
             this.connection = connection;
-            this.schemas = schemas;
+            this.dataSourceWrapper = dataSourceWrapper;
+            this.bulkhead = bulkhead;
+        }
+
+        /**
+         * 物理连接关闭后归还舱壁许可, 可重复调用
+         */
+        public synchronized void releaseBulkhead() {
+            if (bulkhead != null) {
+                bulkhead.release();
+                bulkhead = null;
+            }
         }
 
         public Connection getConnection() {
@@ -147,12 +269,16 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
             this.connection = connection;
         }
 
-        public Set<String> getSchemas() {
-            return schemas;
+        public DataSourceWrapper getDataSourceWrapper() {
+            return dataSourceWrapper;
         }
 
-        public void setSchemas(Set<String> schemas) {
-            this.schemas = schemas;
+        public void setDataSourceWrapper(DataSourceWrapper dataSourceWrapper) {
+            this.dataSourceWrapper = dataSourceWrapper;
+        }
+
+        public Set<String> getSchemas() {
+            return dataSourceWrapper.getSchemas();
         }
     }
 
@@ -315,6 +441,10 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
         private volatile ConnectionPropertyBean prop = new ConnectionPropertyBean();
         private volatile InvocationTag          tag  = new InvocationTag();
 
+        private Map<String, DataSourceWrapper>  stickyDataSources;
+        // physical connections held by sub statements of fan-out statements
+        private Set<ConnectionResult>           exclusiveConnectionResults;
+
         private boolean isReadOnly0() {
             return prop.isReadOnly();
         }
@@ -337,7 +467,8 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
             }
         }
 
-        private void closeConnection0(Connection connection) {
+        private void closeConnection0(ConnectionResult connectionResult) {
+            Connection connection = connectionResult.getConnection();
             if (connection != null) {
                 try {
                     connection.close();
@@ -347,45 +478,123 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
                     }
                 }
             }
+            connectionResult.releaseBulkhead();
+        }
+
+        private boolean isAutoCommit0() {
+            if (tag.isAutoCommit()) {
+                return prop.isAutoCommit();
+            } else {
+                return true;
+            }
         }
 
         private ConnectionResult getConnection0(DataSourceParam param) throws SQLException {
-            if (this.connectionResult == null || this.connectionResult.getConnection().getAutoCommit()) {
-                if (this.connectionResult != null && this.connectionResult.getConnection() != null) {
-                    closeConnection0(this.connectionResult.getConnection());
-                }
-                ConnectionResult connectionResult = getConnection(param);
-                Connection connection = connectionResult.getConnection();
-                // playback
-                if (tag.isAutoCommit()) {
-                    connection.setAutoCommit(prop.isAutoCommit());
+            if (param.isExclusiveConnection()) {
+                return getExclusiveConnection0(param);
+            }
+            // 重试时丢弃已失败的物理连接, 事务中的连接不能被替换
+            boolean discard = false;
+            if (this.connectionResult != null && param.getExcludedDataSources() != null
+                && param.getExcludedDataSources().contains(this.connectionResult.getDataSourceWrapper())) {
+                if (!isAutoCommit0()) {
+                    throw new CrossDataSourceException("Can't switch datasource in a transaction, param:" + param);
                 }
-                if (tag.isReadOnly()) {
-                    connection.setReadOnly(prop.isReadOnly());
-                }
-                if (tag.isSchema()) {
-                    connection.setSchema(prop.getSchema());
-                }
-                if (tag.isTypeMap()) {
-                    connection.setTypeMap(prop.getTypeMap());
-                }
-                if (tag.isTransactionIsolation()) {
-                    connection.setTransactionIsolation(prop.getTransactionIsolation());
-                }
-                if (tag.isHoldability()) {
-                    connection.setHoldability(prop.getHoldability());
-                }
-                if (tag.isCatalog()) {
-                    connection.setCatalog(prop.getCatalog());
+                discard = true;
+            }
+            if (this.connectionResult == null || discard || this.connectionResult.getConnection().getAutoCommit()) {
+                if (this.connectionResult != null) {
+                    closeConnection0(this.connectionResult);
                 }
+                setStickyDataSources(param);
+                ConnectionResult connectionResult = getConnection(param);
+                playbackInvocation(connectionResult.getConnection());
                 this.connectionResult = connectionResult;
             }
             return connectionResult;
         }
 
+        /**
+         * 扇出语句的每个子语句独占一个物理连接, 子语句关闭时关闭该连接.
+         * 事务中的连接不能被多个子语句共享, 而独占的物理连接不在事务中(只读语句也读不到事务的快照), 所以事务中不允许扇出语句
+         */
+        private ConnectionResult getExclusiveConnection0(DataSourceParam param) throws SQLException {
+            if (!isAutoCommit0()) {
+                throw new CrossDataSourceException("Can't execute a statement on multiple tables in a transaction, param:"
+                                                   + param);
+            }
+            setStickyDataSources(param);
+            ConnectionResult connectionResult = getConnection(param);
+            try {
+                playbackInvocation(connectionResult.getConnection());
+            } catch (Throwable e) {
+                closeConnection0(connectionResult);
+                throw e;
+            }
+            if (exclusiveConnectionResults == null) {
+                exclusiveConnectionResults = new LinkedHashSet<ConnectionResult>();
+            }
+            exclusiveConnectionResults.add(connectionResult);
+            return connectionResult;
+        }
+
+        private void setStickyDataSources(DataSourceParam param) {
+            if (stickyReadOnlyDataSource && param.isReadOnly()) {
+                if (stickyDataSources == null) {
+                    stickyDataSources = new HashMap<String, DataSourceWrapper>();
+                }
+                param.setStickyDataSources(stickyDataSources);
+            }
+        }
+
+        private void playbackInvocation(Connection connection) throws SQLException {
+            if (tag.isAutoCommit()) {
+                connection.setAutoCommit(prop.isAutoCommit());
+            }
+            if (tag.isReadOnly()) {
+                connection.setReadOnly(prop.isReadOnly());
+            }
+            if (tag.isSchema()) {
+                connection.setSchema(prop.getSchema());
+            }
+            if (tag.isTypeMap()) {
+                connection.setTypeMap(prop.getTypeMap());
+            }
+            if (tag.isTransactionIsolation()) {
+                connection.setTransactionIsolation(prop.getTransactionIsolation());
+            }
+            if (tag.isHoldability()) {
+                connection.setHoldability(prop.getHoldability());
+            }
+            if (tag.isCatalog()) {
+                connection.setCatalog(prop.getCatalog());
+            }
+        }
+
+        private StatementWrapper wrapStatement(final ConnectionResult connectionResult, Statement statement) {
+            StatementWrapper statementWrapper = new StatementWrapper(ConnectionWrapper.this, statement,
+                                                                     connectionResult.getSchemas(),
+                                                                     connectionResult.getDataSourceWrapper());
+            if (connectionResult != this.connectionResult) {
+                statementWrapper.setExclusiveConnection(new Closeable() {
+
+                    @Override
+                    public void close() {
+                        synchronized (ConnectionWrapper.this) {
+                            if (exclusiveConnectionResults != null
+                                && exclusiveConnectionResults.remove(connectionResult)) {
+                                closeConnection0(connectionResult);
+                            }
+                        }
+                    }
+                });
+            }
+            return statementWrapper;
+        }
+
         @Override
         public Statement createStatement() throws SQLException {
-            return new DDRStatementImpl(isReadOnly0(), getSchemas0()) {
+            return new DDRStatementImpl(isReadOnly0(), getSchemas0(), readRetryPolicy, fanOutExecutor) {
 
                 @Override
                 public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
@@ -397,7 +606,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
                     synchronized (ConnectionWrapper.this) {
                         ConnectionResult connectionResult = getConnection0(param);
                         Statement statement = connectionResult.getConnection().createStatement();
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
+                        return wrapStatement(connectionResult, statement);
                     }
                 }
             };
@@ -405,7 +614,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
 
         @Override
         public PreparedStatement prepareStatement(String sql) throws SQLException {
-            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0()) {
+            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0(), readRetryPolicy, fanOutExecutor) {
 
                 @Override
                 public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
@@ -417,7 +626,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
                     synchronized (ConnectionWrapper.this) {
                         ConnectionResult connectionResult = getConnection0(param);
                         Statement statement = connectionResult.getConnection().prepareStatement(routedSql);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
+                        return wrapStatement(connectionResult, statement);
                     }
                 }
             };
@@ -425,7 +634,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
 
         @Override
         public Statement createStatement(final int resultSetType, final int resultSetConcurrency) throws SQLException {
-            return new DDRStatementImpl(isReadOnly0(), getSchemas0()) {
+            return new DDRStatementImpl(isReadOnly0(), getSchemas0(), readRetryPolicy, fanOutExecutor) {
 
                 @Override
                 public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
@@ -438,7 +647,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
                         ConnectionResult connectionResult = getConnection0(param);
                         Statement statement = connectionResult.getConnection().createStatement(resultSetType,
                                                                                                resultSetConcurrency);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
+                        return wrapStatement(connectionResult, statement);
                     }
                 }
             };
@@ -447,7 +656,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
         @Override
         public PreparedStatement prepareStatement(String sql, final int resultSetType, final int resultSetConcurrency)
                                                                                                                       throws SQLException {
-            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0()) {
+            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0(), readRetryPolicy, fanOutExecutor) {
 
                 @Override
                 public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
@@ -461,7 +670,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
                         Statement statement = connectionResult.getConnection().prepareStatement(routedSql,
                                                                                                 resultSetType,
                                                                                                 resultSetConcurrency);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
+                        return wrapStatement(connectionResult, statement);
                     }
                 }
             };
@@ -470,7 +679,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
         @Override
         public Statement createStatement(final int resultSetType, final int resultSetConcurrency,
                                          final int resultSetHoldability) throws SQLException {
-            return new DDRStatementImpl(isReadOnly0(), getSchemas0()) {
+            return new DDRStatementImpl(isReadOnly0(), getSchemas0(), readRetryPolicy, fanOutExecutor) {
 
                 @Override
                 public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
@@ -481,9 +690,10 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
                 public StatementWrapper getStatement(DataSourceParam param, String sql) throws SQLException {
                     synchronized (ConnectionWrapper.this) {
                         ConnectionResult connectionResult = getConnection0(param);
-                        Statement statement = connection.createStatement(resultSetType, resultSetConcurrency,
-                                                                         resultSetHoldability);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
+                        Statement statement = connectionResult.getConnection().createStatement(resultSetType,
+                                                                                               resultSetConcurrency,
+                                                                                               resultSetHoldability);
+                        return wrapStatement(connectionResult, statement);
                     }
                 }
             };
@@ -492,7 +702,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
         @Override
         public PreparedStatement prepareStatement(String sql, final int resultSetType, final int resultSetConcurrency,
                                                   final int resultSetHoldability) throws SQLException {
-            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0()) {
+            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0(), readRetryPolicy, fanOutExecutor) {
 
                 @Override
                 public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
@@ -503,9 +713,11 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
                 public StatementWrapper getStatement(DataSourceParam param, String routedSql) throws SQLException {
                     synchronized (ConnectionWrapper.this) {
                         ConnectionResult connectionResult = getConnection0(param);
-                        Statement statement = connection.prepareStatement(routedSql, resultSetType,
-                                                                          resultSetConcurrency, resultSetHoldability);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
+                        Statement statement = connectionResult.getConnection().prepareStatement(routedSql,
+                                                                                                resultSetType,
+                                                                                                resultSetConcurrency,
+                                                                                                resultSetHoldability);
+                        return wrapStatement(connectionResult, statement);
                     }
                 }
             };
@@ -513,7 +725,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
 
         @Override
         public PreparedStatement prepareStatement(String sql, final int autoGeneratedKeys) throws SQLException {
-            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0()) {
+            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0(), readRetryPolicy, fanOutExecutor) {
 
                 @Override
                 public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
@@ -524,8 +736,9 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
                 public StatementWrapper getStatement(DataSourceParam param, String routedSql) throws SQLException {
                     synchronized (ConnectionWrapper.this) {
                         ConnectionResult connectionResult = getConnection0(param);
-                        Statement statement = connection.prepareStatement(routedSql, autoGeneratedKeys);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
+                        Statement statement = connectionResult.getConnection().prepareStatement(routedSql,
+                                                                                                autoGeneratedKeys);
+                        return wrapStatement(connectionResult, statement);
                     }
                 }
             };
@@ -533,7 +746,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
 
         @Override
         public PreparedStatement prepareStatement(String sql, final int[] columnIndexes) throws SQLException {
-            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0()) {
+            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0(), readRetryPolicy, fanOutExecutor) {
 
                 @Override
                 public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
@@ -546,7 +759,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
                         ConnectionResult connectionResult = getConnection0(param);
                         Statement statement = connectionResult.getConnection().prepareStatement(routedSql,
                                                                                                 columnIndexes);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
+                        return wrapStatement(connectionResult, statement);
                     }
                 }
             };
@@ -554,7 +767,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
 
         @Override
         public PreparedStatement prepareStatement(String sql, final String[] columnNames) throws SQLException {
-            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0()) {
+            return new DDRPreparedStatementImpl(sql, isReadOnly0(), getSchemas0(), readRetryPolicy, fanOutExecutor) {
 
                 @Override
                 public SQLParsedResult parseSql(String sql, Map<Object, Object> jdbcParams) throws SQLException {
@@ -566,7 +779,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
                     synchronized (ConnectionWrapper.this) {
                         ConnectionResult connectionResult = getConnection0(param);
                         Statement statement = connectionResult.getConnection().prepareStatement(routedSql, columnNames);
-                        return new StatementWrapper(ConnectionWrapper.this, statement, connectionResult.getSchemas());
+                        return wrapStatement(connectionResult, statement);
                     }
                 }
             };
@@ -851,7 +1064,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
         public synchronized void commit() throws SQLException {
             if (connectionResult != null) {
                 connectionResult.getConnection().commit();
-                closeConnection0(connectionResult.getConnection());
+                closeConnection0(connectionResult);
                 connectionResult = null;
             } else {
                 // ignore
@@ -862,7 +1075,7 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
         public synchronized void rollback() throws SQLException {
             if (connectionResult != null) {
                 connectionResult.getConnection().rollback();
-                closeConnection0(connectionResult.getConnection());
+                closeConnection0(connectionResult);
                 connectionResult = null;
             } else {
                 // ignore
@@ -871,9 +1084,20 @@ public abstract class AbstractDDRDataSource implements DDRDataSource {
 
         @Override
         public synchronized void close() throws SQLException {
+            if (exclusiveConnectionResults != null) {
+                for (ConnectionResult item : exclusiveConnectionResults) {
+                    closeConnection0(item);
+                }
+                exclusiveConnectionResults = null;
+            }
             if (connectionResult != null) {
-                connectionResult.getConnection().close();
-                connectionResult = null;
+                ConnectionResult connectionResult = this.connectionResult;
+                this.connectionResult = null;
+                try {
+                    connectionResult.getConnection().close();
+                } finally {// 物理连接关闭失败时也要释放隔离舱许可
+                    connectionResult.releaseBulkhead();
+                }
             } else {
                 // ignore
             }
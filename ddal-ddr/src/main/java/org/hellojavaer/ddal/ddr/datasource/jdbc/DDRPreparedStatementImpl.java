@@ -18,7 +18,10 @@ package org.hellojavaer.ddal.ddr.datasource.jdbc;
 import org.hellojavaer.ddal.ddr.datasource.exception.CrossDataSourceException;
 import org.hellojavaer.ddal.ddr.datasource.exception.StatementInitializationException;
 import org.hellojavaer.ddal.ddr.datasource.exception.UninitializedStatusException;
+import org.hellojavaer.ddal.ddr.datasource.exception.UnsupportedFanOutInvocationException;
 import org.hellojavaer.ddal.ddr.datasource.exception.UnsupportedPreparedStatementInvocationException;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.fanout.FanOutExecutor;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.retry.ReadRetryPolicy;
 import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
 import org.hellojavaer.ddal.ddr.utils.DDRJSONUtils;
@@ -36,20 +39,33 @@ import java.util.*;
  */
 public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implements DDRPreparedStatement {
 
-    private Logger                    stdLogger               = LoggerFactory.getLogger("org.hellojavaer.ddr.sql");
+    private Logger                    stdLogger                    = LoggerFactory.getLogger("org.hellojavaer.ddr.sql");
 
-    private String                    sql                     = null;
-    protected PreparedStatement       preparedStatement       = null;
-    private Map<Object, Object>       jdbcParameter           = new HashMap<Object, Object>();
-    private List<JdbcParamInvocation> jdbcParamInvocationList = null;
+    private String                    sql                          = null;
+    protected PreparedStatement       preparedStatement            = null;
+    private Map<Object, Object>       jdbcParameter                = new HashMap<Object, Object>();
+    private List<JdbcParamInvocation> jdbcParamInvocationList      = null;
+    // parameter index => position in jdbcParamInvocationList
+    private Map<Integer, Integer>     jdbcParamInvocationPositions = new HashMap<Integer, Integer>();
 
-    private SQLParsedResult           sqlParsedResult         = null;
+    private SQLParsedResult           sqlParsedResult              = null;
 
     public DDRPreparedStatementImpl(String sql, boolean readOnly, Set<String> schemas) {
         super(readOnly, schemas);
         this.sql = sql;
     }
 
+    public DDRPreparedStatementImpl(String sql, boolean readOnly, Set<String> schemas, ReadRetryPolicy readRetryPolicy) {
+        super(readOnly, schemas, readRetryPolicy);
+        this.sql = sql;
+    }
+
+    public DDRPreparedStatementImpl(String sql, boolean readOnly, Set<String> schemas,
+                                    ReadRetryPolicy readRetryPolicy, FanOutExecutor fanOutExecutor) {
+        super(readOnly, schemas, readRetryPolicy, fanOutExecutor);
+        this.sql = sql;
+    }
+
     private class JdbcParamInvocation {
 
         private JdbcParamSetMethod method;
@@ -99,20 +115,51 @@ public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implemen
     // ////pre
     @Override
     public ResultSet executeQuery() throws SQLException {
-        initPreparedStatementIfAbsent();
-        return preparedStatement.executeQuery();
+        long startTime = System.currentTimeMillis();
+        boolean initialized = preparedStatement == null;
+        SQLParsedResult fanOutResult = initPreparedStatementOrFanOut();
+        if (fanOutResult != null) {
+            return executeFanOutQuery(fanOutResult, new PreparedQueryCallback());
+        }
+        return executeRead(initialized, startTime, new ReadCallback<ResultSet>() {
+
+            @Override
+            public ResultSet execute(Statement statement) throws SQLException {
+                return ((PreparedStatement) statement).executeQuery();
+            }
+        });
     }
 
     @Override
     public int executeUpdate() throws SQLException {
-        initPreparedStatementIfAbsent();
+        SQLParsedResult fanOutResult = initPreparedStatementOrFanOut();
+        if (fanOutResult != null) {
+            return executeFanOutUpdate(fanOutResult, new PreparedUpdateCallback());
+        }
         return preparedStatement.executeUpdate();
     }
 
     @Override
     public boolean execute() throws SQLException {
-        initPreparedStatementIfAbsent();
-        return preparedStatement.execute();
+        long startTime = System.currentTimeMillis();
+        boolean initialized = preparedStatement == null;
+        SQLParsedResult fanOutResult = initPreparedStatementOrFanOut();
+        if (fanOutResult != null) {
+            if (isFanOutQuery(fanOutResult)) {
+                executeFanOutQuery(fanOutResult, new PreparedQueryCallback());
+                return true;
+            } else {
+                executeFanOutUpdate(fanOutResult, new PreparedUpdateCallback());
+                return false;
+            }
+        }
+        return executeRead(initialized, startTime, new ReadCallback<Boolean>() {
+
+            @Override
+            public Boolean execute(Statement statement) throws SQLException {
+                return ((PreparedStatement) statement).execute();
+            }
+        });
     }
 
     // PreparedStatement Override
@@ -128,6 +175,7 @@ public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implemen
         if (jdbcParamInvocationList != null) {
             jdbcParamInvocationList.clear();
         }
+        jdbcParamInvocationPositions.clear();
     }
 
     @Override
@@ -165,7 +213,9 @@ public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implemen
 
     @Override
     public int getUpdateCount() throws SQLException {
-        if (preparedStatement != null) {
+        if (isFanOutExecuted()) {
+            return getFanOutUpdateCount();
+        } else if (preparedStatement != null) {
             return preparedStatement.getUpdateCount();
         } else {
             throw new UninitializedStatusException(
@@ -184,17 +234,33 @@ public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implemen
     }
 
     private void initPreparedStatementIfAbsent() throws SQLException {
+        if (initPreparedStatementOrFanOut() != null) {
+            throw new UnsupportedFanOutInvocationException("Sql '" + sql + "' is routed to multiple tables "
+                                                           + "with jdbc parameter "
+                                                           + DDRJSONUtils.toJSONString(jdbcParameter)
+                                                           + ", which is only supported by execute methods");
+        }
+    }
+
+    /**
+     * 路由到多张表时不初始化preparedStatement(每次执行都重新路由), 返回需要扇出执行的解析结果, 否则返回null
+     */
+    private SQLParsedResult initPreparedStatementOrFanOut() throws SQLException {
         if (preparedStatement == null) {
             // 1. parse sql
             SQLParsedResult parsedResult = parseSql(sql, this.jdbcParameter);
             if (stdLogger.isDebugEnabled()) {
                 stdLogger.debug(new StringBuilder("[ParseSql] from:")//
                 .append(sql).append(" =>to: ")//
-                .append(parsedResult.getSql()).toString());//
+                .append(parsedResult.isFanOut() ? parsedResult.getSubResults() : parsedResult.getSql()).toString());//
                 if (stdLogger.isTraceEnabled()) {
                     stdLogger.trace("[JdbcParameter] " + DDRJSONUtils.toJSONString(jdbcParameter));
                 }
             }
+            if (parsedResult.isFanOut()) {
+                return parsedResult;
+            }
+            closeFanOutStatements();
             this.sqlParsedResult = parsedResult;
             // 2. check if crossing datasource
             if (isCrossDataSource(parsedResult.getSchemas())) {
@@ -208,7 +274,7 @@ public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implemen
             }
             // 3. init preparedStatement if not
             DataSourceParam param = new DataSourceParam();
-            param.setReadOnly(readOnly);
+            param.setReadOnly(isReadOnly(parsedResult));
             param.setScNames(parsedResult.getSchemas());
             // 初始化statement
             try {// 记录关键信息
@@ -225,6 +291,50 @@ public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implemen
         } else {// 同一个preparedStatement 以第一次成功创建preparedStatement为限制;
             this.sqlParsedResult.checkIfCrossPreparedStatement(this.jdbcParameter);
         }
+        applyDeadline();
+        return null;
+    }
+
+    @Override
+    protected void playbackFanOutInvocation(Statement statement, SQLParsedResult subResult) throws SQLException {
+        playbackSetJdbcParamInvocation((PreparedStatement) statement,
+                                       remapJdbcParamInvocation(jdbcParamInvocationList,
+                                                                subResult.getRemovedJdbcParamIndexes()));
+    }
+
+    /**
+     * 子sql删除了部分jdbc参数(如拆分后的in列表)时, 跳过被删除的参数并把其后的参数前移
+     */
+    private List<JdbcParamInvocation> remapJdbcParamInvocation(List<JdbcParamInvocation> jdbcParamInvocationList,
+                                                               int[] removedJdbcParamIndexes) {
+        if (jdbcParamInvocationList == null || removedJdbcParamIndexes == null
+            || removedJdbcParamIndexes.length == 0) {
+            return jdbcParamInvocationList;
+        }
+        List<JdbcParamInvocation> list = new ArrayList<JdbcParamInvocation>(jdbcParamInvocationList.size());
+        for (JdbcParamInvocation item : jdbcParamInvocationList) {
+            int pos = Arrays.binarySearch(removedJdbcParamIndexes, item.getIndex());
+            if (pos < 0) {
+                list.add(new JdbcParamInvocation(item.getMethod(), item.getIndex() + pos + 1, item.getParams()));
+            }
+        }
+        return list;
+    }
+
+    private static class PreparedQueryCallback implements FanOutCallback<ResultSet> {
+
+        @Override
+        public ResultSet execute(Statement statement, String sql) throws SQLException {
+            return ((PreparedStatement) statement).executeQuery();
+        }
+    }
+
+    private static class PreparedUpdateCallback implements FanOutCallback<Integer> {
+
+        @Override
+        public Integer execute(Statement statement, String sql) throws SQLException {
+            return ((PreparedStatement) statement).executeUpdate();
+        }
     }
 
     @Override
@@ -233,6 +343,12 @@ public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implemen
         preparedStatement = (PreparedStatement) statement;
     }
 
+    @Override
+    protected void reinitStatement(Set<DataSourceWrapper> excludedDataSources, int queryTimeout) throws SQLException {
+        super.reinitStatement(excludedDataSources, queryTimeout);
+        playbackSetJdbcParamInvocation(preparedStatement, jdbcParamInvocationList);
+    }
+
     private enum JdbcParamSetMethod {
 
         setBoolean_boolean,
@@ -499,7 +615,14 @@ public abstract class DDRPreparedStatementImpl extends DDRStatementImpl implemen
         if (jdbcParamInvocationList == null) {
             jdbcParamInvocationList = new ArrayList<JdbcParamInvocation>();
         }
-        jdbcParamInvocationList.add(new JdbcParamInvocation(method, index, params));
+        // 扇出执行时不会初始化preparedStatement, 同一个参数重复设置时只保留最后一次
+        Integer position = jdbcParamInvocationPositions.get(index);
+        if (position != null && position < jdbcParamInvocationList.size()) {
+            jdbcParamInvocationList.set(position, new JdbcParamInvocation(method, index, params));
+        } else {
+            jdbcParamInvocationPositions.put(index, jdbcParamInvocationList.size());
+            jdbcParamInvocationList.add(new JdbcParamInvocation(method, index, params));
+        }
     }
 
     @Override
@@ -32,4 +32,11 @@ public interface DDRStatement extends Statement {
 
     StatementWrapper getStatement(DataSourceParam param, String sql) throws SQLException;
 
+    /**
+     * 截止时间(毫秒时间戳), 和ShardRouteContext中的截止时间取较早者
+     */
+    void setDeadline(Long deadline);
+
+    Long getDeadline();
+
 }
@@ -18,14 +18,24 @@ package org.hellojavaer.ddal.ddr.datasource.jdbc;
 import org.hellojavaer.ddal.ddr.datasource.exception.CrossDataSourceException;
 import org.hellojavaer.ddal.ddr.datasource.exception.StatementInitializationException;
 import org.hellojavaer.ddal.ddr.datasource.exception.UninitializedStatusException;
+import org.hellojavaer.ddal.ddr.datasource.exception.UnsupportedFanOutInvocationException;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.fanout.FanOutExecutor;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.fanout.FanOutTask;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.fanout.MergedResultSet;
 import org.hellojavaer.ddal.ddr.datasource.jdbc.init.UninitializedStatementProcessor;
 import org.hellojavaer.ddal.ddr.datasource.jdbc.property.StatementProperty;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.retry.ReadRetryPolicy;
 import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteContext;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -34,21 +44,55 @@ import java.util.Set;
  */
 public abstract class DDRStatementImpl implements DDRStatement {
 
-    private Logger        stdLogger  = LoggerFactory.getLogger("org.hellojavaer.ddr.sql");
+    private Logger               stdLogger         = LoggerFactory.getLogger("org.hellojavaer.ddr.sql");
 
-    protected Set<String> schemas    = null;
-    protected Statement   statement  = null;
-    protected Connection  connection = null;
-    protected boolean     readOnly   = false;
+    protected Set<String>        schemas           = null;
+    protected volatile Statement statement         = null;
+    protected Connection         connection        = null;
+    protected boolean            readOnly          = false;
+    protected ReadRetryPolicy    readRetryPolicy   = null;
+
+    // the datasource param, routed sql and datasource which current statement is initialized with
+    private DataSourceParam      initParam         = null;
+    private String               initSql           = null;
+    private DataSourceWrapper    dataSourceWrapper = null;
+
+    // deadline of current statement, see ShardRouteContext.setDeadline(long)
+    private Long                 deadline          = null;
+    private boolean              deadlineApplied   = false;
+
+    // sub statements and merged result of the last fan-out execution, see SQLParsedResult.isFanOut()
+    private FanOutExecutor         fanOutExecutor    = null;
+    private List<StatementWrapper> fanOutStatements  = null;
+    private ResultSet              fanOutResultSet   = null;
+    private int                    fanOutUpdateCount = -1;
 
     public DDRStatementImpl(boolean readOnly, Set<String> schemas) {
         this.readOnly = readOnly;
         this.schemas = schemas;
     }
 
+    public DDRStatementImpl(boolean readOnly, Set<String> schemas, ReadRetryPolicy readRetryPolicy) {
+        this(readOnly, schemas);
+        this.readRetryPolicy = readRetryPolicy;
+    }
+
+    public DDRStatementImpl(boolean readOnly, Set<String> schemas, ReadRetryPolicy readRetryPolicy,
+                            FanOutExecutor fanOutExecutor) {
+        this(readOnly, schemas, readRetryPolicy);
+        this.fanOutExecutor = fanOutExecutor;
+    }
+
     private StatementPropertyBean prop = new StatementPropertyBean();
     private InvocationTag         tag  = new InvocationTag();
 
+    /**
+     * sql提示中指定了读写方式时使用提示中的方式, 否则使用连接的设置
+     */
+    protected boolean isReadOnly(SQLParsedResult parsedResult) {
+        return parsedResult.getReadOnly() == null ? readOnly : parsedResult.getReadOnly();
+    }
+
     protected boolean isCrossDataSource(Set<String> schemas) {
         if (this.schemas == null) {
             return false;
@@ -210,21 +254,40 @@ public abstract class DDRStatementImpl implements DDRStatement {
     }
 
     private String initStatementAndConvertSql(String sql) throws SQLException {
-        // 1. parse sql
+        SQLParsedResult parsedResult = parseSql0(sql);
+        if (parsedResult.isFanOut()) {
+            throw new UnsupportedFanOutInvocationException("Sql '" + sql + "' is routed to multiple tables "
+                                                           + parsedResult.getSchemas()
+                                                           + ", which is only supported by execute methods");
+        }
+        return initStatementAndConvertSql(sql, parsedResult);
+    }
+
+    private SQLParsedResult parseSql0(String sql) throws SQLException {
         SQLParsedResult parsedResult = parseSql(sql, null);
         if (stdLogger.isDebugEnabled()) {
             stdLogger.debug(new StringBuilder("[ParseSql] from:")//
             .append(sql).append(" =>to: ")//
-            .append(parsedResult.getSql())//
+            .append(parsedResult.isFanOut() ? parsedResult.getSubResults() : parsedResult.getSql())//
             .toString());
         }
-        // 2. check if crossing datasource
+        return parsedResult;
+    }
+
+    private String initStatementAndConvertSql(String sql, SQLParsedResult parsedResult) throws SQLException {
+        closeFanOutStatements();
+        // check if crossing datasource
         if (isCrossDataSource(parsedResult.getSchemas())) {
             throw new CrossDataSourceException("Sql '" + sql + "'");
         }
+        if (statement != null && initParam != null && initParam.isReadOnly() != isReadOnly(parsedResult)) {
+            throw new CrossDataSourceException("Sql '" + sql + "' requires readOnly:" + isReadOnly(parsedResult)
+                                               + ", but current statement is initialized with readOnly:"
+                                               + initParam.isReadOnly());
+        }
         if (statement == null) {
             DataSourceParam param = new DataSourceParam();
-            param.setReadOnly(readOnly);
+            param.setReadOnly(isReadOnly(parsedResult));
             param.setScNames(parsedResult.getSchemas());
             try {
                 initStatementIfAbsent(param, null);
@@ -234,6 +297,7 @@ public abstract class DDRStatementImpl implements DDRStatement {
             }
             playbackInvocation(statement);
         }
+        applyDeadline();
         return parsedResult.getSql();
     }
 
@@ -242,6 +306,271 @@ public abstract class DDRStatementImpl implements DDRStatement {
         this.statement = statementWrapper.getStatement();
         this.connection = statementWrapper.getConnection();
         this.schemas = statementWrapper.getSchemas();
+        this.dataSourceWrapper = statementWrapper.getDataSourceWrapper();
+        this.initParam = param;
+        this.initSql = sql;
+    }
+
+    protected interface ReadCallback<T> {
+
+        T execute(Statement statement) throws SQLException;
+    }
+
+    /**
+     * 只读语句在本次调用中初始化了statement且执行失败时(此时还未返回任何数据), 按readRetryPolicy换一个读库重试
+     */
+    protected <T> T executeRead(boolean initialized, long startTime, ReadCallback<T> callback) throws SQLException {
+        boolean readOnly = initParam == null ? this.readOnly : initParam.isReadOnly();
+        if (readOnly && readRetryPolicy != null) {
+            readRetryPolicy.recordRequest();
+        }
+        try {
+            return callback.execute(statement);
+        } catch (SQLException e) {
+            if (!initialized || !readOnly || readRetryPolicy == null) {
+                throw e;
+            }
+            return retryRead(e, startTime, callback);
+        }
+    }
+
+    private <T> T retryRead(SQLException cause, long startTime, ReadCallback<T> callback) throws SQLException {
+        Set<DataSourceWrapper> excludedDataSources = new HashSet<DataSourceWrapper>();
+        for (int i = 0; i < readRetryPolicy.getMaxRetryTimes(); i++) {
+            if (!readRetryPolicy.isRetryable(cause) || dataSourceWrapper == null) {
+                break;
+            }
+            int queryTimeout = getRemainingQueryTimeout(startTime);
+            if (queryTimeout < 0 || !readRetryPolicy.tryAcquireRetry()) {
+                break;
+            }
+            excludedDataSources.add(dataSourceWrapper);
+            try {
+                statement.close();
+            } catch (Throwable e) {
+                // ignore
+            }
+            try {
+                reinitStatement(excludedDataSources, queryTimeout);
+            } catch (Throwable e) {
+                cause.addSuppressed(e);
+                break;
+            }
+            if (stdLogger.isWarnEnabled()) {
+                stdLogger.warn(new StringBuilder("[RetryRead] times:")//
+                .append(i + 1).append(" excluded datasources:")//
+                .append(excludedDataSources)//
+                .append(" cause:")//
+                .append(cause.getMessage())//
+                .toString());
+            }
+            try {
+                return callback.execute(statement);
+            } catch (SQLException e) {
+                e.addSuppressed(cause);
+                cause = e;
+            }
+        }
+        throw cause;
+    }
+
+    /**
+     * @return 0: no limit, -1: timeout, otherwise remaining seconds
+     */
+    private int getRemainingQueryTimeout(long startTime) {
+        if (!tag.isQueryTimeout() || prop.getQueryTimeout() <= 0) {
+            return 0;
+        }
+        long remaining = prop.getQueryTimeout() * 1000L - (System.currentTimeMillis() - startTime);
+        if (remaining <= 0) {
+            return -1;
+        } else {
+            return (int) ((remaining + 999) / 1000);
+        }
+    }
+
+    @Override
+    public void setDeadline(Long deadline) {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public Long getDeadline() {
+        return deadline;
+    }
+
+    private Long getEffectiveDeadline() {
+        Long contextDeadline = ShardRouteContext.getDeadline();
+        if (deadline == null) {
+            return contextDeadline;
+        } else if (contextDeadline == null || deadline < contextDeadline) {
+            return deadline;
+        } else {
+            return contextDeadline;
+        }
+    }
+
+    /**
+     * 每次执行前根据剩余时间设置queryTimeout(不超过用户设置的queryTimeout), 超过截止时间则不再执行
+     */
+    protected void applyDeadline() throws SQLException {
+        deadlineApplied = applyDeadline(statement, getEffectiveDeadline(), deadlineApplied);
+    }
+
+    /**
+     * @return if the deadline is applied on the statement
+     */
+    private boolean applyDeadline(Statement statement, Long deadline, boolean applied) throws SQLException {
+        if (deadline == null) {
+            if (applied) {
+                statement.setQueryTimeout(tag.isQueryTimeout() ? prop.getQueryTimeout() : 0);
+            }
+            return false;
+        }
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            throw new SQLTimeoutException("Deadline exceeded " + (-remaining) + "ms before execution");
+        }
+        int seconds = (int) ((remaining + 999) / 1000);
+        if (tag.isQueryTimeout() && prop.getQueryTimeout() > 0 && prop.getQueryTimeout() < seconds) {
+            seconds = prop.getQueryTimeout();
+        }
+        statement.setQueryTimeout(seconds);
+        return true;
+    }
+
+    protected interface FanOutCallback<T> {
+
+        T execute(Statement statement, String sql) throws SQLException;
+    }
+
+    /**
+     * 为每个子sql单独创建statement(各自独占一个物理连接), 并行执行后按子sql的顺序返回结果.
+     * 子语句在下一次执行或当前语句关闭时关闭
+     */
+    protected <T> List<T> executeFanOut(SQLParsedResult parsedResult, final FanOutCallback<T> callback)
+                                                                                                       throws SQLException {
+        closeFanOutStatements();
+        fanOutStatements = new ArrayList<StatementWrapper>(parsedResult.getSubResults().size());
+        Long deadline = getEffectiveDeadline();
+        List<FanOutTask<T>> tasks = new ArrayList<FanOutTask<T>>(parsedResult.getSubResults().size());
+        try {
+            for (final SQLParsedResult subResult : parsedResult.getSubResults()) {
+                DataSourceParam param = new DataSourceParam();
+                param.setReadOnly(isReadOnly(parsedResult));
+                param.setScNames(subResult.getSchemas());
+                param.setExclusiveConnection(true);
+                StatementWrapper statementWrapper = getStatement(param, subResult.getSql());
+                fanOutStatements.add(statementWrapper);
+                if (this.connection == null) {
+                    this.connection = statementWrapper.getConnection();
+                }
+                Statement subStatement = statementWrapper.getStatement();
+                playbackInvocation(subStatement);
+                playbackFanOutInvocation(subStatement, subResult);
+                applyDeadline(subStatement, deadline, false);
+                tasks.add(new FanOutTask<T>(subStatement) {
+
+                    @Override
+                    public T call() throws SQLException {
+                        return callback.execute(getStatement(), subResult.getSql());
+                    }
+                });
+            }
+        } catch (Throwable e) {
+            closeFanOutStatements();
+            throw new StatementInitializationException("readOnly:" + this.readOnly + " ,SQLParsedResult:"
+                                                       + parsedResult, e);
+        }
+        FanOutExecutor executor = fanOutExecutor == null ? new FanOutExecutor() : fanOutExecutor;
+        return executor.execute(tasks, deadline);
+    }
+
+    /**
+     * 子语句创建后的回放, 如: 设置jdbc参数
+     */
+    protected void playbackFanOutInvocation(Statement statement, SQLParsedResult subResult) throws SQLException {
+    }
+
+    protected ResultSet executeFanOutQuery(SQLParsedResult parsedResult, FanOutCallback<ResultSet> callback)
+                                                                                                          throws SQLException {
+        List<ResultSet> resultSets = executeFanOut(parsedResult, callback);
+        fanOutResultSet = new MergedResultSet(this, resultSets, parsedResult.getMergeInfo());
+        fanOutUpdateCount = -1;
+        return fanOutResultSet;
+    }
+
+    protected int executeFanOutUpdate(SQLParsedResult parsedResult, FanOutCallback<Integer> callback)
+                                                                                                     throws SQLException {
+        List<Integer> updateCounts = executeFanOut(parsedResult, callback);
+        int sum = 0;
+        if (parsedResult.isBroadcast()) {// 各个副本的更新数相同
+            sum = updateCounts.get(0);
+        } else {
+            for (Integer item : updateCounts) {
+                sum += item;
+            }
+        }
+        fanOutResultSet = null;
+        fanOutUpdateCount = sum;
+        return sum;
+    }
+
+    /**
+     * 扇出的查询语句都带有mergeInfo
+     */
+    protected boolean isFanOutQuery(SQLParsedResult parsedResult) {
+        return parsedResult.getMergeInfo() != null;
+    }
+
+    protected boolean isFanOutExecuted() {
+        return fanOutStatements != null;
+    }
+
+    protected void closeFanOutStatements() {
+        if (fanOutStatements == null) {
+            return;
+        }
+        if (fanOutResultSet != null) {
+            try {
+                fanOutResultSet.close();
+            } catch (Throwable e) {
+                // ignore
+            }
+        }
+        for (StatementWrapper item : fanOutStatements) {
+            try {
+                item.getStatement().close();
+            } catch (Throwable e) {
+                // ignore
+            }
+            Closeable exclusiveConnection = item.getExclusiveConnection();
+            if (exclusiveConnection != null) {
+                try {
+                    exclusiveConnection.close();
+                } catch (Throwable e) {
+                    // ignore
+                }
+            }
+        }
+        fanOutStatements = null;
+        fanOutResultSet = null;
+        fanOutUpdateCount = -1;
+    }
+
+    protected void reinitStatement(Set<DataSourceWrapper> excludedDataSources, int queryTimeout) throws SQLException {
+        DataSourceParam param = new DataSourceParam();
+        param.setReadOnly(initParam.isReadOnly());
+        param.setScNames(initParam.getScNames());
+        param.setStickyDataSources(initParam.getStickyDataSources());
+        param.setExcludedDataSources(excludedDataSources);
+        initStatementIfAbsent(param, initSql);
+        playbackInvocation(statement);
+        if (queryTimeout > 0) {
+            statement.setQueryTimeout(queryTimeout);
+        }
+        deadlineApplied = false;
+        applyDeadline();
     }
 
     protected void playbackInvocation(Statement statement) throws SQLException {
@@ -277,22 +606,72 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public boolean execute(String sql) throws SQLException {
-        sql = initStatementAndConvertSql(sql);
-        return statement.execute(sql);
+        long startTime = System.currentTimeMillis();
+        boolean initialized = statement == null;
+        SQLParsedResult parsedResult = parseSql0(sql);
+        if (parsedResult.isFanOut()) {
+            if (isFanOutQuery(parsedResult)) {
+                executeFanOutQuery(parsedResult, new QueryCallback());
+                return true;
+            } else {
+                executeFanOutUpdate(parsedResult, new UpdateCallback());
+                return false;
+            }
+        }
+        final String routedSql = initStatementAndConvertSql(sql, parsedResult);
+        return executeRead(initialized, startTime, new ReadCallback<Boolean>() {
+
+            @Override
+            public Boolean execute(Statement statement) throws SQLException {
+                return statement.execute(routedSql);
+            }
+        });
     }
 
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
-        sql = initStatementAndConvertSql(sql);
-        return statement.executeQuery(sql);
+        long startTime = System.currentTimeMillis();
+        boolean initialized = statement == null;
+        SQLParsedResult parsedResult = parseSql0(sql);
+        if (parsedResult.isFanOut()) {
+            return executeFanOutQuery(parsedResult, new QueryCallback());
+        }
+        final String routedSql = initStatementAndConvertSql(sql, parsedResult);
+        return executeRead(initialized, startTime, new ReadCallback<ResultSet>() {
+
+            @Override
+            public ResultSet execute(Statement statement) throws SQLException {
+                return statement.executeQuery(routedSql);
+            }
+        });
     }
 
     @Override
     public int executeUpdate(String sql) throws SQLException {
-        sql = initStatementAndConvertSql(sql);
+        SQLParsedResult parsedResult = parseSql0(sql);
+        if (parsedResult.isFanOut()) {
+            return executeFanOutUpdate(parsedResult, new UpdateCallback());
+        }
+        sql = initStatementAndConvertSql(sql, parsedResult);
         return statement.executeUpdate(sql);
     }
 
+    private static class QueryCallback implements FanOutCallback<ResultSet> {
+
+        @Override
+        public ResultSet execute(Statement statement, String sql) throws SQLException {
+            return statement.executeQuery(sql);
+        }
+    }
+
+    private static class UpdateCallback implements FanOutCallback<Integer> {
+
+        @Override
+        public Integer execute(Statement statement, String sql) throws SQLException {
+            return statement.executeUpdate(sql);
+        }
+    }
+
     @Override
     public int executeUpdate(String sql, String[] columnNames) throws SQLException {
         sql = initStatementAndConvertSql(sql);
@@ -355,15 +734,14 @@ public abstract class DDRStatementImpl implements DDRStatement {
         }
     }
 
-    // 未初始化前可以调用的方法
+    // 未初始化前可以调用的方法(初始化后依然记录属性值, 用于重试时回放)
     @Override
     public void setMaxFieldSize(int max) throws SQLException {
         if (statement != null) {
             statement.setMaxFieldSize(max);
-        } else {
-            tag.setMaxFieldSize(true);
-            prop.setMaxFieldSize(max);
         }
+        tag.setMaxFieldSize(true);
+        prop.setMaxFieldSize(max);
     }
 
     @Override
@@ -412,20 +790,18 @@ public abstract class DDRStatementImpl implements DDRStatement {
     public void setMaxRows(int max) throws SQLException {
         if (statement != null) {
             statement.setMaxRows(max);
-        } else {
-            tag.setMaxRows(true);
-            prop.setMaxRows(max);
         }
+        tag.setMaxRows(true);
+        prop.setMaxRows(max);
     }
 
     @Override
     public void setFetchDirection(int direction) throws SQLException {
         if (statement != null) {
             statement.setFetchDirection(direction);
-        } else {
-            tag.setFetchDirection(true);
-            prop.setFetchDirection(direction);
         }
+        tag.setFetchDirection(true);
+        prop.setFetchDirection(direction);
     }
 
     @Override
@@ -453,10 +829,9 @@ public abstract class DDRStatementImpl implements DDRStatement {
     public void setFetchSize(int rows) throws SQLException {
         if (statement != null) {
             statement.setFetchSize(rows);
-        } else {
-            tag.setFetchSize(true);
-            prop.setFetchSize(rows);
         }
+        tag.setFetchSize(true);
+        prop.setFetchSize(rows);
     }
 
     @Override
@@ -484,10 +859,9 @@ public abstract class DDRStatementImpl implements DDRStatement {
     public void setQueryTimeout(int seconds) throws SQLException {
         if (statement != null) {
             statement.setQueryTimeout(seconds);
-        } else {
-            tag.setQueryTimeout(true);
-            prop.setQueryTimeout(seconds);
         }
+        tag.setQueryTimeout(true);
+        prop.setQueryTimeout(seconds);
     }
 
     @Override
@@ -515,10 +889,9 @@ public abstract class DDRStatementImpl implements DDRStatement {
     public void closeOnCompletion() throws SQLException {
         if (statement != null) {
             statement.closeOnCompletion();
-        } else {
-            tag.setCloseOnCompletion(true);
-            prop.setCloseOnCompletion(true);
         }
+        tag.setCloseOnCompletion(true);
+        prop.setCloseOnCompletion(true);
     }
 
     @Override
@@ -546,10 +919,9 @@ public abstract class DDRStatementImpl implements DDRStatement {
     public void setPoolable(boolean poolable) throws SQLException {
         if (statement != null) {
             statement.setPoolable(poolable);
-        } else {
-            tag.setPoolable(true);
-            prop.setPoolable(poolable);
         }
+        tag.setPoolable(true);
+        prop.setPoolable(poolable);
     }
 
     @Override
@@ -577,10 +949,9 @@ public abstract class DDRStatementImpl implements DDRStatement {
     public void setEscapeProcessing(boolean enable) throws SQLException {
         if (statement != null) {
             statement.setEscapeProcessing(enable);
-        } else {
-            tag.setEscapeProcessing(true);
-            prop.setEscapeProcessing(enable);
         }
+        tag.setEscapeProcessing(true);
+        prop.setEscapeProcessing(enable);
     }
 
     @Override
@@ -613,6 +984,7 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public void close() throws SQLException {
+        closeFanOutStatements();
         if (statement != null) {
             statement.close();
         } else {// TODO
@@ -622,6 +994,12 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public void cancel() throws SQLException {
+        List<StatementWrapper> fanOutStatements = this.fanOutStatements;
+        if (fanOutStatements != null) {
+            for (StatementWrapper item : fanOutStatements) {
+                item.getStatement().cancel();
+            }
+        }
         if (statement != null) {
             statement.cancel();
         } else {// TODO
@@ -640,7 +1018,9 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public boolean getMoreResults(int current) throws SQLException {
-        if (statement != null) {
+        if (isFanOutExecuted()) {
+            return getMoreFanOutResults();
+        } else if (statement != null) {
             return statement.getMoreResults(current);
         } else {
             throw new UninitializedStatusException(
@@ -650,13 +1030,24 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public boolean getMoreResults() throws SQLException {
-        if (statement != null) {
+        if (isFanOutExecuted()) {
+            return getMoreFanOutResults();
+        } else if (statement != null) {
             return statement.getMoreResults();
         } else {
             throw new UninitializedStatusException("Can't invoke 'getMoreResults()' before statement is initialized");
         }
     }
 
+    private boolean getMoreFanOutResults() throws SQLException {
+        if (fanOutResultSet != null) {
+            fanOutResultSet.close();
+            fanOutResultSet = null;
+        }
+        fanOutUpdateCount = -1;
+        return false;
+    }
+
     @Override
     public int getResultSetHoldability() throws SQLException {
         if (statement != null) {
@@ -669,7 +1060,9 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public ResultSet getResultSet() throws SQLException {
-        if (statement != null) {
+        if (isFanOutExecuted()) {
+            return fanOutResultSet;
+        } else if (statement != null) {
             return statement.getResultSet();
         } else {
             throw new UninitializedStatusException("Can't invoke 'getResultSet()' before statement is initialized");
@@ -678,7 +1071,9 @@ public abstract class DDRStatementImpl implements DDRStatement {
 
     @Override
     public int getUpdateCount() throws SQLException {
-        if (statement != null) {
+        if (isFanOutExecuted()) {
+            return getFanOutUpdateCount();
+        } else if (statement != null) {
             return statement.getUpdateCount();
         } else {
             throw new UninitializedStatusException("Can't invoke 'getUpdateCount()' before statement is initialized");
@@ -704,6 +1099,10 @@ public abstract class DDRStatementImpl implements DDRStatement {
         }
     }
 
+    protected int getFanOutUpdateCount() {
+        return fanOutUpdateCount;
+    }
+
     @Override
     public SQLWarning getWarnings() throws SQLException {
         if (statement != null) {
@@ -15,6 +15,7 @@
  */
 package org.hellojavaer.ddal.ddr.datasource.jdbc;
 
+import java.io.Closeable;
 import java.sql.Connection;
 import java.sql.Statement;
 import java.util.Set;
@@ -25,9 +26,12 @@ import java.util.Set;
  */
 public class StatementWrapper {
 
-    private Statement   statement;
-    private Connection  connection;
-    private Set<String> schemas;
+    private Statement         statement;
+    private Connection        connection;
+    private Set<String>       schemas;
+    private DataSourceWrapper dataSourceWrapper;
+    // physical connection used only by current statement, which should be closed with the statement
+    private Closeable         exclusiveConnection;
 
     public StatementWrapper(Connection connection, Statement statement, Set<String> schemas) {
         this.connection = connection;
@@ -35,6 +39,12 @@ public class StatementWrapper {
         this.schemas = schemas;
     }
 
+    public StatementWrapper(Connection connection, Statement statement, Set<String> schemas,
+                            DataSourceWrapper dataSourceWrapper) {
+        this(connection, statement, schemas);
+        this.dataSourceWrapper = dataSourceWrapper;
+    }
+
     public Connection getConnection() {
         return connection;
     }
@@ -58,4 +68,20 @@ public class StatementWrapper {
     public void setSchemas(Set<String> schemas) {
         this.schemas = schemas;
     }
+
+    public DataSourceWrapper getDataSourceWrapper() {
+        return dataSourceWrapper;
+    }
+
+    public void setDataSourceWrapper(DataSourceWrapper dataSourceWrapper) {
+        this.dataSourceWrapper = dataSourceWrapper;
+    }
+
+    public Closeable getExclusiveConnection() {
+        return exclusiveConnection;
+    }
+
+    public void setExclusiveConnection(Closeable exclusiveConnection) {
+        this.exclusiveConnection = exclusiveConnection;
+    }
 }
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.fanout;
+
+import org.hellojavaer.ddal.ddr.utils.DDRDaemonThreadFactory;
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 并行执行扇出语句的各个子语句, 按完成顺序收集结果.
+ * 任意一个子语句失败或超过截止时间时, 通过Statement.cancel()取消其余仍在执行的子语句, 尚未开始的子语句不再执行.
+ * 未设置executorService时使用有界的守护线程池(最多poolSize个线程, 等待队列长度为queueSize),
+ * 线程和队列都满时由调用线程直接执行子语句
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class FanOutExecutor {
+
+    private Logger                   logger    = LoggerFactory.getLogger(getClass());
+
+    private ExecutorService          executorService;
+    private int                      poolSize  = Runtime.getRuntime().availableProcessors() * 4;
+    private int                      queueSize = 1024;
+
+    private volatile ExecutorService defaultExecutorService;
+
+    public FanOutExecutor() {
+    }
+
+    public FanOutExecutor(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    public void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public void setPoolSize(int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    private ExecutorService getExecutor() {
+        if (executorService != null) {
+            return executorService;
+        }
+        ExecutorService executor = defaultExecutorService;
+        if (executor == null) {
+            synchronized (this) {
+                executor = defaultExecutorService;
+                if (executor == null) {
+                    if (poolSize <= 0) {
+                        throw new IllegalArgumentException("poolSize must be greater than 0");
+                    }
+                    BlockingQueue<Runnable> queue = queueSize > 0 ? new ArrayBlockingQueue<Runnable>(queueSize)
+                                                                  : new SynchronousQueue<Runnable>();
+                    ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60L,
+                                                                                   TimeUnit.SECONDS, queue,
+                                                                                   new DDRDaemonThreadFactory("ddal-fan-out"),
+                                                                                   new ThreadPoolExecutor.CallerRunsPolicy());
+                    threadPoolExecutor.allowCoreThreadTimeOut(true);
+                    executor = threadPoolExecutor;
+                    defaultExecutorService = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * @param deadline 截止时间(毫秒时间戳), null表示不限制
+     * @return 和tasks顺序一致的执行结果
+     */
+    public <T> List<T> execute(List<FanOutTask<T>> tasks, Long deadline) throws SQLException {
+        if (tasks.size() == 1) {
+            return Collections.singletonList(tasks.get(0).call());
+        }
+        CompletionService<T> completionService = new ExecutorCompletionService<T>(getExecutor());
+        List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+        Map<Future<T>, Integer> indexes = new IdentityHashMap<Future<T>, Integer>(tasks.size());
+        try {
+            for (FanOutTask<T> task : tasks) {
+                Future<T> future = completionService.submit(task);
+                indexes.put(future, futures.size());
+                futures.add(future);
+            }
+        } catch (RejectedExecutionException e) {
+            cancel(tasks, futures);
+            throw new SQLException("Fan-out sub statements are rejected by executor", e);
+        }
+        List<T> results = new ArrayList<T>(Collections.<T> nCopies(tasks.size(), null));
+        for (int i = 0; i < tasks.size(); i++) {
+            Future<T> future = null;
+            try {
+                if (deadline == null) {
+                    future = completionService.take();
+                } else {
+                    long remaining = deadline - System.currentTimeMillis();
+                    future = remaining > 0 ? completionService.poll(remaining, TimeUnit.MILLISECONDS) : completionService.poll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel(tasks, futures);
+                throw new SQLException("Interrupted while waiting for fan-out sub statements", e);
+            }
+            if (future == null) {
+                cancel(tasks, futures);
+                throw new SQLTimeoutException("Deadline exceeded, " + (tasks.size() - i) + " of " + tasks.size()
+                                              + " fan-out sub statements are cancelled");
+            }
+            try {
+                results.set(indexes.get(future), future.get());
+            } catch (ExecutionException e) {
+                cancel(tasks, futures);
+                throw toSQLException(e.getCause());
+            } catch (InterruptedException | CancellationException e) {
+                cancel(tasks, futures);
+                throw new SQLException("Fan-out sub statement is interrupted", e);
+            }
+        }
+        return results;
+    }
+
+    private <T> void cancel(List<FanOutTask<T>> tasks, List<Future<T>> futures) {
+        for (int i = 0; i < futures.size(); i++) {
+            Future<T> future = futures.get(i);
+            if (future.isDone()) {
+                continue;
+            }
+            // 不中断线程, 中断正在读写socket的线程会导致部分驱动的连接不可用
+            future.cancel(false);
+            try {
+                tasks.get(i).getStatement().cancel();
+            } catch (Throwable e) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("[FanOut] cancel sub statement failed", e);
+                }
+            }
+        }
+    }
+
+    private static SQLException toSQLException(Throwable e) {
+        if (e instanceof SQLException) {
+            return (SQLException) e;
+        } else if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else {
+            return new SQLException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("executorService", executorService)//
+        .append("poolSize", poolSize)//
+        .append("queueSize", queueSize)//
+        .toString();
+    }
+}
@@ -0,0 +1,1192 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.fanout;
+
+import org.hellojavaer.ddal.ddr.sqlparse.ResultMergeInfo;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 把扇出查询各个子语句的结果集合并成一个只能向前遍历的结果集.
+ * 没有排序列时按子语句的顺序依次遍历各个结果集; 有排序列时各个子结果集本身已经有序, 用小顶堆做多路归并.
+ * 取值方法都委托给当前行所在的子结果集
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class MergedResultSet implements ResultSet {
+
+    private final Statement         statement;
+    private final List<ResultSet>   resultSets;
+    private final ResultMergeInfo   mergeInfo;
+
+    private int                     index  = 0;
+    private PriorityQueue<Cursor>   queue  = null;
+    private Cursor                  cursor = null;
+    private ResultSet               current;
+    private long                    row    = 0;
+    private boolean                 afterLast;
+    private boolean                 closed;
+
+    public MergedResultSet(Statement statement, List<ResultSet> resultSets, ResultMergeInfo mergeInfo) {
+        if (resultSets == null || resultSets.isEmpty()) {
+            throw new IllegalArgumentException("resultSets can't be empty");
+        }
+        this.statement = statement;
+        this.resultSets = resultSets;
+        this.mergeInfo = mergeInfo;
+    }
+
+    private boolean isSorted() {
+        return mergeInfo != null && mergeInfo.getOrderByItems() != null && !mergeInfo.getOrderByItems().isEmpty();
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        if (closed) {
+            throw new SQLException("ResultSet is closed");
+        }
+        if (afterLast) {
+            return false;
+        }
+        boolean hasNext;
+        if (mergeInfo != null && mergeInfo.getLimit() != null && row >= mergeInfo.getLimit()) {
+            hasNext = false;
+        } else if (isSorted()) {
+            hasNext = nextSorted();
+        } else {
+            hasNext = nextInOrder();
+        }
+        if (hasNext) {
+            row++;
+        } else {
+            current = null;
+            afterLast = true;
+        }
+        return hasNext;
+    }
+
+    private boolean nextInOrder() throws SQLException {
+        while (index < resultSets.size()) {
+            ResultSet rs = resultSets.get(index);
+            if (rs.next()) {
+                current = rs;
+                return true;
+            }
+            index++;
+        }
+        return false;
+    }
+
+    private boolean nextSorted() throws SQLException {
+        if (queue == null) {
+            List<ResultMergeInfo.OrderByItem> orderByItems = mergeInfo.getOrderByItems();
+            queue = new PriorityQueue<Cursor>(resultSets.size());
+            for (int i = 0; i < resultSets.size(); i++) {
+                ResultSet rs = resultSets.get(i);
+                int[] columnIndexes = new int[orderByItems.size()];
+                for (int j = 0; j < columnIndexes.length; j++) {
+                    columnIndexes[j] = rs.findColumn(orderByItems.get(j).getColumnLabel());
+                }
+                Cursor item = new Cursor(i, rs, columnIndexes);
+                if (item.next()) {
+                    queue.add(item);
+                }
+            }
+        } else if (cursor != null && cursor.next()) {
+            queue.add(cursor);
+        }
+        cursor = queue.poll();
+        if (cursor == null) {
+            return false;
+        } else {
+            current = cursor.resultSet;
+            return true;
+        }
+    }
+
+    private class Cursor implements Comparable<Cursor> {
+
+        private final int       order;
+        private final ResultSet resultSet;
+        private final int[]     columnIndexes;
+        private final Object[]  values;
+
+        public Cursor(int order, ResultSet resultSet, int[] columnIndexes) {
+            this.order = order;
+            this.resultSet = resultSet;
+            this.columnIndexes = columnIndexes;
+            this.values = new Object[columnIndexes.length];
+        }
+
+        public boolean next() throws SQLException {
+            if (!resultSet.next()) {
+                return false;
+            }
+            for (int i = 0; i < columnIndexes.length; i++) {
+                Object value = resultSet.getObject(columnIndexes[i]);
+                if (value != null && !(value instanceof Comparable<?>)) {
+                    throw new SQLException("Value of order by column '"
+                                           + mergeInfo.getOrderByItems().get(i).getColumnLabel() + "' of type "
+                                           + value.getClass().getName() + " is not comparable");
+                }
+                values[i] = value;
+            }
+            return true;
+        }
+
+        @Override
+        public int compareTo(Cursor o) {
+            List<ResultMergeInfo.OrderByItem> orderByItems = mergeInfo.getOrderByItems();
+            for (int i = 0; i < values.length; i++) {
+                int result = compare(values[i], o.values[i]);
+                if (result != 0) {
+                    return orderByItems.get(i).isAsc() ? result : -result;
+                }
+            }
+            // 排序值相同时保持子语句的顺序
+            return order - o.order;
+        }
+    }
+
+    /**
+     * 和mysql一致, 升序时null排在最前面
+     */
+    private static int compare(Object a, Object b) {
+        if (a == null) {
+            return b == null ? 0 : -1;
+        } else if (b == null) {
+            return 1;
+        } else if (a instanceof Number && b instanceof Number && a.getClass() != b.getClass()) {
+            return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+        } else {
+            // 同一列的值类型相同, 已在读取时校验为Comparable
+            @SuppressWarnings("unchecked")
+            Comparable<Object> comparable = (Comparable<Object>) a;
+            return comparable.compareTo(b);
+        }
+    }
+
+    private ResultSet current() throws SQLException {
+        if (current == null) {
+            if (closed) {
+                throw new SQLException("ResultSet is closed");
+            } else {
+                throw new SQLException("No current row, 'next()' isn't invoked or there are no more rows");
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        current = null;
+        SQLException exception = null;
+        for (ResultSet rs : resultSets) {
+            try {
+                rs.close();
+            } catch (SQLException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed;
+    }
+
+    @Override
+    public Statement getStatement() throws SQLException {
+        return statement;
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() throws SQLException {
+        return resultSets.get(0).getMetaData();
+    }
+
+    @Override
+    public int findColumn(String x0) throws SQLException {
+        return resultSets.get(0).findColumn(x0);
+    }
+
+    @Override
+    public void setFetchSize(int x0) throws SQLException {
+        for (ResultSet rs : resultSets) {
+            rs.setFetchSize(x0);
+        }
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return resultSets.get(0).getFetchSize();
+    }
+
+    @Override
+    public void setFetchDirection(int x0) throws SQLException {
+        if (x0 != FETCH_FORWARD) {
+            throw new SQLFeatureNotSupportedException("Merged result set only supports FETCH_FORWARD");
+        }
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return FETCH_FORWARD;
+    }
+
+    @Override
+    public int getType() throws SQLException {
+        return TYPE_FORWARD_ONLY;
+    }
+
+    @Override
+    public int getConcurrency() throws SQLException {
+        return resultSets.get(0).getConcurrency();
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        return resultSets.get(0).getHoldability();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        SQLWarning warning = null;
+        for (ResultSet rs : resultSets) {
+            SQLWarning item = rs.getWarnings();
+            if (item == null) {
+                continue;
+            }
+            if (warning == null) {
+                warning = item;
+            } else {
+                warning.setNextWarning(item);
+            }
+        }
+        return warning;
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        for (ResultSet rs : resultSets) {
+            rs.clearWarnings();
+        }
+    }
+
+    @Override
+    public int getRow() throws SQLException {
+        return current == null ? 0 : (int) row;
+    }
+
+    @Override
+    public boolean isBeforeFirst() throws SQLException {
+        return row == 0 && !afterLast;
+    }
+
+    @Override
+    public boolean isAfterLast() throws SQLException {
+        return afterLast && row > 0;
+    }
+
+    @Override
+    public boolean isFirst() throws SQLException {
+        return row == 1 && current != null;
+    }
+
+    @Override
+    public boolean isLast() throws SQLException {
+        throw new SQLFeatureNotSupportedException("isLast");
+    }
+
+    @Override
+    public String getCursorName() throws SQLException {
+        throw new SQLFeatureNotSupportedException("getCursorName");
+    }
+
+    // 只能向前遍历
+    @Override
+    public void beforeFirst() throws SQLException {
+        throw new SQLFeatureNotSupportedException("beforeFirst");
+    }
+
+    @Override
+    public void afterLast() throws SQLException {
+        throw new SQLFeatureNotSupportedException("afterLast");
+    }
+
+    @Override
+    public boolean first() throws SQLException {
+        throw new SQLFeatureNotSupportedException("first");
+    }
+
+    @Override
+    public boolean last() throws SQLException {
+        throw new SQLFeatureNotSupportedException("last");
+    }
+
+    @Override
+    public boolean absolute(int x0) throws SQLException {
+        throw new SQLFeatureNotSupportedException("absolute");
+    }
+
+    @Override
+    public boolean relative(int x0) throws SQLException {
+        throw new SQLFeatureNotSupportedException("relative");
+    }
+
+    @Override
+    public boolean previous() throws SQLException {
+        throw new SQLFeatureNotSupportedException("previous");
+    }
+
+    @Override
+    public void moveToInsertRow() throws SQLException {
+        throw new SQLFeatureNotSupportedException("moveToInsertRow");
+    }
+
+    @Override
+    public void moveToCurrentRow() throws SQLException {
+        throw new SQLFeatureNotSupportedException("moveToCurrentRow");
+    }
+
+    // 委托给当前行所在的子结果集
+    @Override
+    public void cancelRowUpdates() throws SQLException {
+        current().cancelRowUpdates();
+    }
+
+    @Override
+    public void deleteRow() throws SQLException {
+        current().deleteRow();
+    }
+
+    @Override
+    public Array getArray(String x0) throws SQLException {
+        return current().getArray(x0);
+    }
+
+    @Override
+    public Array getArray(int x0) throws SQLException {
+        return current().getArray(x0);
+    }
+
+    @Override
+    public java.io.InputStream getAsciiStream(String x0) throws SQLException {
+        return current().getAsciiStream(x0);
+    }
+
+    @Override
+    public java.io.InputStream getAsciiStream(int x0) throws SQLException {
+        return current().getAsciiStream(x0);
+    }
+
+    @Override
+    @Deprecated
+    public java.math.BigDecimal getBigDecimal(String x0, int x1) throws SQLException {
+        return current().getBigDecimal(x0, x1);
+    }
+
+    @Override
+    public java.math.BigDecimal getBigDecimal(String x0) throws SQLException {
+        return current().getBigDecimal(x0);
+    }
+
+    @Override
+    @Deprecated
+    public java.math.BigDecimal getBigDecimal(int x0, int x1) throws SQLException {
+        return current().getBigDecimal(x0, x1);
+    }
+
+    @Override
+    public java.math.BigDecimal getBigDecimal(int x0) throws SQLException {
+        return current().getBigDecimal(x0);
+    }
+
+    @Override
+    public java.io.InputStream getBinaryStream(String x0) throws SQLException {
+        return current().getBinaryStream(x0);
+    }
+
+    @Override
+    public java.io.InputStream getBinaryStream(int x0) throws SQLException {
+        return current().getBinaryStream(x0);
+    }
+
+    @Override
+    public Blob getBlob(String x0) throws SQLException {
+        return current().getBlob(x0);
+    }
+
+    @Override
+    public Blob getBlob(int x0) throws SQLException {
+        return current().getBlob(x0);
+    }
+
+    @Override
+    public boolean getBoolean(String x0) throws SQLException {
+        return current().getBoolean(x0);
+    }
+
+    @Override
+    public boolean getBoolean(int x0) throws SQLException {
+        return current().getBoolean(x0);
+    }
+
+    @Override
+    public byte getByte(String x0) throws SQLException {
+        return current().getByte(x0);
+    }
+
+    @Override
+    public byte getByte(int x0) throws SQLException {
+        return current().getByte(x0);
+    }
+
+    @Override
+    public byte[] getBytes(String x0) throws SQLException {
+        return current().getBytes(x0);
+    }
+
+    @Override
+    public byte[] getBytes(int x0) throws SQLException {
+        return current().getBytes(x0);
+    }
+
+    @Override
+    public java.io.Reader getCharacterStream(String x0) throws SQLException {
+        return current().getCharacterStream(x0);
+    }
+
+    @Override
+    public java.io.Reader getCharacterStream(int x0) throws SQLException {
+        return current().getCharacterStream(x0);
+    }
+
+    @Override
+    public Clob getClob(String x0) throws SQLException {
+        return current().getClob(x0);
+    }
+
+    @Override
+    public Clob getClob(int x0) throws SQLException {
+        return current().getClob(x0);
+    }
+
+    @Override
+    public Date getDate(String x0, java.util.Calendar x1) throws SQLException {
+        return current().getDate(x0, x1);
+    }
+
+    @Override
+    public Date getDate(String x0) throws SQLException {
+        return current().getDate(x0);
+    }
+
+    @Override
+    public Date getDate(int x0, java.util.Calendar x1) throws SQLException {
+        return current().getDate(x0, x1);
+    }
+
+    @Override
+    public Date getDate(int x0) throws SQLException {
+        return current().getDate(x0);
+    }
+
+    @Override
+    public double getDouble(String x0) throws SQLException {
+        return current().getDouble(x0);
+    }
+
+    @Override
+    public double getDouble(int x0) throws SQLException {
+        return current().getDouble(x0);
+    }
+
+    @Override
+    public float getFloat(String x0) throws SQLException {
+        return current().getFloat(x0);
+    }
+
+    @Override
+    public float getFloat(int x0) throws SQLException {
+        return current().getFloat(x0);
+    }
+
+    @Override
+    public int getInt(String x0) throws SQLException {
+        return current().getInt(x0);
+    }
+
+    @Override
+    public int getInt(int x0) throws SQLException {
+        return current().getInt(x0);
+    }
+
+    @Override
+    public long getLong(String x0) throws SQLException {
+        return current().getLong(x0);
+    }
+
+    @Override
+    public long getLong(int x0) throws SQLException {
+        return current().getLong(x0);
+    }
+
+    @Override
+    public java.io.Reader getNCharacterStream(String x0) throws SQLException {
+        return current().getNCharacterStream(x0);
+    }
+
+    @Override
+    public java.io.Reader getNCharacterStream(int x0) throws SQLException {
+        return current().getNCharacterStream(x0);
+    }
+
+    @Override
+    public NClob getNClob(String x0) throws SQLException {
+        return current().getNClob(x0);
+    }
+
+    @Override
+    public NClob getNClob(int x0) throws SQLException {
+        return current().getNClob(x0);
+    }
+
+    @Override
+    public String getNString(String x0) throws SQLException {
+        return current().getNString(x0);
+    }
+
+    @Override
+    public String getNString(int x0) throws SQLException {
+        return current().getNString(x0);
+    }
+
+    @Override
+    public <T> T getObject(String x0, Class<T> x1) throws SQLException {
+        return current().getObject(x0, x1);
+    }
+
+    @Override
+    public Object getObject(String x0, java.util.Map<String, Class<?>> x1) throws SQLException {
+        return current().getObject(x0, x1);
+    }
+
+    @Override
+    public Object getObject(String x0) throws SQLException {
+        return current().getObject(x0);
+    }
+
+    @Override
+    public <T> T getObject(int x0, Class<T> x1) throws SQLException {
+        return current().getObject(x0, x1);
+    }
+
+    @Override
+    public Object getObject(int x0, java.util.Map<String, Class<?>> x1) throws SQLException {
+        return current().getObject(x0, x1);
+    }
+
+    @Override
+    public Object getObject(int x0) throws SQLException {
+        return current().getObject(x0);
+    }
+
+    @Override
+    public Ref getRef(String x0) throws SQLException {
+        return current().getRef(x0);
+    }
+
+    @Override
+    public Ref getRef(int x0) throws SQLException {
+        return current().getRef(x0);
+    }
+
+    @Override
+    public RowId getRowId(String x0) throws SQLException {
+        return current().getRowId(x0);
+    }
+
+    @Override
+    public RowId getRowId(int x0) throws SQLException {
+        return current().getRowId(x0);
+    }
+
+    @Override
+    public SQLXML getSQLXML(String x0) throws SQLException {
+        return current().getSQLXML(x0);
+    }
+
+    @Override
+    public SQLXML getSQLXML(int x0) throws SQLException {
+        return current().getSQLXML(x0);
+    }
+
+    @Override
+    public short getShort(String x0) throws SQLException {
+        return current().getShort(x0);
+    }
+
+    @Override
+    public short getShort(int x0) throws SQLException {
+        return current().getShort(x0);
+    }
+
+    @Override
+    public String getString(String x0) throws SQLException {
+        return current().getString(x0);
+    }
+
+    @Override
+    public String getString(int x0) throws SQLException {
+        return current().getString(x0);
+    }
+
+    @Override
+    public Time getTime(String x0, java.util.Calendar x1) throws SQLException {
+        return current().getTime(x0, x1);
+    }
+
+    @Override
+    public Time getTime(String x0) throws SQLException {
+        return current().getTime(x0);
+    }
+
+    @Override
+    public Time getTime(int x0, java.util.Calendar x1) throws SQLException {
+        return current().getTime(x0, x1);
+    }
+
+    @Override
+    public Time getTime(int x0) throws SQLException {
+        return current().getTime(x0);
+    }
+
+    @Override
+    public Timestamp getTimestamp(String x0, java.util.Calendar x1) throws SQLException {
+        return current().getTimestamp(x0, x1);
+    }
+
+    @Override
+    public Timestamp getTimestamp(String x0) throws SQLException {
+        return current().getTimestamp(x0);
+    }
+
+    @Override
+    public Timestamp getTimestamp(int x0, java.util.Calendar x1) throws SQLException {
+        return current().getTimestamp(x0, x1);
+    }
+
+    @Override
+    public Timestamp getTimestamp(int x0) throws SQLException {
+        return current().getTimestamp(x0);
+    }
+
+    @Override
+    public java.net.URL getURL(String x0) throws SQLException {
+        return current().getURL(x0);
+    }
+
+    @Override
+    public java.net.URL getURL(int x0) throws SQLException {
+        return current().getURL(x0);
+    }
+
+    @Override
+    @Deprecated
+    public java.io.InputStream getUnicodeStream(String x0) throws SQLException {
+        return current().getUnicodeStream(x0);
+    }
+
+    @Override
+    @Deprecated
+    public java.io.InputStream getUnicodeStream(int x0) throws SQLException {
+        return current().getUnicodeStream(x0);
+    }
+
+    @Override
+    public void insertRow() throws SQLException {
+        current().insertRow();
+    }
+
+    @Override
+    public void refreshRow() throws SQLException {
+        current().refreshRow();
+    }
+
+    @Override
+    public boolean rowDeleted() throws SQLException {
+        return current().rowDeleted();
+    }
+
+    @Override
+    public boolean rowInserted() throws SQLException {
+        return current().rowInserted();
+    }
+
+    @Override
+    public boolean rowUpdated() throws SQLException {
+        return current().rowUpdated();
+    }
+
+    @Override
+    public void updateArray(String x0, Array x1) throws SQLException {
+        current().updateArray(x0, x1);
+    }
+
+    @Override
+    public void updateArray(int x0, Array x1) throws SQLException {
+        current().updateArray(x0, x1);
+    }
+
+    @Override
+    public void updateAsciiStream(String x0, java.io.InputStream x1, int x2) throws SQLException {
+        current().updateAsciiStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateAsciiStream(String x0, java.io.InputStream x1, long x2) throws SQLException {
+        current().updateAsciiStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateAsciiStream(String x0, java.io.InputStream x1) throws SQLException {
+        current().updateAsciiStream(x0, x1);
+    }
+
+    @Override
+    public void updateAsciiStream(int x0, java.io.InputStream x1, int x2) throws SQLException {
+        current().updateAsciiStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateAsciiStream(int x0, java.io.InputStream x1, long x2) throws SQLException {
+        current().updateAsciiStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateAsciiStream(int x0, java.io.InputStream x1) throws SQLException {
+        current().updateAsciiStream(x0, x1);
+    }
+
+    @Override
+    public void updateBigDecimal(String x0, java.math.BigDecimal x1) throws SQLException {
+        current().updateBigDecimal(x0, x1);
+    }
+
+    @Override
+    public void updateBigDecimal(int x0, java.math.BigDecimal x1) throws SQLException {
+        current().updateBigDecimal(x0, x1);
+    }
+
+    @Override
+    public void updateBinaryStream(String x0, java.io.InputStream x1, int x2) throws SQLException {
+        current().updateBinaryStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateBinaryStream(String x0, java.io.InputStream x1, long x2) throws SQLException {
+        current().updateBinaryStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateBinaryStream(String x0, java.io.InputStream x1) throws SQLException {
+        current().updateBinaryStream(x0, x1);
+    }
+
+    @Override
+    public void updateBinaryStream(int x0, java.io.InputStream x1, int x2) throws SQLException {
+        current().updateBinaryStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateBinaryStream(int x0, java.io.InputStream x1, long x2) throws SQLException {
+        current().updateBinaryStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateBinaryStream(int x0, java.io.InputStream x1) throws SQLException {
+        current().updateBinaryStream(x0, x1);
+    }
+
+    @Override
+    public void updateBlob(String x0, java.io.InputStream x1, long x2) throws SQLException {
+        current().updateBlob(x0, x1, x2);
+    }
+
+    @Override
+    public void updateBlob(String x0, java.io.InputStream x1) throws SQLException {
+        current().updateBlob(x0, x1);
+    }
+
+    @Override
+    public void updateBlob(String x0, Blob x1) throws SQLException {
+        current().updateBlob(x0, x1);
+    }
+
+    @Override
+    public void updateBlob(int x0, java.io.InputStream x1, long x2) throws SQLException {
+        current().updateBlob(x0, x1, x2);
+    }
+
+    @Override
+    public void updateBlob(int x0, java.io.InputStream x1) throws SQLException {
+        current().updateBlob(x0, x1);
+    }
+
+    @Override
+    public void updateBlob(int x0, Blob x1) throws SQLException {
+        current().updateBlob(x0, x1);
+    }
+
+    @Override
+    public void updateBoolean(String x0, boolean x1) throws SQLException {
+        current().updateBoolean(x0, x1);
+    }
+
+    @Override
+    public void updateBoolean(int x0, boolean x1) throws SQLException {
+        current().updateBoolean(x0, x1);
+    }
+
+    @Override
+    public void updateByte(String x0, byte x1) throws SQLException {
+        current().updateByte(x0, x1);
+    }
+
+    @Override
+    public void updateByte(int x0, byte x1) throws SQLException {
+        current().updateByte(x0, x1);
+    }
+
+    @Override
+    public void updateBytes(String x0, byte[] x1) throws SQLException {
+        current().updateBytes(x0, x1);
+    }
+
+    @Override
+    public void updateBytes(int x0, byte[] x1) throws SQLException {
+        current().updateBytes(x0, x1);
+    }
+
+    @Override
+    public void updateCharacterStream(String x0, java.io.Reader x1, int x2) throws SQLException {
+        current().updateCharacterStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateCharacterStream(String x0, java.io.Reader x1, long x2) throws SQLException {
+        current().updateCharacterStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateCharacterStream(String x0, java.io.Reader x1) throws SQLException {
+        current().updateCharacterStream(x0, x1);
+    }
+
+    @Override
+    public void updateCharacterStream(int x0, java.io.Reader x1, int x2) throws SQLException {
+        current().updateCharacterStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateCharacterStream(int x0, java.io.Reader x1, long x2) throws SQLException {
+        current().updateCharacterStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateCharacterStream(int x0, java.io.Reader x1) throws SQLException {
+        current().updateCharacterStream(x0, x1);
+    }
+
+    @Override
+    public void updateClob(String x0, java.io.Reader x1, long x2) throws SQLException {
+        current().updateClob(x0, x1, x2);
+    }
+
+    @Override
+    public void updateClob(String x0, java.io.Reader x1) throws SQLException {
+        current().updateClob(x0, x1);
+    }
+
+    @Override
+    public void updateClob(String x0, Clob x1) throws SQLException {
+        current().updateClob(x0, x1);
+    }
+
+    @Override
+    public void updateClob(int x0, java.io.Reader x1, long x2) throws SQLException {
+        current().updateClob(x0, x1, x2);
+    }
+
+    @Override
+    public void updateClob(int x0, java.io.Reader x1) throws SQLException {
+        current().updateClob(x0, x1);
+    }
+
+    @Override
+    public void updateClob(int x0, Clob x1) throws SQLException {
+        current().updateClob(x0, x1);
+    }
+
+    @Override
+    public void updateDate(String x0, Date x1) throws SQLException {
+        current().updateDate(x0, x1);
+    }
+
+    @Override
+    public void updateDate(int x0, Date x1) throws SQLException {
+        current().updateDate(x0, x1);
+    }
+
+    @Override
+    public void updateDouble(String x0, double x1) throws SQLException {
+        current().updateDouble(x0, x1);
+    }
+
+    @Override
+    public void updateDouble(int x0, double x1) throws SQLException {
+        current().updateDouble(x0, x1);
+    }
+
+    @Override
+    public void updateFloat(String x0, float x1) throws SQLException {
+        current().updateFloat(x0, x1);
+    }
+
+    @Override
+    public void updateFloat(int x0, float x1) throws SQLException {
+        current().updateFloat(x0, x1);
+    }
+
+    @Override
+    public void updateInt(String x0, int x1) throws SQLException {
+        current().updateInt(x0, x1);
+    }
+
+    @Override
+    public void updateInt(int x0, int x1) throws SQLException {
+        current().updateInt(x0, x1);
+    }
+
+    @Override
+    public void updateLong(String x0, long x1) throws SQLException {
+        current().updateLong(x0, x1);
+    }
+
+    @Override
+    public void updateLong(int x0, long x1) throws SQLException {
+        current().updateLong(x0, x1);
+    }
+
+    @Override
+    public void updateNCharacterStream(String x0, java.io.Reader x1, long x2) throws SQLException {
+        current().updateNCharacterStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateNCharacterStream(String x0, java.io.Reader x1) throws SQLException {
+        current().updateNCharacterStream(x0, x1);
+    }
+
+    @Override
+    public void updateNCharacterStream(int x0, java.io.Reader x1, long x2) throws SQLException {
+        current().updateNCharacterStream(x0, x1, x2);
+    }
+
+    @Override
+    public void updateNCharacterStream(int x0, java.io.Reader x1) throws SQLException {
+        current().updateNCharacterStream(x0, x1);
+    }
+
+    @Override
+    public void updateNClob(String x0, java.io.Reader x1, long x2) throws SQLException {
+        current().updateNClob(x0, x1, x2);
+    }
+
+    @Override
+    public void updateNClob(String x0, java.io.Reader x1) throws SQLException {
+        current().updateNClob(x0, x1);
+    }
+
+    @Override
+    public void updateNClob(String x0, NClob x1) throws SQLException {
+        current().updateNClob(x0, x1);
+    }
+
+    @Override
+    public void updateNClob(int x0, java.io.Reader x1, long x2) throws SQLException {
+        current().updateNClob(x0, x1, x2);
+    }
+
+    @Override
+    public void updateNClob(int x0, java.io.Reader x1) throws SQLException {
+        current().updateNClob(x0, x1);
+    }
+
+    @Override
+    public void updateNClob(int x0, NClob x1) throws SQLException {
+        current().updateNClob(x0, x1);
+    }
+
+    @Override
+    public void updateNString(String x0, String x1) throws SQLException {
+        current().updateNString(x0, x1);
+    }
+
+    @Override
+    public void updateNString(int x0, String x1) throws SQLException {
+        current().updateNString(x0, x1);
+    }
+
+    @Override
+    public void updateNull(String x0) throws SQLException {
+        current().updateNull(x0);
+    }
+
+    @Override
+    public void updateNull(int x0) throws SQLException {
+        current().updateNull(x0);
+    }
+
+    @Override
+    public void updateObject(String x0, Object x1, int x2) throws SQLException {
+        current().updateObject(x0, x1, x2);
+    }
+
+    @Override
+    public void updateObject(String x0, Object x1) throws SQLException {
+        current().updateObject(x0, x1);
+    }
+
+    @Override
+    public void updateObject(int x0, Object x1, int x2) throws SQLException {
+        current().updateObject(x0, x1, x2);
+    }
+
+    @Override
+    public void updateObject(int x0, Object x1) throws SQLException {
+        current().updateObject(x0, x1);
+    }
+
+    @Override
+    public void updateRef(String x0, Ref x1) throws SQLException {
+        current().updateRef(x0, x1);
+    }
+
+    @Override
+    public void updateRef(int x0, Ref x1) throws SQLException {
+        current().updateRef(x0, x1);
+    }
+
+    @Override
+    public void updateRow() throws SQLException {
+        current().updateRow();
+    }
+
+    @Override
+    public void updateRowId(String x0, RowId x1) throws SQLException {
+        current().updateRowId(x0, x1);
+    }
+
+    @Override
+    public void updateRowId(int x0, RowId x1) throws SQLException {
+        current().updateRowId(x0, x1);
+    }
+
+    @Override
+    public void updateSQLXML(String x0, SQLXML x1) throws SQLException {
+        current().updateSQLXML(x0, x1);
+    }
+
+    @Override
+    public void updateSQLXML(int x0, SQLXML x1) throws SQLException {
+        current().updateSQLXML(x0, x1);
+    }
+
+    @Override
+    public void updateShort(String x0, short x1) throws SQLException {
+        current().updateShort(x0, x1);
+    }
+
+    @Override
+    public void updateShort(int x0, short x1) throws SQLException {
+        current().updateShort(x0, x1);
+    }
+
+    @Override
+    public void updateString(String x0, String x1) throws SQLException {
+        current().updateString(x0, x1);
+    }
+
+    @Override
+    public void updateString(int x0, String x1) throws SQLException {
+        current().updateString(x0, x1);
+    }
+
+    @Override
+    public void updateTime(String x0, Time x1) throws SQLException {
+        current().updateTime(x0, x1);
+    }
+
+    @Override
+    public void updateTime(int x0, Time x1) throws SQLException {
+        current().updateTime(x0, x1);
+    }
+
+    @Override
+    public void updateTimestamp(String x0, Timestamp x1) throws SQLException {
+        current().updateTimestamp(x0, x1);
+    }
+
+    @Override
+    public void updateTimestamp(int x0, Timestamp x1) throws SQLException {
+        current().updateTimestamp(x0, x1);
+    }
+
+    @Override
+    public boolean wasNull() throws SQLException {
+        return current().wasNull();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        throw new SQLException("ResultSet of type [" + getClass().getName() + "] cannot be unwrapped as ["
+                               + iface.getName() + "]");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+}
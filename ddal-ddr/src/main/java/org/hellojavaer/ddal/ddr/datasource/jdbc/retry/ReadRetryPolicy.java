@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.retry;
+
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 只读语句在返回结果前因连接异常或瞬时异常失败时,在同一个读库组中换一个数据源重试.
+ *
+ * <pre>
+ * 重试受两方面约束:
+ * 1. maxRetryTimes: 单条语句的最大重试次数
+ * 2. retry budget: 每秒重试次数不超过 max(minRetriesPerSecond, 读请求数 * retryRatio), 防止故障时重试放大流量
+ * </pre>
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 20/09/2017.
+ */
+public class ReadRetryPolicy {
+
+    private static final long WINDOW_MILLIS       = 1000;
+
+    private int               maxRetryTimes       = 1;
+    private double            retryRatio          = 0.1d;
+    private int               minRetriesPerSecond = 10;
+
+    private final Object      lock                = new Object();
+    private volatile long     windowStart         = System.currentTimeMillis();
+    private volatile long     lastWindowRequests  = 0;
+    private final AtomicLong  requests            = new AtomicLong();
+    private final AtomicLong  retries             = new AtomicLong();
+
+    public ReadRetryPolicy() {
+    }
+
+    public ReadRetryPolicy(int maxRetryTimes) {
+        setMaxRetryTimes(maxRetryTimes);
+    }
+
+    public ReadRetryPolicy(int maxRetryTimes, double retryRatio, int minRetriesPerSecond) {
+        setMaxRetryTimes(maxRetryTimes);
+        setRetryRatio(retryRatio);
+        setMinRetriesPerSecond(minRetriesPerSecond);
+    }
+
+    public int getMaxRetryTimes() {
+        return maxRetryTimes;
+    }
+
+    public void setMaxRetryTimes(int maxRetryTimes) {
+        if (maxRetryTimes < 0) {
+            throw new IllegalArgumentException("maxRetryTimes can't be less than 0");
+        }
+        this.maxRetryTimes = maxRetryTimes;
+    }
+
+    public double getRetryRatio() {
+        return retryRatio;
+    }
+
+    public void setRetryRatio(double retryRatio) {
+        if (retryRatio < 0) {
+            throw new IllegalArgumentException("retryRatio can't be less than 0");
+        }
+        this.retryRatio = retryRatio;
+    }
+
+    public int getMinRetriesPerSecond() {
+        return minRetriesPerSecond;
+    }
+
+    public void setMinRetriesPerSecond(int minRetriesPerSecond) {
+        if (minRetriesPerSecond < 0) {
+            throw new IllegalArgumentException("minRetriesPerSecond can't be less than 0");
+        }
+        this.minRetriesPerSecond = minRetriesPerSecond;
+    }
+
+    /**
+     * 连接级别异常(SQLState 08xxx)和瞬时异常可以重试; 超时异常说明语句本身执行慢, 不重试
+     */
+    public boolean isRetryable(SQLException e) {
+        if (e == null || e instanceof SQLTimeoutException) {
+            return false;
+        }
+        if (e instanceof SQLRecoverableException || e instanceof SQLTransientException
+            || e instanceof SQLNonTransientConnectionException) {
+            return true;
+        }
+        String sqlState = e.getSQLState();
+        return sqlState != null && sqlState.startsWith("08");
+    }
+
+    /**
+     * 每次执行只读语句时调用, 作为重试预算的基数
+     */
+    public void recordRequest() {
+        rollWindowIfNecessary();
+        requests.incrementAndGet();
+    }
+
+    /**
+     * 申请一次重试, 预算不足时返回false
+     */
+    public boolean tryAcquireRetry() {
+        rollWindowIfNecessary();
+        long base = Math.max(requests.get(), lastWindowRequests);
+        long allowed = Math.max(minRetriesPerSecond, (long) (base * retryRatio));
+        if (retries.incrementAndGet() <= allowed) {
+            return true;
+        } else {
+            retries.decrementAndGet();
+            return false;
+        }
+    }
+
+    private void rollWindowIfNecessary() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= WINDOW_MILLIS) {
+            synchronized (lock) {
+                if (now - windowStart >= WINDOW_MILLIS) {
+                    lastWindowRequests = now - windowStart >= 2 * WINDOW_MILLIS ? 0 : requests.get();
+                    requests.set(0);
+                    retries.set(0);
+                    windowStart = now;
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("maxRetryTimes", maxRetryTimes)//
+        .append("retryRatio", retryRatio)//
+        .append("minRetriesPerSecond", minRetriesPerSecond)//
+        .toString();
+    }
+}
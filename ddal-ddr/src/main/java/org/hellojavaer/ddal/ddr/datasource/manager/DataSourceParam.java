@@ -15,8 +15,10 @@
  */
 package org.hellojavaer.ddal.ddr.datasource.manager;
 
+import org.hellojavaer.ddal.ddr.datasource.jdbc.DataSourceWrapper;
 import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
 
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -25,8 +27,14 @@ import java.util.Set;
  */
 public class DataSourceParam {
 
-    private Set<String> scNames;
-    private boolean     readOnly;
+    private Set<String>                    scNames;
+    private boolean                        readOnly;
+    // read-only datasources pinned by the caller, key is scName. null means no affinity
+    private Map<String, DataSourceWrapper> stickyDataSources;
+    // read-only datasources that must not be chosen, eg: replicas which have just failed
+    private Set<DataSourceWrapper>         excludedDataSources;
+    // sub statement of a fan-out statement needs a physical connection of its own
+    private boolean                        exclusiveConnection;
 
     public Set<String> getScNames() {
         return scNames;
@@ -44,6 +52,30 @@ public class DataSourceParam {
         this.readOnly = readOnly;
     }
 
+    public Map<String, DataSourceWrapper> getStickyDataSources() {
+        return stickyDataSources;
+    }
+
+    public void setStickyDataSources(Map<String, DataSourceWrapper> stickyDataSources) {
+        this.stickyDataSources = stickyDataSources;
+    }
+
+    public Set<DataSourceWrapper> getExcludedDataSources() {
+        return excludedDataSources;
+    }
+
+    public void setExcludedDataSources(Set<DataSourceWrapper> excludedDataSources) {
+        this.excludedDataSources = excludedDataSources;
+    }
+
+    public boolean isExclusiveConnection() {
+        return exclusiveConnection;
+    }
+
+    public void setExclusiveConnection(boolean exclusiveConnection) {
+        this.exclusiveConnection = exclusiveConnection;
+    }
+
     @Override
     public String toString() {
         return new DDRToStringBuilder().append("readOnly", readOnly).append("scNames", scNames).toString();
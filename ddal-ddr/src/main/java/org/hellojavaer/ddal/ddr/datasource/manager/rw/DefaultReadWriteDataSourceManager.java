@@ -808,14 +808,35 @@ public class DefaultReadWriteDataSourceManager implements ReadWriteDataSourceMan
                 throw new DataSourceNotFoundException("No 'readOnlyDataSource' is configured");
             } else {
                 WeightedDataSourceWrapper weightedDataSourceWrapper = null;
+                Map<String, DataSourceWrapper> stickyDataSources = param.getStickyDataSources();
                 for (String scName : param.getScNames()) {
                     if (weightedDataSourceWrapper == null) {
                         WeightedRandom weightedRandom = this.readOnlyDataSourceQueryCache.get(scName);
                         if (weightedRandom == null) {
                             throw new DataSourceNotFoundException("schema:'" + scName
                                                                   + "' isn't configured in 'readOnlyDataSource' list ");
-                        } else {
-                            weightedDataSourceWrapper = (WeightedDataSourceWrapper) weightedRandom.nextValue();
+                        }
+                        Set<DataSourceWrapper> excludedDataSources = param.getExcludedDataSources();
+                        if (stickyDataSources != null) {
+                            weightedDataSourceWrapper = getStickyDataSource(weightedRandom,
+                                                                            stickyDataSources.get(scName));
+                            if (weightedDataSourceWrapper != null && excludedDataSources != null
+                                && excludedDataSources.contains(weightedDataSourceWrapper.getDataSourceWrapper())) {
+                                weightedDataSourceWrapper = null;
+                            }
+                        }
+                        if (weightedDataSourceWrapper == null) {
+                            if (excludedDataSources == null || excludedDataSources.isEmpty()) {
+                                weightedDataSourceWrapper = (WeightedDataSourceWrapper) weightedRandom.nextValue();
+                            } else {
+                                weightedDataSourceWrapper = (WeightedDataSourceWrapper) weightedRandom.nextValue(getExcludedValues(weightedRandom,
+                                                                                                                                   excludedDataSources));
+                                if (weightedDataSourceWrapper == null) {
+                                    throw new DataSourceNotFoundException("schema:'" + scName
+                                                                          + "' has no available 'readOnlyDataSource' except "
+                                                                          + excludedDataSources);
+                                }
+                            }
                         }
                     } else {
                         if (!weightedDataSourceWrapper.getDataSourceWrapper().getSchemas().contains(scName)) {
@@ -830,6 +851,11 @@ public class DefaultReadWriteDataSourceManager implements ReadWriteDataSourceMan
                         }
                     }
                 }
+                if (stickyDataSources != null) {
+                    for (String scName : param.getScNames()) {
+                        stickyDataSources.put(scName, weightedDataSourceWrapper.getDataSourceWrapper());
+                    }
+                }
                 // log
                 if (stdLogger.isDebugEnabled()) {
                     stdLogger.debug(new StringBuilder("[GetDataSource] ")//
@@ -875,4 +901,31 @@ public class DefaultReadWriteDataSourceManager implements ReadWriteDataSourceMan
         }
     }
 
+    private Set<Object> getExcludedValues(WeightedRandom weightedRandom, Set<DataSourceWrapper> excludedDataSources) {
+        Set<Object> excludedValues = new HashSet<Object>();
+        for (Object value : weightedRandom.getValues()) {
+            if (excludedDataSources.contains(((WeightedDataSourceWrapper) value).getDataSourceWrapper())) {
+                excludedValues.add(value);
+            }
+        }
+        return excludedValues;
+    }
+
+    /**
+     * 已绑定的只读数据源如果被下线(权重被置为0)或被移除,则返回null,由调用方重新选择
+     */
+    private WeightedDataSourceWrapper getStickyDataSource(WeightedRandom weightedRandom,
+                                                          DataSourceWrapper stickyDataSource) {
+        if (stickyDataSource == null) {
+            return null;
+        }
+        for (Object value : weightedRandom.getValues()) {
+            WeightedDataSourceWrapper weightedDataSourceWrapper = (WeightedDataSourceWrapper) value;
+            if (weightedDataSourceWrapper.getDataSourceWrapper() == stickyDataSource) {
+                return weightedDataSourceWrapper;
+            }
+        }
+        return null;
+    }
+
 }
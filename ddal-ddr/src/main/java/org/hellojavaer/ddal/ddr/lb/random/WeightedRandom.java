@@ -15,8 +15,11 @@
  */
 package org.hellojavaer.ddal.ddr.lb.random;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 /**
  *
@@ -27,6 +30,7 @@ public class WeightedRandom {
     private Random            random;
     private int               allWeight;
     private InnerWeightItem[] innerWeightItems;
+    private List<Object>      values;
 
     public WeightedRandom(Long seed, List<WeightItem> itemList) {
         if (itemList == null || itemList.isEmpty()) {
@@ -36,6 +40,7 @@ public class WeightedRandom {
         int count = 0;
         innerWeightItems = new InnerWeightItem[itemList.size()];
         int i = 0;
+        List<Object> values = new ArrayList<Object>(itemList.size());
         for (WeightItem item : itemList) {
             InnerWeightItem innerWeightItem = new InnerWeightItem();
             innerWeightItem.setStart(count);
@@ -43,8 +48,17 @@ public class WeightedRandom {
             count += item.getWeight();
             innerWeightItem.setValue(item.getValue());
             innerWeightItems[i++] = innerWeightItem;
+            values.add(item.getValue());
         }
         allWeight = count;
+        this.values = Collections.unmodifiableList(values);
+    }
+
+    /**
+     * all candidate values(whose weight is greater than 0) in the order they are configured
+     */
+    public List<Object> getValues() {
+        return values;
     }
 
     public Object nextValue() {
@@ -57,6 +71,34 @@ public class WeightedRandom {
         return innerWeightItem.getValue();
     }
 
+    /**
+     * 在排除指定候选值后按权重随机选择, 没有可选值时返回null
+     */
+    public Object nextValue(Set<Object> excludedValues) {
+        if (excludedValues == null || excludedValues.isEmpty()) {
+            return nextValue();
+        }
+        int weight = 0;
+        for (InnerWeightItem item : innerWeightItems) {
+            if (!excludedValues.contains(item.getValue())) {
+                weight += item.getEnd() - item.getStart() + 1;
+            }
+        }
+        if (weight <= 0) {
+            return null;
+        }
+        int i = random.nextInt(weight);
+        for (InnerWeightItem item : innerWeightItems) {
+            if (!excludedValues.contains(item.getValue())) {
+                i -= item.getEnd() - item.getStart() + 1;
+                if (i < 0) {
+                    return item.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
     private static InnerWeightItem binarySearch(InnerWeightItem[] a, int key) {
         int low = 0;
         int high = a.length - 1;
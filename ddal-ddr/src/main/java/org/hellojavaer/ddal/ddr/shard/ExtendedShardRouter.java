@@ -0,0 +1,36 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard;
+
+/**
+ * ShardRouter的可选扩展, 提供预先解析好的表路由句柄和绑定表路由.
+ * 未实现该接口的ShardRouter由 {@link ShardRouteUtils} 按ShardRouter中的方法适配, 此时不支持绑定表
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public interface ExtendedShardRouter extends ShardRouter {
+
+    /**
+     * 返回表的路由句柄, 表没有路由配置时返回null
+     */
+    TableRouteHandle getTableRouteHandle(String scName, String tbName);
+
+    /**
+     * 返回表(scName, tbName)中与bindingRouteInfo处于同一分片的物理表, bindingRouteInfo为同一个绑定组中另一个表的物理表.
+     * 表为广播表时返回bindingRouteInfo所在schema中的副本. 没有对应的物理表时返回null
+     */
+    ShardRouteInfo getBindingRouteInfo(String scName, String tbName, ShardRouteInfo bindingRouteInfo);
+}
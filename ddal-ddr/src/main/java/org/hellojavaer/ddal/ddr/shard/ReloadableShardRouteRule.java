@@ -0,0 +1,31 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard;
+
+/**
+ * 路由结果可能在运行时变化的路由规则(如定时重新加载的目录). 路由器会缓存路由结果, 规则变化后必须通知监听器, 由路由器重新构建缓存
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public interface ReloadableShardRouteRule extends ShardRouteRule {
+
+    /**
+     * 同一个监听器只注册一次
+     */
+    void addReloadListener(Runnable listener);
+
+    void removeReloadListener(Runnable listener);
+}
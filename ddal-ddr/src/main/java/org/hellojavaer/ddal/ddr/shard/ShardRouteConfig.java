@@ -18,14 +18,18 @@ package org.hellojavaer.ddal.ddr.shard;
 import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
 
 /**
+ * bindingGroup不为空时, 同一个绑定组中的表使用相同的分片列和路由规则, 相同的分片值路由到同一个分片.
+ * broadcast为true时表为广播表, 每个分片的schema中都有一份完整的数据, 读取时使用sql中其他表所在的schema, 写入时写所有的副本
  *
  * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 20/12/2016.
  */
 public class ShardRouteConfig {
 
-    private String scName;
-    private String tbName;
-    private String sdKey;
+    private String  scName;
+    private String  tbName;
+    private String  sdKey;
+    private String  bindingGroup;
+    private boolean broadcast;
 
     public ShardRouteConfig() {
     }
@@ -60,8 +64,25 @@ public class ShardRouteConfig {
         this.sdKey = sdKey;
     }
 
+    public String getBindingGroup() {
+        return bindingGroup;
+    }
+
+    public void setBindingGroup(String bindingGroup) {
+        this.bindingGroup = bindingGroup;
+    }
+
+    public boolean isBroadcast() {
+        return broadcast;
+    }
+
+    public void setBroadcast(boolean broadcast) {
+        this.broadcast = broadcast;
+    }
+
     @Override
     public String toString() {
-        return new DDRToStringBuilder().append("scName", scName).append("tbName", tbName).append("sdKey", sdKey).toString();
+        return new DDRToStringBuilder().append("scName", scName).append("tbName", tbName).append("sdKey", sdKey)//
+        .append("bindingGroup", bindingGroup).append("broadcast", broadcast).toString();
     }
 }
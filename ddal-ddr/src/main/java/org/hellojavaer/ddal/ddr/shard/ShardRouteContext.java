@@ -18,7 +18,8 @@ package org.hellojavaer.ddal.ddr.shard;
 import org.hellojavaer.ddal.ddr.datasource.exception.AmbiguousDataSourceBindingException;
 import org.hellojavaer.ddal.ddr.utils.DDRStringUtils;
 
-import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * 1.当路由规则中指定了分片字段时
@@ -28,37 +29,129 @@ import java.util.*;
  * 2.当路由规则中未指定分片字段时
  * 调用getRouteInfo(scName, tbName)获取路由信息,返回值类型如果是RouteInfo则直接路由,如果是其他类型则使用路由规则计算路由;
  *
+ * 实现说明: scName和tbName被驻留为{@link Key}(首次使用时规范化), 每个线程持有一个可复用的数组栈, 每层上下文以数组保存路由信息.
+ * 稳定状态下push, set, get, pop不产生对象分配. 频繁调用时可以预先通过 key(scName, tbName) 获取Key并使用Key的重载方法
+ *
  * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 15/11/2016.
  */
 public class ShardRouteContext {
 
-    private static final ThreadLocal<LinkedList<Context>> STACK = new ThreadLocal<LinkedList<Context>>() {
+    private static final ConcurrentMap<String, Key>                        SCHEMA_KEYS = new ConcurrentHashMap<String, Key>();
+    // scName为空时使用NONE
+    private static final ConcurrentMap<String, ConcurrentMap<String, Key>> TABLE_KEYS  = new ConcurrentHashMap<String, ConcurrentMap<String, Key>>();
+    private static final String                                            NONE        = "";
+
+    private static final ThreadLocal<Stack>                                STACK       = new ThreadLocal<Stack>() {
+
+                                                                                           protected Stack initialValue() {
+                                                                                               return new Stack();
+                                                                                           }
+                                                                                       };
+
+    private static final Object                                            NULL_OBJECT = new Object();
+
+    /**
+     * 返回驻留的表的Key, scName和tbName忽略大小写及首尾空白, scName为空时表示只按表名查找
+     */
+    public static Key key(String scName, String tbName) {
+        String sc = scName == null ? NONE : scName;
+        ConcurrentMap<String, Key> tbMap = TABLE_KEYS.get(sc);
+        Key key = tbMap == null || tbName == null ? null : tbMap.get(tbName);
+        if (key != null) {
+            return key;
+        }
+        String normalizedSc = DDRStringUtils.toLowerCase(scName);
+        String normalizedTb = DDRStringUtils.toLowerCase(tbName);
+        if (normalizedTb == null) {
+            throw new IllegalArgumentException("'tbName' can't be empty");
+        }
+        if (normalizedTb.equals(tbName) && (normalizedSc == null ? sc.length() == 0 : normalizedSc.equals(sc))) {
+            key = new Key(normalizedSc, normalizedTb);
+        } else {
+            key = key(normalizedSc, normalizedTb);
+        }
+        if (tbMap == null) {
+            tbMap = new ConcurrentHashMap<String, Key>();
+            ConcurrentMap<String, Key> old = TABLE_KEYS.putIfAbsent(sc, tbMap);
+            if (old != null) {
+                tbMap = old;
+            }
+        }
+        Key old = tbMap.putIfAbsent(tbName, key);
+        return old == null ? key : old;
+    }
 
-                                                                    protected LinkedList<Context> initialValue() {
-                                                                        LinkedList stack = new LinkedList<Context>();
-                                                                        stack.add(new Context());
-                                                                        return stack;
-                                                                    }
-                                                                };
+    /**
+     * 返回驻留的schema默认路由信息的Key
+     */
+    public static Key key(String scName) {
+        Key key = scName == null ? null : SCHEMA_KEYS.get(scName);
+        if (key != null) {
+            return key;
+        }
+        String normalizedSc = DDRStringUtils.toLowerCase(scName);
+        if (normalizedSc == null) {
+            throw new IllegalArgumentException("'scName' can't be empty");
+        }
+        key = normalizedSc.equals(scName) ? new Key(normalizedSc, null) : key(normalizedSc);
+        Key old = SCHEMA_KEYS.putIfAbsent(scName, key);
+        return old == null ? key : old;
+    }
 
     //
     public static void pushContext() {
-        STACK.get().addFirst(new Context());
+        STACK.get().push();
     }
 
     public static void popContext() throws IndexOutOfBoundsException {
-        if (STACK.get().size() <= 1) {
+        Stack stack = STACK.get();
+        if (stack.depth == 0) {
             throw new IndexOutOfBoundsException("root context can't be pop");
         } else {
-            STACK.get().removeFirst();
+            stack.pop();
         }
     }
 
     public static void clearContext() {
-        Context context = STACK.get().getFirst();
-        context.getDefaultRouteContext().clear();
-        context.getExactRouteContext().clear();
-        context.getAmbiguousRouteContext().clear();
+        getCurContext().clear();
+    }
+
+    /**
+     * 设置当前上下文的截止时间(毫秒时间戳), 在此上下文中执行的sql会根据剩余时间设置queryTimeout,
+     * 截止时间已过的sql不再执行. 内层上下文不能延长外层上下文的截止时间
+     */
+    public static void setDeadline(long deadline) {
+        Context context = getCurContext();
+        context.deadline = deadline;
+        context.hasDeadline = true;
+    }
+
+    public static void setTimeout(long timeoutMillis) {
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("'timeoutMillis' can't be less than 0");
+        }
+        setDeadline(System.currentTimeMillis() + timeoutMillis);
+    }
+
+    /**
+     * 返回所有上下文中最早的截止时间, 未设置时返回null
+     */
+    public static Long getDeadline() {
+        Stack stack = STACK.get();
+        boolean found = false;
+        long deadline = Long.MAX_VALUE;
+        for (int i = stack.depth; i >= 0; i--) {
+            Context context = stack.contexts[i];
+            if (context.hasDeadline && (!found || context.deadline < deadline)) {
+                deadline = context.deadline;
+                found = true;
+            }
+        }
+        return found ? deadline : null;
+    }
+
+    public static void removeDeadline() {
+        getCurContext().hasDeadline = false;
     }
 
     //
@@ -67,51 +160,19 @@ public class ShardRouteContext {
     }
 
     public static void setRouteInfo(String scName, Object sdValue) {
-        scName = DDRStringUtils.toLowerCase(scName);
-        if (scName == null) {
-            throw new IllegalArgumentException("'scName' can't be empty");
-        }
-        if (sdValue == null) {
-            sdValue = NULL_OBJECT;
-        }
-        getCurContext().getDefaultRouteContext().put(scName, sdValue);
+        setRouteInfo(key(scName), sdValue);
     }
 
     public static Object getRouteInfo(String scName) {
-        scName = DDRStringUtils.toLowerCase(scName);
-        if (scName == null) {
-            throw new IllegalArgumentException("'scName' can't be empty");
-        }
-        for (Context context : STACK.get()) {
-            Map<String, Object> defaultRouteContext = context.getDefaultRouteContext();
-            Object val = defaultRouteContext.get(scName);
-            if (val == null) {
-                continue;
-            } else {
-                if (val == NULL_OBJECT) {
-                    return null;
-                } else {
-                    return val;
-                }
-            }
-        }
-        return null;
+        return getRouteInfo(key(scName));
     }
 
     public static boolean containsRouteInfo(String scName) {
-        scName = DDRStringUtils.toLowerCase(scName);
-        if (scName == null) {
-            throw new IllegalArgumentException("'scName' can't be empty");
-        }
-        return getCurContext().getDefaultRouteContext().containsKey(scName);
+        return containsRouteInfo(key(scName));
     }
 
     public static Object removeRouteInfo(String scName) {
-        scName = DDRStringUtils.toLowerCase(scName);
-        if (scName == null) {
-            throw new IllegalArgumentException("'scName' can't be empty");
-        }
-        return getCurContext().getDefaultRouteContext().remove(scName);
+        return removeRouteInfo(key(scName));
     }
 
     /**
@@ -119,32 +180,7 @@ public class ShardRouteContext {
      * 相同路由,采用覆盖原则
      */
     public static void setRouteInfo(String scName, String tbName, Object sdValue) {
-        scName = DDRStringUtils.toLowerCase(scName);
-        tbName = DDRStringUtils.toLowerCase(tbName);
-        if (scName == null) {
-            throw new IllegalArgumentException("'scName' can't be empty");
-        }
-        if (tbName == null) {
-            throw new IllegalArgumentException("'tbName' can't be empty");
-        }
-        if (sdValue == null) {
-            sdValue = NULL_OBJECT;
-        }
-
-        /**
-         * 添加两条查询索引
-         * schema_name.table_name <-> routeInfo
-         * table_name <-> routeInfo
-         */
-        Map<String, Object> exactRouteContext = getCurContext().getExactRouteContext();
-        exactRouteContext.put(buildQueryKey(scName, tbName), sdValue);
-        Map<String, Map<String, Object>> ambiguousRouteContext = getCurContext().getAmbiguousRouteContext();
-        Map<String, Object> scMap = ambiguousRouteContext.get(tbName);
-        if (scMap == null) {
-            scMap = new HashMap<>();
-            ambiguousRouteContext.put(tbName, scMap);
-        }
-        scMap.put(scName, sdValue);
+        setRouteInfo(key(scName, tbName), sdValue);
     }
 
     public static void setRouteInfo(String scName, String tbName, ShardRouteInfo routeInfo) {
@@ -156,51 +192,38 @@ public class ShardRouteContext {
      * 删除路由信息
      */
     public static Object removeRouteInfo(String scName, String tbName) {
-        scName = DDRStringUtils.toLowerCase(scName);
-        tbName = DDRStringUtils.toLowerCase(tbName);
-        if (scName == null) {
-            throw new IllegalArgumentException("'scName' can't be empty");
-        }
-        if (tbName == null) {
-            throw new IllegalArgumentException("'tbName' can't be empty");
-        }
-        Map<String, Object> exactRouteContext = getCurContext().getExactRouteContext();
-        // level 1
-        Object obj = exactRouteContext.remove(buildQueryKey(scName, tbName));
-        // level 2
-        Map<String, Map<String, Object>> ambiguousRouteContext = getCurContext().getAmbiguousRouteContext();
-        Map<String, Object> scMap = ambiguousRouteContext.get(tbName);
-        if (scMap != null) {
-            scMap.remove(scName);
-            if (scMap.isEmpty()) {
-                ambiguousRouteContext.remove(tbName);
-            }
-        }
-        return obj;
+        return removeRouteInfo(key(scName, tbName));
     }
 
     public static Object getRouteInfo(String scName, String tbName) throws AmbiguousDataSourceBindingException {
-        scName = DDRStringUtils.toLowerCase(scName);
-        tbName = DDRStringUtils.toLowerCase(tbName);
-        if (tbName == null) {
-            throw new IllegalArgumentException("'tbName' can't be empty");
-        }
-        for (Context context : STACK.get()) {
-            Object object = null;
-            if (scName != null) {
-                object = context.getExactRouteContext().get(buildQueryKey(scName, tbName));
+        return getRouteInfo(key(scName, tbName));
+    }
+
+    public static boolean containsRouteInfo(String scName, String tbName) {
+        return containsRouteInfo(key(scName, tbName));
+    }
+
+    /**
+     * key为 key(scName) 时设置schema的默认路由信息, 为 key(scName, tbName) 时设置表的路由信息
+     */
+    public static void setRouteInfo(Key key, Object sdValue) {
+        checkScName(key);
+        getCurContext().put(key, sdValue == null ? NULL_OBJECT : sdValue);
+    }
+
+    /**
+     * 从当前上下文开始逐层查找. key不含scName时按表名查找, 同一层中存在多个schema的同名表时抛出AmbiguousDataSourceBindingException;
+     * 表的路由信息都不存在时使用schema的默认路由信息
+     */
+    public static Object getRouteInfo(Key key) throws AmbiguousDataSourceBindingException {
+        Stack stack = STACK.get();
+        for (int i = stack.depth; i >= 0; i--) {
+            Context context = stack.contexts[i];
+            Object object;
+            if (key.scName != null) {
+                object = context.get(key);
             } else {
-                Map<String, Map<String, Object>> ambiguousRouteContext = context.getAmbiguousRouteContext();
-                Map<String, Object> scMap = ambiguousRouteContext.get(tbName);
-                if (scMap == null || scMap.isEmpty()) {
-                    continue;
-                }
-                if (scMap.size() > 1) {
-                    throw new AmbiguousDataSourceBindingException("Datasource binding for scName:" + scName
-                                                                  + ", tbName:" + tbName + " is ambiguous");
-                } else {
-                    object = scMap.values().iterator().next();
-                }
+                object = context.getByTbName(key.tbName);
             }
             if (object == null) {
                 continue;
@@ -210,97 +233,265 @@ public class ShardRouteContext {
                 return object;
             }
         }
-        //
-        if (scName == null) {
+        if (key.scName == null || key.tbName == null) {
             return null;
         } else {
             // if null try to get default
-            return getRouteInfo(scName);
+            return getRouteInfo(key.schemaKey);
         }
     }
 
-    public static boolean containsRouteInfo(String scName, String tbName) {
-        scName = DDRStringUtils.toLowerCase(scName);
-        tbName = DDRStringUtils.toLowerCase(tbName);
-        if (scName == null) {
-            throw new IllegalArgumentException("'scName' can't be empty");
+    public static boolean containsRouteInfo(Key key) {
+        checkScName(key);
+        return getCurContext().get(key) != null;
+    }
+
+    public static Object removeRouteInfo(Key key) {
+        checkScName(key);
+        Object obj = getCurContext().remove(key);
+        return obj == NULL_OBJECT ? null : obj;
+    }
+
+    /**
+     * 返回当前线程所有层上下文的不可变快照, 用于把路由信息传递到其他线程, 见 {@link ShardRouteContextExecutors}
+     */
+    public static Snapshot snapshot() {
+        return snapshot(true);
+    }
+
+    /**
+     * @param withDeadline 为false时快照中不包含截止时间, 用于延迟执行或周期执行的任务(截止时间是绝对时间, 在任务执行时通常已经过期)
+     */
+    static Snapshot snapshot(boolean withDeadline) {
+        Stack stack = STACK.get();
+        Context[] contexts = new Context[stack.depth + 1];
+        for (int i = 0; i <= stack.depth; i++) {
+            contexts[i] = new Context();
+            contexts[i].copyFrom(stack.contexts[i]);
+            if (!withDeadline) {
+                contexts[i].hasDeadline = false;
+            }
         }
-        if (tbName == null) {
-            throw new IllegalArgumentException("'tbName' can't be empty");
+        return new Snapshot(contexts);
+    }
+
+    /**
+     * 用快照替换当前线程的上下文, 返回替换前的快照, 执行结束后需要调用 restore(backup) 恢复
+     * 
+     * <pre>
+     * ShardRouteContext.Snapshot backup = ShardRouteContext.replay(snapshot);
+     * try {
+     *     ...
+     * } finally {
+     *     ShardRouteContext.restore(backup);
+     * }
+     * </pre>
+     */
+    public static Snapshot replay(Snapshot snapshot) {
+        Snapshot backup = snapshot();
+        restore(snapshot);
+        return backup;
+    }
+
+    public static void restore(Snapshot snapshot) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("'snapshot' can't be null");
+        }
+        Stack stack = STACK.get();
+        while (stack.depth > 0) {
+            stack.pop();
+        }
+        stack.contexts[0].copyFrom(snapshot.contexts[0]);
+        for (int i = 1; i < snapshot.contexts.length; i++) {
+            stack.push();
+            stack.contexts[i].copyFrom(snapshot.contexts[i]);
         }
-        String fullTableName = buildQueryKey(scName, tbName);
-        return getCurContext().getExactRouteContext().containsKey(fullTableName);
     }
 
-    private static String buildQueryKey(String scName, String tbName) {
-        if (scName == null) {
-            return tbName;
-        } else {
-            return new StringBuilder().append(scName).append('.').append(tbName).toString();
+    private static void checkScName(Key key) {
+        if (key.scName == null) {
+            throw new IllegalArgumentException("'scName' can't be empty");
         }
     }
 
     private static Context getCurContext() {
-        return STACK.get().getFirst();
+        Stack stack = STACK.get();
+        return stack.contexts[stack.depth];
     }
 
-    private static final Object NULL_OBJECT = new Object();
-
-    protected static class InnerRouteInfoWrapper {
+    /**
+     * 驻留的路由信息键, 相同的scName和tbName(规范化后)对应同一个实例
+     */
+    public static final class Key {
+
+        private final String scName;
+        private final String tbName;
+        // 表的Key对应的schema默认路由信息的Key
+        private final Key    schemaKey;
+
+        private Key(String scName, String tbName) {
+            this.scName = scName;
+            this.tbName = tbName;
+            if (scName != null && tbName != null) {
+                this.schemaKey = key(scName);
+            } else {
+                this.schemaKey = null;
+            }
+        }
 
-        private Set<String> conflictSchemas = new HashSet<>();
-        private Object      routeInfo;
+        public String getScName() {
+            return scName;
+        }
 
-        public InnerRouteInfoWrapper(String scName, Object routeInfo) {
-            this.conflictSchemas.add(scName);
-            this.routeInfo = routeInfo;
+        public String getTbName() {
+            return tbName;
         }
 
-        public Set<String> getConflictSchemas() {
-            return conflictSchemas;
+        @Override
+        public String toString() {
+            if (scName == null) {
+                return tbName;
+            } else if (tbName == null) {
+                return scName;
+            } else {
+                return scName + "." + tbName;
+            }
         }
+    }
 
-        public void setConflictSchemas(Set<String> conflictSchemas) {
-            this.conflictSchemas = conflictSchemas;
+    /**
+     * 上下文的不可变快照
+     */
+    public static final class Snapshot {
+
+        private final Context[] contexts;
+
+        private Snapshot(Context[] contexts) {
+            this.contexts = contexts;
         }
+    }
+
+    /**
+     * 线程内的上下文栈, 弹出的Context被保留并在下次push时复用
+     */
+    private static class Stack {
+
+        private Context[] contexts = new Context[] { new Context() };
+        private int       depth    = 0;
 
-        public Object getRouteInfo() {
-            return routeInfo;
+        private void push() {
+            depth++;
+            if (depth == contexts.length) {
+                Context[] newContexts = new Context[contexts.length * 2];
+                System.arraycopy(contexts, 0, newContexts, 0, contexts.length);
+                contexts = newContexts;
+            }
+            if (contexts[depth] == null) {
+                contexts[depth] = new Context();
+            }
         }
 
-        public void setRouteInfo(Object routeInfo) {
-            this.routeInfo = routeInfo;
+        private void pop() {
+            contexts[depth].clear();
+            depth--;
         }
     }
 
+    /**
+     * 一层上下文, 路由信息以数组保存(每层通常只有少量路由信息, 线性查找快于hash)
+     */
     private static class Context {
 
-        private Map<String, Object>              defaultRouteContext   = new HashMap<>();
-        private Map<String, Object>              exactRouteContext     = new HashMap<>();
-        private Map<String, Map<String, Object>> ambiguousRouteContext = new HashMap<>();
+        private Key[]    keys        = new Key[4];
+        private Object[] values      = new Object[4];
+        private int      size        = 0;
+        private boolean  hasDeadline = false;
+        private long     deadline;
 
-        public Map<String, Object> getExactRouteContext() {
-            return exactRouteContext;
+        private int indexOf(Key key) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
         }
 
-        public void setExactRouteContext(Map<String, Object> exactRouteContext) {
-            this.exactRouteContext = exactRouteContext;
+        private Object get(Key key) {
+            int index = indexOf(key);
+            return index < 0 ? null : values[index];
         }
 
-        public Map<String, Object> getDefaultRouteContext() {
-            return defaultRouteContext;
+        private Object getByTbName(String tbName) throws AmbiguousDataSourceBindingException {
+            Object object = null;
+            Key found = null;
+            for (int i = 0; i < size; i++) {
+                Key key = keys[i];
+                if (key.tbName != null && key.tbName.equals(tbName)) {
+                    if (found != null) {
+                        throw new AmbiguousDataSourceBindingException("Datasource binding for scName:null, tbName:"
+                                                                      + tbName + " is ambiguous");
+                    }
+                    found = key;
+                    object = values[i];
+                }
+            }
+            return object;
         }
 
-        public void setDefaultRouteContext(Map<String, Object> defaultRouteContext) {
-            this.defaultRouteContext = defaultRouteContext;
+        private void put(Key key, Object value) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                values[index] = value;
+                return;
+            }
+            if (size == keys.length) {
+                Key[] newKeys = new Key[size * 2];
+                Object[] newValues = new Object[size * 2];
+                System.arraycopy(keys, 0, newKeys, 0, size);
+                System.arraycopy(values, 0, newValues, 0, size);
+                keys = newKeys;
+                values = newValues;
+            }
+            keys[size] = key;
+            values[size] = value;
+            size++;
+        }
+
+        private Object remove(Key key) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return null;
+            }
+            Object obj = values[index];
+            size--;
+            keys[index] = keys[size];
+            values[index] = values[size];
+            keys[size] = null;
+            values[size] = null;
+            return obj;
         }
 
-        public Map<String, Map<String, Object>> getAmbiguousRouteContext() {
-            return ambiguousRouteContext;
+        private void copyFrom(Context context) {
+            clear();
+            if (keys.length < context.size) {
+                keys = new Key[context.size];
+                values = new Object[context.size];
+            }
+            System.arraycopy(context.keys, 0, keys, 0, context.size);
+            System.arraycopy(context.values, 0, values, 0, context.size);
+            size = context.size;
+            hasDeadline = context.hasDeadline;
+            deadline = context.deadline;
         }
 
-        public void setAmbiguousRouteContext(Map<String, Map<String, Object>> ambiguousRouteContext) {
-            this.ambiguousRouteContext = ambiguousRouteContext;
+        private void clear() {
+            for (int i = 0; i < size; i++) {
+                keys[i] = null;
+                values[i] = null;
+            }
+            size = 0;
+            hasDeadline = false;
         }
     }
 
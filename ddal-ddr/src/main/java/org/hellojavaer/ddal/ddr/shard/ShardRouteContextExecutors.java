@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * 在提交任务时捕获当前线程的{@link ShardRouteContext}, 在执行任务的线程中恢复, 执行结束后还原执行线程原有的上下文.
+ * 延迟执行和周期执行的任务不传递截止时间.
+ * 
+ * <pre>
+ * ExecutorService executor = ShardRouteContextExecutors.wrap(Executors.newFixedThreadPool(8));
+ * CompletableFuture.supplyAsync(supplier, executor);
+ * </pre>
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class ShardRouteContextExecutors {
+
+    private ShardRouteContextExecutors() {
+    }
+
+    public static Runnable wrap(Runnable runnable) {
+        return new ContextRunnable(ShardRouteContext.snapshot(), runnable);
+    }
+
+    public static <T> Callable<T> wrap(Callable<T> callable) {
+        return new ContextCallable<T>(ShardRouteContext.snapshot(), callable);
+    }
+
+    public static Executor wrap(Executor executor) {
+        return new ContextExecutor(executor);
+    }
+
+    public static ExecutorService wrap(ExecutorService executorService) {
+        return new ContextExecutorService(executorService);
+    }
+
+    public static ScheduledExecutorService wrap(ScheduledExecutorService scheduledExecutorService) {
+        return new ContextScheduledExecutorService(scheduledExecutorService);
+    }
+
+    private static Runnable wrapWithoutDeadline(Runnable runnable) {
+        return new ContextRunnable(ShardRouteContext.snapshot(false), runnable);
+    }
+
+    private static <T> Callable<T> wrapWithoutDeadline(Callable<T> callable) {
+        return new ContextCallable<T>(ShardRouteContext.snapshot(false), callable);
+    }
+
+    private static <T> List<Callable<T>> wrap(Collection<? extends Callable<T>> tasks) {
+        ShardRouteContext.Snapshot snapshot = ShardRouteContext.snapshot();
+        List<Callable<T>> list = new ArrayList<Callable<T>>(tasks.size());
+        for (Callable<T> task : tasks) {
+            list.add(new ContextCallable<T>(snapshot, task));
+        }
+        return list;
+    }
+
+    private static class ContextRunnable implements Runnable {
+
+        private final ShardRouteContext.Snapshot snapshot;
+        private final Runnable                   runnable;
+
+        private ContextRunnable(ShardRouteContext.Snapshot snapshot, Runnable runnable) {
+            if (runnable == null) {
+                throw new NullPointerException();
+            }
+            this.snapshot = snapshot;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            ShardRouteContext.Snapshot backup = ShardRouteContext.replay(snapshot);
+            try {
+                runnable.run();
+            } finally {
+                ShardRouteContext.restore(backup);
+            }
+        }
+    }
+
+    private static class ContextCallable<T> implements Callable<T> {
+
+        private final ShardRouteContext.Snapshot snapshot;
+        private final Callable<T>                callable;
+
+        private ContextCallable(ShardRouteContext.Snapshot snapshot, Callable<T> callable) {
+            if (callable == null) {
+                throw new NullPointerException();
+            }
+            this.snapshot = snapshot;
+            this.callable = callable;
+        }
+
+        @Override
+        public T call() throws Exception {
+            ShardRouteContext.Snapshot backup = ShardRouteContext.replay(snapshot);
+            try {
+                return callable.call();
+            } finally {
+                ShardRouteContext.restore(backup);
+            }
+        }
+    }
+
+    private static class ContextExecutor implements Executor {
+
+        private final Executor executor;
+
+        private ContextExecutor(Executor executor) {
+            if (executor == null) {
+                throw new NullPointerException();
+            }
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            executor.execute(wrap(command));
+        }
+    }
+
+    private static class ContextExecutorService extends ContextExecutor implements ExecutorService {
+
+        private final ExecutorService executorService;
+
+        private ContextExecutorService(ExecutorService executorService) {
+            super(executorService);
+            this.executorService = executorService;
+        }
+
+        @Override
+        public void shutdown() {
+            executorService.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return executorService.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return executorService.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return executorService.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return executorService.awaitTermination(timeout, unit);
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return executorService.submit(wrap(task));
+        }
+
+        @Override
+        public <T> Future<T> submit(Runnable task, T result) {
+            return executorService.submit(wrap(task), result);
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            return executorService.submit(wrap(task));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+            return executorService.invokeAll(wrap(tasks));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                                                                                                                 throws InterruptedException {
+            return executorService.invokeAll(wrap(tasks), timeout, unit);
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException,
+                                                                       ExecutionException {
+            return executorService.invokeAny(wrap(tasks));
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                                                                                                    throws InterruptedException,
+                                                                                                    ExecutionException,
+                                                                                                    TimeoutException {
+            return executorService.invokeAny(wrap(tasks), timeout, unit);
+        }
+    }
+
+    /**
+     * 周期任务每次执行时都恢复提交时捕获的上下文. 截止时间是提交任务的请求的绝对时间, 不传递给延迟执行和周期执行的任务
+     */
+    private static class ContextScheduledExecutorService extends ContextExecutorService implements
+                                                                                      ScheduledExecutorService {
+
+        private final ScheduledExecutorService scheduledExecutorService;
+
+        private ContextScheduledExecutorService(ScheduledExecutorService scheduledExecutorService) {
+            super(scheduledExecutorService);
+            this.scheduledExecutorService = scheduledExecutorService;
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            return scheduledExecutorService.schedule(wrapWithoutDeadline(command), delay, unit);
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            return scheduledExecutorService.schedule(wrapWithoutDeadline(callable), delay, unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+            return scheduledExecutorService.scheduleAtFixedRate(wrapWithoutDeadline(command), initialDelay, period,
+                                                                unit);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                         TimeUnit unit) {
+            return scheduledExecutorService.scheduleWithFixedDelay(wrapWithoutDeadline(command), initialDelay, delay,
+                                                                   unit);
+        }
+    }
+}
@@ -25,6 +25,8 @@ public class ShardRouteInfo {
 
     private String scName;
     private String tbName;
+    // toString()的缓存
+    private String fullName;
 
     public ShardRouteInfo() {
     }
@@ -32,6 +34,7 @@ public class ShardRouteInfo {
     public ShardRouteInfo(String scName, String tbName) {
         this.scName = scName;
         this.tbName = tbName;
+        this.fullName = null;
     }
 
     public String getScName() {
@@ -40,6 +43,7 @@ public class ShardRouteInfo {
 
     public void setScName(String scName) {
         this.scName = scName;
+        this.fullName = null;
     }
 
     public String getTbName() {
@@ -48,15 +52,20 @@ public class ShardRouteInfo {
 
     public void setTbName(String tbName) {
         this.tbName = tbName;
+        this.fullName = null;
     }
 
     @Override
     public String toString() {
         if (scName == null) {
             return tbName;
-        } else {
-            return new StringBuilder().append(scName).append('.').append(tbName).toString();
         }
+        String fullName = this.fullName;
+        if (fullName == null) {
+            fullName = new StringBuilder().append(scName).append('.').append(tbName).toString();
+            this.fullName = fullName;
+        }
+        return fullName;
     }
 
     @Override
@@ -67,7 +76,7 @@ public class ShardRouteInfo {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof ShardRouteInfo)) return false;
 
         ShardRouteInfo routeInfo = (ShardRouteInfo) o;
 
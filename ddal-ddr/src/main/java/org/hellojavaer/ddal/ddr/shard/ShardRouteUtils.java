@@ -15,6 +15,9 @@
  */
 package org.hellojavaer.ddal.ddr.shard;
 
+import org.hellojavaer.ddal.ddr.shard.exception.ShardRouteException;
+import org.hellojavaer.ddal.ddr.shard.exception.ShardValueNotFoundException;
+
 import java.util.*;
 
 /**
@@ -23,12 +26,55 @@ import java.util.*;
  */
 public class ShardRouteUtils {
 
+    /**
+     * 返回表的路由句柄, 表没有路由配置时返回null. shardRouter未实现 {@link ExtendedShardRouter} 时每次路由仍按表名查找
+     */
+    public static TableRouteHandle getTableRouteHandle(ShardRouter shardRouter, String scName, String tbName) {
+        if (shardRouter instanceof ExtendedShardRouter) {
+            return ((ExtendedShardRouter) shardRouter).getTableRouteHandle(scName, tbName);
+        }
+        ShardRouteConfig routeConfig = shardRouter.getRouteConfig(scName, tbName);
+        if (routeConfig == null) {
+            return null;
+        }
+        return new ShardRouterTableRouteHandle(shardRouter, scName, tbName, routeConfig);
+    }
+
+    /**
+     * 同 {@link ExtendedShardRouter#getBindingRouteInfo(String, String, ShardRouteInfo)},
+     * shardRouter未实现 {@link ExtendedShardRouter} 时返回null
+     */
+    public static ShardRouteInfo getBindingRouteInfo(ShardRouter shardRouter, String scName, String tbName,
+                                                     ShardRouteInfo bindingRouteInfo) {
+        if (shardRouter instanceof ExtendedShardRouter) {
+            return ((ExtendedShardRouter) shardRouter).getBindingRouteInfo(scName, tbName, bindingRouteInfo);
+        }
+        return null;
+    }
+
+    /**
+     * 是否支持绑定表路由
+     */
+    public static boolean isBindingSupported(ShardRouter shardRouter) {
+        return shardRouter instanceof ExtendedShardRouter;
+    }
+
     public static Map<ShardRouteInfo, List<RangeShardValue>> groupSdValuesByRouteInfo(ShardRouter shardRouter,
                                                                                       String scName, String tbName,
                                                                                       RangeShardValue sdValues) {
         ShardRouteConfig routeConfig = shardRouter.getRouteConfig(scName, tbName);
         ShardRouteRule rule = shardRouter.getRouteRule(routeConfig.getScName(), routeConfig.getTbName());
-        Map<ShardRouteInfo, List<RangeShardValue>> map = rule.groupSdValuesByRouteInfo(scName, tbName, sdValues);
+        if (rule == null) {// 未配置rule时只有一个表
+            Map<ShardRouteInfo, List<RangeShardValue>> map = new LinkedHashMap<>();
+            List<RangeShardValue> list = new ArrayList<>(1);
+            list.add(sdValues);
+            map.put(new ShardRouteInfo(routeConfig.getScName(), routeConfig.getTbName()), list);
+            return map;
+        }
+        // 必须使用routeConfig中的scName,因为参数中的scName可能为空
+        Map<ShardRouteInfo, List<RangeShardValue>> map = rule.groupSdValuesByRouteInfo(routeConfig.getScName(),
+                                                                                       routeConfig.getTbName(),
+                                                                                       sdValues);
         if (map == null) {
             return Collections.emptyMap();
         }
@@ -113,4 +159,39 @@ public class ShardRouteUtils {
         return map;
     }
 
+    private static class ShardRouterTableRouteHandle implements TableRouteHandle {
+
+        private ShardRouter      shardRouter;
+        private String           scName;
+        private String           tbName;
+        private ShardRouteConfig routeConfig;
+
+        public ShardRouterTableRouteHandle(ShardRouter shardRouter, String scName, String tbName,
+                                           ShardRouteConfig routeConfig) {
+            this.shardRouter = shardRouter;
+            this.scName = scName;
+            this.tbName = tbName;
+            this.routeConfig = routeConfig;
+        }
+
+        @Override
+        public ShardRouteConfig getRouteConfig() {
+            return routeConfig;
+        }
+
+        @Override
+        public ShardRouteRule getRouteRule() {
+            return shardRouter.getRouteRule(routeConfig.getScName(), routeConfig.getTbName());
+        }
+
+        @Override
+        public ShardRouteInfo getRouteInfo(Object sdValue) throws ShardValueNotFoundException, ShardRouteException {
+            return shardRouter.getRouteInfo(scName, tbName, sdValue);
+        }
+
+        @Override
+        public List<ShardRouteInfo> getRouteInfos() {
+            return shardRouter.getRouteInfos(scName, tbName);
+        }
+    }
 }
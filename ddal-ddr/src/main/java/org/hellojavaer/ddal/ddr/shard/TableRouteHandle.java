@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard;
+
+import org.hellojavaer.ddal.ddr.shard.exception.ShardRouteException;
+import org.hellojavaer.ddal.ddr.shard.exception.ShardValueNotFoundException;
+
+import java.util.List;
+
+/**
+ * 一个逻辑表预先解析好的路由信息, 在sql模板解析时通过 {@link ShardRouteUtils#getTableRouteHandle(ShardRouter, String, String)} 获取一次,
+ * 之后每次路由不再按表名查找路由配置. 返回的ShardRouteInfo是缓存的共享实例, 不能修改
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public interface TableRouteHandle {
+
+    ShardRouteConfig getRouteConfig();
+
+    ShardRouteRule getRouteRule();
+
+    /**
+     * 同 {@link ShardRouter#getRouteInfo(String, String, Object)}
+     */
+    ShardRouteInfo getRouteInfo(Object sdValue) throws ShardValueNotFoundException, ShardRouteException;
+
+    /**
+     * 同 {@link ShardRouter#getRouteInfos(String, String)}
+     */
+    List<ShardRouteInfo> getRouteInfos();
+}
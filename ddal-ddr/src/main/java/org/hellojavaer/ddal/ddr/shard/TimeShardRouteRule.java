@@ -0,0 +1,26 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard;
+
+/**
+ * 分片值为时间的路由规则. 范围条件的边界为时间类型(java.util.Date)时, 只有实现了该接口的规则才把边界转换为毫秒时间戳参与范围路由,
+ * 并且groupSdValuesByRouteInfo的开销应与区间内的时间周期数有关而不是与毫秒数有关
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public interface TimeShardRouteRule extends ShardRouteRule {
+
+}
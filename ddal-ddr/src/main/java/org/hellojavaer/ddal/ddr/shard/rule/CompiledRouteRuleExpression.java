@@ -0,0 +1,497 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.ddr.expression.el.function.ELFunctionManager;
+import org.hellojavaer.ddal.ddr.expression.el.function.FormatFunction;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 把常用的路由规则模板编译为求值树, 直接计算结果而不经过SpEL的解释执行和反射调用. 支持的语法:
+ * 
+ * <pre>
+ * {scName} {tbName} {sdValue}
+ * {sdValue % 8} {sdValue.hashCode() % 8} {sdValue / 1024} {sdValue / 1024 % 8}
+ * {format('%02d', sdValue % 8)} {#format('%04d', sdValue.hashCode() % 128)}
+ * </pre>
+ * 
+ * 取模结果用于format('%0Nd')或直接输出时, 结果字符串预先计算为数组.
+ * 其他语法编译失败(compile返回null); 分片值的类型不是Integer,Long,Short,Byte(hashCode()除外)时getValue返回null,
+ * 此时由调用方使用SpEL求值, 保证结果与SpEL一致.
+ * 分片值为非负整数时, 结果只通过(sdValue / D) % M依赖分片值, 因此在按D对齐的块内不变(见getBlockSize),
+ * 所有项都有取模时以D * M的最小公倍数为周期(见getPeriod), 用于按范围分组时直接计算而不逐个求值
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+class CompiledRouteRuleExpression {
+
+    // 预先计算结果字符串的最大模数
+    private static final int     MAX_TABLE_SIZE = 4096;
+    private static final Pattern INT_FORMAT     = Pattern.compile("%0?[1-9]?[0-9]*d");
+
+    private final Part[]         parts;
+    private final long           blockSize;
+    private final long           period;
+
+    private CompiledRouteRuleExpression(Part[] parts) {
+        this.parts = parts;
+        long blockSize = 0;
+        long period = 1;
+        for (Part part : parts) {
+            if (!(part instanceof NumberPart)) {
+                continue;
+            }
+            Value value = ((NumberPart) part).value;
+            long modulus = 0;
+            long divisor = 1;
+            if (value instanceof ModValue) {
+                modulus = ((ModValue) value).modulus;
+                value = ((ModValue) value).value;
+            }
+            if (value instanceof DivValue) {
+                divisor = ((DivValue) value).divisor;
+                value = ((DivValue) value).value;
+            }
+            if (!(value instanceof SdValue)) {// hashCode()不具有周期性
+                blockSize = -1;
+                period = -1;
+                break;
+            }
+            blockSize = gcd(blockSize, divisor);
+            if (modulus == 0 || period < 0 || divisor > Long.MAX_VALUE / modulus) {
+                period = -1;
+            } else {
+                period = lcm(period, divisor * modulus);
+            }
+        }
+        this.blockSize = blockSize;
+        this.period = period;
+    }
+
+    /**
+     * 非负分片值在按blockSize对齐的块内结果不变. 返回0表示结果与分片值无关, 返回-1表示不能确定
+     */
+    public long getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * 非负分片值的结果以period为周期. 返回-1表示没有周期(或周期超出long的范围)
+     */
+    public long getPeriod() {
+        return period;
+    }
+
+    static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * 溢出时返回-1
+     */
+    static long lcm(long a, long b) {
+        if (a < 0 || b < 0) {
+            return -1;
+        }
+        long t = a / gcd(a, b);
+        if (t > Long.MAX_VALUE / b) {
+            return -1;
+        }
+        return t * b;
+    }
+
+    /**
+     * 返回null表示使用SpEL求值
+     */
+    public String getValue(String scName, String tbName, Object sdValue) {
+        if (parts.length == 1) {
+            return parts[0].getValue(scName, tbName, sdValue);
+        }
+        StringBuilder sb = new StringBuilder(32);
+        for (Part part : parts) {
+            String value = part.getValue(scName, tbName, sdValue);
+            if (value == null) {
+                return null;
+            }
+            sb.append(value);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 模板中有不支持的语法时返回null
+     */
+    public static CompiledRouteRuleExpression compile(String template) {
+        if (template == null) {
+            return null;
+        }
+        List<Part> parts = new ArrayList<Part>();
+        int pos = 0;
+        while (pos < template.length()) {
+            int start = template.indexOf('{', pos);
+            if (start < 0) {
+                if (template.indexOf('}', pos) >= 0) {
+                    return null;
+                }
+                parts.add(new LiteralPart(template.substring(pos)));
+                break;
+            }
+            int end = template.indexOf('}', start);
+            if (end < 0 || template.indexOf('{', start + 1) >= 0 && template.indexOf('{', start + 1) < end) {
+                return null;
+            }
+            if (template.lastIndexOf('}', start) >= pos) {// 模板文本中不能出现'}'
+                return null;
+            }
+            if (start > pos) {
+                parts.add(new LiteralPart(template.substring(pos, start)));
+            }
+            Part part = new ExpressionParser(template.substring(start + 1, end)).parse();
+            if (part == null) {
+                return null;
+            }
+            parts.add(part);
+            pos = end + 1;
+        }
+        if (parts.isEmpty()) {
+            return null;
+        }
+        return new CompiledRouteRuleExpression(parts.toArray(new Part[parts.size()]));
+    }
+
+    private static boolean isFormatFunction() {
+        try {
+            Method method = ELFunctionManager.getRegisteredFunction("format");
+            return method != null
+                   && method.equals(FormatFunction.class.getMethod("format", String.class, Object[].class));
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 求值结果不是Integer,Long时(即不确定与SpEL一致)返回UNSUPPORTED
+     */
+    private static final Object UNSUPPORTED = new Object();
+
+    private interface Part {
+
+        String getValue(String scName, String tbName, Object sdValue);
+    }
+
+    private interface Value {
+
+        Object getValue(Object sdValue);
+    }
+
+    private static class LiteralPart implements Part {
+
+        private final String text;
+
+        private LiteralPart(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public String getValue(String scName, String tbName, Object sdValue) {
+            return text;
+        }
+    }
+
+    private static class NamePart implements Part {
+
+        private final boolean scName;
+
+        private NamePart(boolean scName) {
+            this.scName = scName;
+        }
+
+        @Override
+        public String getValue(String scName, String tbName, Object sdValue) {
+            return this.scName ? scName : tbName;
+        }
+    }
+
+    /**
+     * 数值直接转为字符串, format为空时等同于toString()
+     */
+    private static class NumberPart implements Part {
+
+        private final Value    value;
+        private final String   format;
+        private final String[] table;
+
+        private NumberPart(Value value, String format) {
+            this.value = value;
+            this.format = format;
+            String[] table = null;
+            if (value instanceof ModValue && ((ModValue) value).modulus <= MAX_TABLE_SIZE
+                && (format == null || INT_FORMAT.matcher(format).matches())) {
+                table = new String[((ModValue) value).modulus];
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = format == null ? Integer.toString(i) : FormatFunction.format(format, i);
+                }
+            }
+            this.table = table;
+        }
+
+        @Override
+        public String getValue(String scName, String tbName, Object sdValue) {
+            Object val = value.getValue(sdValue);
+            if (val == UNSUPPORTED) {
+                return null;
+            }
+            if (table != null) {
+                long l = ((Number) val).longValue();
+                if (l >= 0 && l < table.length) {
+                    return table[(int) l];
+                }
+            }
+            if (format == null) {
+                return val.toString();
+            } else {
+                return FormatFunction.format(format, val);
+            }
+        }
+    }
+
+    private static class SdValue implements Value {
+
+        @Override
+        public Object getValue(Object sdValue) {
+            if (sdValue instanceof Integer || sdValue instanceof Long) {
+                return sdValue;
+            } else if (sdValue instanceof Short || sdValue instanceof Byte) {
+                return ((Number) sdValue).intValue();
+            } else {
+                return UNSUPPORTED;
+            }
+        }
+    }
+
+    private static class HashCodeValue implements Value {
+
+        @Override
+        public Object getValue(Object sdValue) {
+            if (sdValue == null) {
+                return UNSUPPORTED;
+            }
+            return sdValue.hashCode();
+        }
+    }
+
+    /**
+     * 与SpEL的'%'一致: 有一个操作数为Long时按long计算, 否则按int计算
+     */
+    private static class ModValue implements Value {
+
+        private final Value value;
+        private final int   modulus;
+
+        private ModValue(Value value, int modulus) {
+            this.value = value;
+            this.modulus = modulus;
+        }
+
+        @Override
+        public Object getValue(Object sdValue) {
+            Object val = value.getValue(sdValue);
+            if (val instanceof Integer) {
+                return ((Integer) val) % modulus;
+            } else if (val instanceof Long) {
+                return ((Long) val) % modulus;
+            } else {
+                return UNSUPPORTED;
+            }
+        }
+    }
+
+    /**
+     * 与SpEL的'/'一致: 有一个操作数为Long时按long计算, 否则按int计算
+     */
+    private static class DivValue implements Value {
+
+        private final Value value;
+        private final int   divisor;
+
+        private DivValue(Value value, int divisor) {
+            this.value = value;
+            this.divisor = divisor;
+        }
+
+        @Override
+        public Object getValue(Object sdValue) {
+            Object val = value.getValue(sdValue);
+            if (val instanceof Integer) {
+                return ((Integer) val) / divisor;
+            } else if (val instanceof Long) {
+                return ((Long) val) / divisor;
+            } else {
+                return UNSUPPORTED;
+            }
+        }
+    }
+
+    /**
+     * expr := name | value | format '(' STRING ',' value ')'
+     * value := 'sdValue' ['.' 'hashCode' '(' ')'] ['/' INT] ['%' INT]
+     */
+    private static class ExpressionParser {
+
+        private final String text;
+        private int          pos;
+
+        private ExpressionParser(String text) {
+            this.text = text;
+        }
+
+        private Part parse() {
+            Part part;
+            String identifier = identifier();
+            if ("scName".equals(identifier) || "tbName".equals(identifier)) {
+                part = new NamePart("scName".equals(identifier));
+            } else if ("sdValue".equals(identifier)) {
+                Value value = value(identifier);
+                part = value == null ? null : new NumberPart(value, null);
+            } else if (("format".equals(identifier) || "#format".equals(identifier)) && isFormatFunction()) {
+                part = format();
+            } else {
+                return null;
+            }
+            skipBlank();
+            return pos == text.length() ? part : null;
+        }
+
+        private Part format() {
+            if (!symbol('(')) {
+                return null;
+            }
+            String format = string();
+            if (format == null || !symbol(',')) {
+                return null;
+            }
+            Value value = value(identifier());
+            if (value == null || !symbol(')')) {
+                return null;
+            }
+            return new NumberPart(value, format);
+        }
+
+        private Value value(String identifier) {
+            if (!"sdValue".equals(identifier)) {
+                return null;
+            }
+            Value value = new SdValue();
+            int mark = pos;
+            if (symbol('.')) {
+                if (!"hashCode".equals(identifier()) || !symbol('(') || !symbol(')')) {
+                    return null;
+                }
+                value = new HashCodeValue();
+            } else {
+                pos = mark;
+            }
+            mark = pos;
+            if (symbol('/')) {
+                int divisor = positiveInt();
+                if (divisor <= 0) {
+                    return null;
+                }
+                value = new DivValue(value, divisor);
+            } else {
+                pos = mark;
+            }
+            mark = pos;
+            if (symbol('%')) {
+                int modulus = positiveInt();
+                if (modulus <= 0) {
+                    return null;
+                }
+                value = new ModValue(value, modulus);
+            } else {
+                pos = mark;
+            }
+            return value;
+        }
+
+        /**
+         * 不是正整数(或以0开头)时返回-1
+         */
+        private int positiveInt() {
+            skipBlank();
+            int start = pos;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos || pos - start > 9 || text.charAt(start) == '0') {
+                return -1;
+            }
+            return Integer.parseInt(text.substring(start, pos));
+        }
+
+        private String identifier() {
+            skipBlank();
+            int start = pos;
+            if (pos < text.length() && text.charAt(pos) == '#') {
+                pos++;
+            }
+            while (pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos))) {
+                pos++;
+            }
+            return text.substring(start, pos);
+        }
+
+        private String string() {
+            skipBlank();
+            if (pos >= text.length() || text.charAt(pos) != '\'') {
+                return null;
+            }
+            int end = text.indexOf('\'', pos + 1);
+            // 不支持转义的单引号
+            if (end < 0 || end + 1 < text.length() && text.charAt(end + 1) == '\'') {
+                return null;
+            }
+            String str = text.substring(pos + 1, end);
+            pos = end + 1;
+            return str;
+        }
+
+        private boolean symbol(char ch) {
+            skipBlank();
+            if (pos < text.length() && text.charAt(pos) == ch) {
+                pos++;
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        private void skipBlank() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * 基于哈希环的一致性哈希路由规则, 每个schema(表)在环上有virtualNodeCount个虚拟节点, 虚拟节点的位置只由序号决定.
+ * 数量从n增加到m时只有新增节点的虚拟节点所覆盖的分片值(约(m - n) / m)被移动到新增的schema(表)中.
+ * 与{@link JumpHashShardRouteRule}相比数据分布的均匀程度取决于虚拟节点数, 查找开销为O(log(count * virtualNodeCount))
+ *
+ * <pre>
+ * new ConsistentHashShardRouteRule(16, 8) => member_0 ~ member_15, user_0 ~ user_7
+ * </pre>
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class ConsistentHashShardRouteRule extends HashShardRouteRule {
+
+    private int           virtualNodeCount = 160;
+
+    private volatile Ring scRing;
+    private volatile Ring tbRing;
+
+    // used for spring bean
+    private ConsistentHashShardRouteRule() {
+    }
+
+    public ConsistentHashShardRouteRule(Integer scCount, Integer tbCount) {
+        super(scCount, tbCount);
+    }
+
+    public ConsistentHashShardRouteRule(Integer scCount, Integer tbCount, int virtualNodeCount) {
+        setVirtualNodeCount(virtualNodeCount);
+        setScCount(scCount);
+        setTbCount(tbCount);
+    }
+
+    public int getVirtualNodeCount() {
+        return virtualNodeCount;
+    }
+
+    public void setVirtualNodeCount(int virtualNodeCount) {
+        if (virtualNodeCount <= 0) {
+            throw new IllegalArgumentException("virtualNodeCount must be greater than 0");
+        }
+        this.virtualNodeCount = virtualNodeCount;
+        this.scRing = null;
+        this.tbRing = null;
+    }
+
+    @Override
+    public void setScCount(Integer scCount) {
+        super.setScCount(scCount);
+        this.scRing = null;
+    }
+
+    @Override
+    public void setTbCount(Integer tbCount) {
+        super.setTbCount(tbCount);
+        this.tbRing = null;
+    }
+
+    @Override
+    protected int getScIndex(long hash, int count) {
+        Ring ring = scRing;
+        if (ring == null || ring.count != count) {
+            ring = new Ring(count, virtualNodeCount);
+            scRing = ring;
+        }
+        return ring.get(hash);
+    }
+
+    @Override
+    protected int getTbIndex(long hash, int count) {
+        Ring ring = tbRing;
+        if (ring == null || ring.count != count) {
+            ring = new Ring(count, virtualNodeCount);
+            tbRing = ring;
+        }
+        return ring.get(hash);
+    }
+
+    private static class Ring {
+
+        private final int    count;
+        // 虚拟节点的位置(升序)及所属的序号
+        private final long[] positions;
+        private final int[]  indexes;
+
+        private Ring(int count, int virtualNodeCount) {
+            this.count = count;
+            int size = count * virtualNodeCount;
+            long[] nodes = new long[size];
+            for (int i = 0; i < count; i++) {
+                for (int j = 0; j < virtualNodeCount; j++) {
+                    nodes[i * virtualNodeCount + j] = HashShardRouteRule.mix(((long) i << 32) | j);
+                }
+            }
+            // 位置相同时(概率可以忽略)保留序号小的节点, 排序前按位置和序号组合
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            final long[] nodes0 = nodes;
+            Arrays.sort(order, new Comparator<Integer>() {
+
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    int c = Long.compare(nodes0[o1], nodes0[o2]);
+                    return c != 0 ? c : o1.compareTo(o2);
+                }
+            });
+            this.positions = new long[size];
+            this.indexes = new int[size];
+            for (int i = 0; i < size; i++) {
+                positions[i] = nodes[order[i]];
+                indexes[i] = order[i] / virtualNodeCount;
+            }
+        }
+
+        /**
+         * 顺时针方向第一个位置不小于hash的虚拟节点
+         */
+        private int get(long hash) {
+            int low = 0;
+            int high = positions.length - 1;
+            if (hash > positions[high]) {
+                return indexes[0];
+            }
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (positions[mid] < hash) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return indexes[low];
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("scCount", getScCount())//
+        .append("tbCount", getTbCount())//
+        .append("virtualNodeCount", virtualNodeCount)//
+        .append("rangeSizeLimit", getRangeSizeLimit())//
+        .toString();
+    }
+}
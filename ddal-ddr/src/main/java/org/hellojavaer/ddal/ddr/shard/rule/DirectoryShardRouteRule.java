@@ -0,0 +1,546 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.ddr.shard.RangeShardValue;
+import org.hellojavaer.ddal.ddr.shard.ReloadableShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.exception.CrossTableException;
+import org.hellojavaer.ddal.ddr.shard.exception.ShardValueNotFoundException;
+import org.hellojavaer.ddal.ddr.shard.exception.UnsupportedShardValueTypeException;
+import org.hellojavaer.ddal.ddr.utils.DDRDaemonThreadFactory;
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按目录路由: 目录文件中列出的分片值(区间)路由到指定的schema和表, 其他分片值使用fallbackRule路由(为空时抛出ShardValueNotFoundException).
+ * 目录按区间的起始值升序存储在内存映射文件中, 查找为不分配对象的二分查找, 不占用堆内存.
+ * 目录文件由{@link #write}生成(先写临时文件再原子重命名), reload时映射新文件并原子替换, 正在进行的查找仍使用旧的映射.
+ * 文件的修改时间, 大小或者头部的校验和变化时才重新加载, 重新加载后通知监听器(路由器)重新构建路由缓存.
+ * 只有整数类型的分片值查找目录, 其他类型直接使用fallbackRule
+ *
+ * <pre>
+ * 文件格式: magic(int) version(int) targetsLength(int) count(int) checksum(long) targets(targetsLength bytes)
+ *          begins(count longs) ends(count longs) targetIndexes(count ints)
+ * checksum: 头部之后所有内容的CRC32
+ * targets: targetCount(int) [scName(utf) tbName(utf)]..., 空字符串表示名称不变
+ *
+ * &lt;bean id="tenantRouteRule" class="org.hellojavaer.ddal.ddr.shard.rule.DirectoryShardRouteRule" init-method="init" destroy-method="destroy"&gt;
+ *     &lt;property name="file" value="/data/ddal/tenant.directory"/&gt;
+ *     &lt;property name="fallbackRule" ref="spelRouteRule"/&gt;
+ *     &lt;property name="reloadIntervalSeconds" value="60"/&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class DirectoryShardRouteRule implements ReloadableShardRouteRule {
+
+    private static final int         MAGIC                 = 0x44445244;
+    private static final int         VERSION               = 2;
+    private static final int         CHECKSUM_OFFSET       = 16;
+    private static final int         HEADER_LENGTH         = 24;
+
+    private Logger                   logger                = LoggerFactory.getLogger(getClass());
+
+    private String                   file;
+    private ShardRouteRule           fallbackRule;
+    private long                     reloadIntervalSeconds = 0;
+
+    private volatile Directory       directory;
+    private ScheduledExecutorService scheduledExecutorService;
+    private final Set<Runnable>      reloadListeners       = new CopyOnWriteArraySet<>();
+
+    // used for spring bean
+    private DirectoryShardRouteRule() {
+    }
+
+    public DirectoryShardRouteRule(String file, ShardRouteRule fallbackRule) {
+        this.file = file;
+        this.fallbackRule = fallbackRule;
+        init();
+    }
+
+    public synchronized void init() {
+        if (file == null) {
+            throw new IllegalArgumentException("file can't be null");
+        }
+        if (directory == null) {
+            try {
+                reload();
+            } catch (IOException e) {
+                throw new IllegalStateException("load directory file '" + file + "' failed", e);
+            }
+        }
+        if (reloadIntervalSeconds > 0 && scheduledExecutorService == null) {
+            scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new DDRDaemonThreadFactory(
+                                                                                  "ddal-directory-route-rule"));
+            scheduledExecutorService.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    reloadIfModified();
+                }
+            }, reloadIntervalSeconds, reloadIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void destroy() {
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdownNow();
+            scheduledExecutorService = null;
+        }
+    }
+
+    /**
+     * 重新映射目录文件, 文件格式错误时保留原来的目录. 目录内容变化时通知监听器
+     */
+    public synchronized void reload() throws IOException {
+        File f = new File(file);
+        long lastModified = f.lastModified();
+        Directory old = this.directory;
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("directory file '" + file + "' is too large");
+            }
+            // 映射在channel关闭后仍然有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            this.directory = new Directory(buffer, lastModified);
+        } finally {
+            raf.close();
+        }
+        if (old != null && old.checksum != this.directory.checksum) {
+            for (Runnable listener : reloadListeners) {
+                try {
+                    listener.run();
+                } catch (Throwable e) {
+                    logger.error("[DirectoryShardRouteRule] notify reload listener " + listener + " failed", e);
+                }
+            }
+        }
+    }
+
+    private void reloadIfModified() {
+        try {
+            Directory directory = this.directory;
+            File f = new File(file);
+            // 修改时间的精度可能只有1秒, 同时比较文件大小和头部的校验和
+            if (directory == null || f.lastModified() != directory.lastModified
+                || f.length() != directory.buffer.limit() || readChecksum(f) != directory.checksum) {
+                reload();
+                logger.info("[DirectoryShardRouteRule] directory file '" + file + "' reloaded, size:"
+                            + this.directory.size);
+            }
+        } catch (Throwable e) {
+            logger.warn("[DirectoryShardRouteRule] reload directory file '" + file + "' failed", e);
+        }
+    }
+
+    private static long readChecksum(File f) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try {
+            if (raf.length() < HEADER_LENGTH) {
+                throw new IOException("Unknown directory file format");
+            }
+            raf.seek(CHECKSUM_OFFSET);
+            return raf.readLong();
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Override
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    @Override
+    public void removeReloadListener(Runnable listener) {
+        reloadListeners.remove(listener);
+    }
+
+    /**
+     * 目录中的区间数
+     */
+    public int size() {
+        return getDirectory().size;
+    }
+
+    private Directory getDirectory() {
+        Directory directory = this.directory;
+        if (directory == null) {
+            throw new IllegalStateException("DirectoryShardRouteRule is not initialized, please call init() first");
+        }
+        return directory;
+    }
+
+    @Override
+    public String parseScName(String scName, Object sdValue) {
+        if (sdValue instanceof RangeShardValue) {
+            return parseRangeName(scName, true, (RangeShardValue) sdValue);
+        }
+        Directory directory = getDirectory();
+        if (isIntegral(sdValue)) {
+            int index = directory.indexOf(((Number) sdValue).longValue());
+            if (index >= 0) {
+                String name = directory.getTarget(index).getScName();
+                return name == null ? scName : name;
+            }
+        }
+        return getFallbackRule(sdValue).parseScName(scName, sdValue);
+    }
+
+    @Override
+    public String parseTbName(String tbName, Object sdValue) {
+        if (sdValue instanceof RangeShardValue) {
+            return parseRangeName(tbName, false, (RangeShardValue) sdValue);
+        }
+        Directory directory = getDirectory();
+        if (isIntegral(sdValue)) {
+            int index = directory.indexOf(((Number) sdValue).longValue());
+            if (index >= 0) {
+                String name = directory.getTarget(index).getTbName();
+                return name == null ? tbName : name;
+            }
+        }
+        return getFallbackRule(sdValue).parseTbName(tbName, sdValue);
+    }
+
+    private String parseRangeName(String name, boolean sc, RangeShardValue rangeShardValue) {
+        String result = null;
+        for (ShardRouteInfo routeInfo : groupSdValuesByRouteInfo(name, name, rangeShardValue).keySet()) {
+            String temp = sc ? routeInfo.getScName() : routeInfo.getTbName();
+            if (result != null && !result.equals(temp)) {
+                throw new CrossTableException(result + " and " + temp);
+            }
+            result = temp;
+        }
+        return result;
+    }
+
+    /**
+     * 依次处理与范围相交的目录区间, 区间之间的空隙使用fallbackRule分组
+     */
+    @Override
+    public Map<ShardRouteInfo, List<RangeShardValue>> groupSdValuesByRouteInfo(String scName, String tbName,
+                                                                               RangeShardValue rangeShardValue) {
+        Long begin = rangeShardValue.getBegin();
+        Long end = rangeShardValue.getEnd();
+        if (begin == null || end == null) {
+            throw new IllegalArgumentException("rangeShardValue.begin and rangeShardValue.end can't be null");
+        }
+        if (begin > end) {
+            throw new IllegalArgumentException("rangeShardValue.begin can't be greater than rangeShardValue.end");
+        }
+        Directory directory = getDirectory();
+        Map<ShardRouteInfo, List<RangeShardValue>> map = new LinkedHashMap<>();
+        long pos = begin;
+        for (int i = directory.ceilingIndexOf(begin); i < directory.size && directory.getBegin(i) <= end; i++) {
+            long b = directory.getBegin(i);
+            if (b > pos) {
+                groupByFallbackRule(map, scName, tbName, pos, b - 1, rangeShardValue);
+            }
+            ShardRouteInfo target = directory.getTarget(i);
+            ShardRouteInfo routeInfo = new ShardRouteInfo(target.getScName() == null ? scName : target.getScName(),
+                                                          target.getTbName() == null ? tbName : target.getTbName());
+            long e = Math.min(directory.getEnd(i), end);
+            add(map, routeInfo, new RangeShardValue(Math.max(b, pos), e));
+            if (e == end) {
+                return map;
+            }
+            pos = e + 1;
+        }
+        groupByFallbackRule(map, scName, tbName, pos, end, rangeShardValue);
+        return map;
+    }
+
+    private void groupByFallbackRule(Map<ShardRouteInfo, List<RangeShardValue>> map, String scName, String tbName,
+                                     long begin, long end, RangeShardValue rangeShardValue) {
+        Map<ShardRouteInfo, List<RangeShardValue>> subMap = getFallbackRule(rangeShardValue).groupSdValuesByRouteInfo(scName,
+                                                                                                                      tbName,
+                                                                                                                      new RangeShardValue(begin,
+                                                                                                                                          end));
+        if (subMap == null) {
+            return;
+        }
+        for (Map.Entry<ShardRouteInfo, List<RangeShardValue>> entry : subMap.entrySet()) {
+            for (RangeShardValue item : entry.getValue()) {
+                add(map, entry.getKey(), item);
+            }
+        }
+    }
+
+    private static void add(Map<ShardRouteInfo, List<RangeShardValue>> map, ShardRouteInfo routeInfo,
+                            RangeShardValue rangeShardValue) {
+        List<RangeShardValue> list = map.get(routeInfo);
+        if (list == null) {
+            list = new ArrayList<>();
+            map.put(routeInfo, list);
+        }
+        list.add(rangeShardValue);
+    }
+
+    private ShardRouteRule getFallbackRule(Object sdValue) {
+        if (fallbackRule == null) {
+            if (sdValue == null || isIntegral(sdValue) || sdValue instanceof RangeShardValue) {
+                throw new ShardValueNotFoundException("sdValue '" + sdValue + "' is not found in directory file '"
+                                                      + file + "'");
+            } else {
+                throw new UnsupportedShardValueTypeException(sdValue.getClass().toString());
+            }
+        }
+        return fallbackRule;
+    }
+
+    private static boolean isIntegral(Object sdValue) {
+        return sdValue instanceof Long || sdValue instanceof Integer || sdValue instanceof Short
+               || sdValue instanceof Byte;
+    }
+
+    /**
+     * 写入目录文件, 先写临时文件再原子重命名. 区间必须按begin升序且不能重叠, 相邻且目标相同的区间合并为一个.
+     * routeInfos中的scName或tbName为空表示名称不变
+     */
+    public static void write(File target, long[] begins, long[] ends, ShardRouteInfo[] routeInfos)
+                                                                                                   throws IOException {
+        if (begins.length != ends.length || begins.length != routeInfos.length) {
+            throw new IllegalArgumentException("begins, ends and routeInfos must have the same length");
+        }
+        int n = begins.length;
+        Map<ShardRouteInfo, Integer> targetIndexMap = new HashMap<>();
+        List<ShardRouteInfo> targets = new ArrayList<>();
+        long[] mergedBegins = new long[n];
+        long[] mergedEnds = new long[n];
+        int[] mergedTargets = new int[n];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (begins[i] > ends[i]) {
+                throw new IllegalArgumentException("begin can't be greater than end at index " + i);
+            }
+            if (i > 0 && begins[i] <= ends[i - 1]) {
+                throw new IllegalArgumentException("ranges must be sorted and can't overlap at index " + i);
+            }
+            Integer targetIndex = targetIndexMap.get(routeInfos[i]);
+            if (targetIndex == null) {
+                targetIndex = targets.size();
+                targets.add(routeInfos[i]);
+                targetIndexMap.put(routeInfos[i], targetIndex);
+            }
+            if (count > 0 && mergedTargets[count - 1] == targetIndex && mergedEnds[count - 1] + 1 == begins[i]) {
+                mergedEnds[count - 1] = ends[i];
+            } else {
+                mergedBegins[count] = begins[i];
+                mergedEnds[count] = ends[i];
+                mergedTargets[count] = targetIndex;
+                count++;
+            }
+        }
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        File temp = new File(target.getAbsolutePath() + ".tmp");
+        BufferedOutputStream fileOut = new BufferedOutputStream(new FileOutputStream(temp), 1 << 16);
+        CRC32 crc32 = new CRC32();
+        // 头部之后的内容同时计算校验和
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(fileOut, crc32));
+        try {
+            ByteArrayOutputStream targetsBytes = new ByteArrayOutputStream();
+            DataOutputStream targetsOut = new DataOutputStream(targetsBytes);
+            targetsOut.writeInt(targets.size());
+            for (ShardRouteInfo routeInfo : targets) {
+                targetsOut.writeUTF(routeInfo.getScName() == null ? "" : routeInfo.getScName());
+                targetsOut.writeUTF(routeInfo.getTbName() == null ? "" : routeInfo.getTbName());
+            }
+            targetsOut.close();
+            DataOutputStream headerOut = new DataOutputStream(fileOut);
+            headerOut.writeInt(MAGIC);
+            headerOut.writeInt(VERSION);
+            headerOut.writeInt(targetsBytes.size());
+            headerOut.writeInt(count);
+            headerOut.writeLong(0);// 校验和在写完内容后回填
+            targetsBytes.writeTo(out);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(mergedBegins[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeLong(mergedEnds[i]);
+            }
+            for (int i = 0; i < count; i++) {
+                out.writeInt(mergedTargets[i]);
+            }
+        } finally {
+            out.close();
+        }
+        RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+        try {
+            raf.seek(CHECKSUM_OFFSET);
+            raf.writeLong(crc32.getValue());
+        } finally {
+            raf.close();
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static class Directory {
+
+        private final MappedByteBuffer buffer;
+        private final long             lastModified;
+        private final long             checksum;
+        private final int              size;
+        private final int              beginsOffset;
+        private final int              endsOffset;
+        private final int              targetIndexesOffset;
+        private final ShardRouteInfo[] targets;
+
+        private Directory(MappedByteBuffer buffer, long lastModified) throws IOException {
+            this.buffer = buffer;
+            this.lastModified = lastModified;
+            if (buffer.limit() < HEADER_LENGTH || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Unknown directory file format");
+            }
+            int targetsLength = buffer.getInt(8);
+            this.size = buffer.getInt(12);
+            this.checksum = buffer.getLong(CHECKSUM_OFFSET);
+            this.beginsOffset = HEADER_LENGTH + targetsLength;
+            this.endsOffset = beginsOffset + size * 8;
+            this.targetIndexesOffset = endsOffset + size * 8;
+            if (targetsLength < 0 || size < 0 || (long) beginsOffset + size * 20L != buffer.limit()) {
+                throw new IOException("Broken directory file");
+            }
+            byte[] bytes = new byte[targetsLength];
+            for (int i = 0; i < targetsLength; i++) {
+                bytes[i] = buffer.get(HEADER_LENGTH + i);
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            this.targets = new ShardRouteInfo[in.readInt()];
+            for (int i = 0; i < targets.length; i++) {
+                String scName = in.readUTF();
+                String tbName = in.readUTF();
+                targets[i] = new ShardRouteInfo(scName.isEmpty() ? null : scName, tbName.isEmpty() ? null : tbName);
+            }
+        }
+
+        private long getBegin(int index) {
+            return buffer.getLong(beginsOffset + index * 8);
+        }
+
+        private long getEnd(int index) {
+            return buffer.getLong(endsOffset + index * 8);
+        }
+
+        private ShardRouteInfo getTarget(int index) {
+            return targets[buffer.getInt(targetIndexesOffset + index * 4)];
+        }
+
+        /**
+         * 最后一个begin <= key的区间, 不存在时返回-1
+         */
+        private int floorIndexOf(long key) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (getBegin(mid) <= key) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return high;
+        }
+
+        /**
+         * 包含key的区间, 不存在时返回-1
+         */
+        private int indexOf(long key) {
+            int index = floorIndexOf(key);
+            return index >= 0 && getEnd(index) >= key ? index : -1;
+        }
+
+        /**
+         * 第一个end >= key的区间, 不存在时返回size
+         */
+        private int ceilingIndexOf(long key) {
+            int index = floorIndexOf(key);
+            return index >= 0 && getEnd(index) >= key ? index : index + 1;
+        }
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public ShardRouteRule getFallbackRule() {
+        return fallbackRule;
+    }
+
+    public void setFallbackRule(ShardRouteRule fallbackRule) {
+        this.fallbackRule = fallbackRule;
+    }
+
+    public long getReloadIntervalSeconds() {
+        return reloadIntervalSeconds;
+    }
+
+    public void setReloadIntervalSeconds(long reloadIntervalSeconds) {
+        this.reloadIntervalSeconds = reloadIntervalSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("file", file)//
+        .append("fallbackRule", fallbackRule)//
+        .append("reloadIntervalSeconds", reloadIntervalSeconds)//
+        .toString();
+    }
+}
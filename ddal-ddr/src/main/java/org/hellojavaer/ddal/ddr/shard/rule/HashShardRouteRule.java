@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.ddr.shard.RangeShardValue;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.exception.CrossTableException;
+import org.hellojavaer.ddal.ddr.shard.exception.OutOfRangeSizeLimitException;
+import org.hellojavaer.ddal.ddr.shard.exception.UnsupportedShardValueTypeException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按分片值的哈希值路由, 子类决定哈希值到schema和表序号的映射. schema名为scName_i(0 <= i < scCount),
+ * 表名为tbName_j(0 <= j < tbCount, 即每个schema中的表序号), scCount或tbCount为空时对应的名称不变.
+ * 分片值支持Long,Integer,Short,Byte和String, 同一个值的数字和字符串形式哈希值不同.
+ * 哈希值不保留分片值的顺序, 范围分片值逐个计算路由, 范围大小受rangeSizeLimit限制
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public abstract class HashShardRouteRule implements ShardRouteRule {
+
+    private static final long TB_HASH_SEED = 0x9E3779B97F4A7C15L;
+
+    private Integer           scCount;
+    private Integer           tbCount;
+    private Integer           rangeSizeLimit;
+
+    protected HashShardRouteRule() {
+    }
+
+    protected HashShardRouteRule(Integer scCount, Integer tbCount) {
+        setScCount(scCount);
+        setTbCount(tbCount);
+    }
+
+    public Integer getScCount() {
+        return scCount;
+    }
+
+    public void setScCount(Integer scCount) {
+        if (scCount != null && scCount <= 0) {
+            throw new IllegalArgumentException("scCount must be greater than 0");
+        }
+        this.scCount = scCount;
+    }
+
+    public Integer getTbCount() {
+        return tbCount;
+    }
+
+    public void setTbCount(Integer tbCount) {
+        if (tbCount != null && tbCount <= 0) {
+            throw new IllegalArgumentException("tbCount must be greater than 0");
+        }
+        this.tbCount = tbCount;
+    }
+
+    public Integer getRangeSizeLimit() {
+        return rangeSizeLimit;
+    }
+
+    public void setRangeSizeLimit(Integer rangeSizeLimit) {
+        this.rangeSizeLimit = rangeSizeLimit;
+    }
+
+    /**
+     * 返回[0, count)中的序号
+     */
+    protected abstract int getScIndex(long hash, int count);
+
+    protected abstract int getTbIndex(long hash, int count);
+
+    @Override
+    public String parseScName(String scName, Object sdValue) {
+        if (scCount == null) {
+            return scName;
+        }
+        if (sdValue instanceof RangeShardValue) {
+            return parseRangeName(scName, (RangeShardValue) sdValue, true);
+        }
+        return parseScName0(scName, hash(sdValue));
+    }
+
+    @Override
+    public String parseTbName(String tbName, Object sdValue) {
+        if (tbCount == null) {
+            return tbName;
+        }
+        if (sdValue instanceof RangeShardValue) {
+            return parseRangeName(tbName, (RangeShardValue) sdValue, false);
+        }
+        return parseTbName0(tbName, hash(sdValue));
+    }
+
+    private String parseScName0(String scName, long hash) {
+        return new StringBuilder(scName).append('_').append(getScIndex(hash, scCount)).toString();
+    }
+
+    private String parseTbName0(String tbName, long hash) {
+        // 表序号使用另一个哈希值, 避免与schema序号相关
+        return new StringBuilder(tbName).append('_').append(getTbIndex(mix(hash ^ TB_HASH_SEED), tbCount)).toString();
+    }
+
+    private String parseRangeName(String name, RangeShardValue rangeShardValue, boolean sc) {
+        long begin = checkRange(rangeShardValue);
+        long end = rangeShardValue.getEnd();
+        String result = null;
+        for (long l = begin;; l++) {
+            long hash = hash(l);
+            String temp = sc ? parseScName0(name, hash) : parseTbName0(name, hash);
+            if (result != null && !result.equals(temp)) {
+                throw new CrossTableException(result + " and " + temp);
+            }
+            result = temp;
+            if (l == end) {
+                return result;
+            }
+        }
+    }
+
+    @Override
+    public Map<ShardRouteInfo, List<RangeShardValue>> groupSdValuesByRouteInfo(String scName, String tbName,
+                                                                               RangeShardValue rangeShardValue) {
+        long begin = checkRange(rangeShardValue);
+        long end = rangeShardValue.getEnd();
+        Map<ShardRouteInfo, List<RangeShardValue>> map = new LinkedHashMap<>();
+        if (scCount == null && tbCount == null) {
+            List<RangeShardValue> list = new ArrayList<>(1);
+            list.add(new RangeShardValue(begin, end));
+            map.put(new ShardRouteInfo(scName, tbName), list);
+            return map;
+        }
+        for (long l = begin;; l++) {
+            long hash = hash(l);
+            ShardRouteInfo routeInfo = new ShardRouteInfo();
+            routeInfo.setScName(scCount == null ? scName : parseScName0(scName, hash));
+            routeInfo.setTbName(tbCount == null ? tbName : parseTbName0(tbName, hash));
+            List<RangeShardValue> list = map.get(routeInfo);
+            if (list == null) {
+                list = new ArrayList<>();
+                map.put(routeInfo, list);
+            }
+            RangeShardValue last = list.isEmpty() ? null : list.get(list.size() - 1);
+            if (last != null && last.getEnd() == l - 1) {// 相邻的值合并为一个范围
+                last.setEnd(l);
+            } else {
+                list.add(new RangeShardValue(l, l));
+            }
+            if (l == end) {
+                return map;
+            }
+        }
+    }
+
+    private long checkRange(RangeShardValue rangeShardValue) {
+        Long begin = rangeShardValue.getBegin();
+        Long end = rangeShardValue.getEnd();
+        if (begin == null || end == null) {
+            throw new IllegalArgumentException("rangeShardValue.begin and rangeShardValue.end can't be null");
+        }
+        if (begin > end) {
+            throw new IllegalArgumentException("rangeShardValue.begin can't be greater than rangeShardValue.end");
+        }
+        if (rangeSizeLimit != null && end - begin + 1 > rangeSizeLimit) {
+            throw new OutOfRangeSizeLimitException((end - begin) + " > " + rangeSizeLimit);
+        }
+        return begin;
+    }
+
+    /**
+     * 整数使用murmur3的64位混合函数, 字符串使用FNV-1a后再混合
+     */
+    protected static long hash(Object sdValue) {
+        if (sdValue == null) {
+            throw new NullPointerException("sdValue can't be null");
+        }
+        if (sdValue instanceof Long || sdValue instanceof Integer || sdValue instanceof Short
+            || sdValue instanceof Byte) {
+            return hash(((Number) sdValue).longValue());
+        } else if (sdValue instanceof String) {
+            String str = (String) sdValue;
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < str.length(); i++) {
+                h ^= str.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return mix(h);
+        } else {
+            throw new UnsupportedShardValueTypeException(sdValue.getClass().toString());
+        }
+    }
+
+    protected static long hash(long l) {
+        return mix(l);
+    }
+
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
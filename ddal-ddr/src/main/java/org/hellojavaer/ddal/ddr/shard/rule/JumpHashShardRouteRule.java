@@ -0,0 +1,78 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+/**
+ * 一致性跳跃哈希(jump consistent hash)路由规则, 不需要额外的存储, 计算开销为O(ln(count)).
+ * 数量从n增加到m时只有(m - n) / m的分片值被移动, 且只会被移动到新增的schema或表中, 如16个库扩容到24个库时移动1/3的数据.
+ * 只支持在末尾增加或删除schema(表)
+ *
+ * <pre>
+ * new JumpHashShardRouteRule(16, 8) => member_0 ~ member_15, user_0 ~ user_7
+ * </pre>
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class JumpHashShardRouteRule extends HashShardRouteRule {
+
+    // used for spring bean
+    private JumpHashShardRouteRule() {
+    }
+
+    public JumpHashShardRouteRule(Integer scCount, Integer tbCount) {
+        super(scCount, tbCount);
+    }
+
+    public JumpHashShardRouteRule(Integer scCount, Integer tbCount, Integer rangeSizeLimit) {
+        super(scCount, tbCount);
+        setRangeSizeLimit(rangeSizeLimit);
+    }
+
+    @Override
+    protected int getScIndex(long hash, int count) {
+        return jump(hash, count);
+    }
+
+    @Override
+    protected int getTbIndex(long hash, int count) {
+        return jump(hash, count);
+    }
+
+    /**
+     * John Lamping, Eric Veach. A Fast, Minimal Memory, Consistent Hash Algorithm
+     */
+    static int jump(long key, int count) {
+        long b = -1;
+        long j = 0;
+        while (j < count) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("scCount", getScCount())//
+        .append("tbCount", getTbCount())//
+        .append("rangeSizeLimit", getRangeSizeLimit())//
+        .toString();
+    }
+}
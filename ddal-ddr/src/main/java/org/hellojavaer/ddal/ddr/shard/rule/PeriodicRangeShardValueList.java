@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.ddr.shard.RangeShardValue;
+
+import java.util.AbstractList;
+
+/**
+ * 周期性路由规则下一个表在[begin, end]上的所有分片值. 一个周期内该表的分片值为offsets, lengths描述的若干段,
+ * 每个周期重复出现, 元素在访问时计算, 因此创建的开销只与一个周期内的段数有关, 与范围大小无关
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+class PeriodicRangeShardValueList extends AbstractList<RangeShardValue> {
+
+    private final long   begin;
+    private final long   end;
+    private final long   period;
+    // 相对于begin的偏移, 升序
+    private final long[] offsets;
+    private final long[] lengths;
+
+    private final long   fullPeriods;
+    private final int    size;
+
+    PeriodicRangeShardValueList(long begin, long end, long period, long[] offsets, long[] lengths) {
+        this.begin = begin;
+        this.end = end;
+        this.period = period;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        long span = end - begin;
+        // (span + 1) / period, span + 1可能溢出
+        this.fullPeriods = span / period + (span % period + 1) / period;
+        long size = 0;
+        for (long offset : offsets) {
+            if (offset <= span) {
+                size += (span - offset) / period + 1;
+            }
+        }
+        this.size = (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public RangeShardValue get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index:" + index + ", size:" + size);
+        }
+        long k;
+        int j;
+        if (index < fullPeriods * offsets.length) {
+            k = index / offsets.length;
+            j = index % offsets.length;
+        } else {// 最后一个不完整的周期
+            k = fullPeriods;
+            j = (int) (index - fullPeriods * offsets.length);
+        }
+        long start = begin + k * period + offsets[j];
+        return new RangeShardValue(start, lengths[j] - 1 >= end - start ? end : start + lengths[j] - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
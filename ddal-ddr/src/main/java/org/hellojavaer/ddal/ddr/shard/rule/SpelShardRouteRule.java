@@ -37,17 +37,27 @@ import java.lang.reflect.Method;
 import java.util.*;
 
 /**
+ * 规则模板只使用常用语法时(见{@link CompiledRouteRuleExpression})编译为求值树直接计算, 否则使用SpEL求值.
+ * 编译后的规则只通过(sdValue / D) % M依赖分片值时, 非负的范围分片值按块和周期直接分组, 求值次数不超过一个周期内的块数,
+ * 此时rangeSizeLimit限制的是求值次数而不是范围大小
  *
  * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 25/04/2017.
  */
 public class SpelShardRouteRule implements ShardRouteRule {
 
-    private String     scRouteRule;
-    private String     tbRouteRule;
-    private Integer    rangeSizeLimit;
+    private String                      scRouteRule;
+    private String                      tbRouteRule;
+    private Integer                     rangeSizeLimit;
 
-    private Expression scRouteRuleExpression;
-    private Expression tbRouteRuleExpression;
+    private Expression                  scRouteRuleExpression;
+    private Expression                  tbRouteRuleExpression;
+
+    private CompiledRouteRuleExpression scCompiledExpression;
+    private CompiledRouteRuleExpression tbCompiledExpression;
+
+    // 非负分片值在按routeBlockSize对齐的块内路由不变, 以routePeriod为周期(-1表示没有周期); routeBlockSize为-1表示不能按块分组
+    private long                        routeBlockSize = -1;
+    private long                        routePeriod    = -1;
 
     // used for spring bean
     private SpelShardRouteRule() {
@@ -59,8 +69,8 @@ public class SpelShardRouteRule implements ShardRouteRule {
     }
 
     public SpelShardRouteRule(String scRouteRule, String tbRouteRule, Integer rangeSizeLimit) {
-        this.scRouteRule = scRouteRule;
-        this.tbRouteRule = tbRouteRule;
+        setScRouteRule(scRouteRule);
+        setTbRouteRule(tbRouteRule);
         this.rangeSizeLimit = rangeSizeLimit;
     }
 
@@ -70,7 +80,11 @@ public class SpelShardRouteRule implements ShardRouteRule {
         if (scRouteRule != null) {
             ExpressionParser parser = new SpelExpressionParser();
             this.scRouteRuleExpression = parser.parseExpression(scRouteRule, PARSER_CONTEXT);
+        } else {
+            this.scRouteRuleExpression = null;
         }
+        this.scCompiledExpression = CompiledRouteRuleExpression.compile(scRouteRule);
+        analyzeRoutePeriod();
     }
 
     public String getScRouteRule() {
@@ -83,7 +97,11 @@ public class SpelShardRouteRule implements ShardRouteRule {
         if (tbRouteRule != null) {
             ExpressionParser parser = new SpelExpressionParser();
             this.tbRouteRuleExpression = parser.parseExpression(tbRouteRule, PARSER_CONTEXT);
+        } else {
+            this.tbRouteRuleExpression = null;
         }
+        this.tbCompiledExpression = CompiledRouteRuleExpression.compile(tbRouteRule);
+        analyzeRoutePeriod();
     }
 
     public String getTbRouteRule() {
@@ -98,6 +116,34 @@ public class SpelShardRouteRule implements ShardRouteRule {
         this.rangeSizeLimit = rangeSizeLimit;
     }
 
+    private void analyzeRoutePeriod() {
+        if (scRouteRuleExpression != null && scCompiledExpression == null || tbRouteRuleExpression != null
+            && tbCompiledExpression == null) {
+            routeBlockSize = -1;
+            routePeriod = -1;
+            return;
+        }
+        long scBlockSize = scCompiledExpression == null ? 0 : scCompiledExpression.getBlockSize();
+        long tbBlockSize = tbCompiledExpression == null ? 0 : tbCompiledExpression.getBlockSize();
+        long scPeriod = scCompiledExpression == null ? 1 : scCompiledExpression.getPeriod();
+        long tbPeriod = tbCompiledExpression == null ? 1 : tbCompiledExpression.getPeriod();
+        if (scBlockSize < 0 || tbBlockSize < 0) {
+            routeBlockSize = -1;
+            routePeriod = -1;
+            return;
+        }
+        long blockSize = CompiledRouteRuleExpression.gcd(scBlockSize, tbBlockSize);
+        long period = CompiledRouteRuleExpression.lcm(scPeriod, tbPeriod);
+        if (blockSize == 0) {// 路由与分片值无关
+            blockSize = 1;
+        }
+        if (period < 0 && blockSize == 1) {// 只能逐个求值
+            blockSize = -1;
+        }
+        routeBlockSize = blockSize;
+        routePeriod = period;
+    }
+
     private String filter(String string) {
         if (string != null) {
             string = string.trim();
@@ -113,6 +159,12 @@ public class SpelShardRouteRule implements ShardRouteRule {
         if (scRouteRuleExpression == null) {
             return scName;
         } else {
+            if (scCompiledExpression != null && !(sdValue instanceof RangeShardValue)) {
+                String name = scCompiledExpression.getValue(scName, null, sdValue);
+                if (name != null) {
+                    return name;
+                }
+            }
             EvaluationContext elContext = buildEvaluationContext(tbRouteRule);
             elContext.setVariable("scName", scName);
             return parseName(scRouteRuleExpression, elContext, sdValue);
@@ -124,6 +176,12 @@ public class SpelShardRouteRule implements ShardRouteRule {
         if (tbRouteRuleExpression == null) {
             return tbName;
         } else {
+            if (tbCompiledExpression != null && !(sdValue instanceof RangeShardValue)) {
+                String name = tbCompiledExpression.getValue(null, tbName, sdValue);
+                if (name != null) {
+                    return name;
+                }
+            }
             EvaluationContext elContext = buildEvaluationContext(tbRouteRule);
             elContext.setVariable("tbName", tbName);
             return parseName(tbRouteRuleExpression, elContext, sdValue);
@@ -141,9 +199,6 @@ public class SpelShardRouteRule implements ShardRouteRule {
         if (begin > end) {
             throw new IllegalArgumentException("rangeShardValue.begin can't be greater than rangeShardValue.end");
         }
-        if (rangeSizeLimit != null && end - begin + 1 > rangeSizeLimit) {
-            throw new OutOfRangeSizeLimitException((end - begin) + " > " + rangeSizeLimit);
-        }
         Map<ShardRouteInfo, List<RangeShardValue>> map = new LinkedHashMap<>();
         if (scRouteRuleExpression == null && tbRouteRuleExpression == null) {
             List<RangeShardValue> list = new ArrayList(1);
@@ -152,6 +207,12 @@ public class SpelShardRouteRule implements ShardRouteRule {
             map.put(routeInfo, list);
             return map;
         }
+        if (routeBlockSize > 0 && begin >= 0) {
+            return groupSdValuesByBlock(scName, tbName, begin, end);
+        }
+        if (rangeSizeLimit != null && end - begin + 1 > rangeSizeLimit) {
+            throw new OutOfRangeSizeLimitException((end - begin) + " > " + rangeSizeLimit);
+        }
         for (long l = begin; l <= end; l++) {
             String scName0 = parseScName(scName, l);
             String tbName0 = parseTbName(tbName, l);
@@ -168,6 +229,69 @@ public class SpelShardRouteRule implements ShardRouteRule {
         return map;
     }
 
+    /**
+     * 只对[begin, end]中第一个周期内每个块的第一个值求值, 相邻且路由相同的块合并为一段.
+     * 范围超过一个周期时每个表的分片值为各段在每个周期中的重复, 见{@link PeriodicRangeShardValueList}
+     */
+    private Map<ShardRouteInfo, List<RangeShardValue>> groupSdValuesByBlock(String scName, String tbName, long begin,
+                                                                            long end) {
+        long span = end - begin;
+        long windowEnd = routePeriod > 0 && span >= routePeriod ? begin + routePeriod - 1 : end;
+        long blocks = windowEnd / routeBlockSize - begin / routeBlockSize + 1;
+        if (rangeSizeLimit != null && blocks > rangeSizeLimit) {
+            throw new OutOfRangeSizeLimitException(blocks + " > " + rangeSizeLimit);
+        }
+        Map<ShardRouteInfo, List<long[]>> segmentsMap = new LinkedHashMap<>();
+        ShardRouteInfo lastRouteInfo = null;
+        long[] lastSegment = null;
+        long blockBegin = begin;
+        while (true) {
+            long blockEnd = blockBegin - blockBegin % routeBlockSize + routeBlockSize - 1;
+            if (blockEnd >= windowEnd || blockEnd < blockBegin) {
+                blockEnd = windowEnd;
+            }
+            ShardRouteInfo routeInfo = new ShardRouteInfo();
+            routeInfo.setScName(parseScName(scName, blockBegin));
+            routeInfo.setTbName(parseTbName(tbName, blockBegin));
+            if (routeInfo.equals(lastRouteInfo)) {
+                lastSegment[1] += blockEnd - blockBegin + 1;
+            } else {
+                List<long[]> segments = segmentsMap.get(routeInfo);
+                if (segments == null) {
+                    segments = new ArrayList<>();
+                    segmentsMap.put(routeInfo, segments);
+                }
+                lastRouteInfo = routeInfo;
+                lastSegment = new long[] { blockBegin - begin, blockEnd - blockBegin + 1 };
+                segments.add(lastSegment);
+            }
+            if (blockEnd == windowEnd) {
+                break;
+            }
+            blockBegin = blockEnd + 1;
+        }
+        Map<ShardRouteInfo, List<RangeShardValue>> map = new LinkedHashMap<>();
+        for (Map.Entry<ShardRouteInfo, List<long[]>> entry : segmentsMap.entrySet()) {
+            List<long[]> segments = entry.getValue();
+            if (windowEnd == end) {
+                List<RangeShardValue> list = new ArrayList<>(segments.size());
+                for (long[] segment : segments) {
+                    list.add(new RangeShardValue(begin + segment[0], begin + segment[0] + segment[1] - 1));
+                }
+                map.put(entry.getKey(), list);
+            } else {
+                long[] offsets = new long[segments.size()];
+                long[] lengths = new long[segments.size()];
+                for (int i = 0; i < segments.size(); i++) {
+                    offsets[i] = segments.get(i)[0];
+                    lengths[i] = segments.get(i)[1];
+                }
+                map.put(entry.getKey(), new PeriodicRangeShardValueList(begin, end, routePeriod, offsets, lengths));
+            }
+        }
+        return map;
+    }
+
     protected String parseName(Expression expression, EvaluationContext elContext, Object sdValue) {
         if (expression == null) {
             throw new IllegalArgumentException("expression can't be null");
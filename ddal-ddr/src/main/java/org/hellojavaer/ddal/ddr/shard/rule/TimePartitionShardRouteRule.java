@@ -0,0 +1,282 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.ddr.shard.RangeShardValue;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.TimeShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.exception.CrossTableException;
+import org.hellojavaer.ddal.ddr.shard.exception.IllegalShardValueException;
+import org.hellojavaer.ddal.ddr.shard.exception.OutOfRangeSizeLimitException;
+import org.hellojavaer.ddal.ddr.shard.exception.UnsupportedShardValueTypeException;
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * 按时间分表的路由规则, 时间类型的分片值按天,周或月路由到tbName_yyyyMMdd, tbName_yyyyMMdd(周一的日期), tbName_yyyyMM.
+ * schema名不变. 分片值支持java.util.Date(包括java.sql.Date和Timestamp), 整数(毫秒时间戳)和字符串
+ * (yyyy-MM-dd, yyyy-MM-dd HH:mm:ss, yyyy-MM-dd HH:mm:ss.SSS). 范围分片值的边界为毫秒时间戳, 按覆盖的周期分组,
+ * 开销只与周期数有关. 配合{@link TimePartitionTableCreator}提前创建后续周期的表.
+ * 配置earliestTime后范围分片值早于该时间的部分被截掉(更早的周期没有表), 配置maxPeriods后覆盖的周期数超过该值时抛出
+ * {@link OutOfRangeSizeLimitException}
+ *
+ * <pre>
+ * new TimePartitionShardRouteRule(TimePartitionShardRouteRule.Unit.MONTH) => log_201709, log_201710 ...
+ * </pre>
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class TimePartitionShardRouteRule implements TimeShardRouteRule {
+
+    private static final String[] DATE_PATTERNS = { "yyyy-MM-dd HH:mm:ss.SSS", "yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd" };
+
+    private Unit                  unit;
+    private TimeZone              timeZone      = TimeZone.getDefault();
+    private Date                  earliestTime;
+    private Integer               maxPeriods;
+
+    public enum Unit {
+        DAY, WEEK, MONTH
+    }
+
+    // used for spring bean
+    private TimePartitionShardRouteRule() {
+    }
+
+    public TimePartitionShardRouteRule(Unit unit) {
+        setUnit(unit);
+    }
+
+    public TimePartitionShardRouteRule(Unit unit, TimeZone timeZone) {
+        setUnit(unit);
+        setTimeZone(timeZone);
+    }
+
+    public Unit getUnit() {
+        return unit;
+    }
+
+    public void setUnit(Unit unit) {
+        if (unit == null) {
+            throw new IllegalArgumentException("unit can't be null");
+        }
+        this.unit = unit;
+    }
+
+    public TimeZone getTimeZone() {
+        return timeZone;
+    }
+
+    public void setTimeZone(TimeZone timeZone) {
+        if (timeZone == null) {
+            throw new IllegalArgumentException("timeZone can't be null");
+        }
+        this.timeZone = timeZone;
+    }
+
+    public Date getEarliestTime() {
+        return earliestTime;
+    }
+
+    /**
+     * 最早的数据时间, 范围分片值从该时间所在的周期开始路由. 为空时不截断
+     */
+    public void setEarliestTime(Date earliestTime) {
+        this.earliestTime = earliestTime;
+    }
+
+    public Integer getMaxPeriods() {
+        return maxPeriods;
+    }
+
+    /**
+     * 一个范围分片值最多覆盖的周期数. 为空时不限制
+     */
+    public void setMaxPeriods(Integer maxPeriods) {
+        if (maxPeriods != null && maxPeriods <= 0) {
+            throw new IllegalArgumentException("maxPeriods must be greater than 0");
+        }
+        this.maxPeriods = maxPeriods;
+    }
+
+    @Override
+    public String parseScName(String scName, Object sdValue) {
+        return scName;
+    }
+
+    @Override
+    public String parseTbName(String tbName, Object sdValue) {
+        if (sdValue instanceof RangeShardValue) {
+            long begin = checkRange((RangeShardValue) sdValue);
+            Calendar calendar = getPeriodStart(begin);
+            String name = getTbName(tbName, calendar);
+            nextPeriod(calendar);
+            if (calendar.getTimeInMillis() <= Math.max(begin, ((RangeShardValue) sdValue).getEnd())) {
+                throw new CrossTableException(name + " and " + getTbName(tbName, calendar));
+            }
+            return name;
+        }
+        return getTbName(tbName, getPeriodStart(toMillis(sdValue)));
+    }
+
+    @Override
+    public Map<ShardRouteInfo, List<RangeShardValue>> groupSdValuesByRouteInfo(String scName, String tbName,
+                                                                               RangeShardValue rangeShardValue) {
+        long begin = checkRange(rangeShardValue);
+        long end = Math.max(begin, rangeShardValue.getEnd());
+        Map<ShardRouteInfo, List<RangeShardValue>> map = new LinkedHashMap<>();
+        Calendar calendar = getPeriodStart(begin);
+        long pos = begin;
+        while (true) {
+            if (maxPeriods != null && map.size() >= maxPeriods) {
+                throw new OutOfRangeSizeLimitException("Range " + rangeShardValue + " covers more than " + maxPeriods
+                                                       + " periods of unit " + unit);
+            }
+            String name = getTbName(tbName, calendar);
+            nextPeriod(calendar);
+            long next = calendar.getTimeInMillis();
+            List<RangeShardValue> list = new ArrayList<>(1);
+            list.add(new RangeShardValue(pos, next <= end ? next - 1 : end));
+            map.put(new ShardRouteInfo(scName, name), list);
+            if (next > end) {
+                return map;
+            }
+            pos = next;
+        }
+    }
+
+    /**
+     * 从beginMillis所在的周期开始连续count个周期的表名
+     */
+    public List<String> getTbNames(String tbName, long beginMillis, int count) {
+        List<String> list = new ArrayList<>(count);
+        Calendar calendar = getPeriodStart(beginMillis);
+        for (int i = 0; i < count; i++) {
+            list.add(getTbName(tbName, calendar));
+            nextPeriod(calendar);
+        }
+        return list;
+    }
+
+    private long checkRange(RangeShardValue rangeShardValue) {
+        Long begin = rangeShardValue.getBegin();
+        Long end = rangeShardValue.getEnd();
+        if (begin == null || end == null) {
+            throw new IllegalArgumentException("rangeShardValue.begin and rangeShardValue.end can't be null");
+        }
+        if (begin > end) {
+            throw new IllegalArgumentException("rangeShardValue.begin can't be greater than rangeShardValue.end");
+        }
+        // 早于earliestTime的周期没有表, 范围整体早于earliestTime时路由到最早的周期
+        if (earliestTime != null && begin < earliestTime.getTime()) {
+            return earliestTime.getTime();
+        }
+        return begin;
+    }
+
+    private long toMillis(Object sdValue) {
+        if (sdValue == null) {
+            throw new NullPointerException("sdValue can't be null");
+        }
+        if (sdValue instanceof Date) {
+            return ((Date) sdValue).getTime();
+        } else if (sdValue instanceof Long || sdValue instanceof Integer || sdValue instanceof Short
+                   || sdValue instanceof Byte) {
+            return ((Number) sdValue).longValue();
+        } else if (sdValue instanceof Calendar) {
+            return ((Calendar) sdValue).getTimeInMillis();
+        } else if (sdValue instanceof String) {
+            String str = ((String) sdValue).trim();
+            for (String pattern : DATE_PATTERNS) {
+                if (str.length() != pattern.length()) {
+                    continue;
+                }
+                SimpleDateFormat format = new SimpleDateFormat(pattern);
+                format.setLenient(false);
+                format.setTimeZone(timeZone);
+                try {
+                    return format.parse(str).getTime();
+                } catch (ParseException e) {
+                    break;
+                }
+            }
+            throw new IllegalShardValueException("sdValue '" + sdValue + "' is not a date");
+        } else {
+            throw new UnsupportedShardValueTypeException(sdValue.getClass().toString());
+        }
+    }
+
+    private Calendar getPeriodStart(long millis) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(millis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (unit == Unit.WEEK) {
+            calendar.add(Calendar.DATE, -((calendar.get(Calendar.DAY_OF_WEEK) - Calendar.MONDAY + 7) % 7));
+        } else if (unit == Unit.MONTH) {
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+        }
+        return calendar;
+    }
+
+    private void nextPeriod(Calendar calendar) {
+        if (unit == Unit.DAY) {
+            calendar.add(Calendar.DATE, 1);
+        } else if (unit == Unit.WEEK) {
+            calendar.add(Calendar.DATE, 7);
+        } else {
+            calendar.add(Calendar.MONTH, 1);
+        }
+    }
+
+    private String getTbName(String tbName, Calendar calendar) {
+        StringBuilder sb = new StringBuilder(tbName.length() + 9).append(tbName).append('_');
+        sb.append(calendar.get(Calendar.YEAR));
+        appendTwoDigits(sb, calendar.get(Calendar.MONTH) + 1);
+        if (unit != Unit.MONTH) {
+            appendTwoDigits(sb, calendar.get(Calendar.DAY_OF_MONTH));
+        }
+        return sb.toString();
+    }
+
+    private static void appendTwoDigits(StringBuilder sb, int i) {
+        if (i < 10) {
+            sb.append('0');
+        }
+        sb.append(i);
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("unit", unit)//
+        .append("timeZone", timeZone.getID())//
+        .append("earliestTime", earliestTime)//
+        .append("maxPeriods", maxPeriods)//
+        .toString();
+    }
+}
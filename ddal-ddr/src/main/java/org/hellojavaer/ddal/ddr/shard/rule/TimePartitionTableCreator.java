@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.ddr.utils.DDRDaemonThreadFactory;
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 为{@link TimePartitionShardRouteRule}提前创建表: 在每个schema中创建当前周期及之后periodsAhead个周期的表,
+ * init时执行一次, 之后每checkIntervalSeconds执行一次. createTableSql中{scName}替换为schema名, {tbName}替换为物理表名,
+ * {logicTbName}替换为逻辑表名, 默认使用逻辑表作为模板(MySQL语法), 因此sql需要是幂等的
+ *
+ * <pre>
+ * &lt;bean class="org.hellojavaer.ddal.ddr.shard.rule.TimePartitionTableCreator" init-method="init" destroy-method="destroy"&gt;
+ *     &lt;property name="dataSource" ref="adminDataSource"/&gt;
+ *     &lt;property name="rule" ref="logRouteRule"/&gt;
+ *     &lt;property name="scNames"&gt;&lt;list&gt;&lt;value&gt;audit_00&lt;/value&gt;&lt;value&gt;audit_01&lt;/value&gt;&lt;/list&gt;&lt;/property&gt;
+ *     &lt;property name="tbName" value="log"/&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class TimePartitionTableCreator {
+
+    private Logger                      logger               = LoggerFactory.getLogger(getClass());
+
+    private DataSource                  dataSource;
+    private TimePartitionShardRouteRule rule;
+    private List<String>                scNames;
+    private String                      tbName;
+    private int                         periodsAhead         = 3;
+    private String                      createTableSql       = "CREATE TABLE IF NOT EXISTS {scName}.{tbName} LIKE {scName}.{logicTbName}";
+    private long                        checkIntervalSeconds = 3600;
+
+    private ScheduledExecutorService    scheduledExecutorService;
+
+    // used for spring bean
+    private TimePartitionTableCreator() {
+    }
+
+    public TimePartitionTableCreator(DataSource dataSource, TimePartitionShardRouteRule rule, List<String> scNames,
+                                     String tbName) {
+        this.dataSource = dataSource;
+        this.rule = rule;
+        this.scNames = scNames;
+        this.tbName = tbName;
+    }
+
+    public synchronized void init() {
+        if (dataSource == null || rule == null || scNames == null || tbName == null) {
+            throw new IllegalArgumentException("dataSource, rule, scNames and tbName can't be null");
+        }
+        if (scheduledExecutorService != null) {
+            return;
+        }
+        createTablesQuietly();
+        if (checkIntervalSeconds > 0) {
+            scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new DDRDaemonThreadFactory(
+                                                                                  "ddal-time-partition-table-creator"));
+            scheduledExecutorService.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    createTablesQuietly();
+                }
+            }, checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void destroy() {
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdownNow();
+            scheduledExecutorService = null;
+        }
+    }
+
+    /**
+     * 返回成功执行的sql数. 一个schema建表失败时记录日志后继续处理其他schema
+     */
+    public int createTables() throws SQLException {
+        List<String> tbNames = rule.getTbNames(tbName, System.currentTimeMillis(), periodsAhead + 1);
+        int count = 0;
+        Connection connection = dataSource.getConnection();
+        try {
+            for (String scName : scNames) {
+                try {
+                    count += createTables(connection, scName, tbNames);
+                } catch (SQLException e) {
+                    logger.error("[TimePartitionTableCreator] create tables for '" + scName + "." + tbName
+                                 + "' failed", e);
+                }
+            }
+        } finally {
+            connection.close();
+        }
+        return count;
+    }
+
+    private int createTables(Connection connection, String scName, List<String> tbNames) throws SQLException {
+        int count = 0;
+        Statement statement = connection.createStatement();
+        try {
+            for (String physicalTbName : tbNames) {
+                String sql = createTableSql.replace("{scName}", scName).replace("{tbName}", physicalTbName)//
+                .replace("{logicTbName}", tbName);
+                statement.execute(sql);
+                count++;
+            }
+        } finally {
+            statement.close();
+        }
+        return count;
+    }
+
+    private void createTablesQuietly() {
+        try {
+            int count = createTables();
+            if (logger.isDebugEnabled()) {
+                logger.debug("[TimePartitionTableCreator] " + count + " create table statements executed for "
+                             + tbName);
+            }
+        } catch (Throwable e) {
+            logger.error("[TimePartitionTableCreator] create tables for '" + tbName + "' failed", e);
+        }
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public TimePartitionShardRouteRule getRule() {
+        return rule;
+    }
+
+    public void setRule(TimePartitionShardRouteRule rule) {
+        this.rule = rule;
+    }
+
+    public List<String> getScNames() {
+        return scNames;
+    }
+
+    public void setScNames(List<String> scNames) {
+        this.scNames = scNames;
+    }
+
+    public String getTbName() {
+        return tbName;
+    }
+
+    public void setTbName(String tbName) {
+        this.tbName = tbName;
+    }
+
+    public int getPeriodsAhead() {
+        return periodsAhead;
+    }
+
+    public void setPeriodsAhead(int periodsAhead) {
+        this.periodsAhead = periodsAhead;
+    }
+
+    public String getCreateTableSql() {
+        return createTableSql;
+    }
+
+    public void setCreateTableSql(String createTableSql) {
+        this.createTableSql = createTableSql;
+    }
+
+    public long getCheckIntervalSeconds() {
+        return checkIntervalSeconds;
+    }
+
+    public void setCheckIntervalSeconds(long checkIntervalSeconds) {
+        this.checkIntervalSeconds = checkIntervalSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("rule", rule)//
+        .append("scNames", scNames)//
+        .append("tbName", tbName)//
+        .append("periodsAhead", periodsAhead)//
+        .append("createTableSql", createTableSql)//
+        .toString();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.simple;
+
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+
+/**
+ * 路由器缓存并共享给所有调用方的ShardRouteInfo, 修改时抛出UnsupportedOperationException
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+final class ImmutableShardRouteInfo extends ShardRouteInfo {
+
+    public ImmutableShardRouteInfo(String scName, String tbName) {
+        super(scName, tbName);
+    }
+
+    @Override
+    public void setScName(String scName) {
+        throw new UnsupportedOperationException("Route info '" + this + "' is shared and can't be modified");
+    }
+
+    @Override
+    public void setTbName(String tbName) {
+        throw new UnsupportedOperationException("Route info '" + this + "' is shared and can't be modified");
+    }
+}
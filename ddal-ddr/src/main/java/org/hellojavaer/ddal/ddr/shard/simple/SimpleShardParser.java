@@ -20,17 +20,25 @@ import org.hellojavaer.ddal.ddr.shard.ShardParser;
 import org.hellojavaer.ddal.ddr.shard.ShardRouter;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
+import org.hellojavaer.ddal.ddr.sqlparse.TableNameMatcher;
+import org.hellojavaer.ddal.ddr.sqlparse.hint.SQLHint;
+import org.hellojavaer.ddal.ddr.sqlparse.hint.SQLHintParser;
 
-import java.util.Map;
+import java.util.*;
 
 /**
+ * sql以路由提示(见 SQLHintParser)开头且提示中指定了物理schema和物理表时, 直接替换表名, 不再经过sqlParser.
+ * bypassUnshardedSql为true时, sql中不可能出现任何分表的表名时也不经过sqlParser, 原样返回sql. 此时sqlParser上的检查(如limit检查)和语法检查
+ * 对这些sql不再生效, 因此默认关闭
  *
  * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 15/11/2016.
  */
 public class SimpleShardParser implements ShardParser {
 
-    private ShardRouter shardRouter;
-    private SQLParser   sqlParser;
+    private ShardRouter                     shardRouter;
+    private SQLParser                       sqlParser;
+    private boolean                         bypassUnshardedSql = false;
+    private volatile TableNameMatcherHolder tableNameMatcherHolder;
 
     private SimpleShardParser() {
     }
@@ -56,9 +64,71 @@ public class SimpleShardParser implements ShardParser {
         this.sqlParser = sqlParser;
     }
 
+    public boolean isBypassUnshardedSql() {
+        return bypassUnshardedSql;
+    }
+
+    public void setBypassUnshardedSql(boolean bypassUnshardedSql) {
+        this.bypassUnshardedSql = bypassUnshardedSql;
+    }
+
     @Override
     public SQLParsedResult parse(String sql, Map<Object, Object> jdbcParams) {
-        SQLParsedState sqlParsedState = sqlParser.parse(sql, shardRouter);
-        return sqlParsedState.parse(jdbcParams);
+        SQLHint hint = SQLHintParser.parse(sql);
+        if (hint == null) {
+            if (bypassUnshardedSql && !mayContainRoutedTable(sql)) {
+                SQLParsedResult result = new SQLParsedResult();
+                result.setSql(sql);
+                result.setSchemas(new HashSet<String>());
+                return result;
+            }
+            SQLParsedState sqlParsedState = sqlParser.parse(sql, shardRouter);
+            return sqlParsedState.parse(jdbcParams);
+        }
+        if (hint.getScName() != null && hint.getTbName() != null) {
+            String routedSql = SQLHintParser.route(hint.getSql(), hint.getScName(), hint.getTbName(),
+                                                   shardRouter.getRoutedTables());
+            if (routedSql != null) {
+                SQLParsedResult result = new SQLParsedResult();
+                result.setSql(routedSql);
+                Set<String> schemas = new HashSet<>();
+                schemas.add(hint.getScName());
+                result.setSchemas(schemas);
+                result.setReadOnly(hint.getReadOnly());
+                return result;
+            }
+        }
+        // 提示中的路由信息不完整时仍然解析sql, 只使用提示中的读写方式
+        SQLParsedResult result = sqlParser.parse(hint.getSql(), shardRouter).parse(jdbcParams);
+        result.setReadOnly(hint.getReadOnly());
+        return result;
+    }
+
+    private boolean mayContainRoutedTable(String sql) {
+        Map<String, Set<String>> routedTables = shardRouter.getRoutedTables();
+        if (routedTables == null) {
+            return true;
+        }
+        TableNameMatcherHolder holder = this.tableNameMatcherHolder;
+        if (holder == null || holder.routedTables != routedTables) {// 路由配置变化后重建
+            Set<String> names = new HashSet<>();
+            for (Set<String> tables : routedTables.values()) {
+                names.addAll(tables);
+            }
+            holder = new TableNameMatcherHolder(routedTables, new TableNameMatcher(names));
+            this.tableNameMatcherHolder = holder;
+        }
+        return holder.matcher.find(sql);
+    }
+
+    private static class TableNameMatcherHolder {
+
+        private final Map<String, Set<String>> routedTables;
+        private final TableNameMatcher         matcher;
+
+        public TableNameMatcherHolder(Map<String, Set<String>> routedTables, TableNameMatcher matcher) {
+            this.routedTables = routedTables;
+            this.matcher = matcher;
+        }
     }
 }
@@ -33,6 +33,8 @@ public class SimpleShardRouteRuleBinding implements ShardRouteRuleBinding, Seria
     private String            sdKey;
     private ShardRouteRule    rule;
     private String            sdValues;
+    private String            bindingGroup;                 // 绑定组, 组内的表使用相同的sdKey和rule, 可以在同一个分片内join
+    private String            broadcastScNames;             // 广播表所在的schema(范围表达式), 每个schema中都有一份完整的同名表
 
     public SimpleShardRouteRuleBinding() {
     }
@@ -93,4 +95,20 @@ public class SimpleShardRouteRuleBinding implements ShardRouteRuleBinding, Seria
         this.sdValues = sdValues;
     }
 
+    public String getBindingGroup() {
+        return bindingGroup;
+    }
+
+    public void setBindingGroup(String bindingGroup) {
+        this.bindingGroup = bindingGroup;
+    }
+
+    public String getBroadcastScNames() {
+        return broadcastScNames;
+    }
+
+    public void setBroadcastScNames(String broadcastScNames) {
+        this.broadcastScNames = broadcastScNames;
+    }
+
 }
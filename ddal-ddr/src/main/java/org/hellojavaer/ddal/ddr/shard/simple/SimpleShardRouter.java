@@ -24,18 +24,33 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
+ * 每个表的路由配置在setRouteRuleBindings时解析为{@link TableRouteHandle}. sdValues中整数分片值的路由结果预先计算为数组,
+ * 其他分片值使用路由规则计算后复用相同物理表的ShardRouteInfo实例, 复用的实例不可修改. 绑定的路由规则为{@link ReloadableShardRouteRule}时,
+ * 规则重新加载后使用当前配置重新构建所有路由缓存, 并通知{@link ReloadableShardRouter}的监听器
  *
  * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 14/11/2016.
  */
-public class SimpleShardRouter implements ShardRouter {
+public class SimpleShardRouter implements ExtendedShardRouter, ReloadableShardRouter {
 
-    private Logger                                               logger            = LoggerFactory.getLogger(getClass());
-    private List<SimpleShardRouteRuleBinding>                    routeRuleBindings = null;
-    private Map<String, InnerSimpleShardRouteRuleBindingWrapper> cache             = Collections.EMPTY_MAP;
-    private Map<String, List<ShardRouteInfo>>                    routeInfoMap      = new HashMap<>();
-    private Map<String, Set<String>>                             routedTables      = new HashMap<>();
+    // 预先计算路由结果的整数分片值的最大跨度
+    private static final int                                              MAX_DENSE_SIZE    = 1 << 16;
+
+    private Logger                                                        logger            = LoggerFactory.getLogger(getClass());
+    private volatile List<SimpleShardRouteRuleBinding>                    routeRuleBindings = null;
+    private volatile Map<String, InnerSimpleShardRouteRuleBindingWrapper> cache             = Collections.EMPTY_MAP;
+    private volatile Map<String, List<ShardRouteInfo>>                    routeInfoMap      = new HashMap<>();
+    private volatile Map<String, Set<String>>                             routedTables      = new HashMap<>();
+    // 绑定组中的物理表 => (绑定组中的逻辑表 => 同一分片中的物理表)
+    private volatile Map<String, Map<String, ShardRouteInfo>>             bindingRouteInfos = new HashMap<>();
+    private Set<ReloadableShardRouteRule>                                 reloadableRules   = Collections.EMPTY_SET;
+    private final Runnable                                                reloadListener    = new ReloadListener();
+    private final Set<Runnable>                                           reloadListeners   = new CopyOnWriteArraySet<>();
 
     private SimpleShardRouter() {
     }
@@ -48,10 +63,12 @@ public class SimpleShardRouter implements ShardRouter {
         return routeRuleBindings;
     }
 
-    public void setRouteRuleBindings(List<SimpleShardRouteRuleBinding> bindings) {
+    public synchronized void setRouteRuleBindings(List<SimpleShardRouteRuleBinding> bindings) {
         Map<String, InnerSimpleShardRouteRuleBindingWrapper> cache = new HashMap<>();
         Map<String, List<ShardRouteInfo>> routeInfoMap = new HashMap<>();
         Map<String, Set<String>> routedTables = new HashMap<>();
+        Map<String, List<SimpleShardRouteRuleBinding>> bindingGroups = new LinkedHashMap<>();
+        final ConcurrentMap<String, ConcurrentMap<String, ShardRouteInfo>> physicalRouteInfos = new ConcurrentHashMap<>();
         if (bindings != null && !bindings.isEmpty()) {
             for (SimpleShardRouteRuleBinding binding : bindings) {
                 // can't be null
@@ -60,30 +77,57 @@ public class SimpleShardRouter implements ShardRouter {
                 // can be null
                 final String sdKey = DDRStringUtils.toLowerCase(binding.getSdKey());
                 final String sdValues = DDRStringUtils.trimToNull(binding.getSdValues());
+                final String bindingGroup = DDRStringUtils.toLowerCase(DDRStringUtils.trimToNull(binding.getBindingGroup()));
+                final String broadcastScNames = DDRStringUtils.trimToNull(binding.getBroadcastScNames());
                 if (scName == null) {
                     throw new IllegalArgumentException("'scName' can't be empty");
                 }
                 if (tbName == null) {
                     throw new IllegalArgumentException("'tbName' can't be empty");
                 }
+                if (broadcastScNames != null
+                    && (sdKey != null || binding.getRule() != null || sdValues != null || bindingGroup != null)) {
+                    throw new IllegalArgumentException("Broadcast table '" + scName + "." + tbName
+                                                       + "' can't config 'sdKey', 'rule', 'sdValues' or 'bindingGroup'");
+                }
                 final SimpleShardRouteRuleBinding b0 = new SimpleShardRouteRuleBinding();
                 b0.setScName(scName);
                 b0.setTbName(tbName);
                 b0.setSdKey(sdKey);
                 b0.setRule(binding.getRule());
+                b0.setSdValues(sdValues);
+                b0.setBindingGroup(bindingGroup);
+                b0.setBroadcastScNames(broadcastScNames);
                 StringBuilder sb = new StringBuilder();
                 sb.append(scName).append('.').append(tbName);
                 putToCache(cache, sb.toString(), b0, true);
                 putToCache(cache, tbName, b0, false);
 
                 final Set<ShardRouteInfo> routeInfos = new LinkedHashSet<>();
-                if (sdValues != null) {
+                final Map<Integer, ShardRouteInfo> intRouteInfos = new HashMap<>();
+                if (broadcastScNames != null) {// 每个schema中的同名表都是一份副本
+                    new RangeExpressionParser(broadcastScNames).visit(new RangeExpressionItemVisitor() {
+
+                        @Override
+                        public void visit(Object val) {
+                            routeInfos.add(intern(physicalRouteInfos,
+                                                  new ShardRouteInfo(DDRStringUtils.toLowerCase(val.toString()), tbName)));
+                        }
+                    });
+                    if (routeInfos.isEmpty()) {
+                        throw new IllegalArgumentException("'broadcastScNames' of table '" + scName + "." + tbName
+                                                           + "' can't be empty");
+                    }
+                } else if (sdValues != null) {
                     new RangeExpressionParser(sdValues).visit(new RangeExpressionItemVisitor() {
 
                         @Override
                         public void visit(Object val) {
-                            ShardRouteInfo routeInfo = getRouteInfo(b0, scName, tbName, val);
+                            ShardRouteInfo routeInfo = intern(physicalRouteInfos, getRouteInfo(b0, scName, tbName, val));
                             routeInfos.add(routeInfo);
+                            if (val instanceof Integer) {
+                                intRouteInfos.put((Integer) val, routeInfo);
+                            }
                         }
                     });
                 }
@@ -99,12 +143,149 @@ public class SimpleShardRouter implements ShardRouter {
                     tables.add(tbName);
                     routeInfoMap.put(key, new ArrayList(routeInfos));
                 }
+                TableRouteHandle handle = new SimpleTableRouteHandle(b0, cache.get(key).getRouteConfig(),
+                                                                     routeInfoMap.get(key), intRouteInfos,
+                                                                     physicalRouteInfos);
+                cache.get(key).setRouteHandle(handle);
+                if (cache.get(tbName).getRuleBinding() == b0) {
+                    cache.get(tbName).setRouteHandle(handle);
+                }
+                if (bindingGroup != null) {
+                    List<SimpleShardRouteRuleBinding> group = bindingGroups.get(bindingGroup);
+                    if (group == null) {
+                        group = new ArrayList<>();
+                        bindingGroups.put(bindingGroup, group);
+                    }
+                    group.add(b0);
+                }
             }
         }
+        Map<String, Map<String, ShardRouteInfo>> bindingRouteInfos = new HashMap<>();
+        for (Map.Entry<String, List<SimpleShardRouteRuleBinding>> entry : bindingGroups.entrySet()) {
+            buildBindingRouteInfos(bindingRouteInfos, entry.getKey(), entry.getValue());
+        }
         this.routeRuleBindings = bindings;
         this.cache = cache;
         this.routeInfoMap = routeInfoMap;
         this.routedTables = routedTables;
+        this.bindingRouteInfos = bindingRouteInfos;
+        registerReloadListener(bindings);
+        for (Runnable listener : reloadListeners) {
+            try {
+                listener.run();
+            } catch (Throwable e) {
+                logger.error("[SimpleShardRouter] notify reload listener " + listener + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * 路由配置被替换或绑定的{@link ReloadableShardRouteRule}重新加载并重新构建路由缓存后通知监听器
+     */
+    @Override
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    @Override
+    public void removeReloadListener(Runnable listener) {
+        reloadListeners.remove(listener);
+    }
+
+    private void registerReloadListener(List<SimpleShardRouteRuleBinding> bindings) {
+        Set<ReloadableShardRouteRule> rules = Collections.newSetFromMap(new IdentityHashMap<ReloadableShardRouteRule, Boolean>());
+        if (bindings != null) {
+            for (SimpleShardRouteRuleBinding binding : bindings) {
+                if (binding.getRule() instanceof ReloadableShardRouteRule) {
+                    rules.add((ReloadableShardRouteRule) binding.getRule());
+                }
+            }
+        }
+        for (ReloadableShardRouteRule rule : reloadableRules) {
+            if (!rules.contains(rule)) {
+                rule.removeReloadListener(reloadListener);
+            }
+        }
+        for (ReloadableShardRouteRule rule : rules) {
+            rule.addReloadListener(reloadListener);
+        }
+        this.reloadableRules = rules;
+    }
+
+    /**
+     * 路由规则重新加载后使用当前配置重新构建路由缓存, 失败时保留原来的缓存
+     */
+    private class ReloadListener implements Runnable {
+
+        @Override
+        public void run() {
+            synchronized (SimpleShardRouter.this) {
+                try {
+                    setRouteRuleBindings(routeRuleBindings);
+                } catch (Throwable e) {
+                    logger.error("[SimpleShardRouter] rebuild route cache failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 用组内配置的sdValues枚举每个分片值在各个表中的物理表, 并校验相同的分片值总是落在同一个分片
+     */
+    private void buildBindingRouteInfos(Map<String, Map<String, ShardRouteInfo>> bindingRouteInfos,
+                                        String bindingGroup, final List<SimpleShardRouteRuleBinding> group) {
+        SimpleShardRouteRuleBinding first = group.get(0);
+        final Set<Object> sdValues = new LinkedHashSet<>();
+        for (SimpleShardRouteRuleBinding binding : group) {
+            if (binding.getSdKey() == null || binding.getRule() == null) {
+                throw new IllegalArgumentException("Table '" + binding.getScName() + "." + binding.getTbName()
+                                                   + "' in binding group '" + bindingGroup
+                                                   + "' must config 'sdKey' and 'rule'");
+            }
+            if (binding.getRule() != first.getRule() && !binding.getRule().equals(first.getRule())) {
+                throw new IllegalArgumentException("Tables in binding group '" + bindingGroup
+                                                   + "' must use the same route rule, but table '"
+                                                   + binding.getScName() + "." + binding.getTbName() + "' uses "
+                                                   + binding.getRule() + " and table '" + first.getScName() + "."
+                                                   + first.getTbName() + "' uses " + first.getRule());
+            }
+            if (binding.getSdValues() != null) {
+                new RangeExpressionParser(binding.getSdValues()).visit(new RangeExpressionItemVisitor() {
+
+                    @Override
+                    public void visit(Object val) {
+                        sdValues.add(val);
+                    }
+                });
+            }
+        }
+        if (sdValues.isEmpty()) {
+            throw new IllegalArgumentException("At least one table in binding group '" + bindingGroup
+                                               + "' must config 'sdValues'");
+        }
+        for (Object sdValue : sdValues) {
+            List<ShardRouteInfo> routeInfos = new ArrayList<>(group.size());
+            for (SimpleShardRouteRuleBinding binding : group) {
+                routeInfos.add(getRouteInfo(binding, binding.getScName(), binding.getTbName(), sdValue));
+            }
+            for (ShardRouteInfo routeInfo : routeInfos) {
+                Map<String, ShardRouteInfo> map = bindingRouteInfos.get(routeInfo.toString());
+                if (map == null) {
+                    map = new HashMap<>();
+                    bindingRouteInfos.put(routeInfo.toString(), map);
+                }
+                for (int i = 0; i < group.size(); i++) {
+                    String key = buildQueryKey(group.get(i).getScName(), group.get(i).getTbName());
+                    ShardRouteInfo old = map.put(key, routeInfos.get(i));
+                    if (old != null && !old.equals(routeInfos.get(i))) {
+                        throw new IllegalArgumentException("Tables in binding group '" + bindingGroup
+                                                           + "' are not co-located. Table '" + routeInfo
+                                                           + "' is bound to both '" + old + "' and '"
+                                                           + routeInfos.get(i) + "'");
+                    }
+                }
+            }
+        }
     }
 
     protected class InnerSimpleShardRouteRuleBindingWrapper {
@@ -112,6 +293,7 @@ public class SimpleShardRouter implements ShardRouter {
         private List<String>                conflictSchemas = new ArrayList<String>();
         private SimpleShardRouteRuleBinding ruleBinding;
         private ShardRouteConfig            routeConfig;
+        private TableRouteHandle            routeHandle;
 
         public List<String> getConflictSchemas() {
             return conflictSchemas;
@@ -136,6 +318,14 @@ public class SimpleShardRouter implements ShardRouter {
         public void setRouteConfig(ShardRouteConfig routeConfig) {
             this.routeConfig = routeConfig;
         }
+
+        public TableRouteHandle getRouteHandle() {
+            return routeHandle;
+        }
+
+        public void setRouteHandle(TableRouteHandle routeHandle) {
+            this.routeHandle = routeHandle;
+        }
     }
 
     private void putToCache(Map<String, InnerSimpleShardRouteRuleBindingWrapper> cache, String key,
@@ -149,8 +339,11 @@ public class SimpleShardRouter implements ShardRouter {
         if (ruleBindingWrapper == null) {
             ruleBindingWrapper = new InnerSimpleShardRouteRuleBindingWrapper();
             ruleBindingWrapper.setRuleBinding(ruleBinding);
-            ruleBindingWrapper.setRouteConfig(new ShardRouteConfig(ruleBinding.getScName(), ruleBinding.getTbName(),
-                                                                   ruleBinding.getSdKey()));
+            ShardRouteConfig routeConfig = new ShardRouteConfig(ruleBinding.getScName(), ruleBinding.getTbName(),
+                                                                ruleBinding.getSdKey());
+            routeConfig.setBindingGroup(ruleBinding.getBindingGroup());
+            routeConfig.setBroadcast(ruleBinding.getBroadcastScNames() != null);
+            ruleBindingWrapper.setRouteConfig(routeConfig);
             cache.put(key, ruleBindingWrapper);
         }
         ruleBindingWrapper.getConflictSchemas().add(ruleBinding.getScName());
@@ -203,24 +396,67 @@ public class SimpleShardRouter implements ShardRouter {
     public ShardRouteInfo getRouteInfo(String scName, String tbName, Object sdValue)
                                                                                     throws ShardValueNotFoundException,
                                                                                     ShardRouteException {
-        scName = DDRStringUtils.toLowerCase(scName);
-        tbName = DDRStringUtils.toLowerCase(tbName);
-        InnerSimpleShardRouteRuleBindingWrapper bindingWrapper = getBinding(scName, tbName);
-        SimpleShardRouteRuleBinding binding = bindingWrapper.getRuleBinding();
-        if (binding == null) {
+        TableRouteHandle handle = getTableRouteHandle(scName, tbName);
+        if (handle == null) {
             return null;
-        } else {// 必须使用 binding 中的 scName,因为sql中的scName可能为空
-            ShardRouteInfo info = getRouteInfo(binding, binding.getScName(), binding.getTbName(), sdValue);
-            return info;
+        } else {
+            return handle.getRouteInfo(sdValue);
+        }
+    }
+
+    @Override
+    public TableRouteHandle getTableRouteHandle(String scName, String tbName) {
+        InnerSimpleShardRouteRuleBindingWrapper bindingWrapper = getBinding(DDRStringUtils.toLowerCase(scName),
+                                                                            DDRStringUtils.toLowerCase(tbName));
+        if (bindingWrapper == null) {
+            return null;
+        } else {
+            return bindingWrapper.getRouteHandle();
         }
     }
 
     @Override
     public List<ShardRouteInfo> getRouteInfos(String scName, String tbName) throws ShardValueNotFoundException,
                                                                            ShardRouteException {
+        if (scName == null) {// sql中的scName可能为空
+            InnerSimpleShardRouteRuleBindingWrapper bindingWrapper = getBinding(null,
+                                                                                DDRStringUtils.toLowerCase(tbName));
+            if (bindingWrapper == null) {
+                return null;
+            }
+            scName = bindingWrapper.getRuleBinding().getScName();
+        }
         return routeInfoMap.get(buildQueryKey(scName, tbName));
     }
 
+    @Override
+    public ShardRouteInfo getBindingRouteInfo(String scName, String tbName, ShardRouteInfo bindingRouteInfo) {
+        if (bindingRouteInfo == null) {
+            return null;
+        }
+        InnerSimpleShardRouteRuleBindingWrapper bindingWrapper = getBinding(DDRStringUtils.toLowerCase(scName),
+                                                                            DDRStringUtils.toLowerCase(tbName));
+        if (bindingWrapper == null) {
+            return null;
+        }
+        SimpleShardRouteRuleBinding binding = bindingWrapper.getRuleBinding();
+        String key = buildQueryKey(binding.getScName(), binding.getTbName());
+        if (binding.getBroadcastScNames() != null) {
+            String bindingScName = DDRStringUtils.toLowerCase(bindingRouteInfo.getScName());
+            for (ShardRouteInfo routeInfo : routeInfoMap.get(key)) {
+                if (routeInfo.getScName().equals(bindingScName)) {
+                    return routeInfo;
+                }
+            }
+            return null;
+        }
+        Map<String, ShardRouteInfo> map = bindingRouteInfos.get(bindingRouteInfo.toString());
+        if (map == null) {
+            return null;
+        }
+        return map.get(key);
+    }
+
     @Override
     public Map<String, Set<String>> getRoutedTables() {
         return routedTables;
@@ -237,8 +473,36 @@ public class SimpleShardRouter implements ShardRouter {
         return sb.toString();
     }
 
+    private static ShardRouteInfo intern(ConcurrentMap<String, ConcurrentMap<String, ShardRouteInfo>> routeInfos,
+                                         ShardRouteInfo routeInfo) {
+        String scName = routeInfo.getScName() == null ? "" : routeInfo.getScName();
+        ConcurrentMap<String, ShardRouteInfo> map = routeInfos.get(scName);
+        if (map == null) {
+            map = new ConcurrentHashMap<>();
+            ConcurrentMap<String, ShardRouteInfo> old = routeInfos.putIfAbsent(scName, map);
+            if (old != null) {
+                map = old;
+            }
+        }
+        ShardRouteInfo old = map.get(routeInfo.getTbName());
+        if (old != null) {
+            return old;
+        }
+        // 缓存的实例被所有调用方共享, 不能修改
+        routeInfo = new ImmutableShardRouteInfo(routeInfo.getScName(), routeInfo.getTbName());
+        old = map.putIfAbsent(routeInfo.getTbName(), routeInfo);
+        return old == null ? routeInfo : old;
+    }
+
     private ShardRouteInfo getRouteInfo(SimpleShardRouteRuleBinding binding, String scName, String tbName,
                                         Object sdValue) throws ShardRouteException, ShardValueNotFoundException {
+        return getRouteInfo(binding, scName, tbName, ShardRouteContext.key(scName, tbName), sdValue);
+    }
+
+    private ShardRouteInfo getRouteInfo(SimpleShardRouteRuleBinding binding, String scName, String tbName,
+                                        ShardRouteContext.Key contextKey, Object sdValue)
+                                                                                         throws ShardRouteException,
+                                                                                         ShardValueNotFoundException {
         ShardRouteRule rule = binding.getRule();
         if (rule == null) {// 未配置rule,参数sdKey 和 sdValue都无效
             ShardRouteInfo info = new ShardRouteInfo();
@@ -247,7 +511,7 @@ public class SimpleShardRouter implements ShardRouter {
             return info;
         } else {// 配置了rule
             if (sdValue == null) {
-                Object obj = ShardRouteContext.getRouteInfo(scName, tbName);
+                Object obj = ShardRouteContext.getRouteInfo(contextKey);
                 if (obj == null) {
                     throw new ShardValueNotFoundException("shard value is not found for scName:" + scName + ", tbName:"
                                                           + tbName + ",routeRule:" + rule);
@@ -289,4 +553,110 @@ public class SimpleShardRouter implements ShardRouter {
                                           + ",routeRule:" + rule, e);
         }
     }
+
+    /**
+     * 整数分片值在[intMin, intMin + intRouteInfos.length)内时直接按下标取预先计算的路由结果,
+     * Long类型的分片值在首次路由后缓存在longRouteInfos中(路由规则可能依赖分片值的类型, 不同类型分开缓存)
+     */
+    private class SimpleTableRouteHandle implements TableRouteHandle {
+
+        private final SimpleShardRouteRuleBinding                                  binding;
+        private final ShardRouteConfig                                             routeConfig;
+        private final List<ShardRouteInfo>                                         routeInfos;
+        private final ShardRouteContext.Key                                        contextKey;
+        private final ShardRouteInfo                                               staticRouteInfo;
+        private final int                                                          intMin;
+        private final ShardRouteInfo[]                                             intRouteInfos;
+        private final AtomicReferenceArray<ShardRouteInfo>                         longRouteInfos;
+        private final ConcurrentMap<String, ConcurrentMap<String, ShardRouteInfo>> physicalRouteInfos;
+
+        private SimpleTableRouteHandle(SimpleShardRouteRuleBinding binding, ShardRouteConfig routeConfig,
+                                       List<ShardRouteInfo> routeInfos, Map<Integer, ShardRouteInfo> intRouteInfoMap,
+                                       ConcurrentMap<String, ConcurrentMap<String, ShardRouteInfo>> physicalRouteInfos) {
+            this.binding = binding;
+            this.routeConfig = routeConfig;
+            this.routeInfos = routeInfos;
+            this.contextKey = ShardRouteContext.key(binding.getScName(), binding.getTbName());
+            this.physicalRouteInfos = physicalRouteInfos;
+            if (binding.getBroadcastScNames() != null) {// 广播表读取任意一个副本
+                this.staticRouteInfo = routeInfos.get(0);
+            } else if (binding.getRule() == null) {
+                this.staticRouteInfo = intern(physicalRouteInfos,
+                                              new ShardRouteInfo(binding.getScName(), binding.getTbName()));
+            } else {
+                this.staticRouteInfo = null;
+            }
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (Integer val : intRouteInfoMap.keySet()) {
+                min = Math.min(min, val);
+                max = Math.max(max, val);
+            }
+            if (staticRouteInfo == null && !intRouteInfoMap.isEmpty() && max - min < MAX_DENSE_SIZE) {
+                this.intMin = (int) min;
+                this.intRouteInfos = new ShardRouteInfo[(int) (max - min + 1)];
+                for (Map.Entry<Integer, ShardRouteInfo> entry : intRouteInfoMap.entrySet()) {
+                    intRouteInfos[entry.getKey() - intMin] = entry.getValue();
+                }
+                this.longRouteInfos = new AtomicReferenceArray<>(intRouteInfos.length);
+            } else {
+                this.intMin = 0;
+                this.intRouteInfos = null;
+                this.longRouteInfos = null;
+            }
+        }
+
+        @Override
+        public ShardRouteConfig getRouteConfig() {
+            return routeConfig;
+        }
+
+        @Override
+        public ShardRouteRule getRouteRule() {
+            return binding.getRule();
+        }
+
+        @Override
+        public List<ShardRouteInfo> getRouteInfos() {
+            return routeInfos;
+        }
+
+        @Override
+        public ShardRouteInfo getRouteInfo(Object sdValue) throws ShardValueNotFoundException, ShardRouteException {
+            if (staticRouteInfo != null) {
+                return staticRouteInfo;
+            }
+            if (intRouteInfos != null && sdValue != null) {
+                Class<?> type = sdValue.getClass();
+                if (type == Integer.class) {
+                    long index = ((Integer) sdValue).longValue() - intMin;
+                    if (index >= 0 && index < intRouteInfos.length && intRouteInfos[(int) index] != null) {
+                        return intRouteInfos[(int) index];
+                    }
+                } else if (type == Long.class) {
+                    long index = ((Long) sdValue) - intMin;
+                    if (index >= 0 && index < intRouteInfos.length) {
+                        ShardRouteInfo routeInfo = longRouteInfos.get((int) index);
+                        if (routeInfo == null) {
+                            routeInfo = route(sdValue);
+                            longRouteInfos.lazySet((int) index, routeInfo);
+                        }
+                        return routeInfo;
+                    }
+                }
+            }
+            return route(sdValue);
+        }
+
+        // 必须使用 binding 中的 scName,因为sql中的scName可能为空
+        private ShardRouteInfo route(Object sdValue) {
+            ShardRouteInfo routeInfo = SimpleShardRouter.this.getRouteInfo(binding, binding.getScName(),
+                                                                           binding.getTbName(), contextKey, sdValue);
+            if (sdValue == null) {// 路由上下文中的ShardRouteInfo由调用方创建, 不缓存
+                return routeInfo;
+            } else {
+                return intern(physicalRouteInfos, routeInfo);
+            }
+        }
+    }
 }
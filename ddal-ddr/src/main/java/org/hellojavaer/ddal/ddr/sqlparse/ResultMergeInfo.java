@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse;
+
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+import java.util.List;
+
+/**
+ * 扇出查询合并各个子查询结果集的方式.
+ * orderByItems为空时按子sql的顺序拼接结果集, 否则按排序列做多路归并; limit不为空时合并后最多返回limit行
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class ResultMergeInfo {
+
+    private List<OrderByItem> orderByItems;
+    private Long              limit;
+
+    public ResultMergeInfo() {
+    }
+
+    public ResultMergeInfo(List<OrderByItem> orderByItems, Long limit) {
+        this.orderByItems = orderByItems;
+        this.limit = limit;
+    }
+
+    public List<OrderByItem> getOrderByItems() {
+        return orderByItems;
+    }
+
+    public void setOrderByItems(List<OrderByItem> orderByItems) {
+        this.orderByItems = orderByItems;
+    }
+
+    public Long getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Long limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("orderByItems", orderByItems)//
+        .append("limit", limit)//
+        .toString();
+    }
+
+    public static class OrderByItem {
+
+        private String  columnLabel;
+        private boolean asc = true;
+
+        public OrderByItem() {
+        }
+
+        public OrderByItem(String columnLabel, boolean asc) {
+            this.columnLabel = columnLabel;
+            this.asc = asc;
+        }
+
+        public String getColumnLabel() {
+            return columnLabel;
+        }
+
+        public void setColumnLabel(String columnLabel) {
+            this.columnLabel = columnLabel;
+        }
+
+        public boolean isAsc() {
+            return asc;
+        }
+
+        public void setAsc(boolean asc) {
+            this.asc = asc;
+        }
+
+        @Override
+        public String toString() {
+            return new DDRToStringBuilder()//
+            .append("columnLabel", columnLabel)//
+            .append("asc", asc)//
+            .toString();
+        }
+    }
+}
@@ -18,17 +18,30 @@ package org.hellojavaer.ddal.ddr.sqlparse;
 import org.hellojavaer.ddal.ddr.datasource.exception.CrossPreparedStatementException;
 import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
+ * sql被路由到多个物理表时(如分片列上的范围条件跨越多个表), subResults为每个物理sql的解析结果, 由数据源并行执行后合并结果,
+ * 此时sql为空, schemas为所有子sql使用的schema.
+ * 子sql改写了in列表时, removedJdbcParamIndexes为子sql中被删除的jdbc参数的位置(升序), 其后的jdbc参数依次前移.
+ * broadcast为true时子sql写的是广播表在各个schema中的副本, 更新数为其中一个子sql的更新数.
+ * readOnly不为空时为sql提示中指定的读写方式, 优先于连接的读写设置
  *
  * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 17/12/2016.
  */
 public class SQLParsedResult {
 
-    private String      sql;
-    private Set<String> schemas;
+    private String                sql;
+    private Set<String>           schemas;
+
+    private List<SQLParsedResult> subResults;
+    private ResultMergeInfo       mergeInfo;
+    private int[]                 removedJdbcParamIndexes;
+    private boolean               broadcast;
+    private Boolean               readOnly;
 
     public String getSql() {
         return sql;
@@ -46,12 +59,73 @@ public class SQLParsedResult {
         this.schemas = schemas;
     }
 
+    public List<SQLParsedResult> getSubResults() {
+        return subResults;
+    }
+
+    public void setSubResults(List<SQLParsedResult> subResults) {
+        this.subResults = subResults;
+    }
+
+    public ResultMergeInfo getMergeInfo() {
+        return mergeInfo;
+    }
+
+    public void setMergeInfo(ResultMergeInfo mergeInfo) {
+        this.mergeInfo = mergeInfo;
+    }
+
+    public int[] getRemovedJdbcParamIndexes() {
+        return removedJdbcParamIndexes;
+    }
+
+    public void setRemovedJdbcParamIndexes(int[] removedJdbcParamIndexes) {
+        this.removedJdbcParamIndexes = removedJdbcParamIndexes;
+    }
+
+    public boolean isBroadcast() {
+        return broadcast;
+    }
+
+    public void setBroadcast(boolean broadcast) {
+        this.broadcast = broadcast;
+    }
+
+    public Boolean getReadOnly() {
+        return readOnly;
+    }
+
+    public void setReadOnly(Boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public boolean isFanOut() {
+        return subResults != null && !subResults.isEmpty();
+    }
+
     public void checkIfCrossPreparedStatement(Map<Object, Object> jdbcParam) throws CrossPreparedStatementException {
 
     }
 
     @Override
     public String toString() {
-        return new DDRToStringBuilder().append("sql", sql).append("schemas", schemas).toString();
+        if (isFanOut()) {
+            return new DDRToStringBuilder()//
+            .append("schemas", schemas)//
+            .append("subResults", subResults)//
+            .append("mergeInfo", mergeInfo)//
+            .append("broadcast", broadcast)//
+            .append("readOnly", readOnly)//
+            .toString();
+        } else {
+            DDRToStringBuilder builder = new DDRToStringBuilder().append("sql", sql).append("schemas", schemas);
+            if (removedJdbcParamIndexes != null) {
+                builder.append("removedJdbcParamIndexes", Arrays.toString(removedJdbcParamIndexes));
+            }
+            if (readOnly != null) {
+                builder.append("readOnly", readOnly);
+            }
+            return builder.toString();
+        }
     }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse;
+
+import java.util.*;
+
+/**
+ * 基于Aho-Corasick自动机的表名匹配, 一次扫描判断sql中是否可能出现任意一个表名.
+ * 匹配不区分ascii字母的大小写, 且表名前后不能是标识符字符(如 user 不匹配 user_ext).
+ * 不识别注释和字符串常量, 其中出现的表名也视为匹配, 只会多解析而不会漏掉分表
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class TableNameMatcher {
+
+    private final int[]                   asciiColumns = new int[128];
+    private final Map<Character, Integer> columns      = new HashMap<Character, Integer>(); // 非ascii字符
+    private final int                     width;
+    private final int[]                   delta;                                           // 状态转移表, delta[state * width + column]
+    private final int[]                   depth;
+    private final boolean[]               terminal;
+    private final int[]                   dictLinks;                                       // 沿失败链的下一个终止状态, 0表示没有
+
+    public TableNameMatcher(Collection<String> names) {
+        // 1. 构建trie, 第0列保留给不在表名中出现的字符
+        int column = 1;
+        List<Map<Character, Integer>> children = new ArrayList<Map<Character, Integer>>();
+        List<Integer> depthList = new ArrayList<Integer>();
+        List<Boolean> terminalList = new ArrayList<Boolean>();
+        children.add(new HashMap<Character, Integer>());
+        depthList.add(0);
+        terminalList.add(false);
+        for (String name : names) {
+            if (name == null || name.length() == 0) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < name.length(); i++) {
+                char ch = toLowerCase(name.charAt(i));
+                if (getColumn(ch) == 0) {
+                    if (ch < 128) {
+                        asciiColumns[ch] = column++;
+                    } else {
+                        columns.put(ch, column++);
+                    }
+                }
+                Integer next = children.get(state).get(ch);
+                if (next == null) {
+                    next = children.size();
+                    children.add(new HashMap<Character, Integer>());
+                    depthList.add(depthList.get(state) + 1);
+                    terminalList.add(false);
+                    children.get(state).put(ch, next);
+                }
+                state = next;
+            }
+            terminalList.set(state, true);
+        }
+        // 2. 按广度优先计算失败转移, 生成确定的状态转移表
+        int size = children.size();
+        this.width = column;
+        this.delta = new int[size * width];
+        this.depth = new int[size];
+        this.terminal = new boolean[size];
+        this.dictLinks = new int[size];
+        int[] fails = new int[size];
+        for (int i = 0; i < size; i++) {
+            depth[i] = depthList.get(i);
+            terminal[i] = terminalList.get(i);
+        }
+        LinkedList<Integer> queue = new LinkedList<Integer>();
+        for (Map.Entry<Character, Integer> entry : children.get(0).entrySet()) {
+            delta[getColumn(entry.getKey())] = entry.getValue();
+            queue.add(entry.getValue());
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int fail = fails[state];
+            dictLinks[state] = terminal[fail] ? fail : dictLinks[fail];
+            System.arraycopy(delta, fail * width, delta, state * width, width);
+            for (Map.Entry<Character, Integer> entry : children.get(state).entrySet()) {
+                int col = getColumn(entry.getKey());
+                int next = entry.getValue();
+                fails[next] = delta[fail * width + col];
+                delta[state * width + col] = next;
+                queue.add(next);
+            }
+        }
+    }
+
+    /**
+     * @return sql中是否出现了任意一个表名
+     */
+    public boolean find(String sql) {
+        int length = sql.length();
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            state = delta[state * width + getColumn(toLowerCase(sql.charAt(i)))];
+            int matched = terminal[state] ? state : dictLinks[state];
+            if (matched == 0 || i + 1 < length && isIdentifierPart(sql.charAt(i + 1))) {
+                continue;
+            }
+            for (; matched != 0; matched = dictLinks[matched]) {
+                int start = i - depth[matched] + 1;
+                if (start == 0 || !isIdentifierPart(sql.charAt(start - 1))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int getColumn(char ch) {
+        if (ch < 128) {
+            return asciiColumns[ch];
+        }
+        Integer column = columns.get(ch);
+        return column == null ? 0 : column;
+    }
+
+    private static char toLowerCase(char ch) {
+        return ch >= 'A' && ch <= 'Z' ? (char) (ch + ('a' - 'A')) : ch;
+    }
+
+    private static boolean isIdentifierPart(char ch) {
+        return ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || ch >= '0' && ch <= '9' || ch == '_' || ch == '$'
+               || ch > 0x7f;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+/**
+ * 4-bit count-min sketch, 用于估算key最近的访问频率(TinyLFU).
+ * 累计计数达到sampleSize后所有计数减半, 使旧的热点逐渐冷却.
+ * 计数更新不加锁, 并发下少量计数丢失不影响准入判断
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 23/09/2017.
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS      = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+            0xcbf29ce484222325L           };
+    private static final long   RESET_MASK = 0x7777777777777777L;
+    private static final int    MAX_COUNT  = 15;
+
+    private final long[]        table;
+    private final int           tableMask;
+    private final int           sampleSize;
+    private int                 size;
+
+    public FrequencySketch(int capacity) {
+        int n = 1;
+        while (n < capacity && n < (1 << 30)) {
+            n <<= 1;
+        }
+        n = Math.max(n, 8);
+        this.table = new long[n];
+        this.tableMask = n - 1;
+        this.sampleSize = (int) Math.min(10L * n, Integer.MAX_VALUE);
+    }
+
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    public void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int slot) {
+        int offset = slot << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = size >>> 1;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
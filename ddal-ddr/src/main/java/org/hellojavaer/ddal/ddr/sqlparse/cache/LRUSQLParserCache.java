@@ -17,19 +17,57 @@ package org.hellojavaer.ddal.ddr.sqlparse.cache;
 
 import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import com.googlecode.concurrentlinkedhashmap.Weighers;
+import org.hellojavaer.ddal.ddr.shard.ReloadableShardRouter;
 import org.hellojavaer.ddal.ddr.shard.ShardRouter;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.DDRSQLParseException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * <pre>
+ * 1. 同一个sql同时未命中时只有一个线程执行解析, 其他线程等待该解析结果
+ * 2. 缓存已满时使用TinyLFU准入: 新sql的访问频率高于LRU淘汰候选时才放入缓存, 避免一次性的sql冲掉热点sql
+ * 3. 解析失败的sql在negativeCacheTtlMillis内直接抛出上次的异常, 不再重复解析
+ * 4. 解析结果中可能保存了按字面量计算好的路由结果, {@link ReloadableShardRouter}的路由变化后丢弃所有解析结果
+ * </pre>
  *
  * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 11/01/2017.
  */
 public class LRUSQLParserCache implements SQLParserCache {
 
-    private volatile ConcurrentLinkedHashMap<InnerQueryKey, SQLParsedState> cache;
-    private Integer                                                         capacity;
-    private SQLParser                                                       sqlParser;
+    private volatile ConcurrentLinkedHashMap<InnerQueryKey, SQLParsedState>    cache;
+    private volatile ConcurrentLinkedHashMap<InnerQueryKey, FailureEntry>      failures;
+    private final ConcurrentHashMap<InnerQueryKey, FutureTask<SQLParsedState>> loadings               = new ConcurrentHashMap<InnerQueryKey, FutureTask<SQLParsedState>>();
+    private volatile FrequencySketch                                           sketch;
+    private Integer                                                            capacity;
+    private SQLParser                                                          sqlParser;
+    private long                                                               negativeCacheTtlMillis = 5000;
+    private final Set<ReloadableShardRouter>                                   listenedRouters        = Collections.newSetFromMap(new ConcurrentHashMap<ReloadableShardRouter, Boolean>());
+    private final Runnable                                                     reloadListener         = new ReloadListener();
+    // invalidateAll时递增, 解析开始后发生过invalidateAll的结果不放入缓存
+    private final AtomicLong                                                   generation             = new AtomicLong();
+
+    private final AtomicLong                                                   hitCount               = new AtomicLong();
+    private final AtomicLong                                                   missCount              = new AtomicLong();
+    private final AtomicLong                                                   negativeHitCount       = new AtomicLong();
+    private final AtomicLong                                                   loadSuccessCount       = new AtomicLong();
+    private final AtomicLong                                                   loadFailureCount       = new AtomicLong();
+    private final AtomicLong                                                   totalLoadTime          = new AtomicLong();
+    private final AtomicLong                                                   rejectedCount          = new AtomicLong();
 
     private LRUSQLParserCache() {
     }
@@ -56,32 +94,213 @@ public class LRUSQLParserCache implements SQLParserCache {
         this.sqlParser = sqlParser;
     }
 
+    public long getNegativeCacheTtlMillis() {
+        return negativeCacheTtlMillis;
+    }
+
+    /**
+     * 解析失败结果的缓存时间, 小于等于0时不缓存解析失败
+     */
+    public void setNegativeCacheTtlMillis(long negativeCacheTtlMillis) {
+        this.negativeCacheTtlMillis = negativeCacheTtlMillis;
+    }
+
+    public SQLParserCacheStats getStats() {
+        init();
+        return new SQLParserCacheStats(hitCount.get(), missCount.get(), negativeHitCount.get(),
+                                       loadSuccessCount.get(), loadFailureCount.get(), totalLoadTime.get(),
+                                       rejectedCount.get(), cache.size());
+    }
+
+    /**
+     * 当前缓存的sql, 按估算的访问频率从高到低排序
+     */
+    public List<String> getHotSqls() {
+        init();
+        final Map<String, Integer> frequencies = new HashMap<String, Integer>();
+        for (InnerQueryKey key : cache.keySet()) {
+            int frequency = sketch.frequency(key);
+            Integer old = frequencies.get(key.getSql());
+            if (old == null || old < frequency) {
+                frequencies.put(key.getSql(), frequency);
+            }
+        }
+        List<String> sqls = new ArrayList<String>(frequencies.keySet());
+        Collections.sort(sqls, new Comparator<String>() {
+
+            @Override
+            public int compare(String o1, String o2) {
+                return frequencies.get(o2).compareTo(frequencies.get(o1));
+            }
+        });
+        return sqls;
+    }
+
+    /**
+     * 丢弃所有解析结果和解析失败的结果
+     */
+    public void invalidateAll() {
+        init();
+        generation.incrementAndGet();
+        cache.clear();
+        failures.clear();
+    }
+
     /**
      * 
      * 并发优先
      */
     @Override
-    public SQLParsedState parse(String sql, ShardRouter shardRouter) {
+    public SQLParsedState parse(final String sql, final ShardRouter shardRouter) {
         init();
-        InnerQueryKey queryKey = new InnerQueryKey(sql, shardRouter);
+        if (shardRouter instanceof ReloadableShardRouter && !listenedRouters.contains(shardRouter)
+            && listenedRouters.add((ReloadableShardRouter) shardRouter)) {
+            ((ReloadableShardRouter) shardRouter).addReloadListener(reloadListener);
+        }
+        final InnerQueryKey queryKey = new InnerQueryKey(sql, shardRouter);
+        sketch.increment(queryKey);
         SQLParsedState result = cache.get(queryKey);
-        if (result == null) {
+        if (result != null) {
+            hitCount.incrementAndGet();
+            return result;
+        }
+        FailureEntry failure = failures.get(queryKey);
+        if (failure != null) {
+            if (failure.getExpireTime() > System.currentTimeMillis()) {
+                negativeHitCount.incrementAndGet();
+                throw failure.getException();
+            } else {
+                failures.remove(queryKey, failure);
+            }
+        }
+        missCount.incrementAndGet();
+        FutureTask<SQLParsedState> task = loadings.get(queryKey);
+        if (task == null) {
+            FutureTask<SQLParsedState> newTask = new FutureTask<SQLParsedState>(new Callable<SQLParsedState>() {
+
+                @Override
+                public SQLParsedState call() throws Exception {
+                    return load(queryKey, sql, shardRouter);
+                }
+            });
+            task = loadings.putIfAbsent(queryKey, newTask);
+            if (task == null) {
+                task = newTask;
+                try {
+                    task.run();
+                } finally {
+                    // 结果已写入cache或failures后才移除, 保证后来的线程不会重复解析
+                    loadings.remove(queryKey, task);
+                }
+            }
+        }
+        return getResult(task);
+    }
+
+    private SQLParsedState load(InnerQueryKey queryKey, String sql, ShardRouter shardRouter) {
+        long gen = generation.get();
+        long startTime = System.nanoTime();
+        SQLParsedState result;
+        try {
             result = sqlParser.parse(sql, shardRouter);
+        } catch (RuntimeException e) {
+            totalLoadTime.addAndGet(System.nanoTime() - startTime);
+            loadFailureCount.incrementAndGet();
+            if (negativeCacheTtlMillis > 0 && gen == generation.get()) {
+                failures.put(queryKey, new FailureEntry(e, System.currentTimeMillis() + negativeCacheTtlMillis));
+            }
+            throw e;
+        }
+        totalLoadTime.addAndGet(System.nanoTime() - startTime);
+        loadSuccessCount.incrementAndGet();
+        if (gen != generation.get()) {// 解析期间路由发生了变化
+            return result;
+        }
+        if (admit(queryKey)) {
             cache.put(queryKey, result);
+        } else {
+            rejectedCount.incrementAndGet();
         }
         return result;
     }
 
+    private boolean admit(InnerQueryKey queryKey) {
+        if (cache.size() < capacity) {
+            return true;
+        }
+        Iterator<InnerQueryKey> it = cache.ascendingKeySetWithLimit(1).iterator();
+        if (!it.hasNext()) {
+            return true;
+        }
+        return sketch.frequency(queryKey) > sketch.frequency(it.next());
+    }
+
+    private SQLParsedState getResult(FutureTask<SQLParsedState> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    } else {
+                        throw new DDRSQLParseException(cause);
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     private void init() {
         if (cache == null) {
             synchronized (this) {
                 if (cache == null) {
+                    sketch = new FrequencySketch(capacity);
+                    int failureCapacity = Math.max(16, capacity / 4);
+                    failures = new ConcurrentLinkedHashMap.Builder<InnerQueryKey, FailureEntry>().maximumWeightedCapacity(failureCapacity).weigher(Weighers.singleton()).build();
                     cache = new ConcurrentLinkedHashMap.Builder<InnerQueryKey, SQLParsedState>().maximumWeightedCapacity(capacity).weigher(Weighers.singleton()).build();
                 }
             }
         }
     }
 
+    private class ReloadListener implements Runnable {
+
+        @Override
+        public void run() {
+            invalidateAll();
+        }
+    }
+
+    private static class FailureEntry {
+
+        private final RuntimeException exception;
+        private final long             expireTime;
+
+        public FailureEntry(RuntimeException exception, long expireTime) {
+            this.exception = exception;
+            this.expireTime = expireTime;
+        }
+
+        public RuntimeException getException() {
+            return exception;
+        }
+
+        public long getExpireTime() {
+            return expireTime;
+        }
+    }
+
     private class InnerQueryKey {
 
         private String      sql;
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.utils.DDRDaemonThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * sql解析缓存的本地快照. 启动时(init)按访问频率从高到低并行预解析快照中的sql, 运行期间定时及jvm退出时保存快照,
+ * 避免每次发布后缓存为空导致的解析开销.
+ * bundleFile为构建期生成的只读sql包(格式与快照相同, 见 MapperSQLPrecompiler), 启动时先于快照预解析, 不会被覆盖.
+ * 只配置bundleFile时不保存快照
+ * 
+ * <pre>
+ * 文件格式(gzip): magic(int) version(int) count(int) [length(int) utf8 bytes]...
+ * 
+ * spring中使用时数据源需要depends-on该bean, 以保证预解析完成后才开始对外服务
+ * &lt;bean id="sqlParserCacheSnapshot" class="org.hellojavaer.ddal.ddr.sqlparse.cache.SQLParserCacheSnapshot" init-method="init" destroy-method="destroy"&gt;
+ *     &lt;property name="cache" ref="sqlParserCache"/&gt;
+ *     &lt;property name="shardRouter" ref="shardRouter"/&gt;
+ *     &lt;property name="file" value="/data/ddal/sql-cache.snapshot"/&gt;
+ * &lt;/bean&gt;
+ * </pre>
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 25/09/2017.
+ */
+public class SQLParserCacheSnapshot {
+
+    private static final int         MAGIC               = 0x4444534c;
+    private static final int         VERSION             = 1;
+    // 单条sql的最大字节数, 超过时认为快照文件已损坏
+    private static final int         MAX_SQL_LENGTH      = 4 << 20;
+
+    private Logger                   logger              = LoggerFactory.getLogger(getClass());
+
+    private LRUSQLParserCache        cache;
+    private ShardRouter              shardRouter;
+    private String                   file;
+    private String                   bundleFile;
+    private long                     saveIntervalSeconds = 300;
+    private int                      warmUpThreads       = Runtime.getRuntime().availableProcessors();
+    private long                     warmUpTimeoutMillis = 30000;
+
+    private ScheduledExecutorService scheduledExecutorService;
+    private Thread                   shutdownHook;
+
+    private SQLParserCacheSnapshot() {
+    }
+
+    public SQLParserCacheSnapshot(LRUSQLParserCache cache, ShardRouter shardRouter, String file) {
+        this.cache = cache;
+        this.shardRouter = shardRouter;
+        this.file = file;
+    }
+
+    public synchronized void init() {
+        if (cache == null || shardRouter == null || file == null && bundleFile == null) {
+            throw new IllegalArgumentException("cache, shardRouter and one of file and bundleFile can't be null");
+        }
+        if (scheduledExecutorService != null) {
+            return;
+        }
+        warmUp();
+        if (file == null) {
+            return;
+        }
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new DDRDaemonThreadFactory(
+                                                                              "ddal-sql-cache-snapshot"));
+        if (saveIntervalSeconds > 0) {
+            scheduledExecutorService.scheduleWithFixedDelay(new Runnable() {
+
+                @Override
+                public void run() {
+                    saveQuietly();
+                }
+            }, saveIntervalSeconds, saveIntervalSeconds, TimeUnit.SECONDS);
+        }
+        shutdownHook = new Thread("ddal-sql-cache-snapshot-shutdown") {
+
+            @Override
+            public void run() {
+                saveQuietly();
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public synchronized void destroy() {
+        if (scheduledExecutorService == null || file == null) {
+            return;
+        }
+        scheduledExecutorService.shutdownNow();
+        scheduledExecutorService = null;
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // jvm is shutting down, the hook will save the snapshot
+            return;
+        } finally {
+            shutdownHook = null;
+        }
+        saveQuietly();
+    }
+
+    /**
+     * 并行预解析sql包和快照中的sql, 等待全部完成或超过warmUpTimeoutMillis后返回成功解析的数量
+     */
+    public int warmUp() {
+        Set<String> sqls = new LinkedHashSet<String>();
+        readQuietly(bundleFile, sqls);
+        readQuietly(file, sqls);
+        if (sqls.isEmpty()) {
+            return 0;
+        }
+        long startTime = System.currentTimeMillis();
+        final AtomicInteger loadedCount = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(sqls.size());
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, warmUpThreads),
+                                                                       new DDRDaemonThreadFactory("ddal-sql-cache-warm-up"));
+        try {
+            for (final String sql : sqls) {
+                executorService.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            cache.parse(sql, shardRouter);
+                            loadedCount.incrementAndGet();
+                        } catch (Throwable e) {
+                            if (logger.isDebugEnabled()) {
+                                logger.debug("[SQLParserCacheSnapshot] parse sql [" + sql + "] failed", e);
+                            }
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+                });
+            }
+            if (!latch.await(warmUpTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warn("[SQLParserCacheSnapshot] warm up timeout after " + warmUpTimeoutMillis + "ms, "
+                            + loadedCount.get() + "/" + sqls.size() + " sqls are parsed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executorService.shutdownNow();
+        }
+        if (logger.isInfoEnabled()) {
+            logger.info("[SQLParserCacheSnapshot] warm up " + loadedCount.get() + "/" + sqls.size() + " sqls in "
+                        + (System.currentTimeMillis() - startTime) + "ms");
+        }
+        return loadedCount.get();
+    }
+
+    private void readQuietly(String file, Set<String> sqls) {
+        if (file == null || !new File(file).isFile()) {
+            return;
+        }
+        try {
+            sqls.addAll(read(new File(file)));
+        } catch (IOException | RuntimeException e) {// 损坏的快照文件不能影响启动
+            logger.warn("[SQLParserCacheSnapshot] read snapshot file '" + file + "' failed", e);
+        }
+    }
+
+    public synchronized void save() throws IOException {
+        write(new File(file), cache.getHotSqls());
+    }
+
+    /**
+     * 按快照的文件格式写入sql, 先写临时文件再原子重命名
+     */
+    public static void write(File target, List<String> sqls) throws IOException {
+        File parent = target.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        File temp = new File(target.getAbsolutePath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temp))));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sqls.size());
+            for (String sql : sqls) {
+                byte[] bytes = sql.getBytes("UTF-8");
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        } finally {
+            out.close();
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (Throwable e) {
+            logger.warn("[SQLParserCacheSnapshot] save snapshot file '" + file + "' failed", e);
+        }
+    }
+
+    public static List<String> read(File snapshot) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(snapshot))));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unknown snapshot file format");
+            }
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Illegal sql count " + count + " in snapshot file");
+            }
+            List<String> sqls = new ArrayList<String>(Math.min(count, 1024));
+            for (int i = 0; i < count; i++) {
+                int len = in.readInt();
+                if (len < 0 || len > MAX_SQL_LENGTH) {
+                    throw new IOException("Illegal sql length " + len + " in snapshot file");
+                }
+                byte[] bytes = new byte[len];
+                in.readFully(bytes);
+                sqls.add(new String(bytes, "UTF-8"));
+            }
+            return sqls;
+        } finally {
+            in.close();
+        }
+    }
+
+    public LRUSQLParserCache getCache() {
+        return cache;
+    }
+
+    public void setCache(LRUSQLParserCache cache) {
+        this.cache = cache;
+    }
+
+    public ShardRouter getShardRouter() {
+        return shardRouter;
+    }
+
+    public void setShardRouter(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public String getBundleFile() {
+        return bundleFile;
+    }
+
+    public void setBundleFile(String bundleFile) {
+        this.bundleFile = bundleFile;
+    }
+
+    public long getSaveIntervalSeconds() {
+        return saveIntervalSeconds;
+    }
+
+    /**
+     * 小于等于0时只在destroy和jvm退出时保存快照
+     */
+    public void setSaveIntervalSeconds(long saveIntervalSeconds) {
+        this.saveIntervalSeconds = saveIntervalSeconds;
+    }
+
+    public int getWarmUpThreads() {
+        return warmUpThreads;
+    }
+
+    public void setWarmUpThreads(int warmUpThreads) {
+        this.warmUpThreads = warmUpThreads;
+    }
+
+    public long getWarmUpTimeoutMillis() {
+        return warmUpTimeoutMillis;
+    }
+
+    public void setWarmUpTimeoutMillis(long warmUpTimeoutMillis) {
+        this.warmUpTimeoutMillis = warmUpTimeoutMillis;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+/**
+ * sql解析缓存的统计快照, totalLoadTime单位为纳秒
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 23/09/2017.
+ */
+public class SQLParserCacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long negativeHitCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long totalLoadTime;
+    private final long rejectedCount;
+    private final int  size;
+
+    public SQLParserCacheStats(long hitCount, long missCount, long negativeHitCount, long loadSuccessCount,
+                               long loadFailureCount, long totalLoadTime, long rejectedCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.negativeHitCount = negativeHitCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTime = totalLoadTime;
+        this.rejectedCount = rejectedCount;
+        this.size = size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * 命中解析失败缓存的次数
+     */
+    public long getNegativeHitCount() {
+        return negativeHitCount;
+    }
+
+    public long getLoadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    public long getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    /**
+     * 解析成功但因访问频率低于淘汰候选而未放入缓存的次数
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public double getHitRate() {
+        long requestCount = hitCount + missCount + negativeHitCount;
+        return requestCount == 0 ? 1.0d : (double) hitCount / requestCount;
+    }
+
+    public double getAverageLoadPenalty() {
+        long loadCount = loadSuccessCount + loadFailureCount;
+        return loadCount == 0 ? 0.0d : (double) totalLoadTime / loadCount;
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("hitCount", hitCount)//
+        .append("missCount", missCount)//
+        .append("negativeHitCount", negativeHitCount)//
+        .append("loadSuccessCount", loadSuccessCount)//
+        .append("loadFailureCount", loadFailureCount)//
+        .append("totalLoadTime", totalLoadTime)//
+        .append("rejectedCount", rejectedCount)//
+        .append("size", size)//
+        .toString();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.hint;
+
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+/**
+ * sql开头的路由提示, 如: /*+ddal sc=user_03 tb=user_0117 rw=read *&#47;.
+ * scName和tbName为物理schema和物理表, readOnly为空时使用连接的读写设置, sql为去掉提示之后的sql
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class SQLHint {
+
+    private String  scName;
+    private String  tbName;
+    private Boolean readOnly;
+    private String  sql;
+
+    public String getScName() {
+        return scName;
+    }
+
+    public void setScName(String scName) {
+        this.scName = scName;
+    }
+
+    public String getTbName() {
+        return tbName;
+    }
+
+    public void setTbName(String tbName) {
+        this.tbName = tbName;
+    }
+
+    public Boolean getReadOnly() {
+        return readOnly;
+    }
+
+    public void setReadOnly(Boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("scName", scName)//
+        .append("tbName", tbName)//
+        .append("readOnly", readOnly)//
+        .append("sql", sql)//
+        .toString();
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.hint;
+
+import org.hellojavaer.ddal.ddr.sqlparse.exception.SQLSyntaxErrorException;
+import org.hellojavaer.ddal.ddr.utils.DDRStringUtils;
+
+import java.util.*;
+
+/**
+ * 解析sql开头的路由提示, 并在词法级别把sql中的逻辑表替换为提示中的物理表, 不经过sql解析器.
+ * 
+ * <pre>
+ * /*+ddal sc=user_03 tb=user_0117 rw=read *&#47; select * from user where user.id = ?
+ * =>
+ * select * from user_03.user_0117 where user_0117.id = ?
+ * </pre>
+ *
+ * 只处理sql中恰好引用了一个分表的情况, 表名出现在 from, join, into, update, table 之后或者以 schema.table 的形式出现时视为表引用
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class SQLHintParser {
+
+    public static final String       HINT_PREFIX     = "/*+ddal";
+
+    private static final Set<String> TABLE_KEYWORDS  = new HashSet<String>(Arrays.asList("from", "join", "into",
+                                                                                         "update", "table"));
+    private static final Set<String> CLAUSE_KEYWORDS = new HashSet<String>(Arrays.asList("select", "from", "join",
+                                                                                         "into", "update", "set",
+                                                                                         "where", "on", "using",
+                                                                                         "group", "order", "having",
+                                                                                         "limit", "values", "union"));
+    // 表引用之后不是别名的关键字
+    private static final Set<String> NOT_ALIASES     = new HashSet<String>(Arrays.asList("where", "set", "on", "using",
+                                                                                         "join", "inner", "left",
+                                                                                         "right", "cross", "natural",
+                                                                                         "straight_join", "full",
+                                                                                         "outer", "group", "order",
+                                                                                         "having", "limit", "values",
+                                                                                         "value", "select", "union",
+                                                                                         "for", "lock", "force", "use",
+                                                                                         "ignore", "partition",
+                                                                                         "window", "procedure", "into"));
+
+    private SQLHintParser() {
+    }
+
+    /**
+     * @return sql不以提示开头时返回null
+     */
+    public static SQLHint parse(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        int length = sql.length();
+        int i = 0;
+        while (i < length && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        if (!sql.regionMatches(true, i, HINT_PREFIX, 0, HINT_PREFIX.length())) {
+            return null;
+        }
+        int start = i + HINT_PREFIX.length();
+        int end = sql.indexOf("*/", start);
+        if (end < 0) {
+            throw new SQLSyntaxErrorException("Hint is not closed in sql [" + sql + "]");
+        }
+        if (end > start && !Character.isWhitespace(sql.charAt(start))) {// 如 /*+ddalx
+            return null;
+        }
+        SQLHint hint = new SQLHint();
+        for (String item : sql.substring(start, end).trim().split("\\s+")) {
+            if (item.length() == 0) {
+                continue;
+            }
+            int index = item.indexOf('=');
+            if (index <= 0 || index == item.length() - 1) {
+                throw new SQLSyntaxErrorException("Illegal hint item '" + item + "' in sql [" + sql + "]");
+            }
+            String key = DDRStringUtils.toLowerCase(item.substring(0, index));
+            String value = item.substring(index + 1);
+            if ("sc".equals(key)) {
+                hint.setScName(value);
+            } else if ("tb".equals(key)) {
+                hint.setTbName(value);
+            } else if ("rw".equals(key)) {
+                if ("read".equalsIgnoreCase(value)) {
+                    hint.setReadOnly(true);
+                } else if ("write".equalsIgnoreCase(value)) {
+                    hint.setReadOnly(false);
+                } else {
+                    throw new SQLSyntaxErrorException("Value of hint item 'rw' can only be 'read' or 'write', but was '"
+                                                      + value + "'. Sql is [" + sql + "]");
+                }
+            } else {
+                throw new SQLSyntaxErrorException("Unknown hint item '" + item + "' in sql [" + sql + "]");
+            }
+        }
+        i = end + 2;
+        while (i < length && Character.isWhitespace(sql.charAt(i))) {
+            i++;
+        }
+        hint.setSql(sql.substring(i));
+        return hint;
+    }
+
+    /**
+     * 把sql中引用的分表替换为物理表scName.tbName, 以该表名限定的列(如 user.id)同时替换为物理表名.
+     * 分表有别名时列只能以别名限定, 不替换; 与表名相同的schema(如 user.account)及其他表的同名别名也不替换
+     *
+     * @param routedTables 所有的分表, schema => 表名, 均为小写
+     * @return sql中引用的分表不是恰好一个时返回null
+     */
+    public static String route(String sql, String scName, String tbName, Map<String, Set<String>> routedTables) {
+        List<Token> tokens = tokenize(sql);
+        List<Token> references = new ArrayList<Token>();
+        List<Token> qualifiers = new ArrayList<Token>();
+        // 分表是否有别名, 以及其他表的表名和别名
+        boolean aliased = false;
+        Set<String> otherNames = new HashSet<String>();
+        String logicalTable = null;
+        String lastClause = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.text == null || i > 0 && tokens.get(i - 1).isDot()) {
+                continue;
+            }
+            Token prev = i > 0 ? tokens.get(i - 1) : null;
+            boolean tablePosition = prev != null
+                                    && (prev.text != null && !prev.quoted && TABLE_KEYWORDS.contains(prev.text)
+                                        || prev.isComma() && ("from".equals(lastClause) || "update".equals(lastClause)));
+            Token next = i + 1 < tokens.size() ? tokens.get(i + 1) : null;
+            if (next != null && next.isDot()) {
+                Token tb = i + 2 < tokens.size() ? tokens.get(i + 2) : null;
+                Set<String> tables = routedTables.get(token.text);
+                if (tb != null && tb.text != null && tables != null && tables.contains(tb.text)) {// schema.table
+                    String name = token.text + "." + tb.text;
+                    if (logicalTable != null && !logicalTable.equals(name)) {
+                        return null;
+                    }
+                    logicalTable = name;
+                    references.add(new Token(token.start, tb.end, null));
+                    aliased |= getAlias(tokens, i + 3) != null;
+                    i += 2;
+                } else if (tablePosition) {// 其他表的 schema.table
+                    addName(otherNames, getAlias(tokens, i + 3));
+                    i += 2;
+                } else if (i + 3 < tokens.size() && tokens.get(i + 3).isDot()) {// schema.table.column
+                    i += 2;
+                } else {
+                    qualifiers.add(token);
+                }
+                continue;
+            }
+            if (tablePosition) {
+                String name = null;
+                for (Map.Entry<String, Set<String>> entry : routedTables.entrySet()) {
+                    if (entry.getValue().contains(token.text)) {
+                        if (name != null) {// 多个schema中有同名的分表
+                            return null;
+                        }
+                        name = entry.getKey() + "." + token.text;
+                    }
+                }
+                if (name != null) {
+                    if (logicalTable != null && !logicalTable.equals(name)) {
+                        return null;
+                    }
+                    logicalTable = name;
+                    references.add(token);
+                    aliased |= getAlias(tokens, i + 1) != null;
+                } else {
+                    addName(otherNames, token.text);
+                    addName(otherNames, getAlias(tokens, i + 1));
+                }
+            }
+            if (!token.quoted && CLAUSE_KEYWORDS.contains(token.text)) {
+                lastClause = token.text;
+            }
+        }
+        if (logicalTable == null) {
+            return null;
+        }
+        String logicalTbName = logicalTable.substring(logicalTable.indexOf('.') + 1);
+        List<Token> replaced = new ArrayList<Token>(references);
+        if (!aliased && !otherNames.contains(logicalTbName)) {
+            for (Token qualifier : qualifiers) {
+                if (qualifier.text.equals(logicalTbName)) {
+                    replaced.add(qualifier);
+                }
+            }
+        }
+        Collections.sort(replaced, new Comparator<Token>() {
+
+            @Override
+            public int compare(Token o1, Token o2) {
+                return o1.start - o2.start;
+            }
+        });
+        StringBuilder sb = new StringBuilder(sql.length() + 16);
+        int last = 0;
+        for (Token token : replaced) {
+            sb.append(sql, last, token.start);
+            if (references.contains(token)) {
+                sb.append(scName).append('.').append(tbName);
+            } else {
+                sb.append(tbName);
+            }
+            last = token.end;
+        }
+        sb.append(sql, last, sql.length());
+        return sb.toString();
+    }
+
+    /**
+     * 表引用之后的别名, 形如 [as] alias
+     */
+    private static String getAlias(List<Token> tokens, int i) {
+        if (i < tokens.size() && "as".equals(tokens.get(i).text) && !tokens.get(i).quoted) {
+            i++;
+        }
+        if (i >= tokens.size()) {
+            return null;
+        }
+        Token token = tokens.get(i);
+        if (token.text == null || !token.quoted && NOT_ALIASES.contains(token.text)) {
+            return null;
+        }
+        return token.text;
+    }
+
+    private static void addName(Set<String> names, String name) {
+        if (name != null) {
+            names.add(name);
+        }
+    }
+
+    /**
+     * 只保留标识符, '.' 和 ',', 跳过注释和常量
+     */
+    private static List<Token> tokenize(String sql) {
+        List<Token> tokens = new ArrayList<Token>();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char ch = sql.charAt(i);
+            if (ch == '-' && i + 1 < length && sql.charAt(i + 1) == '-' || ch == '#') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (ch == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (ch == '\'' || ch == '"') {
+                i = skipQuoted(sql, i, ch);
+            } else if (ch == '`') {
+                int end = sql.indexOf('`', i + 1);
+                end = end < 0 ? length : end + 1;
+                Token token = new Token(i, end, DDRStringUtils.toLowerCase(sql.substring(i + 1, Math.max(i + 1,
+                                                                                                         end - 1))));
+                token.quoted = true;
+                tokens.add(token);
+                i = end;
+            } else if (isIdentifierPart(ch)) {
+                int end = i + 1;
+                while (end < length && isIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+                tokens.add(new Token(i, end, DDRStringUtils.toLowerCase(sql.substring(i, end))));
+                i = end;
+            } else {
+                if (!Character.isWhitespace(ch)) {// 其他符号打断 schema.table 和 ', table' 的识别
+                    tokens.add(new Token(i, ch));
+                }
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static int skipQuoted(String sql, int i, char quote) {
+        int length = sql.length();
+        int j = i + 1;
+        while (j < length) {
+            char ch = sql.charAt(j);
+            if (ch == '\\') {
+                j += 2;
+            } else if (ch == quote) {
+                if (j + 1 < length && sql.charAt(j + 1) == quote) {
+                    j += 2;
+                } else {
+                    return j + 1;
+                }
+            } else {
+                j++;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isIdentifierPart(char ch) {
+        return ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || ch >= '0' && ch <= '9' || ch == '_' || ch == '$'
+               || ch > 0x7f;
+    }
+
+    private static class Token {
+
+        private int     start;
+        private int     end;
+        private String  text;  // 标识符的小写形式, 符号为null
+        private char    symbol;
+        private boolean quoted;
+
+        public Token(int start, int end, String text) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+
+        public Token(int start, char symbol) {
+            this.start = start;
+            this.end = start + 1;
+            this.symbol = symbol;
+        }
+
+        public boolean isDot() {
+            return text == null && symbol == '.';
+        }
+
+        public boolean isComma() {
+            return text == null && symbol == ',';
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.normalize;
+
+import org.hellojavaer.ddal.ddr.datasource.exception.CrossPreparedStatementException;
+import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在sql解析缓存之前对sql做常量归一化, 使用拼接常量的sql也能命中缓存的sql模板.
+ * 模板sql的解析结果被所有只有常量不同的sql共用, 常量作为命名参数参与路由, 路由后的sql再还原为原始常量.
+ * 模板sql解析失败时(如常量出现在不支持参数的位置)使用原始sql解析
+ * 
+ * <pre>
+ * new SimpleShardParser(new LiteralNormalizingSQLParser(new LRUSQLParserCache(new JSQLParser(), 1000)), shardRouter)
+ * </pre>
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 24/09/2017.
+ */
+public class LiteralNormalizingSQLParser implements SQLParser {
+
+    private Logger    logger = LoggerFactory.getLogger(getClass());
+
+    private SQLParser sqlParser;
+
+    private LiteralNormalizingSQLParser() {
+    }
+
+    public LiteralNormalizingSQLParser(SQLParser sqlParser) {
+        this.sqlParser = sqlParser;
+    }
+
+    public SQLParser getSqlParser() {
+        return sqlParser;
+    }
+
+    public void setSqlParser(SQLParser sqlParser) {
+        this.sqlParser = sqlParser;
+    }
+
+    @Override
+    public SQLParsedState parse(String sql, ShardRouter shardRouter) {
+        final NormalizedSQL normalizedSQL = SQLLiteralNormalizer.normalize(sql);
+        if (normalizedSQL == null) {
+            return sqlParser.parse(sql, shardRouter);
+        }
+        final SQLParsedState templateState;
+        try {
+            templateState = sqlParser.parse(normalizedSQL.getTemplate(), shardRouter);
+        } catch (RuntimeException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("[LiteralNormalize] template [" + normalizedSQL.getTemplate()
+                             + "] can't be parsed, use original sql instead", e);
+            }
+            return sqlParser.parse(sql, shardRouter);
+        }
+        return new SQLParsedState() {
+
+            @Override
+            public SQLParsedResult parse(Map<Object, Object> jdbcParams) {
+                final SQLParsedResult templateResult = templateState.parse(mergeParams(normalizedSQL, jdbcParams));
+                SQLParsedResult result = new SQLParsedResult() {
+
+                    @Override
+                    public void checkIfCrossPreparedStatement(Map<Object, Object> jdbcParam)
+                                                                                           throws CrossPreparedStatementException {
+                        templateResult.checkIfCrossPreparedStatement(mergeParams(normalizedSQL, jdbcParam));
+                    }
+                };
+                restore(templateResult, result, normalizedSQL);
+                return result;
+            }
+        };
+    }
+
+    private static void restore(SQLParsedResult templateResult, SQLParsedResult result, NormalizedSQL normalizedSQL) {
+        result.setSchemas(templateResult.getSchemas());
+        result.setMergeInfo(templateResult.getMergeInfo());
+        result.setBroadcast(templateResult.isBroadcast());
+        if (templateResult.isFanOut()) {
+            List<SQLParsedResult> subResults = new ArrayList<SQLParsedResult>(templateResult.getSubResults().size());
+            for (SQLParsedResult templateSubResult : templateResult.getSubResults()) {
+                SQLParsedResult subResult = new SQLParsedResult();
+                restore(templateSubResult, subResult, normalizedSQL);
+                subResults.add(subResult);
+            }
+            result.setSubResults(subResults);
+        } else {
+            result.setSql(SQLLiteralNormalizer.restore(templateResult.getSql(), normalizedSQL.getLiterals()));
+            result.setRemovedJdbcParamIndexes(templateResult.getRemovedJdbcParamIndexes());
+        }
+    }
+
+    private static Map<Object, Object> mergeParams(NormalizedSQL normalizedSQL, Map<Object, Object> jdbcParams) {
+        int size = normalizedSQL.getValues().size();
+        Map<Object, Object> params = new HashMap<Object, Object>((jdbcParams == null ? 0 : jdbcParams.size()) + size
+                                                                 * 2);
+        if (jdbcParams != null) {
+            params.putAll(jdbcParams);
+        }
+        for (int i = 0; i < size; i++) {
+            params.put(normalizedSQL.getParamName(i), normalizedSQL.getValues().get(i));
+        }
+        return params;
+    }
+}
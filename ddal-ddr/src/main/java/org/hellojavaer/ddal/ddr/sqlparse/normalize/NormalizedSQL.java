@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.normalize;
+
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+import java.util.List;
+
+/**
+ * literals: 原始常量文本, 用于还原路由后的sql; values: 作为命名参数值参与路由
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 24/09/2017.
+ */
+public class NormalizedSQL {
+
+    private final String       template;
+    private final List<String> literals;
+    private final List<Object> values;
+
+    public NormalizedSQL(String template, List<String> literals, List<Object> values) {
+        this.template = template;
+        this.literals = literals;
+        this.values = values;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public List<String> getLiterals() {
+        return literals;
+    }
+
+    public List<Object> getValues() {
+        return values;
+    }
+
+    public String getParamName(int index) {
+        return SQLLiteralNormalizer.PARAM_PREFIX + index;
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("template", template)//
+        .append("literals", literals)//
+        .toString();
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.normalize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 词法级别的sql常量归一化: 将整数和单引号字符串常量替换为命名参数, 使只有常量不同的sql共用同一个sql模板.
+ * 
+ * <pre>
+ * select * from user where id = 123 and name = 'allen'
+ * =>
+ * select * from user where id = :ddal_literal_0 and name = :ddal_literal_1
+ * </pre>
+ *
+ * 一元负号会并入整数常量(如 id = -5), 减法运算中的负号保持原样.
+ * 注释, 反引号/双引号标识符, 小数, 科学计数法, 十六进制, 带前缀的字符串(如 x'..', N'..')以及标识符中的数字不做替换
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 24/09/2017.
+ */
+public class SQLLiteralNormalizer {
+
+    public static final String PARAM_PREFIX = "ddal_literal_";
+
+    private SQLLiteralNormalizer() {
+    }
+
+    /**
+     * @return 不包含可替换的常量或者sql中已存在参数前缀时返回null
+     */
+    public static NormalizedSQL normalize(String sql) {
+        if (sql == null || sql.indexOf(PARAM_PREFIX) >= 0) {
+            return null;
+        }
+        int length = sql.length();
+        StringBuilder sb = null;
+        List<String> literals = null;
+        List<Object> values = null;
+        int last = 0;
+        int i = 0;
+        while (i < length) {
+            char ch = sql.charAt(i);
+            if (ch == '-' && i + 1 < length && sql.charAt(i + 1) == '-' || ch == '#') {
+                i = skipLine(sql, i);
+            } else if (ch == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (ch == '`' || ch == '"') {
+                i = skipQuoted(sql, i, ch);
+            } else if (ch == '\'') {
+                int end = skipQuoted(sql, i, ch);
+                if (end > length || i > 0 && isIdentifierPart(sql.charAt(i - 1))) {
+                    // 未闭合的字符串或者 x'..' N'..' 等带前缀的常量
+                    i = end;
+                    continue;
+                }
+                if (sb == null) {
+                    sb = new StringBuilder(length);
+                    literals = new ArrayList<String>();
+                    values = new ArrayList<Object>();
+                }
+                String literal = sql.substring(i, end);
+                sb.append(sql, last, i).append(':').append(PARAM_PREFIX).append(literals.size());
+                literals.add(literal);
+                values.add(literal.substring(1, literal.length() - 1));
+                last = end;
+                i = end;
+            } else if (ch >= '0' && ch <= '9') {
+                int end = i + 1;
+                while (end < length && Character.isDigit(sql.charAt(end))) {
+                    end++;
+                }
+                boolean standalone = (i == 0 || !isIdentifierPart(sql.charAt(i - 1)) && sql.charAt(i - 1) != '.')
+                                     && (end == length || !isIdentifierPart(sql.charAt(end))
+                                                          && sql.charAt(end) != '.');
+                Long value = standalone ? parseLong(sql, i, end) : null;
+                if (value != null) {
+                    if (sb == null) {
+                        sb = new StringBuilder(length);
+                        literals = new ArrayList<String>();
+                        values = new ArrayList<Object>();
+                    }
+                    int start = i;
+                    int minus = i - 1;
+                    while (minus >= last && Character.isWhitespace(sql.charAt(minus))) {
+                        minus--;
+                    }
+                    if (minus >= last && sql.charAt(minus) == '-' && isUnaryMinus(sql, minus)) {
+                        start = minus;
+                        value = -value;
+                    }
+                    sb.append(sql, last, start).append(':').append(PARAM_PREFIX).append(literals.size());
+                    literals.add(sql.substring(start, end));
+                    values.add(value);
+                    last = end;
+                } else {
+                    // 跳过整个标识符或数字, 避免把 tb_1, 1.5, 1e5, 0x1f 中的一部分当作常量
+                    while (end < length && (isIdentifierPart(sql.charAt(end)) || sql.charAt(end) == '.')) {
+                        end++;
+                    }
+                }
+                i = end;
+            } else if (isIdentifierPart(ch) || ch == ':') {
+                int end = i + 1;
+                while (end < length && isIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+                i = end;
+            } else {
+                i++;
+            }
+        }
+        if (sb == null) {
+            return null;
+        }
+        sb.append(sql, last, length);
+        return new NormalizedSQL(sb.toString(), literals, values);
+    }
+
+    /**
+     * 将模板sql(如路由后的sql)中的参数替换回原始常量
+     */
+    public static String restore(String template, List<String> literals) {
+        if (template == null) {
+            return null;
+        }
+        String marker = ":" + PARAM_PREFIX;
+        int index = template.indexOf(marker);
+        if (index < 0) {
+            return template;
+        }
+        StringBuilder sb = new StringBuilder(template.length() + 16);
+        int last = 0;
+        while (index >= 0) {
+            int end = index + marker.length();
+            int n = 0;
+            int digitStart = end;
+            while (end < template.length() && Character.isDigit(template.charAt(end))) {
+                n = n * 10 + (template.charAt(end) - '0');
+                end++;
+            }
+            if (end > digitStart && n < literals.size()) {
+                sb.append(template, last, index).append(literals.get(n));
+                last = end;
+            }
+            index = template.indexOf(marker, end);
+        }
+        sb.append(template, last, template.length());
+        return sb.toString();
+    }
+
+    private static Long parseLong(String sql, int start, int end) {
+        if (end - start > 18) {
+            return null;
+        }
+        if (end - start > 1 && sql.charAt(start) == '0') {// 前导0的常量保持原样
+            return null;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (sql.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    private static final String[] UNARY_KEYWORDS = { "select", "where", "and", "or", "not", "between", "in",
+                                                     "like", "on", "having", "when", "then", "else", "case", "set",
+                                                     "values", "value", "limit", "offset", "by", "return", "is" };
+
+    /**
+     * 负号前为运算符, 左括号, 逗号或关键字时为一元负号
+     */
+    private static boolean isUnaryMinus(String sql, int minus) {
+        int j = minus - 1;
+        while (j >= 0 && Character.isWhitespace(sql.charAt(j))) {
+            j--;
+        }
+        if (j < 0) {
+            return true;
+        }
+        char ch = sql.charAt(j);
+        if ("=<>(,+-*/%!".indexOf(ch) >= 0) {
+            return true;
+        }
+        if (!isIdentifierPart(ch)) {
+            return false;
+        }
+        int end = j + 1;
+        while (j >= 0 && isIdentifierPart(sql.charAt(j))) {
+            j--;
+        }
+        if (j >= 0 && (sql.charAt(j) == '.' || sql.charAt(j) == '`' || sql.charAt(j) == ':')) {
+            return false;
+        }
+        String word = sql.substring(j + 1, end);
+        for (String keyword : UNARY_KEYWORDS) {
+            if (keyword.equalsIgnoreCase(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int skipLine(String sql, int i) {
+        int end = sql.indexOf('\n', i);
+        return end < 0 ? sql.length() : end + 1;
+    }
+
+    /**
+     * @return 结束引号的下一个位置, 未闭合时返回 sql.length() + 1
+     */
+    private static int skipQuoted(String sql, int i, char quote) {
+        int length = sql.length();
+        int j = i + 1;
+        while (j < length) {
+            char ch = sql.charAt(j);
+            if (ch == '\\' && quote == '\'') {
+                j += 2;
+            } else if (ch == quote) {
+                if (j + 1 < length && sql.charAt(j + 1) == quote) {
+                    j += 2;
+                } else {
+                    return j + 1;
+                }
+            } else {
+                j++;
+            }
+        }
+        return length + 1;
+    }
+
+    private static boolean isIdentifierPart(char ch) {
+        return ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || ch >= '0' && ch <= '9' || ch == '_' || ch == '$'
+               || ch > 0x7f;
+    }
+}
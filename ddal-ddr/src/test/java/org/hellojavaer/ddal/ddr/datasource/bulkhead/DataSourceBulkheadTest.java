@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.bulkhead;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.exception.DataSourceBulkheadRejectedException;
+import org.junit.Test;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 22/09/2017.
+ */
+public class DataSourceBulkheadTest {
+
+    @Test
+    public void rejectWhenQueueIsFull() {
+        DataSourceBulkhead bulkhead = new DataSourceBulkhead("ds", new DataSourceBulkheadConfig(2, 0, 10));
+        bulkhead.acquire(BulkheadPriority.NORMAL);
+        bulkhead.acquire(BulkheadPriority.NORMAL);
+        Assert.equals(bulkhead.getActiveCount(), 2);
+        try {
+            bulkhead.acquire(BulkheadPriority.HIGH);
+            throw new Error();
+        } catch (DataSourceBulkheadRejectedException e) {
+            // ok
+        }
+        Assert.equals(bulkhead.getRejectedCount(), 1L);
+        bulkhead.release();
+        bulkhead.acquire(BulkheadPriority.LOW);
+        Assert.equals(bulkhead.getActiveCount(), 2);
+    }
+
+    @Test
+    public void shedByPriority() {
+        DataSourceBulkhead bulkhead = new DataSourceBulkhead("ds", new DataSourceBulkheadConfig(1, 1, 1, 200));
+        bulkhead.acquire(BulkheadPriority.NORMAL);
+        // LOW never waits and NORMAL can't use the reserved place
+        for (BulkheadPriority priority : new BulkheadPriority[] { BulkheadPriority.LOW, BulkheadPriority.NORMAL }) {
+            long start = System.currentTimeMillis();
+            try {
+                bulkhead.acquire(priority);
+                throw new Error();
+            } catch (DataSourceBulkheadRejectedException e) {
+                Assert.isTrue(System.currentTimeMillis() - start < 100);
+            }
+        }
+        // HIGH waits for maxWaitMillis and then times out
+        try {
+            bulkhead.acquire(BulkheadPriority.HIGH);
+            throw new Error();
+        } catch (DataSourceBulkheadRejectedException e) {
+            // ok
+        }
+        Assert.equals(bulkhead.getWaitingCount(), 0);
+        Assert.equals(bulkhead.getRejectedCount(), 3L);
+    }
+
+    @Test
+    public void threadPriority() {
+        Assert.equals(BulkheadPriority.get(), BulkheadPriority.NORMAL);
+        BulkheadPriority.set(BulkheadPriority.LOW);
+        Assert.equals(BulkheadPriority.get(), BulkheadPriority.LOW);
+        BulkheadPriority.clear();
+        Assert.equals(BulkheadPriority.get(), BulkheadPriority.NORMAL);
+    }
+}
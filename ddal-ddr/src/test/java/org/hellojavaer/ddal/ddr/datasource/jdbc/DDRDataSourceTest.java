@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.bulkhead.DataSourceBulkheadConfig;
+import org.hellojavaer.ddal.ddr.datasource.exception.CrossDataSourceException;
+import org.hellojavaer.ddal.ddr.datasource.exception.StatementInitializationException;
+import org.hellojavaer.ddal.ddr.datasource.manager.SingleDataSourceManager;
+import org.hellojavaer.ddal.ddr.shard.ShardParser;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class DDRDataSourceTest {
+
+    @Test
+    public void rollbackAfterCommitFailed() throws SQLException {
+        final List<String> invocations = new ArrayList<String>();
+        DataSource dataSource = mockDataSource(invocations, "commit");
+        DefaultDDRDataSource ddrDataSource = new DefaultDDRDataSource(new SingleDataSourceManager(dataSource), null);
+        ddrDataSource.setDefaultBulkheadConfig(new DataSourceBulkheadConfig(1, 0, 0));
+        Connection connection = ddrDataSource.getConnection();
+        connection.setAutoCommit(false);
+        connection.createStatement().executeUpdate("update user set name = 'allen' where id = 1");
+        Assert.equals(ddrDataSource.getBulkheads().iterator().next().getActiveCount(), 1);
+        try {
+            connection.commit();
+            throw new Error();
+        } catch (SQLException e) {
+            // ok
+        }
+        // 提交失败时物理连接仍然保留, 以便回滚
+        Assert.isTrue(!invocations.contains("close"));
+        Assert.equals(ddrDataSource.getBulkheads().iterator().next().getActiveCount(), 1);
+        connection.rollback();
+        Assert.isTrue(invocations.indexOf("rollback") >= 0
+                      && invocations.indexOf("rollback") < invocations.indexOf("close"));
+        Assert.equals(ddrDataSource.getBulkheads().iterator().next().getActiveCount(), 0);
+        connection.close();
+        // 许可只归还一次
+        Assert.equals(ddrDataSource.getBulkheads().iterator().next().getActiveCount(), 0);
+        Assert.equals(invocations.lastIndexOf("close"), invocations.indexOf("close"));
+    }
+
+    @Test
+    public void releaseBulkheadWhenCloseFailed() throws SQLException {
+        final List<String> invocations = new ArrayList<String>();
+        DataSource dataSource = mockDataSource(invocations, "close");
+        DefaultDDRDataSource ddrDataSource = new DefaultDDRDataSource(new SingleDataSourceManager(dataSource), null);
+        ddrDataSource.setDefaultBulkheadConfig(new DataSourceBulkheadConfig(1, 0, 0));
+        Connection connection = ddrDataSource.getConnection();
+        connection.createStatement().executeUpdate("update user set name = 'allen' where id = 1");
+        Assert.equals(ddrDataSource.getBulkheads().iterator().next().getActiveCount(), 1);
+        try {
+            connection.close();
+            throw new Error();
+        } catch (SQLException e) {
+            // ok
+        }
+        // 物理连接关闭失败时许可仍然归还
+        Assert.equals(ddrDataSource.getBulkheads().iterator().next().getActiveCount(), 0);
+        connection.close();
+        Assert.equals(invocations.lastIndexOf("close"), invocations.indexOf("close"));
+    }
+
+    @Test
+    public void rejectFanOutInTransaction() throws SQLException {
+        final List<String> invocations = new ArrayList<String>();
+        DataSource dataSource = mockDataSource(invocations, null);
+        ShardParser shardParser = new ShardParser() {
+
+            @Override
+            public SQLParsedResult parse(String sql, Map<Object, Object> jdbcParams) {
+                List<SQLParsedResult> subResults = new ArrayList<SQLParsedResult>();
+                for (int i = 0; i < 2; i++) {
+                    SQLParsedResult subResult = new SQLParsedResult();
+                    subResult.setSql(sql.replace("user", "user_" + i));
+                    subResult.setSchemas(Collections.singleton("db"));
+                    subResults.add(subResult);
+                }
+                SQLParsedResult parsedResult = new SQLParsedResult();
+                parsedResult.setSql(sql);
+                parsedResult.setSchemas(Collections.singleton("db"));
+                parsedResult.setSubResults(subResults);
+                return parsedResult;
+            }
+        };
+        DefaultDDRDataSource ddrDataSource = new DefaultDDRDataSource(new SingleDataSourceManager(dataSource),
+                                                                      shardParser);
+        Connection connection = ddrDataSource.getConnection();
+        connection.setReadOnly(true);
+        connection.setAutoCommit(false);
+        // 独占的物理连接不在事务中, 只读的扇出语句也不允许
+        try {
+            connection.createStatement().executeQuery("select * from user");
+            throw new Error();
+        } catch (StatementInitializationException e) {
+            Assert.isTrue(e.getCause() instanceof CrossDataSourceException);
+        }
+        Assert.isTrue(!invocations.contains("createStatement"));
+        connection.close();
+    }
+
+    /**
+     * @param failOn 调用时抛出SQLException的Connection方法名, 可以为null
+     */
+    static DataSource mockDataSource(List<String> invocations, String failOn) {
+        Statement statement = mock(Statement.class, new MockHandler(null, null, null));
+        Connection connection = mock(Connection.class, new MockHandler(statement, invocations, failOn));
+        return mock(DataSource.class, new MockHandler(connection, null, null));
+    }
+
+    private static <T> T mock(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class[] { type }, handler));
+    }
+
+    /**
+     * DataSource.getConnection返回connection, Connection.createStatement返回statement, 其他方法返回默认值
+     */
+    private static class MockHandler implements InvocationHandler {
+
+        private Object       child;
+        private List<String> invocations;
+        private String       failOn;
+
+        private MockHandler(Object child, List<String> invocations, String failOn) {
+            this.child = child;
+            this.invocations = invocations;
+            this.failOn = failOn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (invocations != null) {
+                invocations.add(method.getName());
+            }
+            if (method.getName().equals(failOn)) {
+                throw new SQLException(failOn + " failed");
+            }
+            if ("getConnection".equals(method.getName()) || "createStatement".equals(method.getName())) {
+                return child;
+            }
+            Class<?> type = method.getReturnType();
+            if (type == boolean.class) {
+                return false;
+            } else if (type == int.class) {
+                return 0;
+            } else if (type == long.class) {
+                return 0L;
+            } else {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.fanout;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class FanOutExecutorTest {
+
+    @Test
+    public void callerRunsWhenPoolIsFull() throws SQLException {
+        FanOutExecutor executor = new FanOutExecutor();
+        executor.setPoolSize(1);
+        executor.setQueueSize(0);
+        List<FanOutTask<String>> tasks = new ArrayList<FanOutTask<String>>();
+        for (int i = 0; i < 2; i++) {
+            final long sleepMillis = i == 0 ? 300 : 0;
+            tasks.add(new FanOutTask<String>(null) {
+
+                @Override
+                public String call() throws SQLException {
+                    try {
+                        Thread.sleep(sleepMillis);
+                    } catch (InterruptedException e) {
+                        throw new SQLException(e);
+                    }
+                    return Thread.currentThread().getName();
+                }
+            });
+        }
+        List<String> results = executor.execute(tasks, null);
+        Assert.equals(results.size(), 2);
+        // 唯一的线程忙碌且没有等待队列时由调用线程执行子语句
+        Assert.equals(results.get(0), "ddal-fan-out-1");
+        Assert.equals(results.get(1), Thread.currentThread().getName());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.fanout;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.sqlparse.ResultMergeInfo;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class MergedResultSetTest {
+
+    @Test
+    public void mergeInOrder() throws SQLException {
+        MergedResultSet rs = new MergedResultSet(null, Arrays.asList(buildResultSet(3, 1), buildResultSet(),
+                                                                     buildResultSet(2)), null);
+        Assert.equals(read(rs), Arrays.<Object> asList(3, 1, 2));
+    }
+
+    @Test
+    public void mergeSorted() throws SQLException {
+        ResultMergeInfo mergeInfo = new ResultMergeInfo(Arrays.asList(new ResultMergeInfo.OrderByItem("id", false)),
+                                                        4L);
+        MergedResultSet rs = new MergedResultSet(null, Arrays.asList(buildResultSet(9, 5, 1), buildResultSet(8L, 2L),
+                                                                     buildResultSet(7, null)), mergeInfo);
+        // Integer和Long混合比较, limit后只返回前4行
+        Assert.equals(read(rs), Arrays.<Object> asList(9, 8L, 7, 5));
+    }
+
+    private static List<Object> read(ResultSet rs) throws SQLException {
+        List<Object> list = new ArrayList<Object>();
+        while (rs.next()) {
+            list.add(rs.getObject("id"));
+        }
+        rs.close();
+        return list;
+    }
+
+    /**
+     * 只有一列'id'的结果集
+     */
+    private static ResultSet buildResultSet(final Object... values) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class[] { ResultSet.class },
+                                                  new InvocationHandler() {
+
+                                                      private int row = -1;
+
+                                                      @Override
+                                                      public Object invoke(Object proxy, Method method, Object[] args)
+                                                                                                                      throws Throwable {
+                                                          String name = method.getName();
+                                                          if ("next".equals(name)) {
+                                                              return ++row < values.length;
+                                                          } else if ("findColumn".equals(name)) {
+                                                              return 1;
+                                                          } else if ("getObject".equals(name)) {
+                                                              return values[row];
+                                                          } else if ("close".equals(name)) {
+                                                              return null;
+                                                          }
+                                                          throw new UnsupportedOperationException(name);
+                                                      }
+                                                  });
+    }
+}
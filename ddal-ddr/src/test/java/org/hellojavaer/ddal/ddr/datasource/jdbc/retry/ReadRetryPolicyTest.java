@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.jdbc.retry;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTimeoutException;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 20/09/2017.
+ */
+public class ReadRetryPolicyTest {
+
+    @Test
+    public void isRetryable() {
+        ReadRetryPolicy policy = new ReadRetryPolicy();
+        Assert.isTrue(policy.isRetryable(new SQLRecoverableException("Communications link failure")));
+        Assert.isTrue(policy.isRetryable(new SQLNonTransientConnectionException("connection refused")));
+        Assert.isTrue(policy.isRetryable(new SQLException("connection reset", "08S01")));
+        Assert.isTrue(!policy.isRetryable(new SQLTimeoutException("query timeout")));
+        Assert.isTrue(!policy.isRetryable(new SQLSyntaxErrorException("bad sql", "42000")));
+        Assert.isTrue(!policy.isRetryable(new SQLException("duplicate key", "23000")));
+    }
+
+    @Test
+    public void budget() {
+        ReadRetryPolicy policy = new ReadRetryPolicy(1, 0.1d, 2);
+        // minRetriesPerSecond
+        Assert.isTrue(policy.tryAcquireRetry());
+        Assert.isTrue(policy.tryAcquireRetry());
+        Assert.isTrue(!policy.tryAcquireRetry());
+        // 10% of requests
+        for (int i = 0; i < 50; i++) {
+            policy.recordRequest();
+        }
+        Assert.isTrue(policy.tryAcquireRetry());
+        Assert.isTrue(policy.tryAcquireRetry());
+        Assert.isTrue(policy.tryAcquireRetry());
+        Assert.isTrue(!policy.tryAcquireRetry());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.datasource.manager.rw;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.datasource.WeightedDataSource;
+import org.hellojavaer.ddal.ddr.datasource.jdbc.DataSourceWrapper;
+import org.hellojavaer.ddal.ddr.datasource.manager.DataSourceParam;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class DefaultReadWriteDataSourceManagerTest {
+
+    private static DataSource mockDataSource(final String name) {
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class[] { DataSource.class },
+                                                   new InvocationHandler() {
+
+                                                       @Override
+                                                       public Object invoke(Object proxy, Method method, Object[] args) {
+                                                           if ("toString".equals(method.getName())) {
+                                                               return name;
+                                                           } else if ("hashCode".equals(method.getName())) {
+                                                               return System.identityHashCode(proxy);
+                                                           } else if ("equals".equals(method.getName())) {
+                                                               return proxy == args[0];
+                                                           }
+                                                           return null;
+                                                       }
+                                                   });
+    }
+
+    private static List<ReadOnlyDataSourceBinding> buildReadOnlyDataSources(List<DataSource> dataSources) {
+        List<WeightedDataSource> list = new ArrayList<WeightedDataSource>();
+        for (DataSource dataSource : dataSources) {
+            list.add(new WeightedDataSource(dataSource, 1, dataSource.toString()));
+        }
+        return Collections.singletonList(new ReadOnlyDataSourceBinding("db", list));
+    }
+
+    private static DataSourceParam buildReadParam(Map<String, DataSourceWrapper> stickyDataSources) {
+        DataSourceParam param = new DataSourceParam();
+        param.setScNames(Collections.singleton("db"));
+        param.setReadOnly(true);
+        param.setStickyDataSources(stickyDataSources);
+        return param;
+    }
+
+    @Test
+    public void stickyReadOnlyDataSource() {
+        List<DataSource> dataSources = Arrays.asList(mockDataSource("ds0"), mockDataSource("ds1"),
+                                                     mockDataSource("ds2"));
+        DefaultReadWriteDataSourceManager manager = new DefaultReadWriteDataSourceManager(buildReadOnlyDataSources(dataSources),
+                                                                                          null, null, null);
+        // 同一个逻辑连接中的读操作使用同一个只读数据源
+        Map<String, DataSourceWrapper> stickyDataSources = new HashMap<String, DataSourceWrapper>();
+        DataSource pinned = manager.getDataSource(buildReadParam(stickyDataSources)).getDataSource();
+        for (int i = 0; i < 50; i++) {
+            Assert.isTrue(manager.getDataSource(buildReadParam(stickyDataSources)).getDataSource() == pinned);
+        }
+        Assert.isTrue(stickyDataSources.get("db").getDataSource() == pinned);
+        // 不同的逻辑连接各自选择
+        Set<DataSource> chosen = Collections.newSetFromMap(new IdentityHashMap<DataSource, Boolean>());
+        for (int i = 0; i < 50; i++) {
+            chosen.add(manager.getDataSource(buildReadParam(new HashMap<String, DataSourceWrapper>())).getDataSource());
+        }
+        Assert.isTrue(chosen.size() > 1);
+    }
+
+    @Test
+    public void repinWhenOfflineOrRemoved() {
+        List<DataSource> dataSources = Arrays.asList(mockDataSource("ds0"), mockDataSource("ds1"),
+                                                     mockDataSource("ds2"));
+        DefaultReadWriteDataSourceManager manager = new DefaultReadWriteDataSourceManager(buildReadOnlyDataSources(dataSources),
+                                                                                          null, null, null);
+        Map<String, DataSourceWrapper> stickyDataSources = new HashMap<String, DataSourceWrapper>();
+        DataSource pinned = manager.getDataSource(buildReadParam(stickyDataSources)).getDataSource();
+        // 绑定的只读数据源被下线后重新选择并绑定
+        manager.getReadOnlyDataSourceMonitor().setWeight("db", dataSources.indexOf(pinned), 0);
+        DataSource repinned = manager.getDataSource(buildReadParam(stickyDataSources)).getDataSource();
+        Assert.isTrue(repinned != pinned);
+        Assert.isTrue(stickyDataSources.get("db").getDataSource() == repinned);
+        for (int i = 0; i < 50; i++) {
+            Assert.isTrue(manager.getDataSource(buildReadParam(stickyDataSources)).getDataSource() == repinned);
+        }
+        // 绑定的只读数据源被移除后重新选择并绑定
+        List<DataSource> remained = new ArrayList<DataSource>(dataSources);
+        remained.remove(repinned);
+        manager.setReadOnlyDataSources(buildReadOnlyDataSources(remained));
+        DataSource last = manager.getDataSource(buildReadParam(stickyDataSources)).getDataSource();
+        Assert.isTrue(last != repinned && remained.contains(last));
+        for (int i = 0; i < 50; i++) {
+            Assert.isTrue(manager.getDataSource(buildReadParam(stickyDataSources)).getDataSource() == last);
+        }
+    }
+}
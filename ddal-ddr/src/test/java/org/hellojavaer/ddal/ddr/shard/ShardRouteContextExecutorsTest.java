@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.*;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class ShardRouteContextExecutorsTest {
+
+    @Test
+    public void snapshot() {
+        ShardRouteContext.clearContext();
+        try {
+            ShardRouteContext.setRouteInfo("sc", 1);
+            ShardRouteContext.pushContext();
+            ShardRouteContext.setRouteInfo("sc", "tb", 2);
+            ShardRouteContext.setDeadline(100L);
+            ShardRouteContext.Snapshot snapshot = ShardRouteContext.snapshot();
+            // 快照不受之后修改的影响
+            ShardRouteContext.setRouteInfo("sc", "tb", 3);
+            ShardRouteContext.popContext();
+            ShardRouteContext.clearContext();
+
+            ShardRouteContext.setRouteInfo("sc_01", "tb", 4);
+            ShardRouteContext.Snapshot backup = ShardRouteContext.replay(snapshot);
+            Assert.equals(ShardRouteContext.getRouteInfo("sc", "tb"), 2);
+            Assert.equals(ShardRouteContext.getRouteInfo("sc", "other"), 1);
+            Assert.equals(ShardRouteContext.getDeadline(), 100L);
+            Assert.isTrue(ShardRouteContext.getRouteInfo("sc_01", "tb") == null);
+            ShardRouteContext.popContext();
+            ShardRouteContext.restore(backup);
+            Assert.equals(ShardRouteContext.getRouteInfo("sc_01", "tb"), 4);
+            Assert.isTrue(ShardRouteContext.getRouteInfo("sc", "tb") == null);
+            Assert.isTrue(ShardRouteContext.getDeadline() == null);
+        } finally {
+            ShardRouteContext.clearContext();
+        }
+    }
+
+    @Test
+    public void executor() throws Exception {
+        ExecutorService executorService = ShardRouteContextExecutors.wrap(Executors.newSingleThreadExecutor());
+        ShardRouteContext.clearContext();
+        try {
+            Callable<Object> callable = new Callable<Object>() {
+
+                @Override
+                public Object call() throws Exception {
+                    return ShardRouteContext.getRouteInfo("sc", "tb");
+                }
+            };
+            ShardRouteContext.setRouteInfo("sc", "tb", 5);
+            Assert.equals(executorService.submit(callable).get(), 5);
+            ShardRouteContext.setRouteInfo("sc", "tb", 6);
+            Assert.equals(executorService.invokeAll(Collections.singletonList(callable)).get(0).get(), 6);
+            // 执行线程的上下文在任务结束后被还原
+            ShardRouteContext.clearContext();
+            Assert.isTrue(executorService.submit(callable).get() == null);
+        } finally {
+            ShardRouteContext.clearContext();
+            executorService.shutdown();
+            executorService.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void scheduledWithoutDeadline() throws Exception {
+        ScheduledExecutorService executorService = ShardRouteContextExecutors.wrap(Executors
+                                                                               .newSingleThreadScheduledExecutor());
+        ShardRouteContext.clearContext();
+        try {
+            final BlockingQueue<Object[]> queue = new LinkedBlockingQueue<Object[]>();
+            ShardRouteContext.setRouteInfo("sc", "tb", 7);
+            ShardRouteContext.setTimeout(1000);
+            ScheduledFuture<?> future = executorService.scheduleAtFixedRate(new Runnable() {
+
+                @Override
+                public void run() {
+                    queue.add(new Object[] { ShardRouteContext.getRouteInfo("sc", "tb"),
+                            ShardRouteContext.getDeadline() });
+                }
+            }, 0, 10, TimeUnit.MILLISECONDS);
+            try {
+                for (int i = 0; i < 3; i++) {
+                    Object[] item = queue.poll(1, TimeUnit.SECONDS);
+                    Assert.equals(item[0], 7);
+                    // 周期任务不继承提交时的截止时间
+                    Assert.isTrue(item[1] == null);
+                }
+            } finally {
+                future.cancel(false);
+            }
+            Callable<Long> callable = new Callable<Long>() {
+
+                @Override
+                public Long call() throws Exception {
+                    return ShardRouteContext.getDeadline();
+                }
+            };
+            Assert.isTrue(executorService.schedule(callable, 1, TimeUnit.MILLISECONDS).get() == null);
+            Assert.equals(executorService.submit(callable).get(), ShardRouteContext.getDeadline());
+        } finally {
+            ShardRouteContext.clearContext();
+            executorService.shutdown();
+            executorService.awaitTermination(1, TimeUnit.SECONDS);
+        }
+    }
+}
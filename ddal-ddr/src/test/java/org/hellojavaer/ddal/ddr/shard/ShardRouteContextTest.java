@@ -33,11 +33,11 @@ public class ShardRouteContextTest {
         ShardRouteContext.clearContext();
         try {
             ShardRouteContext.setRouteInfo("sc", "tb", 2);
-            Assert.isTrue(ShardRouteContext.getRouteInfo("sc", "tb") == 2);
-            Assert.isTrue(ShardRouteContext.getRouteInfo(null, "tb") == 2);
+            Assert.equals(ShardRouteContext.getRouteInfo("sc", "tb"), 2);
+            Assert.equals(ShardRouteContext.getRouteInfo(null, "tb"), 2);
             Assert.isTrue(ShardRouteContext.containsRouteInfo("sc", "tb"));
 
-            Assert.isTrue(ShardRouteContext.removeRouteInfo("sc", "tb") == 2);
+            Assert.equals(ShardRouteContext.removeRouteInfo("sc", "tb"), 2);
             Assert.isTrue(ShardRouteContext.getRouteInfo("sc", "tb") == null);
             Assert.isTrue(ShardRouteContext.getRouteInfo(null, "tb") == null);
             Assert.isTrue(ShardRouteContext.containsRouteInfo("sc", "tb") == false);
@@ -56,17 +56,17 @@ public class ShardRouteContextTest {
             ShardRouteContext.setRouteInfo("sc_00", "tb", 2);
             ShardRouteContext.setRouteInfo("sc_01", "tb", 3);
             Assert.isTrue(ShardRouteContext.containsRouteInfo("sc_00", "tb"));
-            Assert.isTrue(ShardRouteContext.getRouteInfo("sc_00", "tb") == 2);
+            Assert.equals(ShardRouteContext.getRouteInfo("sc_00", "tb"), 2);
             Assert.isTrue(ShardRouteContext.containsRouteInfo("sc_01", "tb"));
-            Assert.isTrue(ShardRouteContext.getRouteInfo("sc_01", "tb") == 3);
+            Assert.equals(ShardRouteContext.getRouteInfo("sc_01", "tb"), 3);
             try {
                 ShardRouteContext.getRouteInfo(null, "tb");
                 throw new Error();
             } catch (AmbiguousDataSourceBindingException e) {
             }
             //
-            Assert.isTrue(ShardRouteContext.removeRouteInfo("sc_00", "tb") == 2);
-            Assert.isTrue(ShardRouteContext.getRouteInfo(null, "tb") == 3);
+            Assert.equals(ShardRouteContext.removeRouteInfo("sc_00", "tb"), 2);
+            Assert.equals(ShardRouteContext.getRouteInfo(null, "tb"), 3);
         } finally {
             ShardRouteContext.clearContext();
         }
@@ -81,13 +81,13 @@ public class ShardRouteContextTest {
         try {
             // add
             ShardRouteContext.setRouteInfo("sc", 2);
-            Assert.isTrue(ShardRouteContext.getRouteInfo("sc") == 2);
+            Assert.equals(ShardRouteContext.getRouteInfo("sc"), 2);
             Assert.isTrue(ShardRouteContext.containsRouteInfo("sc"));
-            Assert.isTrue(ShardRouteContext.getRouteInfo("sc", "anything") == 2);
+            Assert.equals(ShardRouteContext.getRouteInfo("sc", "anything"), 2);
             Assert.isTrue(ShardRouteContext.containsRouteInfo("sc", "anything") == false);
 
             // remove
-            Assert.isTrue(ShardRouteContext.removeRouteInfo("sc") == 2);
+            Assert.equals(ShardRouteContext.removeRouteInfo("sc"), 2);
             Assert.isTrue(ShardRouteContext.getRouteInfo("sc") == null);
             Assert.isTrue(ShardRouteContext.containsRouteInfo("sc") == false);
             Assert.isTrue(ShardRouteContext.getRouteInfo("sc", "anything") == null);
@@ -107,23 +107,23 @@ public class ShardRouteContextTest {
             // 继承
             ShardRouteContext.setRouteInfo("sc", "tb", 2);
             ShardRouteContext.pushContext();
-            Assert.isTrue(ShardRouteContext.getRouteInfo("sc", "tb") == 2);
-            Assert.isTrue(ShardRouteContext.getRouteInfo(null, "tb") == 2);
+            Assert.equals(ShardRouteContext.getRouteInfo("sc", "tb"), 2);
+            Assert.equals(ShardRouteContext.getRouteInfo(null, "tb"), 2);
             Assert.isTrue(ShardRouteContext.containsRouteInfo("sc", "tb") == false);
             ShardRouteContext.setRouteInfo("sc_01", "tb", 3);
-            Assert.isTrue(ShardRouteContext.getRouteInfo("sc", "tb") == 2);
-            Assert.isTrue(ShardRouteContext.getRouteInfo(null, "tb") == 3);
+            Assert.equals(ShardRouteContext.getRouteInfo("sc", "tb"), 2);
+            Assert.equals(ShardRouteContext.getRouteInfo(null, "tb"), 3);
 
             // 删除上一级context内容测试
             Assert.isTrue(ShardRouteContext.removeRouteInfo("sc", "tb") == null);
 
             // 覆盖测试
             ShardRouteContext.setRouteInfo("sc", "tb", null);
-            Assert.isTrue(ShardRouteContext.removeRouteInfo("sc_01", "tb") == 3);
+            Assert.equals(ShardRouteContext.removeRouteInfo("sc_01", "tb"), 3);
             Assert.isTrue(ShardRouteContext.getRouteInfo(null, "tb") == null);
 
             ShardRouteContext.popContext();
-            Assert.isTrue(ShardRouteContext.removeRouteInfo("sc", "tb") == 2);
+            Assert.equals(ShardRouteContext.removeRouteInfo("sc", "tb"), 2);
         } finally {
             ShardRouteContext.clearContext();
         }
@@ -140,17 +140,17 @@ public class ShardRouteContextTest {
             ShardRouteContext.setRouteInfo("sc", 1);
 
             ShardRouteContext.pushContext();
-            Assert.isTrue(ShardRouteContext.getRouteInfo("sc", "tb") == 1);
+            Assert.equals(ShardRouteContext.getRouteInfo("sc", "tb"), 1);
             Assert.isTrue(ShardRouteContext.containsRouteInfo("sc", "tb") == false);
             Assert.isTrue(ShardRouteContext.containsRouteInfo("sc") == false);
 
             ShardRouteContext.setRouteInfo("sc", "tb", 2);
-            Assert.isTrue(ShardRouteContext.getRouteInfo("sc", "tb") == 2);
+            Assert.equals(ShardRouteContext.getRouteInfo("sc", "tb"), 2);
             Assert.isTrue(ShardRouteContext.containsRouteInfo("sc", "tb") == true);
             Assert.isTrue(ShardRouteContext.containsRouteInfo("sc") == false);
 
             ShardRouteContext.popContext();
-            Assert.isTrue(ShardRouteContext.removeRouteInfo("sc") == 1);
+            Assert.equals(ShardRouteContext.removeRouteInfo("sc"), 1);
         } finally {
             ShardRouteContext.clearContext();
         }
@@ -178,4 +178,59 @@ public class ShardRouteContextTest {
         } catch (IndexOutOfBoundsException e) {
         }
     }
+
+    @Test
+    public void key() {
+        ShardRouteContext.Key key = ShardRouteContext.key(" SC ", "Tb");
+        Assert.isTrue(key == ShardRouteContext.key("sc", "tb"));
+        Assert.isTrue(key == ShardRouteContext.key(" SC ", "Tb"));
+        Assert.equals(key.toString(), "sc.tb");
+        Assert.isTrue(ShardRouteContext.key(null, "tb") == ShardRouteContext.key(" ", "TB"));
+        Assert.isTrue(ShardRouteContext.key("Sc") == ShardRouteContext.key("sc"));
+        try {
+            ShardRouteContext.key("sc", " ");
+            throw new Error();
+        } catch (IllegalArgumentException e) {
+        }
+        ShardRouteContext.clearContext();
+        try {
+            ShardRouteContext.setRouteInfo(key, 5);
+            Assert.equals(ShardRouteContext.getRouteInfo("SC", "tb"), 5);
+            Assert.equals(ShardRouteContext.getRouteInfo(ShardRouteContext.key(null, "tb")), 5);
+            try {
+                ShardRouteContext.setRouteInfo(ShardRouteContext.key(null, "tb"), 1);
+                throw new Error();
+            } catch (IllegalArgumentException e) {
+            }
+        } finally {
+            ShardRouteContext.clearContext();
+        }
+    }
+
+    /**
+     * 弹出的上下文被复用时不能残留路由信息和截止时间
+     */
+    @Test
+    public void reuse() {
+        ShardRouteContext.clearContext();
+        try {
+            for (int i = 0; i < 3; i++) {
+                ShardRouteContext.pushContext();
+                Assert.isTrue(ShardRouteContext.containsRouteInfo("sc", "tb") == false);
+                Assert.isTrue(ShardRouteContext.getDeadline() == null);
+                for (int j = 0; j < 10; j++) {
+                    ShardRouteContext.setRouteInfo("sc_" + j, "tb", j);
+                }
+                ShardRouteContext.setRouteInfo("sc", "tb", i);
+                ShardRouteContext.setDeadline(100L + i);
+                Assert.equals(ShardRouteContext.getRouteInfo("sc", "tb"), i);
+                Assert.equals(ShardRouteContext.getRouteInfo("sc_9", "tb"), 9);
+                Assert.equals(ShardRouteContext.getDeadline(), 100L + i);
+                ShardRouteContext.popContext();
+            }
+            Assert.isTrue(ShardRouteContext.getRouteInfo("sc", "tb") == null);
+        } finally {
+            ShardRouteContext.clearContext();
+        }
+    }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.RangeShardValue;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class CompiledRouteRuleExpressionTest {
+
+    @Test
+    public void compile() {
+        Assert.isTrue(CompiledRouteRuleExpression.compile("{scName}_{format('%02d', sdValue % 4)}") != null);
+        Assert.isTrue(CompiledRouteRuleExpression.compile("{tbName}_{#format('%04d', sdValue.hashCode() % 128)}") != null);
+        Assert.isTrue(CompiledRouteRuleExpression.compile("{ tbName }_{sdValue%8}") != null);
+        Assert.isTrue(CompiledRouteRuleExpression.compile("{scName}_{sdValue / 8 % 4}") != null);
+        Assert.isTrue(CompiledRouteRuleExpression.compile("{scName}_{sdValue % 4 / 8}") == null);
+        Assert.isTrue(CompiledRouteRuleExpression.compile("{scName}_{sdValue / 0}") == null);
+        Assert.isTrue(CompiledRouteRuleExpression.compile("{scName}_{abs(sdValue) % 8}") == null);
+        Assert.isTrue(CompiledRouteRuleExpression.compile("{scName}_{sdValue % 0}") == null);
+        Assert.isTrue(CompiledRouteRuleExpression.compile("{tbName}}") == null);
+    }
+
+    @Test
+    public void getValue() {
+        CompiledRouteRuleExpression expression = CompiledRouteRuleExpression.compile("{tbName}_{format('%04d', sdValue % 128)}");
+        Assert.equals(expression.getValue(null, "user", 130), "user_0002");
+        Assert.equals(expression.getValue(null, "user", 130L), "user_0002");
+        Assert.equals(expression.getValue(null, "user", (short) 130), "user_0002");
+        Assert.equals(expression.getValue(null, "user", -130), "user_-002");
+        // 不确定与SpEL一致的情况交给SpEL求值
+        Assert.isTrue(expression.getValue(null, "user", "130") == null);
+        Assert.isTrue(expression.getValue(null, "user", new BigDecimal(130)) == null);
+        Assert.isTrue(expression.getValue(null, null, 130) == null);
+
+        expression = CompiledRouteRuleExpression.compile("{scName}_{sdValue.hashCode() % 4}");
+        Assert.equals(expression.getValue("db", null, "abc"), "db_" + "abc".hashCode() % 4);
+    }
+
+    /**
+     * 编译后的结果与SpEL求值结果一致(RangeShardValue使用SpEL求值)
+     */
+    @Test
+    public void sameAsSpel() {
+        String[] rules = { "{scName}_{format('%02d', sdValue % 8)}", "{scName}_{#format('%x', sdValue % 32)}",
+                "{scName}_{sdValue.hashCode() % 16}", "{scName}_{format('%03d', sdValue)}", "{scName}{sdValue}",
+                "{scName}_{sdValue % 5000}", "{scName}_{sdValue / 100}", "{scName}_{format('%02d', sdValue / 16 % 8)}" };
+        for (String rule : rules) {
+            SpelShardRouteRule spelRule = new SpelShardRouteRule(rule, null);
+            for (long l = -300; l <= 300; l += 7) {
+                Assert.equals(spelRule.parseScName("db", l), spelRule.parseScName("db", new RangeShardValue(l, l)));
+            }
+            long l = Long.MAX_VALUE - 3;
+            Assert.equals(spelRule.parseScName("db", l), spelRule.parseScName("db", new RangeShardValue(l, l)));
+        }
+    }
+
+    @Test
+    public void period() {
+        CompiledRouteRuleExpression expression = CompiledRouteRuleExpression.compile("{tbName}_{format('%04d', sdValue % 128)}");
+        Assert.equals(expression.getBlockSize(), 1L);
+        Assert.equals(expression.getPeriod(), 128L);
+        expression = CompiledRouteRuleExpression.compile("{tbName}_{sdValue / 6 % 4}_{sdValue / 4 % 3}");
+        Assert.equals(expression.getBlockSize(), 2L);
+        Assert.equals(expression.getPeriod(), 24L);
+        expression = CompiledRouteRuleExpression.compile("{tbName}_{sdValue / 1000}");
+        Assert.equals(expression.getBlockSize(), 1000L);
+        Assert.equals(expression.getPeriod(), -1L);
+        expression = CompiledRouteRuleExpression.compile("{tbName}_01");
+        Assert.equals(expression.getBlockSize(), 0L);
+        Assert.equals(expression.getPeriod(), 1L);
+        expression = CompiledRouteRuleExpression.compile("{tbName}_{sdValue.hashCode() % 8}");
+        Assert.equals(expression.getBlockSize(), -1L);
+        Assert.equals(expression.getPeriod(), -1L);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class ConsistentHashShardRouteRuleTest {
+
+    @Test
+    public void parseName() {
+        ConsistentHashShardRouteRule rule = new ConsistentHashShardRouteRule(16, 8);
+        String tbName = rule.parseTbName("user", "allen");
+        Assert.isTrue(tbName.startsWith("user_"));
+        Assert.equals(new ConsistentHashShardRouteRule(16, 8).parseTbName("user", "allen"), tbName);
+        rule.setVirtualNodeCount(10);
+        Assert.isTrue(rule.parseTbName("user", "allen").startsWith("user_"));
+    }
+
+    @Test
+    public void balance() {
+        JumpHashShardRouteRuleTest.assertBalance(new ConsistentHashShardRouteRule(16, 8, 1000));
+    }
+
+    @Test
+    public void grow() {
+        JumpHashShardRouteRuleTest.assertGrow(new ConsistentHashShardRouteRule(16, null),
+                                              new ConsistentHashShardRouteRule(24, null));
+    }
+
+    @Test
+    public void groupSdValuesByRouteInfo() {
+        JumpHashShardRouteRuleTest.assertGroup(new ConsistentHashShardRouteRule(4, 4));
+    }
+}
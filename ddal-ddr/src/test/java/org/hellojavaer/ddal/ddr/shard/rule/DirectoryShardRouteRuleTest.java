@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.RangeShardValue;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.exception.CrossTableException;
+import org.hellojavaer.ddal.ddr.shard.exception.ShardValueNotFoundException;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class DirectoryShardRouteRuleTest {
+
+    @Test
+    public void parseName() throws Exception {
+        File file = File.createTempFile("ddal", ".directory");
+        file.deleteOnExit();
+        DirectoryShardRouteRule.write(file, new long[] { 5, 10, 11, 100 }, new long[] { 5, 10, 20, 199 },
+                                      new ShardRouteInfo[] { new ShardRouteInfo("db_09", "user_0099"),
+                                              new ShardRouteInfo("db_01", null), new ShardRouteInfo("db_01", null),
+                                              new ShardRouteInfo(null, "user_0001") });
+        DirectoryShardRouteRule rule = new DirectoryShardRouteRule(file.getAbsolutePath(),
+                                                                   new SpelShardRouteRule("{scName}_{sdValue % 4}",
+                                                                                          "{tbName}_{sdValue % 8}"));
+        // [10, 10]和[11, 20]合并为一个区间
+        Assert.equals(rule.size(), 3);
+        Assert.equals(rule.parseScName("db", 5L), "db_09");
+        Assert.equals(rule.parseTbName("user", 5), "user_0099");
+        Assert.equals(rule.parseScName("db", 15L), "db_01");
+        Assert.equals(rule.parseTbName("user", 15L), "user");
+        Assert.equals(rule.parseScName("db", 150L), "db");
+        Assert.equals(rule.parseTbName("user", (short) 150), "user_0001");
+        // 不在目录中的分片值
+        Assert.equals(rule.parseScName("db", 6L), "db_2");
+        Assert.equals(rule.parseTbName("user", 201L), "user_1");
+        Assert.equals(rule.parseScName("db", new RangeShardValue(12L, 20L)), "db_01");
+        try {
+            rule.parseScName("db", new RangeShardValue(4L, 5L));
+            throw new Error();
+        } catch (CrossTableException e) {
+            // ok
+        }
+        rule.setFallbackRule(null);
+        try {
+            rule.parseScName("db", 6L);
+            throw new Error();
+        } catch (ShardValueNotFoundException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void groupSdValuesByRouteInfo() throws Exception {
+        File file = File.createTempFile("ddal", ".directory");
+        file.deleteOnExit();
+        DirectoryShardRouteRule.write(file, new long[] { 5, 10 }, new long[] { 6, 19 },
+                                      new ShardRouteInfo[] { new ShardRouteInfo("db_09", "user_0099"),
+                                              new ShardRouteInfo("db_01", "user_0001") });
+        DirectoryShardRouteRule rule = new DirectoryShardRouteRule(file.getAbsolutePath(),
+                                                                   new DivideShardRouteRule(null, 10L));
+        Map<ShardRouteInfo, List<RangeShardValue>> map = rule.groupSdValuesByRouteInfo("db", "user",
+                                                                                       new RangeShardValue(3L, 25L));
+        Map<ShardRouteInfo, List<RangeShardValue>> r = new LinkedHashMap<>();
+        r.put(new ShardRouteInfo("db", "user_0"),
+              Arrays.asList(new RangeShardValue(3L, 4L), new RangeShardValue(7L, 9L)));
+        r.put(new ShardRouteInfo("db_09", "user_0099"), Arrays.asList(new RangeShardValue(5L, 6L)));
+        r.put(new ShardRouteInfo("db_01", "user_0001"), Arrays.asList(new RangeShardValue(10L, 19L)));
+        r.put(new ShardRouteInfo("db", "user_2"), Arrays.asList(new RangeShardValue(20L, 25L)));
+        Assert.equals(map, r);
+
+        r.clear();
+        r.put(new ShardRouteInfo("db_01", "user_0001"), Arrays.asList(new RangeShardValue(12L, 15L)));
+        Assert.equals(rule.groupSdValuesByRouteInfo("db", "user", new RangeShardValue(12L, 15L)), r);
+    }
+
+    @Test
+    public void reload() throws Exception {
+        File file = File.createTempFile("ddal", ".directory");
+        file.deleteOnExit();
+        DirectoryShardRouteRule.write(file, new long[] { 1 }, new long[] { 1 },
+                                      new ShardRouteInfo[] { new ShardRouteInfo("db_01", "user_01") });
+        DirectoryShardRouteRule rule = new DirectoryShardRouteRule(file.getAbsolutePath(), null);
+        Assert.equals(rule.parseScName("db", 1L), "db_01");
+        int n = 1000000;
+        long[] begins = new long[n];
+        ShardRouteInfo[] routeInfos = new ShardRouteInfo[n];
+        ShardRouteInfo[] targets = { new ShardRouteInfo("db_01", "user_01"), new ShardRouteInfo("db_02", "user_02") };
+        for (int i = 0; i < n; i++) {
+            begins[i] = i * 3L;
+            routeInfos[i] = targets[i % 2];
+        }
+        DirectoryShardRouteRule.write(file, begins, begins, routeInfos);
+        Assert.equals(rule.parseScName("db", 1L), "db_01");
+        rule.reload();
+        Assert.equals(rule.size(), n);
+        Assert.equals(rule.parseScName("db", 3L), "db_02");
+        Assert.equals(rule.parseTbName("user", 2999997L), "user_02");
+        try {
+            rule.parseScName("db", 1L);
+            throw new Error();
+        } catch (ShardValueNotFoundException e) {
+            // ok
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void reloadRebuildsRouteCache() throws Exception {
+        File file = File.createTempFile("ddal", ".directory");
+        file.deleteOnExit();
+        DirectoryShardRouteRule.write(file, new long[] { 5 }, new long[] { 5 },
+                                      new ShardRouteInfo[] { new ShardRouteInfo("db_01", "user_01") });
+        DirectoryShardRouteRule rule = new DirectoryShardRouteRule(file.getAbsolutePath(),
+                                                                   new SpelShardRouteRule("{scName}_00", "{tbName}_00"));
+        SimpleShardRouteRuleBinding binding = new SimpleShardRouteRuleBinding("db", "user", "id", rule, "[0..9]");
+        SimpleShardRouter router = new SimpleShardRouter(Arrays.asList(binding));
+        Assert.equals(router.getRouteInfo("db", "user", 5), new ShardRouteInfo("db_01", "user_01"));
+        Assert.isTrue(router.getRouteInfos("db", "user").contains(new ShardRouteInfo("db_01", "user_01")));
+        long lastModified = file.lastModified();
+        // 修改时间和文件大小都不变, 只有校验和变化
+        DirectoryShardRouteRule.write(file, new long[] { 5 }, new long[] { 5 },
+                                      new ShardRouteInfo[] { new ShardRouteInfo("db_02", "user_02") });
+        file.setLastModified(lastModified);
+        rule.setReloadIntervalSeconds(1);
+        rule.init();
+        try {
+            // sdValues中的分片值的路由结果是预先计算的, 重新加载后由路由器重新构建
+            while (!router.getRouteInfo("db", "user", 5).equals(new ShardRouteInfo("db_02", "user_02"))) {
+                Thread.sleep(50);
+            }
+            Assert.equals(router.getRouteInfo("db", "user", 5L), new ShardRouteInfo("db_02", "user_02"));
+            Assert.isTrue(router.getRouteInfos("db", "user").contains(new ShardRouteInfo("db_02", "user_02")));
+            Assert.isTrue(!router.getRouteInfos("db", "user").contains(new ShardRouteInfo("db_01", "user_01")));
+        } finally {
+            rule.destroy();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.RangeShardValue;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.exception.CrossTableException;
+import org.hellojavaer.ddal.ddr.shard.exception.UnsupportedShardValueTypeException;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class JumpHashShardRouteRuleTest {
+
+    @Test
+    public void parseName() {
+        JumpHashShardRouteRule rule = new JumpHashShardRouteRule(16, 8);
+        String scName = rule.parseScName("member", 10101L);
+        Assert.isTrue(scName.startsWith("member_"));
+        Assert.equals(rule.parseScName("member", 10101), scName);
+        Assert.equals(rule.parseScName("member", new RangeShardValue(10101L, 10101L)), scName);
+        Assert.isTrue(rule.parseTbName("user", "allen").startsWith("user_"));
+        Assert.equals(new JumpHashShardRouteRule(null, 8).parseScName("member", 10101L), "member");
+        try {
+            rule.parseScName("member", 1.5d);
+            throw new Error();
+        } catch (UnsupportedShardValueTypeException e) {
+            // ok
+        }
+        try {
+            rule.parseTbName("user", new RangeShardValue(0L, 100L));
+            throw new Error();
+        } catch (CrossTableException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void balance() {
+        assertBalance(new JumpHashShardRouteRule(16, 8));
+    }
+
+    /**
+     * 16个库扩容到24个库时约1/3的数据被移动, 且只移动到新增的库中
+     */
+    @Test
+    public void grow() {
+        assertGrow(new JumpHashShardRouteRule(16, null), new JumpHashShardRouteRule(24, null));
+    }
+
+    @Test
+    public void groupSdValuesByRouteInfo() {
+        assertGroup(new JumpHashShardRouteRule(4, 4));
+    }
+
+    static void assertBalance(ShardRouteRule rule) {
+        int[] counts = new int[16];
+        for (long l = 0; l < 160000; l++) {
+            String name = rule.parseScName("member", l);
+            counts[Integer.parseInt(name.substring("member_".length()))]++;
+        }
+        for (int count : counts) {
+            Assert.isTrue(count > 9000 && count < 11000, "count:" + count);
+        }
+    }
+
+    static void assertGrow(ShardRouteRule rule16, ShardRouteRule rule24) {
+        int moved = 0;
+        int total = 120000;
+        for (int i = 0; i < total; i++) {
+            Object sdValue = i % 2 == 0 ? (Object) (long) i : "user" + i;
+            String from = rule16.parseScName("member", sdValue);
+            String to = rule24.parseScName("member", sdValue);
+            if (!from.equals(to)) {
+                moved++;
+                Assert.isTrue(Integer.parseInt(to.substring("member_".length())) >= 16);
+            }
+        }
+        Assert.isTrue(moved > total * 0.28 && moved < total * 0.39, "moved:" + moved);
+    }
+
+    static void assertGroup(ShardRouteRule rule) {
+        Map<ShardRouteInfo, List<RangeShardValue>> map = rule.groupSdValuesByRouteInfo("member", "user",
+                                                                                       new RangeShardValue(100L,
+                                                                                                           1099L));
+        Assert.equals(map.size(), 16);
+        int count = 0;
+        for (Map.Entry<ShardRouteInfo, List<RangeShardValue>> entry : map.entrySet()) {
+            for (RangeShardValue rangeShardValue : entry.getValue()) {
+                for (long l = rangeShardValue.getBegin(); l <= rangeShardValue.getEnd(); l++) {
+                    Assert.equals(entry.getKey(),
+                                  new ShardRouteInfo(rule.parseScName("member", l), rule.parseTbName("user", l)));
+                    count++;
+                }
+            }
+        }
+        Assert.equals(count, 1000);
+    }
+}
@@ -18,6 +18,7 @@ package org.hellojavaer.ddal.ddr.shard.rule;
 import org.hellojavaer.ddal.core.utils.Assert;
 import org.hellojavaer.ddal.ddr.shard.RangeShardValue;
 import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.exception.OutOfRangeSizeLimitException;
 import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
 import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
 import org.junit.Test;
@@ -166,4 +167,79 @@ public class SpelShardRouteRuleTest {
         Assert.equals(map, r);
     }
 
+    /**
+     * 取模规则按周期直接分组, 结果与逐个求值(hashCode()不能按周期分组)一致
+     */
+    @Test
+    public void groupByPeriod() {
+        SpelShardRouteRule rule = new SpelShardRouteRule("{scName}_{format('%02d', sdValue % 4)}",
+                                                         "{tbName}_{format('%04d', sdValue % 16)}", 100);
+        SpelShardRouteRule hashCodeRule = new SpelShardRouteRule("{scName}_{format('%02d', sdValue.hashCode() % 4)}",
+                                                                 "{tbName}_{format('%04d', sdValue.hashCode() % 16)}");
+        long[][] ranges = { { 0, 31 }, { 5, 100 }, { 7, 9 }, { 17, 17 }, { 3, 18 } };
+        for (long[] range : ranges) {
+            RangeShardValue rangeShardValue = new RangeShardValue(range[0], range[1]);
+            Assert.equals(rule.groupSdValuesByRouteInfo("db", "user", rangeShardValue),
+                          hashCodeRule.groupSdValuesByRouteInfo("db", "user", rangeShardValue));
+        }
+        // 求值次数只与周期有关, 不受rangeSizeLimit限制
+        Map<ShardRouteInfo, List<RangeShardValue>> map = rule.groupSdValuesByRouteInfo("db", "user",
+                                                                                       new RangeShardValue(3L,
+                                                                                                           10000002L));
+        Assert.equals(map.size(), 16);
+        List<RangeShardValue> list = map.get(new ShardRouteInfo("db_03", "user_0003"));
+        Assert.equals(list.size(), 625000);
+        Assert.equals(list.get(0), new RangeShardValue(3L, 3L));
+        Assert.equals(list.get(624999), new RangeShardValue(9999987L, 9999987L));
+        list = map.get(new ShardRouteInfo("db_02", "user_0002"));
+        Assert.equals(list.size(), 625000);
+        Assert.equals(list.get(624999), new RangeShardValue(10000002L, 10000002L));
+        try {
+            new SpelShardRouteRule("{scName}_{sdValue}", null, 100).groupSdValuesByRouteInfo("db", "user",
+                                                                                           new RangeShardValue(0L,
+                                                                                                               1000L));
+            throw new Error();
+        } catch (OutOfRangeSizeLimitException e) {
+            // ok
+        }
+    }
+
+    /**
+     * 按块路由的规则, 每个表的分片值为连续的范围
+     */
+    @Test
+    public void groupByBlock() {
+        SpelShardRouteRule rule = new SpelShardRouteRule(null, "{tbName}_{format('%04d', sdValue / 1000 % 4)}");
+        Map<ShardRouteInfo, List<RangeShardValue>> r = new LinkedHashMap<>();
+        r.put(new ShardRouteInfo("db", "user_0000"),
+              Arrays.asList(new RangeShardValue(500L, 999L), new RangeShardValue(4000L, 4299L)));
+        r.put(new ShardRouteInfo("db", "user_0001"), Arrays.asList(new RangeShardValue(1000L, 1999L)));
+        r.put(new ShardRouteInfo("db", "user_0002"), Arrays.asList(new RangeShardValue(2000L, 2999L)));
+        r.put(new ShardRouteInfo("db", "user_0003"), Arrays.asList(new RangeShardValue(3000L, 3999L)));
+        Assert.equals(rule.groupSdValuesByRouteInfo("db", "user", new RangeShardValue(500L, 4299L)), r);
+
+        SpelShardRouteRule[] rules = {
+                new SpelShardRouteRule("{scName}_{sdValue / 7 % 3}", "{tbName}_{sdValue / 14 % 2}"),
+                new SpelShardRouteRule("{scName}_{sdValue / 10 % 3}", "{tbName}_{sdValue / 20 % 5}_{sdValue / 100}") };
+        for (int i = 0; i < 50; i++) {
+            rule = rules[i % 2];
+            long begin = i * 13;
+            long end = begin + begin * 3 % 211;
+            Map<ShardRouteInfo, List<RangeShardValue>> map = rule.groupSdValuesByRouteInfo("db", "user",
+                                                                                           new RangeShardValue(begin,
+                                                                                                               end));
+            int count = 0;
+            for (Map.Entry<ShardRouteInfo, List<RangeShardValue>> entry : map.entrySet()) {
+                for (RangeShardValue rangeShardValue : entry.getValue()) {
+                    for (long l = rangeShardValue.getBegin(); l <= rangeShardValue.getEnd(); l++) {
+                        Assert.equals(entry.getKey(),
+                                      new ShardRouteInfo(rule.parseScName("db", l), rule.parseTbName("user", l)));
+                        count++;
+                    }
+                }
+            }
+            Assert.equals(count, (int) (end - begin + 1));
+        }
+    }
+
 }
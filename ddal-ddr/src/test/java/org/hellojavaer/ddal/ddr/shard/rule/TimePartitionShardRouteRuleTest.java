@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.rule;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.RangeShardValue;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.exception.CrossTableException;
+import org.hellojavaer.ddal.ddr.shard.exception.OutOfRangeSizeLimitException;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class TimePartitionShardRouteRuleTest {
+
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("GMT+8");
+
+    @Test
+    public void parseTbName() {
+        TimePartitionShardRouteRule rule = new TimePartitionShardRouteRule(TimePartitionShardRouteRule.Unit.MONTH,
+                                                                           TIME_ZONE);
+        Assert.equals(rule.parseScName("audit", "2017-09-27"), "audit");
+        Assert.equals(rule.parseTbName("log", "2017-09-27"), "log_201709");
+        Assert.equals(rule.parseTbName("log", "2017-09-30 23:59:59.999"), "log_201709");
+        Assert.equals(rule.parseTbName("log", "2017-10-01 00:00:00"), "log_201710");
+        Assert.equals(rule.parseTbName("log", millis("2017-12-31 23:00:00")), "log_201712");
+        Assert.equals(rule.parseTbName("log", new Timestamp(millis("2018-01-01 00:00:00"))), "log_201801");
+
+        rule = new TimePartitionShardRouteRule(TimePartitionShardRouteRule.Unit.WEEK, TIME_ZONE);
+        // 2017-09-27为周三, 2017-10-01为周日
+        Assert.equals(rule.parseTbName("log", "2017-09-27"), "log_20170925");
+        Assert.equals(rule.parseTbName("log", "2017-10-01 12:00:00"), "log_20170925");
+        Assert.equals(rule.parseTbName("log", "2017-10-02"), "log_20171002");
+
+        rule = new TimePartitionShardRouteRule(TimePartitionShardRouteRule.Unit.DAY, TIME_ZONE);
+        Assert.equals(rule.parseTbName("log", new Date(millis("2017-09-27 08:00:00"))), "log_20170927");
+        Assert.equals(rule.parseTbName("log", new RangeShardValue(millis("2017-09-27 00:00:00"),
+                                                                  millis("2017-09-27 23:59:59"))), "log_20170927");
+        try {
+            rule.parseTbName("log", new RangeShardValue(millis("2017-09-27 00:00:00"), millis("2017-09-28 00:00:00")));
+            throw new Error();
+        } catch (CrossTableException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void groupSdValuesByRouteInfo() {
+        TimePartitionShardRouteRule rule = new TimePartitionShardRouteRule(TimePartitionShardRouteRule.Unit.MONTH,
+                                                                           TIME_ZONE);
+        long begin = millis("2017-08-15 00:00:00");
+        long end = millis("2017-10-10 00:00:00");
+        Map<ShardRouteInfo, List<RangeShardValue>> map = rule.groupSdValuesByRouteInfo("audit", "log",
+                                                                                       new RangeShardValue(begin, end));
+        Map<ShardRouteInfo, List<RangeShardValue>> r = new LinkedHashMap<>();
+        r.put(new ShardRouteInfo("audit", "log_201708"),
+              Arrays.asList(new RangeShardValue(begin, millis("2017-09-01 00:00:00") - 1)));
+        r.put(new ShardRouteInfo("audit", "log_201709"),
+              Arrays.asList(new RangeShardValue(millis("2017-09-01 00:00:00"), millis("2017-10-01 00:00:00") - 1)));
+        r.put(new ShardRouteInfo("audit", "log_201710"),
+              Arrays.asList(new RangeShardValue(millis("2017-10-01 00:00:00"), end)));
+        Assert.equals(map, r);
+        // 跨越多年的范围只与覆盖的月数有关
+        map = rule.groupSdValuesByRouteInfo("audit", "log", new RangeShardValue(millis("2000-01-01 00:00:00"),
+                                                                                millis("2017-12-31 00:00:00")));
+        Assert.equals(map.size(), 18 * 12);
+    }
+
+    @Test
+    public void limitPeriods() {
+        TimePartitionShardRouteRule rule = new TimePartitionShardRouteRule(TimePartitionShardRouteRule.Unit.DAY,
+                                                                           TIME_ZONE);
+        rule.setEarliestTime(new Date(millis("2017-09-20 00:00:00")));
+        rule.setMaxPeriods(31);
+        // 早于earliestTime的部分被截掉
+        Map<ShardRouteInfo, List<RangeShardValue>> map = rule.groupSdValuesByRouteInfo("audit", "log",
+                                                                                       new RangeShardValue(millis("2000-01-01 00:00:00"),
+                                                                                                           millis("2017-09-21 12:00:00")));
+        Map<ShardRouteInfo, List<RangeShardValue>> r = new LinkedHashMap<>();
+        r.put(new ShardRouteInfo("audit", "log_20170920"),
+              Arrays.asList(new RangeShardValue(millis("2017-09-20 00:00:00"), millis("2017-09-21 00:00:00") - 1)));
+        r.put(new ShardRouteInfo("audit", "log_20170921"),
+              Arrays.asList(new RangeShardValue(millis("2017-09-21 00:00:00"), millis("2017-09-21 12:00:00"))));
+        Assert.equals(map, r);
+        // 整体早于earliestTime时路由到最早的周期
+        map = rule.groupSdValuesByRouteInfo("audit", "log", new RangeShardValue(millis("2000-01-01 00:00:00"),
+                                                                                millis("2000-12-31 00:00:00")));
+        Assert.equals(map.keySet(), Collections.singleton(new ShardRouteInfo("audit", "log_20170920")));
+        Assert.equals(rule.parseTbName("log", new RangeShardValue(millis("2000-01-01 00:00:00"),
+                                                                  millis("2017-09-20 08:00:00"))), "log_20170920");
+        // 超过maxPeriods
+        Assert.equals(rule.groupSdValuesByRouteInfo("audit", "log",
+                                                    new RangeShardValue(millis("2017-09-20 00:00:00"),
+                                                                        millis("2017-10-20 23:59:59"))).size(), 31);
+        try {
+            rule.groupSdValuesByRouteInfo("audit", "log", new RangeShardValue(millis("2017-09-20 00:00:00"),
+                                                                              millis("2099-12-31 00:00:00")));
+            throw new Error();
+        } catch (OutOfRangeSizeLimitException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void createTables() throws Exception {
+        final List<String> sqls = new ArrayList<>();
+        final Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                                       new Class[] { Statement.class },
+                                                                       new InvocationHandler() {
+
+                                                                           @Override
+                                                                           public Object invoke(Object proxy,
+                                                                                                Method method,
+                                                                                                Object[] args)
+                                                                                                              throws Throwable {
+                                                                               if ("execute".equals(method.getName())) {
+                                                                                   if (((String) args[0]).contains("audit_bad")) {
+                                                                                       throw new SQLException("unreachable");
+                                                                                   }
+                                                                                   sqls.add((String) args[0]);
+                                                                                   return false;
+                                                                               }
+                                                                               return null;
+                                                                           }
+                                                                       });
+        final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                                          new Class[] { Connection.class },
+                                                                          new InvocationHandler() {
+
+                                                                              @Override
+                                                                              public Object invoke(Object proxy,
+                                                                                                   Method method,
+                                                                                                   Object[] args) {
+                                                                                  return "createStatement".equals(method.getName()) ? statement : null;
+                                                                              }
+                                                                          });
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                                    new Class[] { DataSource.class },
+                                                                    new InvocationHandler() {
+
+                                                                        @Override
+                                                                        public Object invoke(Object proxy,
+                                                                                             Method method,
+                                                                                             Object[] args) {
+                                                                            return "getConnection".equals(method.getName()) ? connection : null;
+                                                                        }
+                                                                    });
+        TimePartitionShardRouteRule rule = new TimePartitionShardRouteRule(TimePartitionShardRouteRule.Unit.MONTH,
+                                                                           TIME_ZONE);
+        TimePartitionTableCreator creator = new TimePartitionTableCreator(dataSource, rule,
+                                                                          Arrays.asList("audit_00", "audit_bad",
+                                                                                        "audit_01"),
+                                                                          "log");
+        creator.setPeriodsAhead(2);
+        // 一个schema失败时其他schema继续建表
+        Assert.equals(creator.createTables(), 6);
+        List<String> tbNames = rule.getTbNames("log", System.currentTimeMillis(), 3);
+        Assert.equals(sqls.get(0), "CREATE TABLE IF NOT EXISTS audit_00." + tbNames.get(0) + " LIKE audit_00.log");
+        Assert.equals(sqls.get(5), "CREATE TABLE IF NOT EXISTS audit_01." + tbNames.get(2) + " LIKE audit_01.log");
+    }
+
+    private static long millis(String str) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        format.setTimeZone(TIME_ZONE);
+        try {
+            return format.parse(str).getTime();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.shard.simple;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteContext;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.TableRouteHandle;
+import org.hellojavaer.ddal.ddr.shard.rule.SpelShardRouteRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class SimpleShardRouterTest {
+
+    private SimpleShardRouter buildRouter() {
+        List<SimpleShardRouteRuleBinding> bindings = new ArrayList<SimpleShardRouteRuleBinding>();
+        SimpleShardRouteRuleBinding user = new SimpleShardRouteRuleBinding();
+        user.setScName("db");
+        user.setTbName("user");
+        user.setSdKey("id");
+        user.setSdValues("[0..7]");
+        user.setRule(new SpelShardRouteRule("{scName}_{sdValue % 2}", "{tbName}_{sdValue % 8}"));
+        bindings.add(user);
+        SimpleShardRouteRuleBinding currency = new SimpleShardRouteRuleBinding();
+        currency.setScName("db");
+        currency.setTbName("currency");
+        bindings.add(currency);
+        return new SimpleShardRouter(bindings);
+    }
+
+    @Test
+    public void tableRouteHandle() {
+        SimpleShardRouter router = buildRouter();
+        TableRouteHandle handle = router.getTableRouteHandle(null, " USER");
+        Assert.isTrue(handle == router.getTableRouteHandle("db", "user"));
+        Assert.equals(handle.getRouteConfig().getSdKey(), "id");
+        Assert.equals(handle.getRouteInfos().size(), 8);
+        Assert.isTrue(router.getTableRouteHandle("db", "none") == null);
+
+        // 预先计算的路由结果与getRouteInfos中的实例相同
+        ShardRouteInfo routeInfo = handle.getRouteInfo(3);
+        Assert.equals(routeInfo.toString(), "db_1.user_3");
+        Assert.isTrue(routeInfo == handle.getRouteInfos().get(3));
+        Assert.isTrue(handle.getRouteInfo(3L) == handle.getRouteInfo(3L));
+        Assert.equals(handle.getRouteInfo(3L), routeInfo);
+        // 超出sdValues范围的分片值使用路由规则计算, 相同物理表复用实例
+        Assert.isTrue(handle.getRouteInfo(11) == routeInfo);
+        Assert.isTrue(router.getRouteInfo("db", "user", 19L) == routeInfo);
+        // 复用的实例被所有调用方共享, 不能修改
+        try {
+            routeInfo.setScName("db_2");
+            throw new Error();
+        } catch (UnsupportedOperationException e) {
+            // ok
+        }
+        Assert.equals(routeInfo.toString(), "db_1.user_3");
+        Assert.isTrue(routeInfo.equals(new ShardRouteInfo("db_1", "user_3")));
+        Assert.isTrue(new ShardRouteInfo("db_1", "user_3").equals(routeInfo));
+
+        TableRouteHandle currency = router.getTableRouteHandle("db", "currency");
+        Assert.equals(currency.getRouteInfo(null).toString(), "db.currency");
+        Assert.isTrue(currency.getRouteInfo(1) == currency.getRouteInfo(2));
+    }
+
+    @Test
+    public void routeContext() {
+        TableRouteHandle handle = buildRouter().getTableRouteHandle("db", "user");
+        ShardRouteContext.clearContext();
+        try {
+            ShardRouteInfo routeInfo = new ShardRouteInfo("db_0", "user_100");
+            ShardRouteContext.setRouteInfo("db", "user", routeInfo);
+            // 路由上下文中的ShardRouteInfo直接返回, 不进入缓存
+            Assert.isTrue(handle.getRouteInfo(null) == routeInfo);
+            Assert.isTrue(handle.getRouteInfo(100) != routeInfo);
+        } finally {
+            ShardRouteContext.clearContext();
+        }
+    }
+}
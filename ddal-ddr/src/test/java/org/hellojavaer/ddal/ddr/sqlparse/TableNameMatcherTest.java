@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class TableNameMatcherTest {
+
+    @Test
+    public void find() {
+        TableNameMatcher matcher = new TableNameMatcher(Arrays.asList("user", "user_item", "ser", "shop", "商品"));
+        Assert.isTrue(matcher.find("select * from db.USER where id = 1"));
+        Assert.isTrue(matcher.find("select * from `user_item`"));
+        Assert.isTrue(matcher.find("update shop set name = 'a'"));
+        Assert.isTrue(matcher.find("select * from ser"));
+        Assert.isTrue(matcher.find("select * from 商品 where id = 1"));
+        // 表名前后是标识符字符时不匹配
+        Assert.isTrue(!matcher.find("select * from user_ext where user_id = 1"));
+        Assert.isTrue(!matcher.find("select * from users, my_shop, user_items"));
+        Assert.isTrue(!matcher.find("select 1"));
+        Assert.isTrue(!new TableNameMatcher(Arrays.<String> asList()).find("select * from user"));
+    }
+
+    @Test
+    public void bypassUnshardedSql() {
+        SimpleShardRouteRuleBinding user = new SimpleShardRouteRuleBinding();
+        user.setScName("db");
+        user.setTbName("user");
+        final List<String> parsedSqls = new ArrayList<String>();
+        SimpleShardParser parser = new SimpleShardParser(new SQLParser() {
+
+            @Override
+            public SQLParsedState parse(String sql, ShardRouter shardRouter) {
+                parsedSqls.add(sql);
+                return new SQLParsedState() {
+
+                    @Override
+                    public SQLParsedResult parse(Map<Object, Object> jdbcParams) {
+                        return new SQLParsedResult();
+                    }
+                };
+            }
+        }, new SimpleShardRouter(Collections.singletonList(user)));
+        parser.parse("select * from legacy_user", null);
+        Assert.equals(parsedSqls.size(), 1);
+        parser.setBypassUnshardedSql(true);
+        SQLParsedResult result = parser.parse("select * from legacy_user", null);
+        Assert.equals(result.getSql(), "select * from legacy_user");
+        Assert.isTrue(result.getSchemas().isEmpty());
+        Assert.equals(parsedSqls.size(), 1);
+        parser.parse("select * from db.user", null);
+        Assert.equals(parsedSqls.size(), 2);
+    }
+}
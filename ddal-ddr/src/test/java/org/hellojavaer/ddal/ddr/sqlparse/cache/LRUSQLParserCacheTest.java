@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.SQLSyntaxErrorException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 23/09/2017.
+ */
+public class LRUSQLParserCacheTest {
+
+    private ShardRouter shardRouter = new SimpleShardRouter(new ArrayList<SimpleShardRouteRuleBinding>());
+
+    @Test
+    public void singleFlight() throws Exception {
+        CountingSQLParser sqlParser = new CountingSQLParser(100);
+        final LRUSQLParserCache cache = new LRUSQLParserCache(sqlParser, 16);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    cache.parse("select * from user where id = 1", shardRouter);
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.equals(sqlParser.count.get(), 1);
+        SQLParserCacheStats stats = cache.getStats();
+        Assert.equals(stats.getLoadSuccessCount(), 1L);
+        Assert.equals(stats.getHitCount() + stats.getMissCount(), 8L);
+    }
+
+    @Test
+    public void negativeCache() throws Exception {
+        CountingSQLParser sqlParser = new CountingSQLParser(0);
+        LRUSQLParserCache cache = new LRUSQLParserCache(sqlParser, 16);
+        cache.setNegativeCacheTtlMillis(100);
+        for (int i = 0; i < 3; i++) {
+            try {
+                cache.parse("bad sql", shardRouter);
+                throw new Error();
+            } catch (SQLSyntaxErrorException e) {
+                // ok
+            }
+        }
+        Assert.equals(sqlParser.count.get(), 1);
+        Assert.equals(cache.getStats().getNegativeHitCount(), 2L);
+        Thread.sleep(150);
+        try {
+            cache.parse("bad sql", shardRouter);
+            throw new Error();
+        } catch (SQLSyntaxErrorException e) {
+            // ok
+        }
+        Assert.equals(sqlParser.count.get(), 2);
+    }
+
+    @Test
+    public void admission() {
+        CountingSQLParser sqlParser = new CountingSQLParser(0);
+        LRUSQLParserCache cache = new LRUSQLParserCache(sqlParser, 2);
+        for (int i = 0; i < 5; i++) {
+            cache.parse("select 1", shardRouter);
+            cache.parse("select 2", shardRouter);
+        }
+        // 只访问一次的sql不能淘汰热点sql
+        for (int i = 0; i < 20; i++) {
+            cache.parse("select " + (100 + i), shardRouter);
+        }
+        int count = sqlParser.count.get();
+        cache.parse("select 1", shardRouter);
+        cache.parse("select 2", shardRouter);
+        Assert.equals(sqlParser.count.get(), count);
+        Assert.isTrue(cache.getStats().getRejectedCount() > 0);
+    }
+
+    private static class CountingSQLParser implements SQLParser {
+
+        private final AtomicInteger count = new AtomicInteger();
+        private final long          sleepMillis;
+
+        public CountingSQLParser(long sleepMillis) {
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        public SQLParsedState parse(final String sql, ShardRouter shardRouter) {
+            count.incrementAndGet();
+            if (sleepMillis > 0) {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (sql.startsWith("bad")) {
+                throw new SQLSyntaxErrorException(sql);
+            }
+            return new SQLParsedState() {
+
+                @Override
+                public SQLParsedResult parse(Map<Object, Object> jdbcParams) {
+                    SQLParsedResult result = new SQLParsedResult();
+                    result.setSql(sql);
+                    return result;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.cache;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 25/09/2017.
+ */
+public class SQLParserCacheSnapshotTest {
+
+    @Test
+    public void saveAndWarmUp() throws Exception {
+        ShardRouter shardRouter = new SimpleShardRouter(new ArrayList<SimpleShardRouteRuleBinding>());
+        File file = File.createTempFile("ddal-sql-cache", ".snapshot");
+        file.deleteOnExit();
+
+        LRUSQLParserCache cache = new LRUSQLParserCache(new MockSQLParser(), 16);
+        for (int i = 0; i < 3; i++) {
+            cache.parse("select 1", shardRouter);
+        }
+        cache.parse("select 2", shardRouter);
+        cache.parse("select 2", shardRouter);
+        cache.parse("select 3", shardRouter);
+        Assert.equals(cache.getHotSqls().get(0), "select 1");
+        new SQLParserCacheSnapshot(cache, shardRouter, file.getAbsolutePath()).save();
+
+        LRUSQLParserCache newCache = new LRUSQLParserCache(new MockSQLParser(), 16);
+        SQLParserCacheSnapshot snapshot = new SQLParserCacheSnapshot(newCache, shardRouter, file.getAbsolutePath());
+        Assert.equals(snapshot.warmUp(), 3);
+        Assert.equals(newCache.getStats().getSize(), 3);
+        newCache.parse("select 2", shardRouter);
+        Assert.equals(newCache.getStats().getHitCount(), 1L);
+    }
+
+    @Test
+    public void missingFile() {
+        ShardRouter shardRouter = new SimpleShardRouter(new ArrayList<SimpleShardRouteRuleBinding>());
+        LRUSQLParserCache cache = new LRUSQLParserCache(new MockSQLParser(), 16);
+        Assert.equals(new SQLParserCacheSnapshot(cache, shardRouter, "/not/exist/ddal.snapshot").warmUp(), 0);
+    }
+
+    @Test
+    public void corruptFile() throws Exception {
+        ShardRouter shardRouter = new SimpleShardRouter(new ArrayList<SimpleShardRouteRuleBinding>());
+        File file = File.createTempFile("ddal-sql-cache", ".snapshot");
+        file.deleteOnExit();
+        for (int len : new int[] { -1, Integer.MAX_VALUE }) {
+            DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(file)));
+            try {
+                out.writeInt(0x4444534c);
+                out.writeInt(1);
+                out.writeInt(1);
+                out.writeInt(len);
+            } finally {
+                out.close();
+            }
+            try {
+                SQLParserCacheSnapshot.read(file);
+                throw new Error();
+            } catch (IOException e) {
+                // ok
+            }
+            LRUSQLParserCache cache = new LRUSQLParserCache(new MockSQLParser(), 16);
+            Assert.equals(new SQLParserCacheSnapshot(cache, shardRouter, file.getAbsolutePath()).warmUp(), 0);
+        }
+        // 非快照格式的文件
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write("select 1".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        LRUSQLParserCache cache = new LRUSQLParserCache(new MockSQLParser(), 16);
+        Assert.equals(new SQLParserCacheSnapshot(cache, shardRouter, file.getAbsolutePath()).warmUp(), 0);
+    }
+
+    private static class MockSQLParser implements SQLParser {
+
+        @Override
+        public SQLParsedState parse(final String sql, ShardRouter shardRouter) {
+            return new SQLParsedState() {
+
+                @Override
+                public SQLParsedResult parse(Map<Object, Object> jdbcParams) {
+                    SQLParsedResult result = new SQLParsedResult();
+                    result.setSql(sql);
+                    return result;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.hint;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.shard.rule.SpelShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.SQLSyntaxErrorException;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class SQLHintParserTest {
+
+    private static Map<String, Set<String>> buildRoutedTables() {
+        Map<String, Set<String>> routedTables = new HashMap<String, Set<String>>();
+        routedTables.put("db", new HashSet<String>(Arrays.asList("user", "shop")));
+        return routedTables;
+    }
+
+    @Test
+    public void parse() {
+        Assert.isTrue(SQLHintParser.parse("select * from user") == null);
+        Assert.isTrue(SQLHintParser.parse("/* comment */ select * from user") == null);
+        SQLHint hint = SQLHintParser.parse("  /*+DDAL sc=db_03 tb=user_0117  rw=read*/ select * from user");
+        Assert.equals(hint.getScName(), "db_03");
+        Assert.equals(hint.getTbName(), "user_0117");
+        Assert.equals(hint.getReadOnly(), true);
+        Assert.equals(hint.getSql(), "select * from user");
+        hint = SQLHintParser.parse("/*+ddal rw=write */update user set name = 'a'");
+        Assert.isTrue(hint.getScName() == null);
+        Assert.equals(hint.getReadOnly(), false);
+        try {
+            SQLHintParser.parse("/*+ddal rw=slave */ select 1");
+            throw new Error();
+        } catch (SQLSyntaxErrorException e) {
+            // ok
+        }
+        try {
+            SQLHintParser.parse("/*+ddal db=db_01 */ select 1");
+            throw new Error();
+        } catch (SQLSyntaxErrorException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void route() {
+        Map<String, Set<String>> routedTables = buildRoutedTables();
+        Assert.equals(SQLHintParser.route("select user.id, `user`.name from db.user where user.id = ? and remark = 'from user'",
+                                          "db_03", "user_0117", routedTables),
+                      "select user_0117.id, user_0117.name from db_03.user_0117 where user_0117.id = ? and remark = 'from user'");
+        Assert.equals(SQLHintParser.route("select u.id from user u join item i on u.id = i.user_id", "db_03",
+                                          "user_0117", routedTables),
+                      "select u.id from db_03.user_0117 u join item i on u.id = i.user_id");
+        Assert.equals(SQLHintParser.route("select * from item i, user where i.user_id = user.id", "db_03",
+                                          "user_0117", routedTables),
+                      "select * from item i, db_03.user_0117 where i.user_id = user_0117.id");
+        Assert.equals(SQLHintParser.route("insert into user(id, name) values(?, ?)", "db_03", "user_0117",
+                                          routedTables), "insert into db_03.user_0117(id, name) values(?, ?)");
+        // 列名与表名相同时不替换
+        Assert.equals(SQLHintParser.route("update user set user = ? where id = ?", "db_03", "user_0117",
+                                          routedTables), "update db_03.user_0117 set user = ? where id = ?");
+        // schema与分表同名时, schema.table 不是以分表限定的列
+        Assert.equals(SQLHintParser.route("select user.id, account.balance from user join user.account on user.id = account.user_id",
+                                          "db_03", "user_0117", routedTables),
+                      "select user_0117.id, account.balance from db_03.user_0117 join user.account on user_0117.id = account.user_id");
+        Assert.equals(SQLHintParser.route("select a.* from user u, user.account a where u.id = a.user_id and user.account.id > 0",
+                                          "db_03", "user_0117", routedTables),
+                      "select a.* from db_03.user_0117 u, user.account a where u.id = a.user_id and user.account.id > 0");
+        // 分表有别名或者其他表的别名与分表同名时不替换限定名
+        Assert.equals(SQLHintParser.route("select user.id from db.user as u join item user on u.id = user.user_id",
+                                          "db_03", "user_0117", routedTables),
+                      "select user.id from db_03.user_0117 as u join item user on u.id = user.user_id");
+        // 多个分表或者没有分表时无法只凭提示路由
+        Assert.isTrue(SQLHintParser.route("select * from user u join shop s on u.id = s.user_id", "db_03",
+                                          "user_0117", routedTables) == null);
+        Assert.isTrue(SQLHintParser.route("select * from item", "db_03", "user_0117", routedTables) == null);
+    }
+
+    @Test
+    public void bypassParser() {
+        SimpleShardRouteRuleBinding user = new SimpleShardRouteRuleBinding();
+        user.setScName("db");
+        user.setTbName("user");
+        user.setSdKey("id");
+        user.setRule(new SpelShardRouteRule("{scName}_{format('%02d', sdValue % 8)}",
+                                            "{tbName}_{format('%04d', sdValue % 128)}"));
+        final List<String> parsedSqls = new ArrayList<String>();
+        SimpleShardParser parser = new SimpleShardParser(new SQLParser() {
+
+            @Override
+            public SQLParsedState parse(String sql, ShardRouter shardRouter) {
+                parsedSqls.add(sql);
+                return new SQLParsedState() {
+
+                    @Override
+                    public SQLParsedResult parse(Map<Object, Object> jdbcParams) {
+                        return new SQLParsedResult();
+                    }
+                };
+            }
+        }, new SimpleShardRouter(Collections.singletonList(user)));
+        SQLParsedResult result = parser.parse("/*+ddal sc=db_03 tb=user_0117 rw=read */ select * from db.user where id = ?",
+                                              null);
+        Assert.equals(result.getSql(), "select * from db_03.user_0117 where id = ?");
+        Assert.equals(result.getSchemas().iterator().next(), "db_03");
+        Assert.equals(result.getReadOnly(), true);
+        Assert.isTrue(parsedSqls.isEmpty());
+        // 只有读写方式时仍然解析sql
+        result = parser.parse("/*+ddal rw=write */ select * from db.user where id = ?", null);
+        Assert.equals(parsedSqls.get(0), "select * from db.user where id = ?");
+        Assert.equals(result.getReadOnly(), false);
+    }
+}
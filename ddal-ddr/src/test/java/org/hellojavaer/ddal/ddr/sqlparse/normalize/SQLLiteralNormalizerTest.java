@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hellojavaer.ddal.ddr.sqlparse.normalize;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 24/09/2017.
+ */
+public class SQLLiteralNormalizerTest {
+
+    @Test
+    public void normalize() {
+        NormalizedSQL normalizedSQL = SQLLiteralNormalizer.normalize("select * from db.user_1 where id = 123 and name = 'al''len' and age > ?");
+        Assert.equals(normalizedSQL.getTemplate(),
+                      "select * from db.user_1 where id = :ddal_literal_0 and name = :ddal_literal_1 and age > ?");
+        Assert.equals(normalizedSQL.getValues().get(0), 123L);
+        Assert.equals(normalizedSQL.getValues().get(1), "al''len");
+        Assert.equals(SQLLiteralNormalizer.restore("SELECT * FROM db_01.user_0001 WHERE id = :ddal_literal_0 AND name = :ddal_literal_1",
+                                                   normalizedSQL.getLiterals()),
+                      "SELECT * FROM db_01.user_0001 WHERE id = 123 AND name = 'al''len'");
+    }
+
+    @Test
+    public void skip() {
+        Assert.isTrue(SQLLiteralNormalizer.normalize("select * from user where id = ?") == null);
+        Assert.isTrue(SQLLiteralNormalizer.normalize("select 1.5, 1e5, 0x1f, x'1f', 007, `tb 1`, \"col 2\" from t2 /* 3 */ -- 4") == null);
+        Assert.isTrue(SQLLiteralNormalizer.normalize("select * from user where name = 'abc") == null);
+        NormalizedSQL normalizedSQL = SQLLiteralNormalizer.normalize("select * from user where name = 'it\\'s' limit 10");
+        Assert.equals(normalizedSQL.getTemplate(), "select * from user where name = :ddal_literal_0 limit :ddal_literal_1");
+    }
+
+    @Test
+    public void signed() {
+        NormalizedSQL normalizedSQL = SQLLiteralNormalizer.normalize("select * from user where id = -5 or id in (- 6, 7) and age between -1 and 2");
+        Assert.equals(normalizedSQL.getTemplate(),
+                      "select * from user where id = :ddal_literal_0 or id in (:ddal_literal_1, :ddal_literal_2) and age between :ddal_literal_3 and :ddal_literal_4");
+        Assert.equals(normalizedSQL.getValues().get(0), -5L);
+        Assert.equals(normalizedSQL.getValues().get(1), -6L);
+        Assert.equals(normalizedSQL.getValues().get(3), -1L);
+        Assert.equals(normalizedSQL.getLiterals().get(1), "- 6");
+        // 减法中的负号不是常量的一部分
+        normalizedSQL = SQLLiteralNormalizer.normalize("select age-1, age - -2 from user where id = age -3");
+        Assert.equals(normalizedSQL.getTemplate(),
+                      "select age-:ddal_literal_0, age - :ddal_literal_1 from user where id = age -:ddal_literal_2");
+        Assert.equals(normalizedSQL.getValues().get(0), 1L);
+        Assert.equals(normalizedSQL.getValues().get(1), -2L);
+        Assert.equals(normalizedSQL.getValues().get(2), 3L);
+    }
+}
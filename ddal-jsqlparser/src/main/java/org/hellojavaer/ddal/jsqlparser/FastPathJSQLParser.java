@@ -0,0 +1,706 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.ddr.datasource.exception.CrossPreparedStatementException;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteConfig;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteUtils;
+import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.shard.TableRouteHandle;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.AmbiguousRouteResultException;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.GetRouteInfoException;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.IllegalSQLParameterException;
+import org.hellojavaer.ddal.ddr.utils.DDRJSONUtils;
+import org.hellojavaer.ddal.ddr.utils.DDRStringUtils;
+
+import java.util.*;
+
+/**
+ * 对常见的单表sql使用手写的词法分析直接识别表名和分表字段, 并按字符位置替换表名, 不构建JSqlParser语法树.
+ * 
+ * <pre>
+ * select ... from tb [alias] [where a = ? and sdKey = ? ...] [order by|group by|limit ...]
+ * insert into tb(col, ...) values(?, ...)
+ * update tb [alias] set ... [where a = ? and sdKey = ? ...] [order by|limit ...]
+ * delete from tb [where a = ? and sdKey = ? ...] [order by|limit ...]
+ * </pre>
+ * 
+ * 多表, 子查询, union, or, in, between, 以及分表字段出现在非等值条件中的sql交给{@link JSQLParser}处理.
+ * 路由结果与{@link JSQLParser}一致: 保留原始sql的格式, 只替换表名(select和update语句在没有别名时追加原表名作为别名,
+ * 单表delete语句去掉别名)
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 26/09/2017.
+ */
+public class FastPathJSQLParser extends JSQLParser {
+
+    private static final Set<String> TAIL_KEYWORDS  = new HashSet<>(Arrays.asList("ORDER", "GROUP", "LIMIT",
+                                                                                  "HAVING", "FOR", "LOCK"));
+    private static final Set<String> ALIAS_EXCLUDES = new HashSet<>(Arrays.asList("WHERE", "SET", "ORDER",
+                                                                                  "GROUP", "LIMIT", "HAVING",
+                                                                                  "FOR", "LOCK", "JOIN", "LEFT",
+                                                                                  "RIGHT", "INNER", "OUTER",
+                                                                                  "CROSS", "FULL", "NATURAL",
+                                                                                  "STRAIGHT_JOIN", "UNION", "USE",
+                                                                                  "FORCE", "IGNORE", "ON", "USING",
+                                                                                  "VALUES", "VALUE", "PARTITION",
+                                                                                  "WINDOW", "INTO", "SELECT",
+                                                                                  "FROM", "PROCEDURE"));
+    private static final Set<String> UNSUPPORTED    = new HashSet<>(Arrays.asList("SELECT", "UNION", "OR", "XOR",
+                                                                                  "BETWEEN", "DUPLICATE"));
+
+    @Override
+    public SQLParsedState parse(String sql, ShardRouter shardRouter) {
+        SQLParsedState state = new FastPath(sql, shardRouter, isEnableLimitCheck()).parse();
+        if (state == null) {
+            return super.parse(sql, shardRouter);
+        } else {
+            return state;
+        }
+    }
+
+    private static class FastPath {
+
+        private final String       sql;
+        private final ShardRouter  shardRouter;
+        private final boolean      enableLimitCheck;
+        private List<Token>        tokens;
+        private int                pos;
+
+        private Token              schemaToken;
+        private Token              tableToken;
+        private String             alias;
+        private boolean            appendAlias;
+        private ShardRouteConfig   routeConfig;
+        private TableRouteHandle   routeHandle;
+        private Set<String>        sdKeyColumns;
+        private final List<Object> jdbcParamKeys = new ArrayList<>();
+        private final List<Object> sdValues      = new ArrayList<>();
+
+        public FastPath(String sql, ShardRouter shardRouter, boolean enableLimitCheck) {
+            this.sql = sql;
+            this.shardRouter = shardRouter;
+            this.enableLimitCheck = enableLimitCheck;
+        }
+
+        /**
+         * @return 不能快速解析时返回null
+         */
+        public SQLParsedState parse() {
+            tokens = tokenize(sql);
+            if (tokens == null || tokens.isEmpty()) {
+                return null;
+            }
+            for (Token token : tokens) {
+                if (token.type == TokenType.QUOTED_IDENTIFIER || token.type == TokenType.IDENTIFIER
+                    && UNSUPPORTED.contains(token.upper) && token != tokens.get(0)) {
+                    return null;
+                }
+            }
+            Token first = tokens.get(0);
+            boolean ok;
+            if (first.isKeyword("SELECT")) {
+                ok = parseSelect();
+            } else if (first.isKeyword("INSERT")) {
+                ok = parseInsert();
+            } else if (first.isKeyword("UPDATE")) {
+                ok = parseUpdate();
+            } else if (first.isKeyword("DELETE")) {
+                ok = parseDelete();
+            } else {
+                ok = false;
+            }
+            if (!ok) {
+                return null;
+            }
+            if (routeConfig == null) {
+                return new RawParsedState(sql);
+            }
+            // 常量在解析阶段路由, jdbc参数在执行阶段路由
+            ShardRouteInfo routeInfo = null;
+            for (Object sdValue : sdValues) {
+                routeInfo = checkRouteInfo(routeInfo, getRouteInfo(sdValue), null);
+            }
+            StringBuilder prefix = new StringBuilder();
+            prefix.append(sql, 0, (schemaToken == null ? tableToken : schemaToken).start);
+            StringBuilder suffix = new StringBuilder();
+            if (appendAlias && alias == null) {
+                suffix.append(" AS ").append(tableToken.text);
+            }
+            suffix.append(sql, tableToken.end, sql.length());
+            return new FastPathParsedState(this, routeInfo, prefix.toString(), suffix.toString());
+        }
+
+        private boolean parseSelect() {
+            pos = 1;
+            // select list
+            int depth = 0;
+            while (true) {
+                Token token = next();
+                if (token == null) {
+                    return false;
+                } else if (token.isSymbol('(')) {
+                    depth++;
+                } else if (token.isSymbol(')')) {
+                    depth--;
+                } else if (depth == 0 && token.isKeyword("FROM")) {
+                    break;
+                }
+            }
+            if (!parseTable(true)) {
+                return false;
+            }
+            Token token = peek();
+            if (token != null && !token.isKeyword("WHERE") && !isTailKeyword(token)) {
+                return false;
+            }
+            return parseWhereAndTail(true);
+        }
+
+        private boolean parseUpdate() {
+            pos = 1;
+            if (!parseTable(true) || !nextIsKeyword("SET")) {
+                return false;
+            }
+            int depth = 0;
+            while (true) {
+                Token token = peek();
+                if (token == null || depth == 0 && (token.isKeyword("WHERE") || isTailKeyword(token))) {
+                    break;
+                } else if (token.isSymbol('(')) {
+                    depth++;
+                } else if (token.isSymbol(')')) {
+                    depth--;
+                }
+                pos++;
+            }
+            return parseWhereAndTail(true);
+        }
+
+        private boolean parseDelete() {
+            pos = 1;
+            if (!nextIsKeyword("FROM") || !parseTable(false)) {
+                return false;
+            }
+            Token token = peek();
+            if (token != null && !token.isKeyword("WHERE") && !isTailKeyword(token)) {
+                return false;// 单表delete的别名需要从路由后的sql中去掉, 交给JSqlParser处理
+            }
+            return parseWhereAndTail(true);
+        }
+
+        private boolean parseInsert() {
+            pos = 1;
+            if (peek() != null && peek().isKeyword("INTO")) {
+                pos++;
+            }
+            if (!parseTable(false)) {
+                return false;
+            }
+            List<Token> columns = new ArrayList<>();
+            if (!nextIsSymbol('(')) {
+                return false;
+            }
+            while (true) {
+                Token column = next();
+                if (column == null || column.type != TokenType.IDENTIFIER) {
+                    return false;
+                }
+                columns.add(column);
+                Token token = next();
+                if (token == null) {
+                    return false;
+                } else if (token.isSymbol(')')) {
+                    break;
+                } else if (!token.isSymbol(',')) {
+                    return false;
+                }
+            }
+            Token values = next();
+            if (values == null || !values.isKeyword("VALUES") && !values.isKeyword("VALUE") || !nextIsSymbol('(')) {
+                return false;
+            }
+            // 按顶层逗号切分values
+            List<List<Token>> groups = new ArrayList<>();
+            List<Token> group = new ArrayList<>();
+            int depth = 0;
+            while (true) {
+                Token token = next();
+                if (token == null) {
+                    return false;
+                } else if (depth == 0 && (token.isSymbol(',') || token.isSymbol(')'))) {
+                    groups.add(group);
+                    group = new ArrayList<>();
+                    if (token.isSymbol(')')) {
+                        break;
+                    }
+                } else {
+                    if (token.isSymbol('(')) {
+                        depth++;
+                    } else if (token.isSymbol(')')) {
+                        depth--;
+                    }
+                    group.add(token);
+                }
+            }
+            if (peek() != null || groups.size() != columns.size()) {// 多行插入, on duplicate key update 等
+                return false;
+            }
+            if (routeConfig == null || routeConfig.getSdKey() == null) {
+                return true;
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).text.equalsIgnoreCase(routeConfig.getSdKey())) {
+                    List<Token> valueTokens = groups.get(i);
+                    if (valueTokens.size() != 1 || !addRouteValue(valueTokens.get(0))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * [schema.]table [[AS] alias]
+         */
+        private boolean parseTable(boolean allowAlias) {
+            Token token = next();
+            if (token == null || token.type != TokenType.IDENTIFIER) {
+                return false;
+            }
+            if (peek() != null && peek().isSymbol('.')) {
+                pos++;
+                schemaToken = token;
+                token = next();
+                if (token == null || token.type != TokenType.IDENTIFIER || token.start != pos(-2).end) {
+                    return false;
+                }
+            }
+            tableToken = token;
+            appendAlias = allowAlias;
+            if (allowAlias) {
+                Token next = peek();
+                if (next != null && next.isKeyword("AS")) {
+                    pos++;
+                    next = peek();
+                    if (next == null || next.type != TokenType.IDENTIFIER) {
+                        return false;
+                    }
+                }
+                if (next != null && next.type == TokenType.IDENTIFIER && !ALIAS_EXCLUDES.contains(next.upper)) {
+                    alias = next.text;
+                    pos++;
+                }
+            }
+            String schemaName = schemaToken == null ? null : schemaToken.text;
+            routeHandle = ShardRouteUtils.getTableRouteHandle(shardRouter, schemaName, tableToken.text);
+            routeConfig = routeHandle == null ? null : routeHandle.getRouteConfig();
+            if (routeConfig != null && routeConfig.isBroadcast()) {// 广播表的写入需要扇出, 交给完整的解析器处理
+                return false;
+            }
+            if (routeConfig != null && routeConfig.getSdKey() != null) {
+                // 与JSQLParserAdapter中的上下文key保持一致
+                String sdKey = DDRStringUtils.toLowerCase(routeConfig.getSdKey());
+                String tbAliasName = DDRStringUtils.toLowerCase(alias == null ? tableToken.text : alias);
+                sdKeyColumns = new HashSet<>();
+                sdKeyColumns.add(sdKey);
+                sdKeyColumns.add(tbAliasName + "." + sdKey);
+                if (schemaName != null) {
+                    sdKeyColumns.add(DDRStringUtils.toLowerCase(schemaName) + "." + tbAliasName + "." + sdKey);
+                }
+            }
+            return true;
+        }
+
+        private boolean parseWhereAndTail(boolean checkLimit) {
+            boolean hasLimit = false;
+            Token token = peek();
+            if (token != null && token.isKeyword("WHERE")) {
+                pos++;
+                List<Token> condition = new ArrayList<>();
+                int depth = 0;
+                while (true) {
+                    token = peek();
+                    if (token == null || depth == 0 && (token.isKeyword("AND") || isTailKeyword(token))) {
+                        if (condition.isEmpty() || !parseCondition(condition)) {
+                            return false;
+                        }
+                        condition.clear();
+                        if (token == null || isTailKeyword(token)) {
+                            break;
+                        }
+                    } else {
+                        if (token.isSymbol('(')) {
+                            depth++;
+                        } else if (token.isSymbol(')')) {
+                            depth--;
+                        }
+                        condition.add(token);
+                    }
+                    pos++;
+                }
+            }
+            while ((token = next()) != null) {
+                if (token.isKeyword("LIMIT")) {
+                    hasLimit = true;
+                }
+            }
+            if (checkLimit && enableLimitCheck && !hasLimit) {
+                return false;// 由JSQLParser抛出异常
+            }
+            return true;
+        }
+
+        private boolean parseCondition(List<Token> condition) {
+            if (sdKeyColumns == null) {
+                return true;
+            }
+            // sdKey = value
+            int columnEnd = skipColumn(condition, 0);
+            if (columnEnd > 0 && isSdKeyColumn(condition, 0, columnEnd) && columnEnd + 2 == condition.size()
+                && condition.get(columnEnd).isSymbol('=')) {
+                return addRouteValue(condition.get(columnEnd + 1));
+            }
+            // 分表字段出现在其他形式的条件中
+            for (int i = 0; i < condition.size(); i++) {
+                int end = skipColumn(condition, i);
+                if (end > 0) {
+                    if (isSdKeyColumn(condition, i, end)) {
+                        return false;
+                    }
+                    i = end - 1;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return 列名结束位置, 不是列名时返回-1
+         */
+        private int skipColumn(List<Token> list, int start) {
+            if (start >= list.size() || list.get(start).type != TokenType.IDENTIFIER) {
+                return -1;
+            }
+            if (start > 0 && list.get(start - 1).isSymbol('.')) {
+                return -1;
+            }
+            int end = start + 1;
+            while (end + 1 < list.size() && list.get(end).isSymbol('.')
+                   && list.get(end + 1).type == TokenType.IDENTIFIER) {
+                end += 2;
+            }
+            if (end < list.size() && list.get(end).isSymbol('(')) {// function
+                return -1;
+            }
+            return end;
+        }
+
+        private boolean isSdKeyColumn(List<Token> list, int start, int end) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                sb.append(list.get(i).text);
+            }
+            return sdKeyColumns.contains(DDRStringUtils.toLowerCase(sb.toString()));
+        }
+
+        private boolean addRouteValue(Token token) {
+            switch (token.type) {
+                case JDBC_PARAMETER:
+                    jdbcParamKeys.add(token.paramIndex);
+                    return true;
+                case NAMED_PARAMETER:
+                    jdbcParamKeys.add(token.text.substring(1));
+                    return true;
+                case INTEGER:
+                    if (token.end - token.start > 18) {
+                        return false;
+                    }
+                    sdValues.add(Long.valueOf(token.text));
+                    return true;
+                case STRING:
+                    sdValues.add(token.text.substring(1, token.text.length() - 1));
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private ShardRouteInfo route(Map<Object, Object> jdbcParams, ShardRouteInfo routeInfo, String routedSql) {
+            if (jdbcParamKeys.isEmpty()) {
+                if (routeInfo == null) {
+                    routeInfo = getRouteInfo(null);
+                }
+                return routeInfo;
+            }
+            for (Object key : jdbcParamKeys) {
+                Object sdValue = jdbcParams == null ? null : jdbcParams.get(key);
+                if (sdValue == null) {
+                    throw new IllegalSQLParameterException("For jdbc parameter key " + key
+                                                           + ", jdbc parameter value is null. Jdbc parameter map is "
+                                                           + DDRJSONUtils.toJSONString(jdbcParams) + " and sql is ["
+                                                           + sql + "]");
+                }
+                routeInfo = checkRouteInfo(routeInfo, getRouteInfo(sdValue), routedSql);
+            }
+            return routeInfo;
+        }
+
+        private ShardRouteInfo checkRouteInfo(ShardRouteInfo routeInfo, ShardRouteInfo next, String routedSql) {
+            if (routeInfo != null && !routeInfo.toString().equals(next.toString())) {
+                if (routedSql != null) {
+                    throw new CrossPreparedStatementException("Sql[" + sql + "] has been routed to [" + routedSql
+                                                              + "] and table:'" + tableToken.text
+                                                              + "' has been route to '" + routeInfo
+                                                              + "'. But current jdbc parameter require route to "
+                                                              + next);
+                } else {
+                    throw new AmbiguousRouteResultException("In sql[" + sql + "], table:'" + tableToken.text
+                                                            + "' has multiple routing results[" + routeInfo + ","
+                                                            + next + "]");
+                }
+            }
+            return next;
+        }
+
+        private ShardRouteInfo getRouteInfo(Object sdValue) {
+            ShardRouteInfo routeInfo;
+            try {
+                routeInfo = routeHandle.getRouteInfo(sdValue);
+            } catch (Throwable e) {
+                String msg = String.format("Current state is table:'%s', sdKey:'%s', sdValue:%s, routeConfig:%s, sql:[%s]",
+                                           tableToken.text, routeConfig.getSdKey(), sdValue, routeConfig, sql);
+                throw new GetRouteInfoException(msg, e);
+            }
+            if (routeInfo == null) {
+                throw new GetRouteInfoException("Can't get route information for table:'" + tableToken.text
+                                                + "' 'sdValue':" + sdValue + " and 'routeConfig':" + routeConfig);
+            }
+            return routeInfo;
+        }
+
+        private boolean isTailKeyword(Token token) {
+            return token.type == TokenType.IDENTIFIER && TAIL_KEYWORDS.contains(token.upper);
+        }
+
+        private boolean nextIsKeyword(String keyword) {
+            Token token = next();
+            return token != null && token.isKeyword(keyword);
+        }
+
+        private boolean nextIsSymbol(char symbol) {
+            Token token = next();
+            return token != null && token.isSymbol(symbol);
+        }
+
+        private Token peek() {
+            return pos < tokens.size() ? tokens.get(pos) : null;
+        }
+
+        private Token pos(int offset) {
+            return tokens.get(pos + offset);
+        }
+
+        private Token next() {
+            return pos < tokens.size() ? tokens.get(pos++) : null;
+        }
+    }
+
+    private static class FastPathParsedState implements SQLParsedState {
+
+        private final FastPath       fastPath;
+        private final ShardRouteInfo routeInfo;
+        private final String         prefix;
+        private final String         suffix;
+
+        public FastPathParsedState(FastPath fastPath, ShardRouteInfo routeInfo, String prefix, String suffix) {
+            this.fastPath = fastPath;
+            this.routeInfo = routeInfo;
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        @Override
+        public SQLParsedResult parse(Map<Object, Object> jdbcParams) {
+            final ShardRouteInfo routeInfo = fastPath.route(jdbcParams, this.routeInfo, null);
+            SQLParsedResult result = new SQLParsedResult() {
+
+                @Override
+                public void checkIfCrossPreparedStatement(Map<Object, Object> jdbcParam)
+                                                                                       throws CrossPreparedStatementException {
+                    fastPath.route(jdbcParam, routeInfo, this.getSql());
+                }
+            };
+            String routedFullTableName = routeInfo.toString();
+            StringBuilder sb = new StringBuilder(prefix.length() + routedFullTableName.length() + suffix.length());
+            sb.append(prefix).append(routedFullTableName).append(suffix);
+            result.setSql(sb.toString());
+            Set<String> schemas = new HashSet<>();
+            schemas.add(routeInfo.getScName());
+            result.setSchemas(schemas);
+            return result;
+        }
+    }
+
+    private static class RawParsedState implements SQLParsedState {
+
+        private final String sql;
+
+        public RawParsedState(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public SQLParsedResult parse(Map<Object, Object> jdbcParams) {
+            SQLParsedResult result = new SQLParsedResult();
+            result.setSql(sql);
+            result.setSchemas(new HashSet<String>());
+            return result;
+        }
+    }
+
+    private enum TokenType {
+        IDENTIFIER, QUOTED_IDENTIFIER, INTEGER, NUMBER, STRING, JDBC_PARAMETER, NAMED_PARAMETER, SYMBOL
+    }
+
+    private static class Token {
+
+        private final TokenType type;
+        private final int       start;
+        private final int       end;
+        private final String    text;
+        private final String    upper;
+        private final int       paramIndex;
+
+        public Token(TokenType type, String sql, int start, int end, int paramIndex) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+            this.text = sql.substring(start, end);
+            this.upper = type == TokenType.IDENTIFIER ? text.toUpperCase() : null;
+            this.paramIndex = paramIndex;
+        }
+
+        public boolean isKeyword(String keyword) {
+            return type == TokenType.IDENTIFIER && keyword.equals(upper);
+        }
+
+        public boolean isSymbol(char ch) {
+            return type == TokenType.SYMBOL && end - start == 1 && text.charAt(0) == ch;
+        }
+    }
+
+    /**
+     * @return 存在无法识别的字符(如未闭合的字符串)时返回null
+     */
+    private static List<Token> tokenize(String sql) {
+        List<Token> tokens = new ArrayList<>();
+        int length = sql.length();
+        int paramIndex = 0;
+        int i = 0;
+        while (i < length) {
+            char ch = sql.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                i++;
+            } else if (ch == '-' && i + 1 < length && sql.charAt(i + 1) == '-' || ch == '#') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (ch == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                if (end < 0) {
+                    return null;
+                }
+                i = end + 2;
+            } else if (ch == '\'' || ch == '`' || ch == '"') {
+                int end = skipQuoted(sql, i, ch);
+                if (end < 0) {
+                    return null;
+                }
+                tokens.add(new Token(ch == '\'' ? TokenType.STRING : TokenType.QUOTED_IDENTIFIER, sql, i, end, 0));
+                i = end;
+            } else if (ch == '?') {
+                tokens.add(new Token(TokenType.JDBC_PARAMETER, sql, i, i + 1, ++paramIndex));
+                i++;
+            } else if (ch == ':' && i + 1 < length && isIdentifierPart(sql.charAt(i + 1))) {
+                int end = i + 1;
+                while (end < length && isIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+                tokens.add(new Token(TokenType.NAMED_PARAMETER, sql, i, end, 0));
+                i = end;
+            } else if (ch >= '0' && ch <= '9') {
+                int end = i;
+                boolean integer = true;
+                while (end < length && (isIdentifierPart(sql.charAt(end)) || sql.charAt(end) == '.')) {
+                    char c = sql.charAt(end);
+                    if (c < '0' || c > '9') {
+                        integer = false;
+                    }
+                    end++;
+                }
+                tokens.add(new Token(integer ? TokenType.INTEGER : TokenType.NUMBER, sql, i, end, 0));
+                i = end;
+            } else if (isIdentifierPart(ch)) {
+                int end = i + 1;
+                while (end < length && isIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+                tokens.add(new Token(TokenType.IDENTIFIER, sql, i, end, 0));
+                i = end;
+            } else {
+                int end = i + 1;
+                if (end < length && (ch == '<' || ch == '>' || ch == '!') && "=>".indexOf(sql.charAt(end)) >= 0) {
+                    end++;
+                }
+                tokens.add(new Token(TokenType.SYMBOL, sql, i, end, 0));
+                i = end;
+            }
+        }
+        return tokens;
+    }
+
+    private static int skipQuoted(String sql, int i, char quote) {
+        int length = sql.length();
+        int j = i + 1;
+        while (j < length) {
+            char ch = sql.charAt(j);
+            if (ch == '\\' && quote == '\'') {
+                j += 2;
+            } else if (ch == quote) {
+                if (j + 1 < length && sql.charAt(j + 1) == quote) {
+                    j += 2;
+                } else {
+                    return j + 1;
+                }
+            } else {
+                j++;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isIdentifierPart(char ch) {
+        return ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || ch >= '0' && ch <= '9' || ch == '_' || ch == '$'
+               || ch > 0x7f;
+    }
+}
@@ -24,9 +24,12 @@ package org.hellojavaer.ddal.jsqlparser;
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.expression.*;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
 import net.sf.jsqlparser.expression.operators.relational.*;
 import net.sf.jsqlparser.parser.CCJSqlParserManager;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.parser.SimpleNode;
+import net.sf.jsqlparser.parser.Token;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.schema.Database;
 import net.sf.jsqlparser.schema.Table;
@@ -39,7 +42,11 @@ import org.hellojavaer.ddal.ddr.datasource.exception.CrossPreparedStatementExcep
 import org.hellojavaer.ddal.ddr.shard.RangeShardValue;
 import org.hellojavaer.ddal.ddr.shard.ShardRouteConfig;
 import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteUtils;
+import org.hellojavaer.ddal.ddr.shard.TimeShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.TableRouteHandle;
 import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.ResultMergeInfo;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
 import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
 import org.hellojavaer.ddal.ddr.sqlparse.exception.*;
@@ -49,6 +56,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.StringReader;
+import java.math.BigInteger;
+import java.sql.Timestamp;
 import java.util.*;
 
 /**
@@ -69,6 +78,13 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
 
     private List<TableWrapper> toBeConvertedTables = new ArrayList<>();
 
+    private List<TableWrapper> routedTables        = new ArrayList<>();
+
+    private List<InParam>      splitInParams       = new ArrayList<>(); // 需要按物理表拆分的in条件
+
+    // 大于0时当前条件位于or或not中, 其中的分片条件不能单独参与路由(or条件由analyzeCondition整体分析)
+    private int                disjunctionDepth    = 0;
+
     static {
         try {
             checkJSqlParserFeature();
@@ -160,27 +176,13 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
     public SQLParsedState parse() {
         try {
             statement.accept(this);
-            String targetSql = statement.toString();
-            //
-            String splitString = generateSplitString(targetSql);
-            for (int i = 0; i < toBeConvertedTables.size(); i++) {
-                TableWrapper tab = toBeConvertedTables.get(i);
-                tab.setSchemaName(null);
-                tab.setName("_" + i + splitString);
+            routeBindingTables();
+            routeBroadcastTables();
+            List<Object> splitSqls = splitByTableOffset();
+            if (splitSqls == null) {
+                splitSqls = splitByToString();
             }
-            //
-            targetSql = statement.toString();
-            //
-            final List<Object> splitSqls = new ArrayList<>();
-            String[] sqls = targetSql.split(splitString);// table切分
-            for (int i = 0; i < sqls.length - 1; i++) {
-                String s = sqls[i];
-                int index = s.lastIndexOf('_');
-                splitSqls.add(s.substring(0, index));
-                Integer paramIndex = Integer.valueOf(s.substring(index + 1));
-                splitSqls.add(toBeConvertedTables.get(paramIndex));
-            }
-            splitSqls.add(sqls[sqls.length - 1]);
+            final List<Object> finalSplitSqls = splitSqls;
             //
             SQLParsedState parsedResult = new SQLParsedState() {
 
@@ -188,34 +190,120 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
                 public SQLParsedResult parse(final Map<Object, Object> jdbcParams) {
 
                     final Map<TableWrapper, String> convertedTables = new HashMap<>();
+                    final Map<TableWrapper, ShardRouteInfo> routeInfoMap = new HashMap<>();
                     final Set<String> schemas = new HashSet<>(JSQLParserAdapter.this.schemas);
-                    final SQLParsedResult result = new SQLParsedResult() {
-
-                        @Override
-                        public void checkIfCrossPreparedStatement(Map<Object, Object> jdbcParam)
-                                                                                                throws CrossPreparedStatementException {
-                            for (Map.Entry<TableWrapper, String> entry : convertedTables.entrySet()) {
-                                TableWrapper tab = entry.getKey();
-                                route1(tab, jdbcParams, entry.getValue(), this.getSql());
-                            }
-                        }
-                    };
-
-                    StringBuilder sb = new StringBuilder();
-                    for (Object obj : splitSqls) {
+                    // 最多只能有一个表被路由到多个物理表
+                    TableWrapper fanOutTable = null;
+                    List<ShardRouteInfo> fanOutRouteInfos = null;
+                    Map<ShardRouteInfo, List<SqlParam>> fanOutInValues = null;
+                    Set<TableWrapper> boundTables = new LinkedHashSet<>();
+                    for (Object obj : finalSplitSqls) {
                         if (obj instanceof TableWrapper) {
                             TableWrapper tab = (TableWrapper) obj;
-                            ShardRouteInfo routeInfo = route1(tab, jdbcParams, tab.getRoutedFullTableName(), null);
-                            schemas.add(routeInfo.getScName());
-                            String routedFullTableName = routeInfo.toString();
-                            convertedTables.put(tab, routedFullTableName);
-                            sb.append(routedFullTableName);
+                            if (convertedTables.containsKey(tab) || tab == fanOutTable) {
+                                continue;
+                            }
+                            if (tab.getBindingLeader() != null) {// 跟随绑定组中的表路由
+                                boundTables.add(tab);
+                                continue;
+                            }
+                            Map<ShardRouteInfo, List<SqlParam>> inValues = null;
+                            List<ShardRouteInfo> routeInfos;
+                            if (tab.getInParam() != null) {
+                                inValues = groupInValues(tab, jdbcParams);
+                                routeInfos = new ArrayList<>(inValues.keySet());
+                            } else {
+                                routeInfos = route2(tab, jdbcParams);
+                            }
+                            if (routeInfos.size() == 1) {
+                                ShardRouteInfo routeInfo = routeInfos.get(0);
+                                schemas.add(routeInfo.getScName());
+                                convertedTables.put(tab, routeInfo.toString());
+                                routeInfoMap.put(tab, routeInfo);
+                            } else if (fanOutTable == null) {
+                                fanOutTable = tab;
+                                fanOutRouteInfos = routeInfos;
+                                fanOutInValues = inValues;
+                            } else {
+                                throw new AmbiguousRouteResultException("In sql[" + sql + "], both table:'"
+                                                                        + fanOutTable.getOriginalConfig().toString()
+                                                                        + "' and table:'"
+                                                                        + tab.getOriginalConfig().toString()
+                                                                        + "' are routed to multiple tables "
+                                                                        + fanOutRouteInfos + " and " + routeInfos
+                                                                        + ". Jdbc parameter is "
+                                                                        + DDRJSONUtils.toJSONString(jdbcParams));
+                            }
+                        }
+                    }
+                    List<TableWrapper> fanOutBoundTables = new ArrayList<>();
+                    for (TableWrapper tab : boundTables) {
+                        if (tab.getBindingLeader() == fanOutTable) {
+                            fanOutBoundTables.add(tab);
                         } else {
-                            sb.append(obj);
+                            ShardRouteInfo routeInfo = getBindingRouteInfo(tab,
+                                                                           routeInfoMap.get(tab.getBindingLeader()));
+                            schemas.add(routeInfo.getScName());
+                            convertedTables.put(tab, routeInfo.toString());
                         }
                     }
-                    result.setSql(sb.toString());
-                    result.setSchemas(schemas);
+                    if (fanOutTable == null) {
+                        SQLParsedResult result = new SQLParsedResult() {
+
+                            @Override
+                            public void checkIfCrossPreparedStatement(Map<Object, Object> jdbcParam)
+                                                                                                    throws CrossPreparedStatementException {
+                                for (Map.Entry<TableWrapper, String> entry : convertedTables.entrySet()) {
+                                    TableWrapper tab = entry.getKey();
+                                    List<ShardRouteInfo> routeInfos = route2(tab, jdbcParam);
+                                    if (routeInfos.size() != 1 || !routeInfos.get(0).toString().equals(entry.getValue())) {
+                                        throw new CrossPreparedStatementException("Sql[" + sql + "] has been routed to ["
+                                                                                  + this.getSql() + "] and table:'"
+                                                                                  + tab.getOriginalConfig().toString()
+                                                                                  + "' has been route to '"
+                                                                                  + entry.getValue()
+                                                                                  + "'. But current jdbc parameter:"
+                                                                                  + DDRJSONUtils.toJSONString(jdbcParam)
+                                                                                  + " require route to " + routeInfos);
+                                    }
+                                }
+                            }
+                        };
+                        result.setSql(buildSql(finalSplitSqls, convertedTables, null, null));
+                        result.setSchemas(schemas);
+                        return result;
+                    }
+                    // 扇出: 每个物理表生成一条子sql, 由数据源并行执行后合并结果
+                    ResultMergeInfo mergeInfo = getMergeInfo(fanOutTable, jdbcParams);
+                    Set<String> allSchemas = new HashSet<>(schemas);
+                    List<SQLParsedResult> subResults = new ArrayList<>(fanOutRouteInfos.size());
+                    for (ShardRouteInfo routeInfo : fanOutRouteInfos) {
+                        SQLParsedResult subResult = new SQLParsedResult();
+                        List<SqlParam> inValues = null;
+                        if (fanOutInValues != null) {
+                            inValues = fanOutInValues.get(routeInfo);
+                            subResult.setRemovedJdbcParamIndexes(getRemovedJdbcParamIndexes(fanOutTable.getInParam(),
+                                                                                            inValues));
+                        }
+                        Set<String> subSchemas = new HashSet<>(schemas);
+                        subSchemas.add(routeInfo.getScName());
+                        Map<TableWrapper, String> subTables = new HashMap<>(convertedTables);
+                        subTables.put(fanOutTable, routeInfo.toString());
+                        for (TableWrapper tab : fanOutBoundTables) {
+                            ShardRouteInfo boundRouteInfo = getBindingRouteInfo(tab, routeInfo);
+                            subTables.put(tab, boundRouteInfo.toString());
+                            subSchemas.add(boundRouteInfo.getScName());
+                        }
+                        subResult.setSql(buildSql(finalSplitSqls, subTables, fanOutTable, inValues));
+                        subResult.setSchemas(subSchemas);
+                        subResults.add(subResult);
+                        allSchemas.addAll(subSchemas);
+                    }
+                    SQLParsedResult result = new SQLParsedResult();
+                    result.setSchemas(allSchemas);
+                    result.setSubResults(subResults);
+                    result.setMergeInfo(mergeInfo);
+                    result.setBroadcast(isBroadcastWrite(fanOutTable));
                     return result;
                 }
             };
@@ -226,8 +314,534 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
         }
     }
 
-    private ShardRouteInfo route1(TableWrapper tab, Map<Object, Object> jdbcParams, String routedFullTableName,
-                                  String routedSql) {
+    /**
+     * @param inValues fanOutTable上拆分后的in列表, 为空时使用原始的in列表
+     */
+    private static String buildSql(List<Object> splitSqls, Map<TableWrapper, String> convertedTables,
+                                   TableWrapper fanOutTable, List<SqlParam> inValues) {
+        StringBuilder sb = new StringBuilder();
+        for (Object obj : splitSqls) {
+            if (obj instanceof InParam) {
+                InParam inParam = (InParam) obj;
+                List<SqlParam> values = inValues;
+                if (values == null || inParam.getTable() != fanOutTable) {
+                    if (inParam.getOriginalSql() != null) {
+                        sb.append(inParam.getOriginalSql());
+                        continue;
+                    }
+                    values = inParam.getValues();
+                }
+                for (int i = 0; i < values.size(); i++) {
+                    if (i > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append(values.get(i).getExpression());
+                }
+            } else if (obj instanceof TableWrapper) {
+                sb.append(convertedTables.get(obj));
+            } else {
+                sb.append(obj);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final Set<String> AGGREGATE_FUNCTIONS = new HashSet<>(Arrays.asList("count", "sum", "avg", "min",
+                                                                                       "max", "group_concat"));
+
+    /**
+     * 扇出的sql只支持各个子sql的结果可以直接合并的形式:
+     * <pre>
+     * 1. 扇出的表在最外层的语句中
+     * 2. update和delete语句不能带limit
+     * 3. select语句不能是union, 不能带distinct, group by, having, 聚合函数和offset;
+     *    order by只能使用查询结果中的列, limit只能指定行数
+     * </pre>
+     */
+    private ResultMergeInfo getMergeInfo(TableWrapper fanOutTable, Map<Object, Object> jdbcParams) {
+        if (!fanOutTable.isTopLevel()) {
+            throw new UnsupportedSQLExpressionException("In sql[" + sql + "], table:'"
+                                                        + fanOutTable.getOriginalConfig().toString()
+                                                        + "' in sub query can't be routed to multiple tables");
+        }
+        if (statement instanceof Insert) {
+            return null;
+        }
+        if (statement instanceof Update || statement instanceof Delete) {
+            Limit limit = statement instanceof Update ? ((Update) statement).getLimit() : ((Delete) statement).getLimit();
+            if (limit != null && !isBroadcastWrite(fanOutTable)) {// 广播表的各个副本数据相同
+                throw new UnsupportedSQLExpressionException("Sql[" + sql
+                                                            + "] with limit can't be routed to multiple tables");
+            }
+            return null;
+        }
+        if (!(statement instanceof Select) || !(((Select) statement).getSelectBody() instanceof PlainSelect)) {
+            throw new UnsupportedSQLExpressionException("Sql[" + sql + "] can't be routed to multiple tables");
+        }
+        PlainSelect plainSelect = (PlainSelect) ((Select) statement).getSelectBody();
+        if (plainSelect.getDistinct() != null || plainSelect.getGroupByColumnReferences() != null
+            || plainSelect.getHaving() != null || plainSelect.getOffset() != null || plainSelect.getFetch() != null
+            || plainSelect.getTop() != null) {
+            throw new UnsupportedSQLExpressionException("Sql[" + sql + "] with distinct, group by, having, "
+                                                        + "offset, fetch or top can't be routed to multiple tables");
+        }
+        for (SelectItem item : plainSelect.getSelectItems()) {
+            if (item instanceof SelectExpressionItem
+                && containsAggregateFunction(((SelectExpressionItem) item).getExpression())) {
+                throw new UnsupportedSQLExpressionException("Sql[" + sql + "] with aggregate function '" + item
+                                                            + "' can't be routed to multiple tables");
+            }
+        }
+        List<ResultMergeInfo.OrderByItem> orderByItems = new ArrayList<>();
+        if (plainSelect.getOrderByElements() != null) {
+            for (OrderByElement element : plainSelect.getOrderByElements()) {
+                if (!(element.getExpression() instanceof Column) || element.getNullOrdering() != null) {
+                    throw new UnsupportedSQLExpressionException("Sql[" + sql + "] with order by item '" + element
+                                                                + "' can't be routed to multiple tables");
+                }
+                String label = getColumnLabel(plainSelect, (Column) element.getExpression());
+                orderByItems.add(new ResultMergeInfo.OrderByItem(label, element.isAsc()));
+            }
+        }
+        Long rowCount = null;
+        Limit limit = plainSelect.getLimit();
+        if (limit != null && !limit.isLimitAll() && !limit.isLimitNull()) {
+            Expression offset = limit.getOffset();
+            if (offset != null && !(offset instanceof LongValue && ((LongValue) offset).getValue() == 0)) {
+                throw new UnsupportedSQLExpressionException("Sql[" + sql
+                                                            + "] with limit offset can't be routed to multiple tables");
+            }
+            Object value = getValue(limit.getRowCount(), jdbcParams);
+            if (!(value instanceof Number)) {
+                throw new IllegalSQLParameterException("Limit row count of sql[" + sql + "] must be a number, but is "
+                                                       + value + ". Jdbc parameter is "
+                                                       + DDRJSONUtils.toJSONString(jdbcParams));
+            }
+            rowCount = ((Number) value).longValue();
+        }
+        return new ResultMergeInfo(orderByItems, rowCount);
+    }
+
+    private static boolean containsAggregateFunction(Expression expression) {
+        final boolean[] found = new boolean[1];
+        expression.accept(new ExpressionVisitorAdapter() {
+
+            @Override
+            public void visit(Function function) {
+                if (AGGREGATE_FUNCTIONS.contains(DDRStringUtils.toLowerCase(function.getName()))) {
+                    found[0] = true;
+                } else {
+                    super.visit(function);
+                }
+            }
+        });
+        return found[0];
+    }
+
+    /**
+     * order by的列在结果集中的列名
+     */
+    private String getColumnLabel(PlainSelect plainSelect, Column column) {
+        String name = column.getColumnName();
+        boolean allColumns = false;
+        for (SelectItem item : plainSelect.getSelectItems()) {
+            if (item instanceof AllColumns || item instanceof AllTableColumns) {
+                allColumns = true;
+            } else if (item instanceof SelectExpressionItem) {
+                SelectExpressionItem expressionItem = (SelectExpressionItem) item;
+                Alias alias = expressionItem.getAlias();
+                if (alias != null && alias.getName().equalsIgnoreCase(name)) {
+                    return alias.getName();
+                }
+                if (expressionItem.getExpression() instanceof Column
+                    && ((Column) expressionItem.getExpression()).getColumnName().equalsIgnoreCase(name)) {
+                    return alias == null ? name : alias.getName();
+                }
+            }
+        }
+        if (allColumns) {
+            return name;
+        }
+        throw new UnsupportedSQLExpressionException("In sql[" + sql + "], order by column '" + column
+                                                    + "' isn't in select items, which can't be routed to multiple tables");
+    }
+
+    private Object getValue(Expression expression, Map<Object, Object> jdbcParams) {
+        Object key;
+        if (expression instanceof JdbcParameter) {
+            key = ((JdbcParameter) expression).getIndex();
+        } else if (expression instanceof JdbcNamedParameter) {
+            key = ((JdbcNamedParameter) expression).getName();
+        } else if (expression instanceof LongValue) {
+            return ((LongValue) expression).getValue();
+        } else if (isSignedLongValue(expression)) {
+            return getSignedLongValue((SignedExpression) expression);
+        } else {
+            return null;
+        }
+        return jdbcParams == null ? null : jdbcParams.get(key);
+    }
+
+    /**
+     * 根据表名和需要拆分的in列表在原始sql中的位置切分sql, 保留原始sql的格式和注释. 无法获取位置时返回null
+     */
+    private List<Object> splitByTableOffset() {
+        Set<TableWrapper> toBeConverted = Collections.newSetFromMap(new IdentityHashMap<TableWrapper, Boolean>());
+        toBeConverted.addAll(toBeConvertedTables);
+        List<Object> items = new ArrayList<>();
+        final Map<Object, int[]> offsets = new IdentityHashMap<>();
+        int[] lineOffsets = getLineOffsets(sql);
+        for (TableWrapper tab : routedTables) {
+            if (offsets.containsKey(tab)
+                || (!toBeConverted.contains(tab) && tab.getRoutedFullTableName() == null && !isAliasAppended(tab))) {
+                continue;
+            }
+            SimpleNode node = tab.getOriginalConfig().getASTNode();
+            if (node == null || node.jjtGetFirstToken() == null || node.jjtGetLastToken() == null) {
+                return null;
+            }
+            Token first = node.jjtGetFirstToken();
+            Token last = node.jjtGetLastToken();
+            int start = getOffset(lineOffsets, first.beginLine, first.beginColumn);
+            int end = getOffset(lineOffsets, last.endLine, last.endColumn) + 1;
+            String tbName = tab.getOriginalConfig().getName();
+            if (start < 0 || end <= start || end > sql.length() || tbName == null
+                || !sql.regionMatches(end - tbName.length(), tbName, 0, tbName.length())) {
+                return null;
+            }
+            if (statement instanceof Delete && ((Delete) statement).getTable() == tab) {
+                end = skipDeleteAlias(end);
+            }
+            offsets.put(tab, new int[] { start, end });
+            items.add(tab);
+        }
+        for (InParam inParam : splitInParams) {
+            int[] offset = getInListOffset(lineOffsets, inParam);
+            if (offset == null) {
+                return null;
+            }
+            offsets.put(inParam, offset);
+            items.add(inParam);
+            inParam.setOriginalSql(sql.substring(offset[0], offset[1]));
+        }
+        Collections.sort(items, new Comparator<Object>() {
+
+            @Override
+            public int compare(Object o1, Object o2) {
+                return Integer.compare(offsets.get(o1)[0], offsets.get(o2)[0]);
+            }
+        });
+        List<Object> splitSqls = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        int last = 0;
+        for (Object item : items) {
+            int[] offset = offsets.get(item);
+            if (offset[0] < last) {
+                return null;
+            }
+            sb.append(sql, last, offset[0]);
+            if (item instanceof InParam) {
+                splitSqls.add(sb.toString());
+                splitSqls.add(item);
+                sb.setLength(0);
+                last = offset[1];
+                continue;
+            }
+            TableWrapper tab = (TableWrapper) item;
+            if (toBeConverted.contains(tab)) {
+                splitSqls.add(sb.toString());
+                splitSqls.add(tab);
+                sb.setLength(0);
+            } else if (tab.getRoutedFullTableName() != null) {
+                sb.append(tab.getRoutedFullTableName());
+            } else {
+                sb.append(sql, offset[0], offset[1]);
+            }
+            if (isAliasAppended(tab)) {
+                sb.append(" AS ").append(tab.getAlias().getName());
+            }
+            last = offset[1];
+        }
+        sb.append(sql, last, sql.length());
+        splitSqls.add(sb.toString());
+        return splitSqls;
+    }
+
+    /**
+     * in列表(不含括号)在原始sql中的位置. in列表没有语法树节点, 从左边列的结束位置向后扫描'in ('和对应的')'
+     */
+    private int[] getInListOffset(int[] lineOffsets, InParam inParam) {
+        SimpleNode node = inParam.getColumn().getASTNode();
+        if (node == null || node.jjtGetLastToken() == null) {
+            return null;
+        }
+        Token last = node.jjtGetLastToken();
+        int index = getOffset(lineOffsets, last.endLine, last.endColumn) + 1;
+        if (index <= 0 || index > sql.length()) {
+            return null;
+        }
+        index = skipWhitespace(index);
+        if (!sql.regionMatches(true, index, "in", 0, 2)) {
+            return null;
+        }
+        index = skipWhitespace(index + 2);
+        if (index >= sql.length() || sql.charAt(index) != '(') {
+            return null;
+        }
+        int start = index + 1;
+        int depth = 0;
+        char quote = 0;
+        for (int i = start; i < sql.length(); i++) {
+            char ch = sql.charAt(i);
+            if (quote != 0) {
+                if (ch == quote) {
+                    quote = 0;
+                } else if (ch == '\\') {
+                    i++;
+                }
+            } else if (ch == '\'' || ch == '"' || ch == '`') {
+                quote = ch;
+            } else if (ch == '(') {
+                depth++;
+            } else if (ch == ')') {
+                if (depth == 0) {
+                    return new int[] { start, i };
+                }
+                depth--;
+            }
+        }
+        return null;
+    }
+
+    private int skipWhitespace(int index) {
+        while (index < sql.length() && Character.isWhitespace(sql.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * 单表delete的别名在JSqlParser中会被丢弃, 路由后的sql中同样去掉别名(MySQL 8.0.16之前单表delete不支持别名).
+     * 返回别名之后的位置, 没有别名时返回index
+     */
+    private int skipDeleteAlias(int index) {
+        int start = skipWhitespace(index);
+        if (start == index) {
+            return index;
+        }
+        boolean as = false;
+        if (sql.regionMatches(true, start, "as", 0, 2) && start + 2 < sql.length()
+            && (Character.isWhitespace(sql.charAt(start + 2)) || sql.charAt(start + 2) == '`')) {
+            as = true;
+            start = skipWhitespace(start + 2);
+        }
+        int end = start;
+        if (end < sql.length() && (sql.charAt(end) == '`' || sql.charAt(end) == '"')) {
+            end = sql.indexOf(sql.charAt(end), end + 1);
+            if (end < 0) {
+                return index;
+            }
+            end++;
+        } else {
+            while (end < sql.length() && Character.isJavaIdentifierPart(sql.charAt(end))) {
+                end++;
+            }
+            if (end == start) {
+                return index;
+            }
+            String word = sql.substring(start, end);
+            if (!as && ("where".equalsIgnoreCase(word) || "order".equalsIgnoreCase(word)
+                        || "limit".equalsIgnoreCase(word))) {
+                return index;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isAliasAppended(TableWrapper tab) {
+        return tab.getAlias() != null && tab.getOriginalConfig().getAlias() == null;
+    }
+
+    /**
+     * JavaCC的行号以\r, \n或\r\n分隔, 列号从1开始
+     */
+    private static int[] getLineOffsets(String sql) {
+        List<Integer> list = new ArrayList<>();
+        list.add(0);
+        for (int i = 0; i < sql.length(); i++) {
+            char ch = sql.charAt(i);
+            if (ch == '\r') {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                list.add(i + 1);
+            } else if (ch == '\n') {
+                list.add(i + 1);
+            }
+        }
+        int[] offsets = new int[list.size()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = list.get(i);
+        }
+        return offsets;
+    }
+
+    private static int getOffset(int[] lineOffsets, int line, int column) {
+        if (line < 1 || line > lineOffsets.length || column < 1) {
+            return -1;
+        }
+        return lineOffsets[line - 1] + column - 1;
+    }
+
+    /**
+     * 将表名替换为随机标记后通过toString切分sql
+     */
+    private List<Object> splitByToString() {
+        String targetSql = statement.toString();
+        //
+        String splitString = generateSplitString(targetSql);
+        for (int i = 0; i < toBeConvertedTables.size(); i++) {
+            TableWrapper tab = toBeConvertedTables.get(i);
+            tab.setSchemaName(null);
+            tab.setName("_" + i + splitString);
+        }
+        // in列表替换为一个标记列, 标记的序号排在表之后
+        int tableCount = toBeConvertedTables.size();
+        for (int i = 0; i < splitInParams.size(); i++) {
+            List<Expression> marker = new ArrayList<>();
+            marker.add(new Column("_" + (tableCount + i) + splitString));
+            splitInParams.get(i).getInExpression().setRightItemsList(new ExpressionList(marker));
+        }
+        //
+        targetSql = statement.toString();
+        //
+        final List<Object> splitSqls = new ArrayList<>();
+        String[] sqls = targetSql.split(splitString);// table切分
+        for (int i = 0; i < sqls.length - 1; i++) {
+            String s = sqls[i];
+            int index = s.lastIndexOf('_');
+            splitSqls.add(s.substring(0, index));
+            Integer paramIndex = Integer.valueOf(s.substring(index + 1));
+            if (paramIndex < tableCount) {
+                splitSqls.add(toBeConvertedTables.get(paramIndex));
+            } else {
+                splitSqls.add(splitInParams.get(paramIndex - tableCount));
+            }
+        }
+        splitSqls.add(sqls[sqls.length - 1]);
+        return splitSqls;
+    }
+
+    /**
+     * 没有分片条件的表使用同一个绑定组中有分片条件的表路由, 整个join落在同一个分片内
+     */
+    private void routeBindingTables() {
+        for (TableWrapper tab : routedTables) {
+            String bindingGroup = tab.getRouteConfig().getBindingGroup();
+            if (bindingGroup == null || !ShardRouteUtils.isBindingSupported(shardRouter) || hasShardCondition(tab)
+                || tab.getBindingLeader() != null) {
+                continue;
+            }
+            TableWrapper leader = null;
+            for (TableWrapper other : routedTables) {
+                if (other != tab && bindingGroup.equals(other.getRouteConfig().getBindingGroup())
+                    && hasShardCondition(other)) {
+                    if (other.getRoutedFullTableName() != null) {// 优先使用已在解析阶段路由的表
+                        leader = other;
+                        break;
+                    } else if (leader == null) {
+                        leader = other;
+                    }
+                }
+            }
+            if (leader == null) {
+                continue;
+            }
+            if (leader.getRoutedFullTableName() != null) {
+                route0(tab, getBindingRouteInfo(tab, new ShardRouteInfo(leader.getSchemaName(), leader.getName())));
+                toBeConvertedTables.removeAll(Collections.singleton(tab));
+            } else {
+                tab.setBindingLeader(leader);
+            }
+        }
+    }
+
+    /**
+     * 广播表: 写入时扇出到所有的副本; 读取时使用sql中其他表所在schema中的副本, sql中没有其他表时使用任意一个副本
+     */
+    private void routeBroadcastTables() {
+        for (TableWrapper tab : routedTables) {
+            if (!tab.getRouteConfig().isBroadcast() || tab.getRoutedFullTableName() != null
+                || tab.getFanOutRouteInfos() != null || tab.getBindingLeader() != null) {
+                continue;
+            }
+            List<ShardRouteInfo> routeInfos = getAllRouteInfos(tab);
+            if (tab.isWriteTarget()) {
+                if (routeInfos.size() == 1) {
+                    route0(tab, routeInfos.get(0));
+                    toBeConvertedTables.removeAll(Collections.singleton(tab));
+                } else {
+                    tab.setFanOutRouteInfos(routeInfos);
+                }
+                continue;
+            }
+            // 优先使用已在解析阶段路由的表, 其次是有分片条件的表
+            TableWrapper leader = null;
+            for (TableWrapper other : routedTables) {
+                if (other == tab || other.getRouteConfig().isBroadcast() || other.getBindingLeader() != null) {
+                    continue;
+                }
+                if (other.getRoutedFullTableName() != null) {
+                    leader = other;
+                    break;
+                } else if (leader == null || !hasShardCondition(leader) && hasShardCondition(other)) {
+                    leader = other;
+                }
+            }
+            if (leader == null) {
+                ShardRouteInfo routeInfo = routeInfos.get(0);
+                for (ShardRouteInfo item : routeInfos) {
+                    if (schemas.contains(item.getScName())) {
+                        routeInfo = item;
+                        break;
+                    }
+                }
+                route0(tab, routeInfo);
+                toBeConvertedTables.removeAll(Collections.singleton(tab));
+            } else if (leader.getRoutedFullTableName() != null) {
+                route0(tab, getBindingRouteInfo(tab, new ShardRouteInfo(leader.getSchemaName(), leader.getName())));
+                toBeConvertedTables.removeAll(Collections.singleton(tab));
+            } else {
+                tab.setBindingLeader(leader);
+            }
+        }
+    }
+
+    private boolean isBroadcastWrite(TableWrapper tab) {
+        return tab.getRouteConfig().isBroadcast() && tab.isWriteTarget();
+    }
+
+    private static boolean hasShardCondition(TableWrapper tab) {
+        return tab.getRoutedFullTableName() != null || !tab.getJdbcParamKeys().isEmpty()
+               || !tab.getRangeParams().isEmpty() || tab.getInParam() != null || !tab.getOrConditions().isEmpty()
+               || tab.getFanOutRouteInfos() != null;
+    }
+
+    private ShardRouteInfo getBindingRouteInfo(TableWrapper tab, ShardRouteInfo bindingRouteInfo) {
+        ShardRouteInfo routeInfo = ShardRouteUtils.getBindingRouteInfo(shardRouter,
+                                                                       tab.getOriginalConfig().getSchemaName(),
+                                                                       tab.getOriginalConfig().getName(),
+                                                                       bindingRouteInfo);
+        if (routeInfo == null) {
+            throw new GetRouteInfoException("Can't get route information for table:'"
+                                            + tab.getOriginalConfig().toString() + "' bound to '"
+                                            + bindingRouteInfo + "' and routeConfig:"
+                                            + tab.getRouteConfig().toString() + ". Sql is [" + sql + "]");
+        }
+        return routeInfo;
+    }
+
+    private ShardRouteInfo route1(TableWrapper tab, Map<Object, Object> jdbcParams, String routedFullTableName) {
         ShardRouteInfo routeInfo = null;
         // 1. no shard key
         if (tab.getJdbcParamKeys() == null || tab.getJdbcParamKeys().isEmpty()) {
@@ -252,87 +866,31 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
             return routeInfo;
         }
         // 2. jdbc param
-        for (Object sqlParam : tab.getJdbcParamKeys()) {// size > 0
-            if (sqlParam instanceof SqlParam) {
-                Object sdValue = null;
-                Object key = ((SqlParam) sqlParam).getValue();
-                if (jdbcParams != null) {
-                    sdValue = jdbcParams.get(key);
-                }
-                if (sdValue == null) {// sql中指定的sdValue不能为空
-                    throw new IllegalSQLParameterException("For jdbc parameter key " + key
-                                                           + ", jdbc parameter value is null. Jdbc parameter map is "
-                                                           + DDRJSONUtils.toJSONString(jdbcParams) + " and sql is ["
-                                                           + sql + "]");
-                }
-                routeInfo = getRouteInfo(tab, sdValue);
-                String next = routeInfo.toString();
-                if (routedFullTableName == null) {
-                    routedFullTableName = next;
-                } else {
-                    if (!routedFullTableName.equals(next)) {
-                        throw new AmbiguousRouteResultException("In sql[" + sql + "], table:'"
-                                                                + tab.getOriginalConfig().toString()
-                                                                + "' has multiple routing results["
-                                                                + routedFullTableName + "," + next
-                                                                + "]. Jdbc parameter is "
-                                                                + DDRJSONUtils.toJSONString(jdbcParams));
-                    }
-                }
-            } else {// range
-                RangeParam rangeParam = (RangeParam) sqlParam;
-                SqlParam begin = rangeParam.getBeginValue();
-                SqlParam end = rangeParam.getEndValue();
-                long s0 = 0;
-                long e0 = 0;
-                if (begin.isJdbcParamType()) {
-                    Number number = (Number) jdbcParams.get(begin.getValue());
-                    if (number == null) {
-                        throw new IllegalSQLParameterException("Jdbc parameter can't be null. Jdbc parameter key is "
-                                                               + begin.getValue() + ", jdbc parameter is "
-                                                               + DDRJSONUtils.toJSONString(jdbcParams)
-                                                               + " and sql is [" + sql + "]");
-                    }
-                    s0 = number.longValue();
-                } else {
-                    s0 = ((Number) begin.getValue()).longValue();
-                }
-                if (end.isJdbcParamType()) {
-                    Number number = (Number) jdbcParams.get(end.getValue());
-                    if (number == null) {
-
-                    }
-                    e0 = number.longValue();
-                } else {
-                    e0 = ((Number) end.getValue()).longValue();
-                }
-
-                routeInfo = getRouteInfo(tab, new RangeShardValue(s0, e0));
-                String next = routeInfo.toString();
-                if (routedFullTableName == null) {
-                    routedFullTableName = next;
-                } else {
-                    if (!routedFullTableName.equals(next)) {
-                        if (routedSql != null) {
-                            throw new CrossPreparedStatementException("Sql[" + sql + "] has been routed to ["
-                                                                      + routedSql + "] and table:'"
-                                                                      + tab.getOriginalConfig().toString()
-                                                                      + "' has been route to '" + routedFullTableName
-                                                                      + "'. But current jdbc parameter:"
-                                                                      + DDRJSONUtils.toJSONString(jdbcParams)
-                                                                      + " require route to " + next
-                                                                      + DDRJSONUtils.toJSONString(jdbcParams));
-                        } else {
-                            throw new AmbiguousRouteResultException("In sql[" + sql + "], table:'"
-                                                                    + tab.getOriginalConfig().toString()
-                                                                    + "' has multiple routing results["
-                                                                    + routedFullTableName + "," + next
-                                                                    + "]. Jdbc parameter is "
-                                                                    + DDRJSONUtils.toJSONString(jdbcParams));
-                        }
-                    }
+        for (SqlParam sqlParam : tab.getJdbcParamKeys()) {// size > 0
+            Object sdValue = null;
+            Object key = sqlParam.getValue();
+            if (jdbcParams != null) {
+                sdValue = jdbcParams.get(key);
+            }
+            if (sdValue == null) {// sql中指定的sdValue不能为空
+                throw new IllegalSQLParameterException("For jdbc parameter key " + key
+                                                       + ", jdbc parameter value is null. Jdbc parameter map is "
+                                                       + DDRJSONUtils.toJSONString(jdbcParams) + " and sql is ["
+                                                       + sql + "]");
+            }
+            routeInfo = getRouteInfo(tab, sdValue);
+            String next = routeInfo.toString();
+            if (routedFullTableName == null) {
+                routedFullTableName = next;
+            } else {
+                if (!routedFullTableName.equals(next)) {
+                    throw new AmbiguousRouteResultException("In sql[" + sql + "], table:'"
+                                                            + tab.getOriginalConfig().toString()
+                                                            + "' has multiple routing results["
+                                                            + routedFullTableName + "," + next
+                                                            + "]. Jdbc parameter is "
+                                                            + DDRJSONUtils.toJSONString(jdbcParams));
                 }
-
             }
         }
         return routeInfo;
@@ -345,6 +903,8 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
             if (tab == AMBIGUOUS_TABLE) {
                 continue;
             }
+            routeInParams(tab);
+            routeLiteralConditions(tab);
             if (tab.getJdbcParamKeys() != null && !tab.getJdbcParamKeys().isEmpty()) {// 含jdbc路由
                 toBeConvertedTables.add(tab);
             } else {// 不含jdbc路由
@@ -355,11 +915,336 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
         }
     }
 
+    /**
+     * 表上只有一个分片列的in条件且没有其他分片条件时, 按物理表拆分in列表; 否则in中的值必须路由到同一个表
+     */
+    private void routeInParams(TableWrapper tab) {
+        if (tab.getInParams().isEmpty()) {
+            return;
+        }
+        // 同一个表在上下文中对应多个key, 只处理一次
+        List<InParam> inParams = new ArrayList<>(tab.getInParams());
+        tab.getInParams().clear();
+        if (inParams.size() == 1 && tab.getJdbcParamKeys().isEmpty() && tab.getRoutedFullTableName() == null
+            && tab.getRangeParams().isEmpty() && tab.getOrConditions().isEmpty()) {
+            InParam inParam = inParams.get(0);
+            boolean jdbcParamType = false;
+            for (SqlParam sqlParam : inParam.getValues()) {
+                jdbcParamType = jdbcParamType || sqlParam.isJdbcParamType();
+            }
+            if (jdbcParamType) {
+                tab.setInParam(inParam);
+                splitInParams.add(inParam);
+                return;
+            }
+            // 常量在解析阶段分组
+            Map<ShardRouteInfo, List<SqlParam>> inValues = groupInValues(tab, inParam, null);
+            if (inValues.size() == 1) {
+                route0(tab, inValues.keySet().iterator().next());
+            } else {
+                inParam.setLiteralGroups(inValues);
+                tab.setInParam(inParam);
+                splitInParams.add(inParam);
+            }
+            return;
+        }
+        for (InParam inParam : inParams) {
+            for (SqlParam sqlParam : inParam.getValues()) {
+                if (sqlParam.isJdbcParamType()) {
+                    tab.getJdbcParamKeys().add(sqlParam);
+                } else {
+                    route0(tab, getRouteInfo(tab, sqlParam.getValue()));
+                }
+            }
+        }
+    }
+
+    private Map<ShardRouteInfo, List<SqlParam>> groupInValues(TableWrapper tab, Map<Object, Object> jdbcParams) {
+        InParam inParam = tab.getInParam();
+        if (inParam.getLiteralGroups() != null) {
+            return inParam.getLiteralGroups();
+        }
+        return groupInValues(tab, inParam, jdbcParams);
+    }
+
+    /**
+     * 按路由到的物理表对in中的值分组, 组的顺序和组内值的顺序与原始sql中的顺序一致
+     */
+    private Map<ShardRouteInfo, List<SqlParam>> groupInValues(TableWrapper tab, InParam inParam,
+                                                              Map<Object, Object> jdbcParams) {
+        Map<ShardRouteInfo, List<SqlParam>> groups = new LinkedHashMap<>();
+        for (SqlParam sqlParam : inParam.getValues()) {
+            ShardRouteInfo routeInfo = getRouteInfo(tab, getSdValue(sqlParam, jdbcParams));
+            List<SqlParam> group = groups.get(routeInfo);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(routeInfo, group);
+            }
+            group.add(sqlParam);
+        }
+        return groups;
+    }
+
+    /**
+     * 子sql的in列表中不包含的'?'参数的位置
+     */
+    private static int[] getRemovedJdbcParamIndexes(InParam inParam, List<SqlParam> inValues) {
+        Set<SqlParam> retained = Collections.newSetFromMap(new IdentityHashMap<SqlParam, Boolean>());
+        retained.addAll(inValues);
+        List<Integer> removed = new ArrayList<>();
+        for (SqlParam sqlParam : inParam.getValues()) {
+            if (!retained.contains(sqlParam) && sqlParam.getExpression() instanceof JdbcParameter) {
+                removed.add(((JdbcParameter) sqlParam.getExpression()).getIndex());
+            }
+        }
+        if (removed.isEmpty()) {
+            return null;
+        }
+        int[] indexes = new int[removed.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = removed.get(i);
+        }
+        Arrays.sort(indexes);
+        return indexes;
+    }
+
+    /**
+     * 只有常量的范围条件和or条件在解析阶段路由, 含jdbc参数时在执行阶段路由
+     */
+    private void routeLiteralConditions(TableWrapper tab) {
+        if (tab.getRoutedFullTableName() != null || tab.getFanOutRouteInfos() != null || tab.getInParam() != null
+            || !tab.getJdbcParamKeys().isEmpty()
+            || (tab.getRangeParams().isEmpty() && tab.getOrConditions().isEmpty())) {
+            return;
+        }
+        for (RangeParam rangeParam : tab.getRangeParams()) {
+            if (rangeParam.isJdbcParamType()) {
+                return;
+            }
+        }
+        for (RouteCondition condition : tab.getOrConditions()) {
+            if (condition.isJdbcParamType()) {
+                return;
+            }
+        }
+        List<ShardRouteInfo> routeInfos;
+        if (tab.getOrConditions().isEmpty()) {
+            routeInfos = routeRange(tab, tab.getRangeParams(), null);
+        } else {
+            routeInfos = routeOrConditions(tab, null);
+        }
+        if (routeInfos == null) {
+            return;
+        } else if (routeInfos.size() == 1) {
+            route0(tab, routeInfos.get(0));
+        } else {
+            tab.setFanOutRouteInfos(routeInfos);
+        }
+    }
+
+    /**
+     * 执行阶段的路由, 返回表路由到的所有物理表
+     */
+    private List<ShardRouteInfo> route2(TableWrapper tab, Map<Object, Object> jdbcParams) {
+        if (tab.getBindingLeader() != null) {
+            List<ShardRouteInfo> routeInfos = new ArrayList<>();
+            for (ShardRouteInfo routeInfo : route2(tab.getBindingLeader(), jdbcParams)) {
+                routeInfos.add(getBindingRouteInfo(tab, routeInfo));
+            }
+            return routeInfos;
+        }
+        if (tab.getInParam() != null) {
+            return new ArrayList<>(groupInValues(tab, jdbcParams).keySet());
+        }
+        if (tab.getFanOutRouteInfos() != null) {
+            return tab.getFanOutRouteInfos();
+        }
+        if (!tab.getOrConditions().isEmpty()) {
+            return routeOrConditions(tab, jdbcParams);
+        }
+        if (tab.getJdbcParamKeys().isEmpty() && tab.getRoutedFullTableName() == null
+            && !tab.getRangeParams().isEmpty()) {
+            List<ShardRouteInfo> routeInfos = routeRange(tab, tab.getRangeParams(), jdbcParams);
+            if (routeInfos != null) {
+                return routeInfos;
+            }
+        }
+        return Collections.singletonList(route1(tab, jdbcParams, tab.getRoutedFullTableName()));
+    }
+
+    /**
+     * 含or条件时, 表路由到的物理表为or条件的结果和其他分片条件的结果的交集.
+     * or条件无法缩小路由范围且没有其他分片条件时, 路由到所有的物理表
+     */
+    private List<ShardRouteInfo> routeOrConditions(TableWrapper tab, Map<Object, Object> jdbcParams) {
+        Set<ShardRouteInfo> targets = null;
+        for (RouteCondition condition : tab.getOrConditions()) {
+            targets = intersect(targets, condition.route(tab, jdbcParams));
+        }
+        List<ShardRouteInfo> base = null;
+        if (!tab.getJdbcParamKeys().isEmpty() || tab.getRoutedFullTableName() != null) {
+            base = Collections.singletonList(route1(tab, jdbcParams, tab.getRoutedFullTableName()));
+        } else if (!tab.getRangeParams().isEmpty()) {
+            base = routeRange(tab, tab.getRangeParams(), jdbcParams);
+        }
+        if (base == null) {
+            if (targets == null) {
+                return getAllRouteInfos(tab);
+            } else if (targets.isEmpty()) {// 条件互斥, sql不会命中任何数据, 路由到任意一个表即可
+                return Collections.singletonList(getAllRouteInfos(tab).get(0));
+            } else {
+                return new ArrayList<>(targets);
+            }
+        }
+        if (targets == null) {
+            return base;
+        }
+        List<ShardRouteInfo> routeInfos = new ArrayList<>(base.size());
+        for (ShardRouteInfo routeInfo : base) {
+            if (targets.contains(routeInfo)) {
+                routeInfos.add(routeInfo);
+            }
+        }
+        return routeInfos.isEmpty() ? Collections.singletonList(base.get(0)) : routeInfos;
+    }
+
+    /**
+     * @param a 为null表示不限制
+     * @param b 为null表示不限制
+     */
+    private static Set<ShardRouteInfo> intersect(Set<ShardRouteInfo> a, Set<ShardRouteInfo> b) {
+        if (a == null) {
+            return b;
+        } else if (b == null) {
+            return a;
+        }
+        Set<ShardRouteInfo> set = new LinkedHashSet<>(a);
+        set.retainAll(b);
+        return set;
+    }
+
+    private List<ShardRouteInfo> getAllRouteInfos(TableWrapper tab) {
+        List<ShardRouteInfo> routeInfos = tab.getRouteHandle().getRouteInfos();
+        if (routeInfos == null || routeInfos.isEmpty()) {
+            throw new GetRouteInfoException("Can't get route information for table:'"
+                                            + tab.getOriginalConfig().toString() + "' and routeConfig:"
+                                            + tab.getRouteConfig().toString() + ". Sql is [" + sql + "]");
+        }
+        return routeInfos;
+    }
+
+    private Object getSdValue(SqlParam sqlParam, Map<Object, Object> jdbcParams) {
+        if (!sqlParam.isJdbcParamType()) {
+            return sqlParam.getValue();
+        }
+        Object sdValue = jdbcParams == null ? null : jdbcParams.get(sqlParam.getValue());
+        if (sdValue == null) {// sql中指定的sdValue不能为空
+            throw new IllegalSQLParameterException("For jdbc parameter key " + sqlParam.getValue()
+                                                   + ", jdbc parameter value is null. Jdbc parameter map is "
+                                                   + DDRJSONUtils.toJSONString(jdbcParams) + " and sql is [" + sql
+                                                   + "]");
+        }
+        return sdValue;
+    }
+
+    /**
+     * 对表上所有的范围条件取交集后按区间路由, 路由的代价只和命中的表的数量有关, 与区间的大小无关.
+     * 区间无界时返回null(使用原有的路由方式)
+     */
+    private List<ShardRouteInfo> routeRange(TableWrapper tab, List<RangeParam> rangeParams,
+                                            Map<Object, Object> jdbcParams) {
+        Long begin = null;
+        Long end = null;
+        boolean timeRule = tab.getRouteHandle().getRouteRule() instanceof TimeShardRouteRule;
+        for (RangeParam rangeParam : rangeParams) {
+            if (rangeParam.getBeginValue() != null) {
+                Long value = getRangeBound(rangeParam.getBeginValue(), jdbcParams, true, rangeParam.isBeginExclusive(),
+                                           timeRule);
+                if (value != null && (begin == null || value > begin)) {
+                    begin = value;
+                }
+            }
+            if (rangeParam.getEndValue() != null) {
+                Long value = getRangeBound(rangeParam.getEndValue(), jdbcParams, false, rangeParam.isEndExclusive(),
+                                           timeRule);
+                if (value != null && (end == null || value < end)) {
+                    end = value;
+                }
+            }
+        }
+        if (begin == null || end == null) {
+            return null;
+        }
+        if (begin > end) {// 区间为空, sql不会命中任何数据, 路由到任意一个表即可
+            return Collections.singletonList(getRouteInfo(tab, begin));
+        }
+        RangeShardValue rangeShardValue = new RangeShardValue(begin, end);
+        try {
+            Map<ShardRouteInfo, List<RangeShardValue>> map = ShardRouteUtils.groupSdValuesByRouteInfo(shardRouter,
+                                                                                                      tab.getOriginalConfig().getSchemaName(),
+                                                                                                      tab.getOriginalConfig().getName(),
+                                                                                                      rangeShardValue);
+            return new ArrayList<>(map.keySet());
+        } catch (Throwable e) {
+            String msg = String.format("Current state is table:'%s', sdKey:'%s', sdValue:%s, routeConfig:%s, sql:[%s]",
+                                       tab.getOriginalConfig().toString(), tab.getRouteConfig().getSdKey(),
+                                       rangeShardValue, tab.getRouteConfig().toString(), sql);
+            throw new GetRouteInfoException(msg, e);
+        }
+    }
+
+    /**
+     * 把范围条件的边界转换为闭区间的整数边界, 不是整数类型时返回null(该方向不参与路由).
+     * 字符串在数据库中按字典序比较, 与数值区间不一致, 因此不参与路由.
+     * 时间类型只在规则为{@link TimeShardRouteRule}时转换为毫秒时间戳, 其他规则按毫秒逐个求值的开销不可接受
+     */
+    private Long getRangeBound(SqlParam sqlParam, Map<Object, Object> jdbcParams, boolean lower, boolean exclusive,
+                               boolean timeRule) {
+        Object value = sqlParam.getValue();
+        if (sqlParam.isJdbcParamType()) {
+            value = jdbcParams == null ? null : jdbcParams.get(sqlParam.getValue());
+            if (value == null) {
+                throw new IllegalSQLParameterException("Jdbc parameter can't be null. Jdbc parameter key is "
+                                                       + sqlParam.getValue() + ", jdbc parameter is "
+                                                       + DDRJSONUtils.toJSONString(jdbcParams) + " and sql is ["
+                                                       + sql + "]");
+            }
+        }
+        if (value instanceof Date) {
+            if (!timeRule) {
+                return null;
+            }
+            // 时间类型转换为毫秒时间戳, Timestamp不足1毫秒的部分向区间内取整
+            long l = ((Date) value).getTime();
+            if (value instanceof Timestamp && ((Timestamp) value).getNanos() % 1000000 != 0) {
+                return lower ? l + 1 : l;
+            }
+            value = l;
+        }
+        long l;
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            l = ((Number) value).longValue();
+        } else if (value instanceof BigInteger) {
+            BigInteger integer = (BigInteger) value;
+            if (integer.bitLength() > 63) {
+                return integer.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+            }
+            l = integer.longValue();
+        } else {
+            return null;
+        }
+        if (!exclusive) {
+            return l;
+        } else if (lower) {
+            return l == Long.MAX_VALUE ? l : l + 1;
+        } else {
+            return l == Long.MIN_VALUE ? l : l - 1;
+        }
+    }
+
     private ShardRouteInfo getRouteInfo(TableWrapper tab, Object sdValue) {
         try {
-            ShardRouteInfo routeInfo = this.shardRouter.getRouteInfo(tab.getOriginalConfig().getSchemaName(),
-                                                                     tab.getOriginalConfig().getName(), sdValue);
-            return routeInfo;
+            return tab.getRouteHandle().getRouteInfo(sdValue);
         } catch (Throwable e) {
             String fullTableName = null;
             if (tab.getOriginalConfig().getAlias() != null) {
@@ -395,13 +1280,157 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
         }
     }
 
+    /**
+     * 把条件表达式分析为每个表上的路由条件: and取交集, or取并集, or中只有一个分支约束了某个表时该表不能缩小路由范围.
+     * not和无法识别的表达式不约束任何表
+     */
+    private Map<TableWrapper, RouteCondition> analyzeCondition(Expression expression) {
+        Map<TableWrapper, RouteCondition> result = new LinkedHashMap<>();
+        if (expression instanceof Parenthesis) {
+            if (!((Parenthesis) expression).isNot()) {
+                result = analyzeCondition(((Parenthesis) expression).getExpression());
+            }
+        } else if (expression instanceof AndExpression || expression instanceof OrExpression) {
+            BinaryExpression binaryExpression = (BinaryExpression) expression;
+            if (binaryExpression.isNot()) {
+                return result;
+            }
+            boolean and = expression instanceof AndExpression;
+            Map<TableWrapper, RouteCondition> left = analyzeCondition(binaryExpression.getLeftExpression());
+            Map<TableWrapper, RouteCondition> right = analyzeCondition(binaryExpression.getRightExpression());
+            Set<TableWrapper> tables = new LinkedHashSet<>(left.keySet());
+            tables.addAll(right.keySet());
+            for (TableWrapper tab : tables) {
+                RouteCondition l = left.get(tab);
+                RouteCondition r = right.get(tab);
+                if (l != null && r != null) {
+                    result.put(tab, new CompositeRouteCondition(and, l, r));
+                } else if (and) {
+                    result.put(tab, l != null ? l : r);
+                } else {
+                    result.put(tab, new UnconstrainedRouteCondition());
+                }
+            }
+        } else if (expression instanceof EqualsTo) {
+            EqualsTo equalsTo = (EqualsTo) expression;
+            if (!equalsTo.isNot()) {
+                if (equalsTo.getLeftExpression() instanceof Column
+                    && isRouteValue(equalsTo.getRightExpression())) {
+                    putValuesCondition(result, (Column) equalsTo.getLeftExpression(),
+                                       Collections.singletonList(equalsTo.getRightExpression()));
+                } else if (equalsTo.getRightExpression() instanceof Column
+                           && isRouteValue(equalsTo.getLeftExpression())) {
+                    putValuesCondition(result, (Column) equalsTo.getRightExpression(),
+                                       Collections.singletonList(equalsTo.getLeftExpression()));
+                }
+            }
+        } else if (expression instanceof InExpression) {
+            InExpression inExpression = (InExpression) expression;
+            if (!inExpression.isNot() && inExpression.getLeftExpression() instanceof Column
+                && inExpression.getRightItemsList() instanceof ExpressionList) {
+                List<Expression> list = ((ExpressionList) inExpression.getRightItemsList()).getExpressions();
+                if (list != null && !list.isEmpty()) {
+                    for (Expression exp : list) {
+                        if (!isRouteValue(exp)) {
+                            return result;
+                        }
+                    }
+                    putValuesCondition(result, (Column) inExpression.getLeftExpression(), list);
+                }
+            }
+        } else if (expression instanceof Between) {
+            Between between = (Between) expression;
+            if (!between.isNot() && between.getLeftExpression() instanceof Column
+                && isRangeValue(between.getBetweenExpressionStart()) && isRangeValue(between.getBetweenExpressionEnd())) {
+                Column column = (Column) between.getLeftExpression();
+                TableWrapper tab = getTableFromContext(column);
+                if (tab != null && tab != AMBIGUOUS_TABLE) {
+                    SqlParam begin = new SqlParam(column, between.getBetweenExpressionStart());
+                    SqlParam end = new SqlParam(column, between.getBetweenExpressionEnd());
+                    result.put(tab, new RangeRouteCondition(new RangeParam(begin, false, end, false)));
+                }
+            }
+        } else if (expression instanceof GreaterThan || expression instanceof GreaterThanEquals
+                   || expression instanceof MinorThan || expression instanceof MinorThanEquals) {
+            BinaryExpression binaryExpression = (BinaryExpression) expression;
+            boolean greaterThan = expression instanceof GreaterThan || expression instanceof GreaterThanEquals;
+            boolean inclusive = expression instanceof GreaterThanEquals || expression instanceof MinorThanEquals;
+            Column column;
+            Expression value;
+            if (binaryExpression.isNot()) {
+                return result;
+            } else if (binaryExpression.getLeftExpression() instanceof Column
+                       && isRangeValue(binaryExpression.getRightExpression())) {
+                column = (Column) binaryExpression.getLeftExpression();
+                value = binaryExpression.getRightExpression();
+            } else if (binaryExpression.getRightExpression() instanceof Column
+                       && isRangeValue(binaryExpression.getLeftExpression())) {
+                column = (Column) binaryExpression.getRightExpression();
+                value = binaryExpression.getLeftExpression();
+                greaterThan = !greaterThan;
+            } else {
+                return result;
+            }
+            TableWrapper tab = getTableFromContext(column);
+            if (tab != null && tab != AMBIGUOUS_TABLE) {
+                SqlParam sqlParam = new SqlParam(column, value);
+                if (greaterThan) {
+                    result.put(tab, new RangeRouteCondition(new RangeParam(sqlParam, !inclusive, null, false)));
+                } else {
+                    result.put(tab, new RangeRouteCondition(new RangeParam(null, false, sqlParam, !inclusive)));
+                }
+            }
+        }
+        return result;
+    }
+
+    private void putValuesCondition(Map<TableWrapper, RouteCondition> result, Column column, List<Expression> list) {
+        TableWrapper tab = getTableFromContext(column);
+        if (tab == null || tab == AMBIGUOUS_TABLE) {
+            return;
+        }
+        List<SqlParam> values = new ArrayList<>(list.size());
+        for (Expression exp : list) {
+            values.add(new SqlParam(column, exp));
+        }
+        result.put(tab, new ValuesRouteCondition(values));
+    }
+
+    private static boolean isRouteValue(Expression expression) {
+        return expression instanceof LongValue || expression instanceof StringValue
+               || expression instanceof HexValue || expression instanceof DateValue
+               || expression instanceof DoubleValue || expression instanceof TimeValue
+               || expression instanceof TimestampValue || expression instanceof JdbcParameter
+               || expression instanceof JdbcNamedParameter || isSignedLongValue(expression);
+    }
+
+    /**
+     * 带正负号的整数常量, 如 id = -5
+     */
+    private static boolean isSignedLongValue(Expression expression) {
+        if (!(expression instanceof SignedExpression)) {
+            return false;
+        }
+        SignedExpression signedExpression = (SignedExpression) expression;
+        return (signedExpression.getSign() == '-' || signedExpression.getSign() == '+')
+               && signedExpression.getExpression() instanceof LongValue;
+    }
+
+    private static long getSignedLongValue(SignedExpression signedExpression) {
+        long value = ((LongValue) signedExpression.getExpression()).getValue();
+        return signedExpression.getSign() == '-' ? -value : value;
+    }
+
     @Override
     public void visit(Insert insert) {
         this.getStack().push(new FrameContext());
-        ShardRouteConfig routeConfig = shardRouter.getRouteConfig(insert.getTable().getSchemaName(),
-                                                                  insert.getTable().getName());
-        if (routeConfig != null) {
-            TableWrapper table = new TableWrapper(insert.getTable(), routeConfig);
+        TableRouteHandle routeHandle = ShardRouteUtils.getTableRouteHandle(shardRouter,
+                                                                           insert.getTable().getSchemaName(),
+                                                                           insert.getTable().getName());
+        if (routeHandle != null) {
+            ShardRouteConfig routeConfig = routeHandle.getRouteConfig();
+            TableWrapper table = new TableWrapper(insert.getTable(), routeHandle);
+            table.setWriteTarget(true);
             addRoutedTableIntoContext(table, routeConfig, false);
             List<Column> columns = insert.getColumns();
             if (columns != null) {
@@ -430,10 +1459,13 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
             throw new IllegalStateException("no limit in sql: " + sql);
         }
         this.getStack().push(new FrameContext());
-        ShardRouteConfig routeConfig = shardRouter.getRouteConfig(delete.getTable().getSchemaName(),
-                                                                  delete.getTable().getName());
-        if (routeConfig != null) {
-            TableWrapper tab = new TableWrapper(delete.getTable(), routeConfig);
+        TableRouteHandle routeHandle = ShardRouteUtils.getTableRouteHandle(shardRouter,
+                                                                           delete.getTable().getSchemaName(),
+                                                                           delete.getTable().getName());
+        if (routeHandle != null) {
+            ShardRouteConfig routeConfig = routeHandle.getRouteConfig();
+            TableWrapper tab = new TableWrapper(delete.getTable(), routeHandle);
+            tab.setWriteTarget(true);
             delete.setTable(tab);
             addRoutedTableIntoContext(tab, routeConfig, false);
         }
@@ -449,9 +1481,13 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
         this.getStack().push(new FrameContext());
         if (update.getTables() != null) {
             for (Table table : update.getTables()) {
-                ShardRouteConfig routeConfig = shardRouter.getRouteConfig(table.getSchemaName(), table.getName());
-                if (routeConfig != null) {
-                    TableWrapper tab = new TableWrapper(table, routeConfig);
+                TableRouteHandle routeHandle = ShardRouteUtils.getTableRouteHandle(shardRouter,
+                                                                                   table.getSchemaName(),
+                                                                                   table.getName());
+                if (routeHandle != null) {
+                    ShardRouteConfig routeConfig = routeHandle.getRouteConfig();
+                    TableWrapper tab = new TableWrapper(table, routeHandle);
+                    tab.setWriteTarget(true);
                     addRoutedTableIntoContext(tab, routeConfig, true);
                 }
             }
@@ -473,10 +1509,13 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
 
     @Override
     public void visit(SubSelect subSelect) {
+        // 子查询中的条件只作用于子查询中的表
+        int disjunctionDepth = this.disjunctionDepth;
+        this.disjunctionDepth = 0;
         this.getStack().push(new FrameContext());
         super.visit(subSelect);
         afterVisitBaseStatement();
-
+        this.disjunctionDepth = disjunctionDepth;
     }
 
     private TableWrapper getTableFromContext(Column col) {
@@ -496,6 +1535,8 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
      * @param appendAlias
      */
     private void addRoutedTableIntoContext(TableWrapper table, ShardRouteConfig routeConfig, boolean appendAlias) {
+        routedTables.add(table);
+        table.setTopLevel(this.getStack().size() == 1);
         FrameContext frameContext = this.getStack().peek();
         String tbName = table.getName();
         String tbAliasName = tbName;
@@ -536,6 +1577,8 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
         }
         if (obj instanceof LongValue) {
             return ((LongValue) obj).getValue();
+        } else if (isSignedLongValue(obj)) {
+            return getSignedLongValue((SignedExpression) obj);
         } else if (obj instanceof StringValue) {
             return ((StringValue) obj).getValue();
         } else if (obj instanceof HexValue) {
@@ -573,9 +1616,21 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
             if (list == null || list.isEmpty()) {
                 super.visit(inExpression);
             }
+            if (disjunctionDepth > 0) {// 已在or条件中分析
+                return;
+            }
+            if (tab == AMBIGUOUS_TABLE) {
+                for (Expression exp : list) {
+                    routeTable(tab, column, exp);
+                }
+                return;
+            }
+            // 在afterVisitBaseStatement中根据表上的所有分片条件决定是否拆分in列表
+            List<SqlParam> values = new ArrayList<>(list.size());
             for (Expression exp : list) {
-                routeTable(tab, column, exp);
+                values.add(new SqlParam(column, exp));
             }
+            tab.getInParams().add(new InParam(tab, column, inExpression, values));
         } else {
             super.visit(inExpression);
             return;
@@ -584,37 +1639,119 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
 
     @Override
     public void visit(Between between) {
-        if (between.isNot()) {
+        if (between.isNot() || !(between.getLeftExpression() instanceof Column)) {
             super.visit(between);
             return;
         }
         Column column = (Column) between.getLeftExpression();
         TableWrapper tab = getTableFromContext(column);
-        if (tab == null) {
-            super.visit(between);
-            return;
-        }
         Expression begin = between.getBetweenExpressionStart();
         Expression end = between.getBetweenExpressionEnd();
-        if (begin instanceof SubSelect || end instanceof SubSelect) {
+        if (tab == null || tab == AMBIGUOUS_TABLE || disjunctionDepth > 0 || !isRangeValue(begin)
+            || !isRangeValue(end)) {
             super.visit(between);
             return;
-        } else if ((begin instanceof JdbcParameter || begin instanceof JdbcNamedParameter) //
-                   || (end instanceof JdbcParameter || end instanceof JdbcNamedParameter)) {
-            tab.getJdbcParamKeys().add(new RangeParam(new SqlParam(column, begin), new SqlParam(column, end)));
-            return;
+        }
+        tab.getRangeParams().add(new RangeParam(new SqlParam(column, begin), false, new SqlParam(column, end), false));
+    }
+
+    @Override
+    public void visit(GreaterThan greaterThan) {
+        if (!addRangeParam(greaterThan, true, false)) {
+            super.visit(greaterThan);
+        }
+    }
+
+    @Override
+    public void visit(GreaterThanEquals greaterThanEquals) {
+        if (!addRangeParam(greaterThanEquals, true, true)) {
+            super.visit(greaterThanEquals);
+        }
+    }
+
+    @Override
+    public void visit(MinorThan minorThan) {
+        if (!addRangeParam(minorThan, false, false)) {
+            super.visit(minorThan);
+        }
+    }
+
+    @Override
+    public void visit(MinorThanEquals minorThanEquals) {
+        if (!addRangeParam(minorThanEquals, false, true)) {
+            super.visit(minorThanEquals);
+        }
+    }
+
+    /**
+     * 识别'col > value', 'value < col'等形式的分片列范围条件
+     *
+     * @param greaterThan 列在左边时是否为大于(等于)
+     */
+    private boolean addRangeParam(BinaryExpression expression, boolean greaterThan, boolean inclusive) {
+        if (expression.isNot() || disjunctionDepth > 0) {
+            return false;
+        }
+        Column column;
+        Expression value;
+        if (expression.getLeftExpression() instanceof Column && isRangeValue(expression.getRightExpression())) {
+            column = (Column) expression.getLeftExpression();
+            value = expression.getRightExpression();
+        } else if (expression.getRightExpression() instanceof Column && isRangeValue(expression.getLeftExpression())) {
+            column = (Column) expression.getRightExpression();
+            value = expression.getLeftExpression();
+            greaterThan = !greaterThan;
         } else {
-            long s1 = ((Number) getRouteValue(column, begin)).longValue();
-            long e1 = ((Number) getRouteValue(column, end)).longValue();
-            if (s1 > e1) {
-                long temp = s1;
-                s1 = e1;
-                e1 = temp;
-            }
-            for (long l = s1; l <= e1; l++) {
-                routeTable(tab, column, l);
+            return false;
+        }
+        TableWrapper tab = getTableFromContext(column);
+        if (tab == null || tab == AMBIGUOUS_TABLE) {
+            return false;
+        }
+        SqlParam sqlParam = new SqlParam(column, value);
+        if (greaterThan) {
+            tab.getRangeParams().add(new RangeParam(sqlParam, !inclusive, null, false));
+        } else {
+            tab.getRangeParams().add(new RangeParam(null, false, sqlParam, !inclusive));
+        }
+        return true;
+    }
+
+    private static boolean isRangeValue(Expression expression) {
+        return expression instanceof LongValue || expression instanceof JdbcParameter
+               || expression instanceof JdbcNamedParameter || isSignedLongValue(expression);
+    }
+
+    /**
+     * 最外层的or条件整体分析为每个表的路由条件, or中的分片条件不再单独参与路由
+     */
+    @Override
+    public void visit(OrExpression orExpression) {
+        if (disjunctionDepth == 0) {
+            for (Map.Entry<TableWrapper, RouteCondition> entry : analyzeCondition(orExpression).entrySet()) {
+                entry.getKey().getOrConditions().add(entry.getValue());
             }
         }
+        disjunctionDepth++;
+        try {
+            super.visit(orExpression);
+        } finally {
+            disjunctionDepth--;
+        }
+    }
+
+    @Override
+    public void visit(Parenthesis parenthesis) {
+        if (!parenthesis.isNot()) {
+            super.visit(parenthesis);
+            return;
+        }
+        disjunctionDepth++;
+        try {
+            super.visit(parenthesis);
+        } finally {
+            disjunctionDepth--;
+        }
     }
 
     @Override
@@ -627,7 +1764,9 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
             String fullColumnName = column.toString();
             fullColumnName = DDRStringUtils.toLowerCase(fullColumnName);
             TableWrapper tab = this.getStack().peek().get(fullColumnName);
-            if (tab != null) {// 需要路由的table
+            if (tab != null && disjunctionDepth > 0) {// 已在or条件中分析
+                return;
+            } else if (tab != null) {// 需要路由的table
                 routeTable(tab, column, equalsTo.getRightExpression());
             } else {// there maybe contains sub query,so we show invoke super.visit
                 super.visit(equalsTo);
@@ -662,9 +1801,10 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
     @Override
     public void visit(Table table) {
         String tbName = table.getName();
-        ShardRouteConfig routeConfig = shardRouter.getRouteConfig(table.getSchemaName(), tbName);
-        if (routeConfig != null) {
-            TableWrapper tab = new TableWrapper(table, routeConfig);
+        TableRouteHandle routeHandle = ShardRouteUtils.getTableRouteHandle(shardRouter, table.getSchemaName(), tbName);
+        if (routeHandle != null) {
+            ShardRouteConfig routeConfig = routeHandle.getRouteConfig();
+            TableWrapper tab = new TableWrapper(table, routeHandle);
             addRoutedTableIntoContext(tab, routeConfig);
         }
     }
@@ -698,8 +1838,9 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
 
     private static class TableWrapper extends Table {
 
-        public TableWrapper(Table table, ShardRouteConfig routeConfig) {
-            this.routeConfig = routeConfig;
+        public TableWrapper(Table table, TableRouteHandle routeHandle) {
+            this.routeHandle = routeHandle;
+            this.routeConfig = routeHandle == null ? null : routeHandle.getRouteConfig();
             if (table != null) {
                 this.table = table;
                 originalConfig.setDatabase(table.getDatabase());
@@ -711,20 +1852,42 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
             }
         }
 
-        private Table            table;
+        private Table                table;
+
+        private Table                originalConfig = new Table();
+
+        private ShardRouteConfig     routeConfig;                       // route config info
+
+        private TableRouteHandle     routeHandle;                       // 解析时获取的路由句柄, 路由时不再查找路由配置
 
-        private Table            originalConfig = new Table();
+        private String               routedFullTableName;               // 由routeInfo计算出,如果有sql路由时该字段不为空,如果该参数为空,表示需要jdbc路由
 
-        private ShardRouteConfig routeConfig;                       // route config info
+        private List<SqlParam>       jdbcParamKeys  = new ArrayList<>(); // table 关联的jdbc列
 
-        private String           routedFullTableName;               // 由routeInfo计算出,如果有sql路由时该字段不为空,如果该参数为空,表示需要jdbc路由
+        private List<RangeParam>     rangeParams    = new ArrayList<>(); // 分片列上的范围条件, 取交集后路由
 
-        private List<Object>     jdbcParamKeys  = new ArrayList<>(); // table 关联的jdbc列
+        private List<ShardRouteInfo> fanOutRouteInfos;                   // 常量范围条件在解析阶段路由到多个表时的路由结果
+
+        private boolean              topLevel;                           // 是否在最外层的语句中
+
+        private boolean              writeTarget;                        // 是否为insert, update, delete写入的表
+
+        private List<InParam>        inParams       = new ArrayList<>(); // 分片列上的in条件
+
+        private InParam              inParam;                            // 按物理表拆分的in条件
+
+        private List<RouteCondition> orConditions   = new ArrayList<>(); // 含有分片列的or条件, 与其他分片条件取交集
+
+        private TableWrapper         bindingLeader;                      // 没有分片条件时跟随路由的同一绑定组中的表
 
         public ShardRouteConfig getRouteConfig() {
             return routeConfig;
         }
 
+        public TableRouteHandle getRouteHandle() {
+            return routeHandle;
+        }
+
         public void setRouteConfig(ShardRouteConfig routeConfig) {
             this.routeConfig = routeConfig;
         }
@@ -737,14 +1900,78 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
             this.routedFullTableName = routedFullTableName;
         }
 
-        public List<Object> getJdbcParamKeys() {
+        public List<SqlParam> getJdbcParamKeys() {
             return jdbcParamKeys;
         }
 
-        public void setJdbcParamKeys(List<Object> jdbcParamKeys) {
+        public void setJdbcParamKeys(List<SqlParam> jdbcParamKeys) {
             this.jdbcParamKeys = jdbcParamKeys;
         }
 
+        public List<RangeParam> getRangeParams() {
+            return rangeParams;
+        }
+
+        public void setRangeParams(List<RangeParam> rangeParams) {
+            this.rangeParams = rangeParams;
+        }
+
+        public List<ShardRouteInfo> getFanOutRouteInfos() {
+            return fanOutRouteInfos;
+        }
+
+        public void setFanOutRouteInfos(List<ShardRouteInfo> fanOutRouteInfos) {
+            this.fanOutRouteInfos = fanOutRouteInfos;
+        }
+
+        public boolean isTopLevel() {
+            return topLevel;
+        }
+
+        public List<InParam> getInParams() {
+            return inParams;
+        }
+
+        public void setInParams(List<InParam> inParams) {
+            this.inParams = inParams;
+        }
+
+        public InParam getInParam() {
+            return inParam;
+        }
+
+        public void setInParam(InParam inParam) {
+            this.inParam = inParam;
+        }
+
+        public List<RouteCondition> getOrConditions() {
+            return orConditions;
+        }
+
+        public TableWrapper getBindingLeader() {
+            return bindingLeader;
+        }
+
+        public void setBindingLeader(TableWrapper bindingLeader) {
+            this.bindingLeader = bindingLeader;
+        }
+
+        public void setOrConditions(List<RouteCondition> orConditions) {
+            this.orConditions = orConditions;
+        }
+
+        public void setTopLevel(boolean topLevel) {
+            this.topLevel = topLevel;
+        }
+
+        public boolean isWriteTarget() {
+            return writeTarget;
+        }
+
+        public void setWriteTarget(boolean writeTarget) {
+            this.writeTarget = writeTarget;
+        }
+
         public Table getOriginalConfig() {
             return originalConfig;
         }
@@ -820,14 +2047,21 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
 
     }
 
+    /**
+     * 分片列上的范围条件, beginValue或endValue为空表示该方向无界
+     */
     private class RangeParam {
 
         private SqlParam beginValue;
+        private boolean  beginExclusive;
         private SqlParam endValue;
+        private boolean  endExclusive;
 
-        public RangeParam(SqlParam beginValue, SqlParam endValue) {
+        public RangeParam(SqlParam beginValue, boolean beginExclusive, SqlParam endValue, boolean endExclusive) {
             this.beginValue = beginValue;
+            this.beginExclusive = beginExclusive;
             this.endValue = endValue;
+            this.endExclusive = endExclusive;
         }
 
         public SqlParam getBeginValue() {
@@ -838,6 +2072,14 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
             this.beginValue = beginValue;
         }
 
+        public boolean isBeginExclusive() {
+            return beginExclusive;
+        }
+
+        public void setBeginExclusive(boolean beginExclusive) {
+            this.beginExclusive = beginExclusive;
+        }
+
         public SqlParam getEndValue() {
             return endValue;
         }
@@ -845,6 +2087,203 @@ public class JSQLParserAdapter extends JSQLBaseVisitor {
         public void setEndValue(SqlParam endValue) {
             this.endValue = endValue;
         }
+
+        public boolean isEndExclusive() {
+            return endExclusive;
+        }
+
+        public void setEndExclusive(boolean endExclusive) {
+            this.endExclusive = endExclusive;
+        }
+
+        public boolean isJdbcParamType() {
+            return beginValue != null && beginValue.isJdbcParamType() || endValue != null
+                   && endValue.isJdbcParamType();
+        }
+    }
+
+    /**
+     * 表上的路由条件
+     */
+    private abstract class RouteCondition {
+
+        /**
+         * 返回满足条件的物理表, 返回null表示不能缩小路由范围
+         */
+        public abstract Set<ShardRouteInfo> route(TableWrapper tab, Map<Object, Object> jdbcParams);
+
+        public abstract boolean isJdbcParamType();
+    }
+
+    /**
+     * 不能缩小路由范围的条件
+     */
+    private class UnconstrainedRouteCondition extends RouteCondition {
+
+        @Override
+        public Set<ShardRouteInfo> route(TableWrapper tab, Map<Object, Object> jdbcParams) {
+            return null;
+        }
+
+        @Override
+        public boolean isJdbcParamType() {
+            return false;
+        }
+    }
+
+    /**
+     * 分片列等于其中任意一个值
+     */
+    private class ValuesRouteCondition extends RouteCondition {
+
+        private List<SqlParam> values;
+
+        public ValuesRouteCondition(List<SqlParam> values) {
+            this.values = values;
+        }
+
+        @Override
+        public Set<ShardRouteInfo> route(TableWrapper tab, Map<Object, Object> jdbcParams) {
+            Set<ShardRouteInfo> set = new LinkedHashSet<>();
+            for (SqlParam sqlParam : values) {
+                set.add(getRouteInfo(tab, getSdValue(sqlParam, jdbcParams)));
+            }
+            return set;
+        }
+
+        @Override
+        public boolean isJdbcParamType() {
+            for (SqlParam sqlParam : values) {
+                if (sqlParam.isJdbcParamType()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private class RangeRouteCondition extends RouteCondition {
+
+        private RangeParam rangeParam;
+
+        public RangeRouteCondition(RangeParam rangeParam) {
+            this.rangeParam = rangeParam;
+        }
+
+        @Override
+        public Set<ShardRouteInfo> route(TableWrapper tab, Map<Object, Object> jdbcParams) {
+            List<ShardRouteInfo> routeInfos = routeRange(tab, Collections.singletonList(rangeParam), jdbcParams);
+            return routeInfos == null ? null : new LinkedHashSet<>(routeInfos);
+        }
+
+        @Override
+        public boolean isJdbcParamType() {
+            return rangeParam.isJdbcParamType();
+        }
+    }
+
+    /**
+     * and取交集, or取并集
+     */
+    private class CompositeRouteCondition extends RouteCondition {
+
+        private boolean        and;
+        private RouteCondition left;
+        private RouteCondition right;
+
+        public CompositeRouteCondition(boolean and, RouteCondition left, RouteCondition right) {
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Set<ShardRouteInfo> route(TableWrapper tab, Map<Object, Object> jdbcParams) {
+            Set<ShardRouteInfo> l = left.route(tab, jdbcParams);
+            Set<ShardRouteInfo> r = right.route(tab, jdbcParams);
+            if (and) {
+                return intersect(l, r);
+            } else if (l == null || r == null) {
+                return null;
+            } else {
+                Set<ShardRouteInfo> set = new LinkedHashSet<>(l);
+                set.addAll(r);
+                return set;
+            }
+        }
+
+        @Override
+        public boolean isJdbcParamType() {
+            return left.isJdbcParamType() || right.isJdbcParamType();
+        }
+    }
+
+    /**
+     * 分片列上的in条件
+     */
+    private class InParam {
+
+        private TableWrapper                        table;
+        private Column                              column;
+        private InExpression                        inExpression;
+        private List<SqlParam>                      values;
+        private Map<ShardRouteInfo, List<SqlParam>> literalGroups; // 只有常量时在解析阶段分组
+        private String                              originalSql;   // 原始sql中的in列表(不含括号)
+
+        public InParam(TableWrapper table, Column column, InExpression inExpression, List<SqlParam> values) {
+            this.table = table;
+            this.column = column;
+            this.inExpression = inExpression;
+            this.values = values;
+        }
+
+        public TableWrapper getTable() {
+            return table;
+        }
+
+        public void setTable(TableWrapper table) {
+            this.table = table;
+        }
+
+        public Column getColumn() {
+            return column;
+        }
+
+        public void setColumn(Column column) {
+            this.column = column;
+        }
+
+        public InExpression getInExpression() {
+            return inExpression;
+        }
+
+        public void setInExpression(InExpression inExpression) {
+            this.inExpression = inExpression;
+        }
+
+        public List<SqlParam> getValues() {
+            return values;
+        }
+
+        public void setValues(List<SqlParam> values) {
+            this.values = values;
+        }
+
+        public Map<ShardRouteInfo, List<SqlParam>> getLiteralGroups() {
+            return literalGroups;
+        }
+
+        public void setLiteralGroups(Map<ShardRouteInfo, List<SqlParam>> literalGroups) {
+            this.literalGroups = literalGroups;
+        }
+
+        public String getOriginalSql() {
+            return originalSql;
+        }
+
+        public void setOriginalSql(String originalSql) {
+            this.originalSql = originalSql;
+        }
     }
 
     private class SqlParam {
@@ -0,0 +1,184 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser.precompile;
+
+import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.shard.exception.ShardValueNotFoundException;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedState;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.SQLParserCacheSnapshot;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.IllegalSQLParameterException;
+import org.hellojavaer.ddal.jsqlparser.JSQLParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * 构建期预编译mapper中的静态sql: 逐条解析并尝试路由, 输出报告, 并把可以解析的sql写入sql包.
+ * sql包的格式与{@link SQLParserCacheSnapshot}相同, 配置为其bundleFile后启动时预先解析进缓存,
+ * 首次请求不再承担sql解析的开销; 无法路由的sql在构建期即可发现.
+ * 
+ * <pre>
+ * java org.hellojavaer.ddal.jsqlparser.precompile.MapperSQLPrecompiler &lt;scanDir&gt; &lt;bundleFile&gt; &lt;shardRouterProvider&gt; [--fail-on-fan-out]
+ * </pre>
+ * 
+ * shardRouterProvider为实现了 Callable&lt;ShardRouter&gt; 的类名. 存在无法路由的sql时退出码为1,
+ * 指定--fail-on-fan-out时存在扇出的sql退出码也为1
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class MapperSQLPrecompiler {
+
+    public static final String FAIL_ON_FAN_OUT = "--fail-on-fan-out";
+
+    private ShardRouter        shardRouter;
+    private SQLParser          sqlParser       = new JSQLParser();
+
+    private MapperSQLPrecompiler() {
+    }
+
+    public MapperSQLPrecompiler(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    public List<MapperStatement> precompile(File scanDir) throws IOException {
+        List<MapperStatement> statements = new MapperStatementScanner().scan(scanDir);
+        for (MapperStatement statement : statements) {
+            precompile(statement);
+        }
+        return statements;
+    }
+
+    public void precompile(MapperStatement statement) {
+        if (statement.getStatus() == MapperStatement.Status.SKIPPED) {
+            return;
+        }
+        SQLParsedState parsedState;
+        try {
+            parsedState = sqlParser.parse(statement.getSql(), shardRouter);
+        } catch (RuntimeException e) {
+            statement.setStatus(MapperStatement.Status.UNROUTABLE);
+            statement.setMessage(e.getMessage());
+            return;
+        }
+        try {
+            SQLParsedResult result = parsedState.parse(null);
+            if (result.isFanOut()) {
+                statement.setStatus(MapperStatement.Status.FAN_OUT);
+                statement.setMessage("fan out to " + result.getSubResults().size() + " sub statements");
+            } else {
+                statement.setStatus(MapperStatement.Status.ROUTED);
+            }
+        } catch (IllegalSQLParameterException | ShardValueNotFoundException e) {
+            statement.setStatus(MapperStatement.Status.JDBC_ROUTED);
+        } catch (RuntimeException e) {
+            statement.setStatus(MapperStatement.Status.UNROUTABLE);
+            statement.setMessage(e.getMessage());
+        }
+    }
+
+    /**
+     * 写入除 UNROUTABLE 和 SKIPPED 以外的sql, 返回写入的数量
+     */
+    public static int writeBundle(List<MapperStatement> statements, File bundleFile) throws IOException {
+        List<String> sqls = new ArrayList<>();
+        for (MapperStatement statement : statements) {
+            if (statement.getStatus() != MapperStatement.Status.UNROUTABLE
+                && statement.getStatus() != MapperStatement.Status.SKIPPED && !sqls.contains(statement.getSql())) {
+                sqls.add(statement.getSql());
+            }
+        }
+        SQLParserCacheSnapshot.write(bundleFile, sqls);
+        return sqls.size();
+    }
+
+    public static void report(List<MapperStatement> statements, PrintStream out) {
+        int[] counts = new int[MapperStatement.Status.values().length];
+        for (MapperStatement statement : statements) {
+            counts[statement.getStatus().ordinal()]++;
+            if (statement.getStatus() == MapperStatement.Status.UNROUTABLE
+                || statement.getStatus() == MapperStatement.Status.SKIPPED
+                || statement.getStatus() == MapperStatement.Status.FAN_OUT) {
+                out.println("[" + statement.getStatus() + "] " + statement.getId() + " (" + statement.getResource()
+                            + "): " + statement.getMessage());
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(statements.size()).append(" statements");
+        for (MapperStatement.Status status : MapperStatement.Status.values()) {
+            sb.append(", ").append(status).append(' ').append(counts[status.ordinal()]);
+        }
+        out.println(sb);
+    }
+
+    /**
+     * 存在无法路由的sql, 或failOnFanOut为true且存在扇出的sql时返回true
+     */
+    public static boolean isFailed(List<MapperStatement> statements, boolean failOnFanOut) {
+        for (MapperStatement statement : statements) {
+            if (statement.getStatus() == MapperStatement.Status.UNROUTABLE
+                || failOnFanOut && statement.getStatus() == MapperStatement.Status.FAN_OUT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public ShardRouter getShardRouter() {
+        return shardRouter;
+    }
+
+    public void setShardRouter(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    public SQLParser getSqlParser() {
+        return sqlParser;
+    }
+
+    public void setSqlParser(SQLParser sqlParser) {
+        this.sqlParser = sqlParser;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3 && (args.length != 4 || !FAIL_ON_FAN_OUT.equals(args[3]))) {
+            System.err.println("Usage: MapperSQLPrecompiler <scanDir> <bundleFile> <shardRouterProvider> ["
+                               + FAIL_ON_FAN_OUT + "]");
+            System.exit(2);
+        }
+        Callable<ShardRouter> provider = (Callable<ShardRouter>) Class.forName(args[2]).newInstance();
+        MapperSQLPrecompiler precompiler = new MapperSQLPrecompiler(provider.call());
+        List<MapperStatement> statements = precompiler.precompile(new File(args[0]));
+        report(statements, System.out);
+        int count = writeBundle(statements, new File(args[1]));
+        System.out.println(count + " sqls are written to '" + args[1] + "'");
+        if (isFailed(statements, args.length == 4)) {
+            System.exit(1);
+        }
+    }
+}
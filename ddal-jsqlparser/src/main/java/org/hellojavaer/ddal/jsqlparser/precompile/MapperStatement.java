@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser.precompile;
+
+import org.hellojavaer.ddal.ddr.utils.DDRToStringBuilder;
+
+/**
+ * mapper中的一条静态sql及其预编译结果
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class MapperStatement {
+
+    public enum Status {
+        /** 不依赖运行时参数即可路由 */
+        ROUTED,
+        /** 可以解析, 路由依赖jdbc参数或路由上下文 */
+        JDBC_ROUTED,
+        /** 路由到多个物理表 */
+        FAN_OUT,
+        /** 无法解析或路由 */
+        UNROUTABLE,
+        /** 动态sql, 不参与预编译 */
+        SKIPPED
+    }
+
+    private String id;
+    private String resource;
+    private String sql;
+    private Status status;
+    private String message;
+
+    public MapperStatement() {
+    }
+
+    public MapperStatement(String id, String resource, String sql) {
+        this.id = id;
+        this.resource = resource;
+        this.sql = sql;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getResource() {
+        return resource;
+    }
+
+    public void setResource(String resource) {
+        this.resource = resource;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public void setSql(String sql) {
+        this.sql = sql;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return new DDRToStringBuilder()//
+        .append("id", id)//
+        .append("resource", resource)//
+        .append("status", status)//
+        .append("sql", sql)//
+        .append("message", message)//
+        .toString();
+    }
+}
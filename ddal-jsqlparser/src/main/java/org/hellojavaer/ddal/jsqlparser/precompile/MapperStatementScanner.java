@@ -0,0 +1,406 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser.precompile;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 扫描mybatis的mapper xml和mapper接口(@Select/@Insert/@Update/@Delete注解)中的sql.
+ * 
+ * <pre>
+ * 1. 解析&lt;include refid&gt;, 忽略&lt;selectKey&gt;
+ * 2. #{...}替换为'?', 各文本片段之间用空格连接(与mybatis生成的sql一致)
+ * 3. 含有&lt;if&gt;,&lt;foreach&gt;等动态标签, ${...} 或 &lt;script&gt; 的sql标记为 SKIPPED
+ * </pre>
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class MapperStatementScanner {
+
+    private static final Set<String> STATEMENT_TAGS  = new HashSet<>(Arrays.asList("select", "insert", "update",
+                                                                                   "delete"));
+    private static final Pattern     PARAM_PATTERN   = Pattern.compile("#\\{[^}]*\\}");
+    private static final Pattern     ANNOTATION      = Pattern.compile("@(Select|Insert|Update|Delete)\\s*\\(");
+    private static final Pattern     PACKAGE_PATTERN = Pattern.compile("\\bpackage\\s+([\\w.]+)\\s*;");
+
+    public List<MapperStatement> scan(File dir) throws IOException {
+        List<MapperStatement> list = new ArrayList<>();
+        scan(dir, list);
+        return list;
+    }
+
+    private void scan(File file, List<MapperStatement> list) throws IOException {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            if (files != null) {
+                Arrays.sort(files);
+                for (File item : files) {
+                    scan(item, list);
+                }
+            }
+        } else if (file.getName().endsWith(".xml")) {
+            String content = read(file);
+            if (content.contains("<mapper")) {
+                list.addAll(scanXml(content, file.getPath()));
+            }
+        } else if (file.getName().endsWith(".java")) {
+            list.addAll(scanJava(read(file), file.getPath()));
+        }
+    }
+
+    public List<MapperStatement> scanXml(String content, String resource) throws IOException {
+        Document document;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setValidating(false);
+            factory.setNamespaceAware(false);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            document = builder.parse(new InputSource(new StringReader(content)));
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Parse mapper '" + resource + "' failed", e);
+        }
+        Element root = document.getDocumentElement();
+        if (!"mapper".equals(root.getTagName())) {
+            return Collections.emptyList();
+        }
+        String namespace = root.getAttribute("namespace");
+        Map<String, Element> fragments = new HashMap<>();
+        NodeList sqlNodes = root.getElementsByTagName("sql");
+        for (int i = 0; i < sqlNodes.getLength(); i++) {
+            Element element = (Element) sqlNodes.item(i);
+            fragments.put(element.getAttribute("id"), element);
+            fragments.put(namespace + "." + element.getAttribute("id"), element);
+        }
+        List<MapperStatement> list = new ArrayList<>();
+        NodeList children = root.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node node = children.item(i);
+            if (node.getNodeType() != Node.ELEMENT_NODE || !STATEMENT_TAGS.contains(node.getNodeName())) {
+                continue;
+            }
+            Element element = (Element) node;
+            MapperStatement statement = new MapperStatement(namespace + "." + element.getAttribute("id"), resource,
+                                                            null);
+            List<String> texts = new ArrayList<>();
+            String dynamicTag = collect(element, fragments, texts, new HashSet<String>());
+            if (dynamicTag != null) {
+                statement.setStatus(MapperStatement.Status.SKIPPED);
+                statement.setMessage("dynamic sql <" + dynamicTag + ">");
+            } else {
+                setSql(statement, texts);
+            }
+            list.add(statement);
+        }
+        return list;
+    }
+
+    /**
+     * 收集文本片段, 返回遇到的第一个动态标签
+     */
+    private String collect(Element element, Map<String, Element> fragments, List<String> texts, Set<String> includes) {
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node node = children.item(i);
+            if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+                texts.add(node.getNodeValue());
+            } else if (node.getNodeType() == Node.ELEMENT_NODE) {
+                String tag = node.getNodeName();
+                if ("selectKey".equals(tag)) {
+                    continue;
+                } else if ("include".equals(tag)) {
+                    String refid = ((Element) node).getAttribute("refid");
+                    Element fragment = fragments.get(refid);
+                    if (fragment == null || !includes.add(refid) || fragment.getElementsByTagName("property").getLength() > 0
+                        || ((Element) node).getElementsByTagName("property").getLength() > 0) {
+                        return "include refid=\"" + refid + "\"";
+                    }
+                    String dynamicTag = collect(fragment, fragments, texts, includes);
+                    includes.remove(refid);
+                    if (dynamicTag != null) {
+                        return dynamicTag;
+                    }
+                } else {
+                    return tag;
+                }
+            }
+        }
+        return null;
+    }
+
+    public List<MapperStatement> scanJava(String content, String resource) {
+        List<MapperStatement> list = new ArrayList<>();
+        Matcher matcher = ANNOTATION.matcher(content);
+        if (!matcher.find()) {
+            return list;
+        }
+        String className = new File(resource).getName();
+        className = className.substring(0, className.length() - ".java".length());
+        Matcher packageMatcher = PACKAGE_PATTERN.matcher(content);
+        if (packageMatcher.find()) {
+            className = packageMatcher.group(1) + "." + className;
+        }
+        do {
+            JavaCursor cursor = new JavaCursor(content, matcher.end());
+            List<String> texts = cursor.readAnnotationValue();
+            String methodName = cursor.readMethodName();
+            MapperStatement statement = new MapperStatement(className + "." + methodName, resource, null);
+            if (texts == null) {
+                statement.setStatus(MapperStatement.Status.SKIPPED);
+                statement.setMessage("annotation value isn't a string literal");
+            } else if (texts.size() == 1 && texts.get(0).trim().startsWith("<script>")) {
+                statement.setStatus(MapperStatement.Status.SKIPPED);
+                statement.setMessage("dynamic sql <script>");
+            } else {
+                setSql(statement, texts);
+            }
+            list.add(statement);
+        } while (matcher.find());
+        return list;
+    }
+
+    private static void setSql(MapperStatement statement, List<String> texts) {
+        StringBuilder sb = new StringBuilder();
+        for (String text : texts) {
+            sb.append(text).append(' ');
+        }
+        String sql = sb.toString().trim();
+        if (sql.contains("${")) {
+            statement.setStatus(MapperStatement.Status.SKIPPED);
+            statement.setMessage("text substitution ${...}");
+        }
+        statement.setSql(PARAM_PATTERN.matcher(sql).replaceAll("?"));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(java.nio.file.Files.readAllBytes(file.toPath()), "UTF-8");
+    }
+
+    /**
+     * 读取注解值中的字符串常量: "a" + "b" 或 {"a", "b"}, 数组元素之间用空格连接
+     */
+    private static class JavaCursor {
+
+        private String content;
+        private int    open;
+        private int    pos;
+
+        private JavaCursor(String content, int pos) {
+            this.content = content;
+            this.open = pos - 1;
+            this.pos = pos;
+        }
+
+        private List<String> readAnnotationValue() {
+            skipBlank();
+            if (content.startsWith("value", pos)) {
+                int p = pos;
+                pos += "value".length();
+                skipBlank();
+                if (peek() == '=') {
+                    pos++;
+                } else {
+                    pos = p;
+                }
+            }
+            skipBlank();
+            List<String> list = new ArrayList<>();
+            boolean array = peek() == '{';
+            if (array) {
+                pos++;
+            }
+            while (true) {
+                String str = readConcatenation();
+                if (str == null) {
+                    skipAnnotation();
+                    return null;
+                }
+                list.add(str);
+                skipBlank();
+                if (array && peek() == ',') {
+                    pos++;
+                    skipBlank();
+                    if (peek() == '}') {
+                        break;
+                    }
+                } else {
+                    break;
+                }
+            }
+            if (array) {
+                if (peek() != '}') {
+                    skipAnnotation();
+                    return null;
+                }
+                pos++;
+                skipBlank();
+            }
+            if (peek() != ')') {
+                skipAnnotation();
+                return null;
+            }
+            pos++;
+            return list;
+        }
+
+        private String readConcatenation() {
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                skipBlank();
+                if (peek() != '"') {
+                    return null;
+                }
+                pos++;
+                while (pos < content.length() && content.charAt(pos) != '"') {
+                    char ch = content.charAt(pos++);
+                    if (ch == '\\' && pos < content.length()) {
+                        char next = content.charAt(pos++);
+                        switch (next) {
+                            case 'n':
+                                sb.append('\n');
+                                break;
+                            case 't':
+                                sb.append('\t');
+                                break;
+                            case 'r':
+                                sb.append('\r');
+                                break;
+                            default:
+                                sb.append(next);
+                        }
+                    } else {
+                        sb.append(ch);
+                    }
+                }
+                pos++;
+                skipBlank();
+                if (peek() == '+') {
+                    pos++;
+                } else {
+                    return sb.toString();
+                }
+            }
+        }
+
+        /**
+         * 跳过其他注解, 返回方法名
+         */
+        private String readMethodName() {
+            while (pos < content.length()) {
+                skipBlank();
+                char ch = peek();
+                if (ch == '@') {
+                    pos++;
+                    readIdentifier();
+                    skipBlank();
+                    if (peek() == '(') {
+                        skipBalanced();
+                    }
+                } else if (Character.isJavaIdentifierStart(ch)) {
+                    String identifier = readIdentifier();
+                    skipBlank();
+                    if (peek() == '(') {
+                        return identifier;
+                    }
+                } else {
+                    pos++;
+                }
+            }
+            return null;
+        }
+
+        private String readIdentifier() {
+            int start = pos;
+            while (pos < content.length()
+                   && (Character.isJavaIdentifierPart(content.charAt(pos)) || content.charAt(pos) == '.')) {
+                pos++;
+            }
+            return content.substring(start, pos);
+        }
+
+        private void skipBalanced() {
+            int depth = 0;
+            boolean inString = false;
+            for (; pos < content.length(); pos++) {
+                char ch = content.charAt(pos);
+                if (inString) {
+                    if (ch == '\\') {
+                        pos++;
+                    } else if (ch == '"') {
+                        inString = false;
+                    }
+                } else if (ch == '"') {
+                    inString = true;
+                } else if (ch == '(') {
+                    depth++;
+                } else if (ch == ')' && --depth == 0) {
+                    pos++;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 跳过整个注解值
+         */
+        private void skipAnnotation() {
+            pos = open;
+            skipBalanced();
+        }
+
+        private void skipBlank() {
+            while (pos < content.length()) {
+                char ch = content.charAt(pos);
+                if (Character.isWhitespace(ch)) {
+                    pos++;
+                } else if (content.startsWith("//", pos)) {
+                    int end = content.indexOf('\n', pos);
+                    pos = end < 0 ? content.length() : end + 1;
+                } else if (content.startsWith("/*", pos)) {
+                    int end = content.indexOf("*/", pos + 2);
+                    pos = end < 0 ? content.length() : end + 2;
+                } else {
+                    break;
+                }
+            }
+        }
+
+        private char peek() {
+            return pos < content.length() ? content.charAt(pos) : 0;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardParser;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteConfig;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.ShardRouter;
+import org.hellojavaer.ddal.ddr.shard.rule.SpelShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class BindingTableTest {
+
+    private static SimpleShardRouteRuleBinding buildBinding(String tbName, String sdKey, SpelShardRouteRule rule,
+                                                            String bindingGroup) {
+        SimpleShardRouteRuleBinding binding = new SimpleShardRouteRuleBinding();
+        binding.setScName("db");
+        binding.setTbName(tbName);
+        binding.setSdKey(sdKey);
+        binding.setSdValues("[1..128]");
+        binding.setRule(rule);
+        binding.setBindingGroup(bindingGroup);
+        return binding;
+    }
+
+    private ShardParser buildParser() {
+        SpelShardRouteRule numRule = new SpelShardRouteRule("{scName}_{format('%02d', sdValue % 8)}",
+                                                            "{tbName}_{format('%04d', sdValue % 128)}");
+        List<SimpleShardRouteRuleBinding> bindings = new ArrayList<SimpleShardRouteRuleBinding>();
+        bindings.add(buildBinding("shop", "user_id", numRule, "shop_item"));
+        bindings.add(buildBinding("item", "user_id", numRule, "shop_item"));
+        return new SimpleShardParser(new JSQLParser(), new SimpleShardRouter(bindings));
+    }
+
+    @Test
+    public void literalBinding() {
+        ShardParser parser = buildParser();
+        SQLParsedResult parsedResult = parser.parse("select * from db.shop s join db.item i on s.id = i.shop_id where s.user_id = 506",
+                                                    null);
+        Assert.equals(parsedResult.getSql(),
+                      "select * from db_02.shop_0122 s join db_02.item_0122 i on s.id = i.shop_id where s.user_id = 506");
+        Assert.equals(parsedResult.getSchemas().size(), 1);
+    }
+
+    @Test
+    public void jdbcBinding() {
+        ShardParser parser = buildParser();
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put(1, 507);
+        SQLParsedResult parsedResult = parser.parse("select * from db.shop s join db.item i on s.id = i.shop_id where i.user_id = ?",
+                                                    map);
+        Assert.equals(parsedResult.getSql(),
+                      "select * from db_03.shop_0123 s join db_03.item_0123 i on s.id = i.shop_id where i.user_id = ?");
+        map.put(1, 506);
+        try {
+            parsedResult.checkIfCrossPreparedStatement(map);
+            throw new Error();
+        } catch (Exception e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void fanOutBinding() {
+        ShardParser parser = buildParser();
+        SQLParsedResult parsedResult = parser.parse("select s.id from db.shop s join db.item i on s.id = i.shop_id where s.user_id in (506, 507)",
+                                                    null);
+        Assert.isTrue(parsedResult.isFanOut());
+        Assert.equals(parsedResult.getSubResults().size(), 2);
+        Assert.equals(parsedResult.getSubResults().get(0).getSql(),
+                      "select s.id from db_02.shop_0122 s join db_02.item_0122 i on s.id = i.shop_id where s.user_id in (506)");
+        Assert.equals(parsedResult.getSubResults().get(1).getSql(),
+                      "select s.id from db_03.shop_0123 s join db_03.item_0123 i on s.id = i.shop_id where s.user_id in (507)");
+    }
+
+    @Test
+    public void plainShardRouter() {
+        // 未实现ExtendedShardRouter的路由器不支持绑定表, 每个表按自身的条件路由
+        SpelShardRouteRule numRule = new SpelShardRouteRule("{scName}_{format('%02d', sdValue % 8)}",
+                                                            "{tbName}_{format('%04d', sdValue % 128)}");
+        List<SimpleShardRouteRuleBinding> bindings = new ArrayList<SimpleShardRouteRuleBinding>();
+        bindings.add(buildBinding("shop", "user_id", numRule, "shop_item"));
+        bindings.add(buildBinding("item", "user_id", numRule, "shop_item"));
+        final ShardRouter shardRouter = new SimpleShardRouter(bindings);
+        ShardRouter plainShardRouter = new ShardRouter() {
+
+            @Override
+            public ShardRouteRule getRouteRule(String scName, String tbName) {
+                return shardRouter.getRouteRule(scName, tbName);
+            }
+
+            @Override
+            public ShardRouteConfig getRouteConfig(String scName, String tbName) {
+                return shardRouter.getRouteConfig(scName, tbName);
+            }
+
+            @Override
+            public ShardRouteInfo getRouteInfo(String scName, String tbName, Object sdValue) {
+                return shardRouter.getRouteInfo(scName, tbName, sdValue);
+            }
+
+            @Override
+            public List<ShardRouteInfo> getRouteInfos(String scName, String tbName) {
+                return shardRouter.getRouteInfos(scName, tbName);
+            }
+
+            @Override
+            public Map<String, Set<String>> getRoutedTables() {
+                return shardRouter.getRoutedTables();
+            }
+        };
+        ShardParser parser = new SimpleShardParser(new JSQLParser(), plainShardRouter);
+        SQLParsedResult parsedResult = parser.parse("select * from db.shop s join db.item i on s.id = i.shop_id where s.user_id = 506 and i.user_id = 506",
+                                                    null);
+        Assert.equals(parsedResult.getSql(),
+                      "select * from db_02.shop_0122 s join db_02.item_0122 i on s.id = i.shop_id where s.user_id = 506 and i.user_id = 506");
+        try {
+            parser.parse("select * from db.shop s join db.item i on s.id = i.shop_id where s.user_id = 506", null);
+            throw new Error();
+        } catch (Exception e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void notColocated() {
+        SpelShardRouteRule numRule = new SpelShardRouteRule("{scName}_{format('%02d', sdValue % 8)}",
+                                                            "{tbName}_{format('%04d', sdValue % 128)}");
+        SpelShardRouteRule otherRule = new SpelShardRouteRule("{scName}_{format('%02d', sdValue % 4)}",
+                                                              "{tbName}_{format('%04d', sdValue % 64)}");
+        List<SimpleShardRouteRuleBinding> bindings = new ArrayList<SimpleShardRouteRuleBinding>();
+        bindings.add(buildBinding("shop", "user_id", numRule, "shop_item"));
+        bindings.add(buildBinding("item", "user_id", otherRule, "shop_item"));
+        try {
+            new SimpleShardRouter(bindings);
+            throw new Error();
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardParser;
+import org.hellojavaer.ddal.ddr.shard.rule.SpelShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class BroadcastTableTest {
+
+    private ShardParser buildParser() {
+        List<SimpleShardRouteRuleBinding> bindings = new ArrayList<SimpleShardRouteRuleBinding>();
+        SpelShardRouteRule numRule = new SpelShardRouteRule("{scName}_{format('%02d', sdValue % 8)}",
+                                                            "{tbName}_{format('%04d', sdValue % 128)}");
+        SimpleShardRouteRuleBinding user = new SimpleShardRouteRuleBinding();
+        user.setScName("db");
+        user.setTbName("user");
+        user.setSdKey("id");
+        user.setSdValues("[1..128]");
+        user.setRule(numRule);
+        bindings.add(user);
+
+        // 币种表在每个分片中都有一份
+        SimpleShardRouteRuleBinding currency = new SimpleShardRouteRuleBinding();
+        currency.setScName("db");
+        currency.setTbName("currency");
+        currency.setBroadcastScNames("db_0[0..7]");
+        bindings.add(currency);
+        return new SimpleShardParser(new JSQLParser(), new SimpleShardRouter(bindings));
+    }
+
+    @Test
+    public void readWithShardTable() {
+        ShardParser parser = buildParser();
+        SQLParsedResult parsedResult = parser.parse("select * from db.user u join db.currency c on u.currency_id = c.id where u.id = 506",
+                                                    null);
+        Assert.equals(parsedResult.getSql(),
+                      "select * from db_02.user_0122 u join db_02.currency c on u.currency_id = c.id where u.id = 506");
+        Assert.equals(parsedResult.getSchemas().size(), 1);
+
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put(1, 507);
+        parsedResult = parser.parse("select * from currency c, user u where u.currency_id = c.id and u.id = ?", map);
+        Assert.equals(parsedResult.getSql(),
+                      "select * from db_03.currency c, db_03.user_0123 u where u.currency_id = c.id and u.id = ?");
+
+        parsedResult = parser.parse("select u.id from db.user u join db.currency c on u.currency_id = c.id where u.id between 1 and 2",
+                                    null);
+        Assert.equals(parsedResult.getSubResults().size(), 2);
+        Assert.equals(parsedResult.getSubResults().get(1).getSql(),
+                      "select u.id from db_02.user_0002 u join db_02.currency c on u.currency_id = c.id where u.id between 1 and 2");
+        Assert.equals(parsedResult.getSubResults().get(1).getSchemas().size(), 1);
+    }
+
+    @Test
+    public void readAlone() {
+        ShardParser parser = buildParser();
+        SQLParsedResult parsedResult = parser.parse("select * from db.currency where id = 1", null);
+        Assert.isTrue(!parsedResult.isFanOut());
+        Assert.equals(parsedResult.getSql(), "select * from db_00.currency AS currency where id = 1");
+    }
+
+    @Test
+    public void write() {
+        ShardParser parser = buildParser();
+        SQLParsedResult parsedResult = parser.parse("update db.currency set rate = 6.9 where id = 1 limit 1", null);
+        Assert.isTrue(parsedResult.isFanOut());
+        Assert.isTrue(parsedResult.isBroadcast());
+        Assert.equals(parsedResult.getSubResults().size(), 8);
+        Assert.equals(parsedResult.getSubResults().get(7).getSql(),
+                      "update db_07.currency AS currency set rate = 6.9 where id = 1 limit 1");
+        Assert.equals(parsedResult.getSchemas().size(), 8);
+
+        parsedResult = parser.parse("insert into currency(id, name) values(?, ?)", null);
+        Assert.isTrue(parsedResult.isBroadcast());
+        Assert.equals(parsedResult.getSubResults().size(), 8);
+        Assert.equals(parsedResult.getSubResults().get(0).getSql(),
+                      "insert into db_00.currency(id, name) values(?, ?)");
+        Assert.equals(parsedResult.getSubResults().get(0).getSchemas().size(), 1);
+    }
+
+    @Test
+    public void illegalConfig() {
+        SimpleShardRouteRuleBinding currency = new SimpleShardRouteRuleBinding();
+        currency.setScName("db");
+        currency.setTbName("currency");
+        currency.setSdKey("id");
+        currency.setBroadcastScNames("db_0[0..7]");
+        List<SimpleShardRouteRuleBinding> bindings = new ArrayList<SimpleShardRouteRuleBinding>();
+        bindings.add(currency);
+        try {
+            new SimpleShardRouter(bindings);
+            throw new Error();
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+}
@@ -40,14 +40,26 @@ public class DeleteTest extends BaseTestShardParser {
         ShardParser parser = buildParserForId();
         SQLParsedResult parsedResult = parser.parse("delete from db.user AS user where id = 506 and name = 'allen'",
                                                     null);
-        Assert.equals(parsedResult.getSql(), "DELETE FROM db_02.user_0122 WHERE id = 506 AND name = 'allen'");
+        Assert.equals(parsedResult.getSql(), "delete from db_02.user_0122 where id = 506 and name = 'allen'");
+    }
+
+    @Test
+    public void test00a() {
+        // 单表delete的别名在路由后被去掉
+        ShardParser parser = buildParserForId();
+        SQLParsedResult parsedResult = parser.parse("delete from db.user user where id = 506", null);
+        Assert.equals(parsedResult.getSql(), "delete from db_02.user_0122 where id = 506");
+        parsedResult = parser.parse("delete from db.user as `user`\nwhere id = 506", null);
+        Assert.equals(parsedResult.getSql(), "delete from db_02.user_0122\nwhere id = 506");
+        parsedResult = parser.parse("delete from db.user\nwhere id = 506", null);
+        Assert.equals(parsedResult.getSql(), "delete from db_02.user_0122\nwhere id = 506");
     }
 
     @Test
     public void test01() {
         ShardParser parser = buildParserForName();
         SQLParsedResult parsedResult = parser.parse("delete from db.user where id = 506 and name = 'allen'", null);
-        Assert.equals(parsedResult.getSql(), "DELETE FROM db_02.user_0010 WHERE id = 506 AND name = 'allen'");
+        Assert.equals(parsedResult.getSql(), "delete from db_02.user_0010 where id = 506 and name = 'allen'");
     }
 
     @Test
@@ -78,7 +90,7 @@ public class DeleteTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("delete from db.user where id = 506 and id in (select user_id from shop where user_id = 507)",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "DELETE FROM db_02.user_0122 WHERE id = 506 AND id IN (SELECT user_id FROM db_03.shop_0123 AS shop WHERE user_id = 507)");
+                      "delete from db_02.user_0122 where id = 506 and id in (select user_id from db_03.shop_0123 AS shop where user_id = 507)");
     }
 
 }
@@ -0,0 +1,76 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardParser;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.rule.DirectoryShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.rule.SpelShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParser;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.LRUSQLParserCache;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class DirectoryReloadTest {
+
+    @Test
+    public void reloadInvalidatesParsedSql() throws Exception {
+        reloadInvalidatesParsedSql(new JSQLParser());
+    }
+
+    @Test
+    public void reloadInvalidatesFastPathParsedSql() throws Exception {
+        reloadInvalidatesParsedSql(new FastPathJSQLParser());
+    }
+
+    private void reloadInvalidatesParsedSql(SQLParser sqlParser) throws Exception {
+        File file = File.createTempFile("ddal", ".directory");
+        file.deleteOnExit();
+        DirectoryShardRouteRule.write(file, new long[] { 5 }, new long[] { 5 },
+                                      new ShardRouteInfo[] { new ShardRouteInfo("db_01", "user_01") });
+        DirectoryShardRouteRule rule = new DirectoryShardRouteRule(file.getAbsolutePath(),
+                                                                   new SpelShardRouteRule("{scName}_00", "{tbName}_00"));
+        SimpleShardRouteRuleBinding binding = new SimpleShardRouteRuleBinding("db", "user", "id", rule, "[0..9]");
+        LRUSQLParserCache cache = new LRUSQLParserCache(sqlParser, 16);
+        ShardParser parser = new SimpleShardParser(cache, new SimpleShardRouter(Arrays.asList(binding)));
+        String sql = "select * from db.user where id = 5";
+        Assert.equals(parser.parse(sql, null).getSql(), "select * from db_01.user_01 AS user where id = 5");
+        Assert.equals(parser.parse(sql, null).getSql(), "select * from db_01.user_01 AS user where id = 5");
+        Assert.equals(cache.getStats().getSize(), 1);
+        // 租户迁移到新的分片
+        DirectoryShardRouteRule.write(file, new long[] { 5 }, new long[] { 5 },
+                                      new ShardRouteInfo[] { new ShardRouteInfo("db_02", "user_02") });
+        rule.reload();
+        Assert.equals(cache.getStats().getSize(), 0);
+        Assert.equals(parser.parse(sql, null).getSql(), "select * from db_02.user_02 AS user where id = 5");
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardParser;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.AmbiguousRouteResultException;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 26/09/2017.
+ */
+public class FastPathJSQLParserTest extends BaseTestShardParser {
+
+    private ShardParser buildFastPathParser() {
+        SimpleShardParser parser = buildParserForId();
+        return new SimpleShardParser(new FastPathJSQLParser(), parser.getShardRouter());
+    }
+
+    @Test
+    public void select() {
+        ShardParser parser = buildFastPathParser();
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put(1, "allen");
+        map.put(2, 506);
+        SQLParsedResult parsedResult = parser.parse("select id, count(*) from db.user where name = ? and id = ? order by id limit 10",
+                                                    map);
+        Assert.equals(parsedResult.getSql(),
+                      "select id, count(*) from db_02.user_0122 AS user where name = ? and id = ? order by id limit 10");
+        Assert.equals(parsedResult.getSchemas().iterator().next(), "db_02");
+        parsedResult = parser.parse("SELECT * FROM user u WHERE u.id = 506", null);
+        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 u WHERE u.id = 506");
+    }
+
+    @Test
+    public void insertUpdateDelete() {
+        ShardParser parser = buildFastPathParser();
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put(1, 506);
+        map.put(2, "allen");
+        SQLParsedResult parsedResult = parser.parse("insert into db.user(id, name) values(?, ?)", map);
+        Assert.equals(parsedResult.getSql(), "insert into db_02.user_0122(id, name) values(?, ?)");
+        parsedResult = parser.parse("update db.user set name = ? where id = 507", map);
+        Assert.equals(parsedResult.getSql(), "update db_03.user_0123 AS user set name = ? where id = 507");
+        parsedResult = parser.parse("delete from db.user where id = ? and name = ?", map);
+        Assert.equals(parsedResult.getSql(), "delete from db_02.user_0122 where id = ? and name = ?");
+    }
+
+    @Test
+    public void fallback() {
+        ShardParser parser = buildFastPathParser();
+        SQLParsedResult parsedResult = parser.parse("select * from db.user where id in (506,634,762)", null);
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where id in (506,634,762)");
+        parsedResult = parser.parse("select * from user, shop where user.id = 506 and shop.user_id = 507", null);
+        Assert.equals(parsedResult.getSql(),
+                      "select * from db_02.user_0122 AS user, db_03.shop_0123 AS shop where user.id = 506 and shop.user_id = 507");
+        parsedResult = parser.parse("delete from db.user AS user where id = 506 and name = 'allen'", null);
+        Assert.equals(parsedResult.getSql(), "delete from db_02.user_0122 where id = 506 and name = 'allen'");
+    }
+
+    @Test
+    public void ambiguous() {
+        ShardParser parser = buildFastPathParser();
+        try {
+            parser.parse("select * from user where id = 506 and id = 507", null);
+            throw new Error();
+        } catch (AmbiguousRouteResultException e) {
+            // ok
+        }
+    }
+}
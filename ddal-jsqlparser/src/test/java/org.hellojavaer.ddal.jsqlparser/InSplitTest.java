@@ -0,0 +1,107 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardParser;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.AmbiguousRouteResultException;
+import org.hellojavaer.ddal.ddr.sqlparse.normalize.LiteralNormalizingSQLParser;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class InSplitTest extends BaseTestShardParser {
+
+    @Test
+    public void literalInList() {
+        ShardParser parser = buildParserForId();
+        SQLParsedResult parsedResult = parser.parse("select * from db.user where id in (506,1,634,  2) and name = 'a'",
+                                                    null);
+        Assert.isTrue(parsedResult.isFanOut());
+        Assert.equals(parsedResult.getSubResults().size(), 3);
+        Assert.equals(parsedResult.getSubResults().get(0).getSql(),
+                      "select * from db_02.user_0122 AS user where id in (506, 634) and name = 'a'");
+        Assert.equals(parsedResult.getSubResults().get(1).getSql(),
+                      "select * from db_01.user_0001 AS user where id in (1) and name = 'a'");
+        Assert.equals(parsedResult.getSubResults().get(2).getSql(),
+                      "select * from db_02.user_0002 AS user where id in (2) and name = 'a'");
+        Assert.equals(parsedResult.getSchemas().size(), 2);
+    }
+
+    @Test
+    public void jdbcInList() {
+        ShardParser parser = buildParserForId();
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put(1, "allen");
+        map.put(2, 506);
+        map.put(3, 507);
+        map.put(4, 634);
+        map.put(5, 10);
+        SQLParsedResult parsedResult = parser.parse("select * from db.user where name = ? and id in (?,?,?) limit ?",
+                                                    map);
+        Assert.isTrue(parsedResult.isFanOut());
+        Assert.equals(parsedResult.getMergeInfo().getLimit(), 10L);
+        SQLParsedResult sub0 = parsedResult.getSubResults().get(0);
+        Assert.equals(sub0.getSql(), "select * from db_02.user_0122 AS user where name = ? and id in (?, ?) limit ?");
+        Assert.isTrue(Arrays.equals(sub0.getRemovedJdbcParamIndexes(), new int[] { 3 }));
+        SQLParsedResult sub1 = parsedResult.getSubResults().get(1);
+        Assert.equals(sub1.getSql(), "select * from db_03.user_0123 AS user where name = ? and id in (?) limit ?");
+        Assert.isTrue(Arrays.equals(sub1.getRemovedJdbcParamIndexes(), new int[] { 2, 4 }));
+        // 路由到同一个表时保持原始sql
+        map.put(3, 762);
+        parsedResult = parser.parse("select * from db.user where name = ? and id in (?,?,?) limit ?", map);
+        Assert.isTrue(!parsedResult.isFanOut());
+        Assert.equals(parsedResult.getSql(),
+                      "select * from db_02.user_0122 AS user where name = ? and id in (?,?,?) limit ?");
+    }
+
+    @Test
+    public void normalizedInList() {
+        SimpleShardParser parser = buildParserForId();
+        ShardParser normalizingParser = new SimpleShardParser(new LiteralNormalizingSQLParser(new JSQLParser()),
+                                                              parser.getShardRouter());
+        SQLParsedResult parsedResult = normalizingParser.parse("select * from db.user where id in (506, 507)", null);
+        Assert.equals(parsedResult.getSubResults().size(), 2);
+        Assert.equals(parsedResult.getSubResults().get(1).getSql(),
+                      "select * from db_03.user_0123 AS user where id in (507)");
+    }
+
+    @Test
+    public void notSplit() {
+        ShardParser parser = buildParserForId();
+        // 表上还有其他分片条件时, in中的值必须路由到同一个表
+        try {
+            parser.parse("select * from db.user where id in (506, 507) and id = 506", null);
+            throw new Error();
+        } catch (AmbiguousRouteResultException e) {
+            // ok
+        }
+    }
+}
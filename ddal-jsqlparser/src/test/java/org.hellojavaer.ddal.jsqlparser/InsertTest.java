@@ -41,7 +41,7 @@ public class InsertTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("insert into db.user(id,name,`desc`) values(506,'allen','desc')",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "INSERT INTO db_02.user_0122 (id, name, `desc`) VALUES (506, 'allen', 'desc')");
+                      "insert into db_02.user_0122(id,name,`desc`) values(506,'allen','desc')");
     }
 
     @Test
@@ -50,7 +50,7 @@ public class InsertTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("insert into db.user(id,name,`desc`) values(506,'allen','desc')",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "INSERT INTO db_02.user_0010 (id, name, `desc`) VALUES (506, 'allen', 'desc')");
+                      "insert into db_02.user_0010(id,name,`desc`) values(506,'allen','desc')");
     }
 
     @Test
@@ -61,7 +61,7 @@ public class InsertTest extends BaseTestShardParser {
         map.put(2, "allen");
         map.put(3, "desc");
         SQLParsedResult parsedResult = parser.parse("insert into db.user(id,name,`desc`) values(?,?,?)", map);
-        Assert.equals(parsedResult.getSql(), "INSERT INTO db_02.user_0122 (id, name, `desc`) VALUES (?, ?, ?)");
+        Assert.equals(parsedResult.getSql(), "insert into db_02.user_0122(id,name,`desc`) values(?,?,?)");
     }
 
     @Test
@@ -72,7 +72,7 @@ public class InsertTest extends BaseTestShardParser {
         map.put(2, "allen");
         map.put(3, "desc");
         SQLParsedResult parsedResult = parser.parse("insert into db.user(id,name,`desc`) values(?,?,?)", map);
-        Assert.equals(parsedResult.getSql(), "INSERT INTO db_02.user_0010 (id, name, `desc`) VALUES (?, ?, ?)");
+        Assert.equals(parsedResult.getSql(), "insert into db_02.user_0010(id,name,`desc`) values(?,?,?)");
     }
 
 }
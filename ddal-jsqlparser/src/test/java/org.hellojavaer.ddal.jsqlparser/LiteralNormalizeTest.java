@@ -0,0 +1,104 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.LRUSQLParserCache;
+import org.hellojavaer.ddal.ddr.sqlparse.normalize.LiteralNormalizingSQLParser;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 24/09/2017.
+ */
+public class LiteralNormalizeTest extends BaseTestShardParser {
+
+    private static final String[] SQLS = {
+            "select * from user where id = 506",
+            "select * from db.user where id = 506 and name = 'allen'",
+            "select * from db.user where id in (506,634,762)",
+            "select * from db.user where id between 506 and 506",
+            "select * from db.user where id != 506 and id = ?",
+            "select * from user, shop where user.id = 506 and shop.user_id = 507",
+            "select * from db.user where id = 506 and name in (select user_id from shop where user_id = 507) ",
+            "select * from db.user where id = 506 limit 10",
+            "select * from db.user where id = 506 limit 10, 20",
+            "select * from db.user where id = 506 order by 1",
+            "insert into db.user(id,name,`desc`) values(506,'allen','desc')",
+            "update db.user set `desc` = 'd' where id = 11 and name = 'allen'",
+            "delete from db.user AS user where id = 506 and name = 'allen'",
+            "select * from db.user where id = -506",
+            "select * from db.user where id in (-506, -634) and id >= -634" };
+
+    @Test
+    public void sameAsOriginal() {
+        SimpleShardParser parser = buildParserForId();
+        LRUSQLParserCache cache = new LRUSQLParserCache(new JSQLParser(), 100);
+        SimpleShardParser normalizingParser = new SimpleShardParser(new LiteralNormalizingSQLParser(cache),
+                                                                    parser.getShardRouter());
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put(1, 507);
+        for (String sql : SQLS) {
+            SQLParsedResult expected = parser.parse(sql, map);
+            SQLParsedResult actual = normalizingParser.parse(sql, map);
+            Assert.equals(actual.getSql(), expected.getSql());
+            Assert.equals(actual.getSchemas(), expected.getSchemas());
+        }
+    }
+
+    @Test
+    public void shareTemplate() {
+        SimpleShardParser parser = buildParserForId();
+        LRUSQLParserCache cache = new LRUSQLParserCache(new JSQLParser(), 100);
+        SimpleShardParser normalizingParser = new SimpleShardParser(new LiteralNormalizingSQLParser(cache),
+                                                                    parser.getShardRouter());
+        for (int i = 1; i <= 100; i++) {
+            SQLParsedResult result = normalizingParser.parse("select * from db.user where id = " + i
+                                                             + " and name = 'allen'", null);
+            Assert.equals(result.getSql(), parser.parse("select * from db.user where id = " + i + " and name = 'allen'",
+                                                        null).getSql());
+        }
+        Assert.equals(cache.getStats().getLoadSuccessCount(), 1L);
+        Assert.equals(cache.getStats().getHitCount(), 99L);
+    }
+
+    @Test
+    public void signedLiteral() {
+        SimpleShardParser parser = buildParserForId();
+        SimpleShardParser normalizingParser = new SimpleShardParser(new LiteralNormalizingSQLParser(new JSQLParser()),
+                                                                    parser.getShardRouter());
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put(1, -506L);
+        SQLParsedResult expected = parser.parse("select * from db.user where id = ?", map);
+        SQLParsedResult actual = parser.parse("select * from db.user where id = -506", null);
+        Assert.equals(actual.getSchemas(), expected.getSchemas());
+        Assert.equals(actual.getSql(), expected.getSql().replace("?", "-506"));
+        actual = normalizingParser.parse("select * from db.user where id = -506", null);
+        Assert.equals(actual.getSchemas(), expected.getSchemas());
+        Assert.equals(actual.getSql(), expected.getSql().replace("?", "-506"));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.sqlparse.cache.SQLParserCacheSnapshot;
+import org.hellojavaer.ddal.jsqlparser.precompile.MapperSQLPrecompiler;
+import org.hellojavaer.ddal.jsqlparser.precompile.MapperStatement;
+import org.hellojavaer.ddal.jsqlparser.precompile.MapperStatementScanner;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class MapperSQLPrecompilerTest extends BaseTestShardParser {
+
+    private static final String XML  = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+                                       + "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">\n"
+                                       + "<mapper namespace=\"a.UserMapper\">\n"
+                                       + "  <sql id=\"columns\">id, name</sql>\n"
+                                       + "  <select id=\"getById\">select <include refid=\"columns\"/> from db.user where id = #{id}</select>\n"
+                                       + "  <insert id=\"add\"><selectKey keyProperty=\"id\">select 1</selectKey>insert into db.user(id, name) values(#{id}, #{name})</insert>\n"
+                                       + "  <select id=\"getRange\">select id from db.user where id between 1 and 3</select>\n"
+                                       + "  <select id=\"getAll\">select count(*) from db.user where id &gt; 0</select>\n"
+                                       + "  <select id=\"find\">select * from db.user <where><if test=\"id != null\">id = #{id}</if></where></select>\n"
+                                       + "  <delete id=\"delete\">delete from ${table} where id = 1</delete>\n"
+                                       + "</mapper>";
+
+    private static final String JAVA = "package a;\n" //
+                                       + "public interface ShopMapper {\n"
+                                       + "    @Select({\"select * from db.shop\", \"where user_id = #{userId}\"})\n"
+                                       + "    @Options(useCache = false)\n"
+                                       + "    List<Shop> getByUserId(@Param(\"userId\") long userId);\n"
+                                       + "    @Update(value = \"update db.shop set name = #{name} \" + \"where user_id = 5\")\n"
+                                       + "    int update(Shop shop);\n"
+                                       + "    @Delete(\"<script>delete from db.shop where id in <foreach/></script>\")\n"
+                                       + "    int delete(List<Long> ids);\n" //
+                                       + "}";
+
+    @Test
+    public void scan() throws Exception {
+        MapperStatementScanner scanner = new MapperStatementScanner();
+        List<MapperStatement> list = scanner.scanXml(XML, "user.xml");
+        Assert.equals(list.size(), 6);
+        Assert.equals(list.get(0).getId(), "a.UserMapper.getById");
+        // 与mybatis一致, include前后的文本片段之间用空格连接
+        Assert.equals(list.get(0).getSql(), "select  id, name  from db.user where id = ?");
+        Assert.equals(list.get(1).getSql(), "insert into db.user(id, name) values(?, ?)");
+        Assert.equals(list.get(4).getStatus(), MapperStatement.Status.SKIPPED);
+        Assert.equals(list.get(5).getStatus(), MapperStatement.Status.SKIPPED);
+
+        list = scanner.scanJava(JAVA, "a/ShopMapper.java");
+        Assert.equals(list.size(), 3);
+        Assert.equals(list.get(0).getId(), "a.ShopMapper.getByUserId");
+        Assert.equals(list.get(0).getSql(), "select * from db.shop where user_id = ?");
+        Assert.equals(list.get(1).getId(), "a.ShopMapper.update");
+        Assert.equals(list.get(1).getSql(), "update db.shop set name = ? where user_id = 5");
+        Assert.equals(list.get(2).getId(), "a.ShopMapper.delete");
+        Assert.equals(list.get(2).getStatus(), MapperStatement.Status.SKIPPED);
+    }
+
+    @Test
+    public void precompile() throws Exception {
+        MapperSQLPrecompiler precompiler = new MapperSQLPrecompiler(buildParserForId().getShardRouter());
+        List<MapperStatement> list = new MapperStatementScanner().scanXml(XML, "user.xml");
+        list.addAll(new MapperStatementScanner().scanJava(JAVA, "a/ShopMapper.java"));
+        for (MapperStatement statement : list) {
+            precompiler.precompile(statement);
+        }
+        Assert.equals(list.get(0).getStatus(), MapperStatement.Status.JDBC_ROUTED);
+        Assert.equals(list.get(1).getStatus(), MapperStatement.Status.JDBC_ROUTED);
+        Assert.equals(list.get(2).getStatus(), MapperStatement.Status.FAN_OUT);
+        Assert.equals(list.get(3).getStatus(), MapperStatement.Status.UNROUTABLE);
+        Assert.equals(list.get(7).getStatus(), MapperStatement.Status.ROUTED);
+
+        // 报告中逐条列出扇出的sql
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MapperSQLPrecompiler.report(list, new PrintStream(out, true, "UTF-8"));
+        String report = out.toString("UTF-8");
+        Assert.isTrue(report.contains("[FAN_OUT] a.UserMapper.getRange (user.xml): fan out to 3 sub statements"));
+        Assert.isTrue(report.contains("[UNROUTABLE] a.UserMapper.getAll (user.xml)"));
+        Assert.isTrue(!report.contains("[ROUTED]"));
+        Assert.isTrue(MapperSQLPrecompiler.isFailed(list, false));
+        List<MapperStatement> fanOuts = list.subList(2, 3);
+        Assert.isTrue(!MapperSQLPrecompiler.isFailed(fanOuts, false));
+        Assert.isTrue(MapperSQLPrecompiler.isFailed(fanOuts, true));
+
+        File bundle = File.createTempFile("ddal-bundle", ".gz");
+        try {
+            Assert.equals(MapperSQLPrecompiler.writeBundle(list, bundle), 5);
+            List<String> sqls = SQLParserCacheSnapshot.read(bundle);
+            Assert.equals(sqls.get(0), "select  id, name  from db.user where id = ?");
+            Assert.equals(sqls.get(4), "update db.shop set name = ? where user_id = 5");
+        } finally {
+            bundle.delete();
+        }
+    }
+}
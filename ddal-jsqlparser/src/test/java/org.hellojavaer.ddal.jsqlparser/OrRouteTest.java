@@ -0,0 +1,78 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardParser;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class OrRouteTest extends BaseTestShardParser {
+
+    @Test
+    public void union() {
+        ShardParser parser = buildParserForId();
+        SQLParsedResult parsedResult = parser.parse("select * from db.user where id = 506 or id = 634", null);
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where id = 506 or id = 634");
+        parsedResult = parser.parse("select * from db.user where id = 506 or id in (507, 1)", null);
+        Assert.isTrue(parsedResult.isFanOut());
+        Assert.equals(parsedResult.getSubResults().size(), 3);
+        Assert.equals(parsedResult.getSubResults().get(1).getSql(),
+                      "select * from db_03.user_0123 AS user where id = 506 or id in (507, 1)");
+    }
+
+    @Test
+    public void intersection() {
+        ShardParser parser = buildParserForId();
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put(1, 506);
+        map.put(2, 507);
+        map.put(3, 634);
+        // (T122 | T123) & T122
+        SQLParsedResult parsedResult = parser.parse("select * from db.user where (id = ? or id = ?) and id = ?", map);
+        Assert.isTrue(!parsedResult.isFanOut());
+        Assert.equals(parsedResult.getSql(),
+                      "select * from db_02.user_0122 AS user where (id = ? or id = ?) and id = ?");
+        // (T122 & T122) | T123
+        parsedResult = parser.parse("select * from db.user where (id = ? and name = 'a' and id = 634) or id = ?", map);
+        Assert.equals(parsedResult.getSubResults().size(), 2);
+    }
+
+    @Test
+    public void fullFanOut() {
+        ShardParser parser = buildParserForId();
+        SQLParsedResult parsedResult = parser.parse("select * from db.user where id = 506 or name = 'a'", null);
+        Assert.isTrue(parsedResult.isFanOut());
+        Assert.equals(parsedResult.getSubResults().size(), 128);
+        // 其他分片条件可以缩小路由范围
+        parsedResult = parser.parse("select * from db.user where (id = 506 or name = 'a') and id = 507", null);
+        Assert.equals(parsedResult.getSql(),
+                      "select * from db_03.user_0123 AS user where (id = 506 or name = 'a') and id = 507");
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardParser;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteContext;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.rule.JumpHashShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.ResultMergeInfo;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.hellojavaer.ddal.ddr.sqlparse.exception.UnsupportedSQLExpressionException;
+import org.hellojavaer.ddal.ddr.sqlparse.normalize.LiteralNormalizingSQLParser;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class RangeRouteTest extends BaseTestShardParser {
+
+    @Test
+    public void rangeInOneTable() {
+        ShardParser parser = buildParserForId();
+        SQLParsedResult parsedResult = parser.parse("select * from db.user where id > 505 and id <= 506", null);
+        Assert.isTrue(!parsedResult.isFanOut());
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where id > 505 and id <= 506");
+        parsedResult = parser.parse("select * from db.user where 506 <= id and id < 507", null);
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where 506 <= id and id < 507");
+    }
+
+    @Test
+    public void literalRangeFanOut() {
+        ShardParser parser = buildParserForId();
+        SQLParsedResult parsedResult = parser.parse("select id, name from db.user where id between 1 and 3 order by id desc limit 10",
+                                                    null);
+        Assert.isTrue(parsedResult.isFanOut());
+        Assert.equals(parsedResult.getSubResults().size(), 3);
+        Assert.equals(parsedResult.getSubResults().get(0).getSql(),
+                      "select id, name from db_01.user_0001 AS user where id between 1 and 3 order by id desc limit 10");
+        Assert.equals(parsedResult.getSubResults().get(2).getSql(),
+                      "select id, name from db_03.user_0003 AS user where id between 1 and 3 order by id desc limit 10");
+        Assert.equals(parsedResult.getSchemas().size(), 3);
+        ResultMergeInfo mergeInfo = parsedResult.getMergeInfo();
+        Assert.equals(mergeInfo.getLimit(), 10L);
+        Assert.equals(mergeInfo.getOrderByItems().size(), 1);
+        Assert.equals(mergeInfo.getOrderByItems().get(0).getColumnLabel(), "id");
+        Assert.isTrue(!mergeInfo.getOrderByItems().get(0).isAsc());
+    }
+
+    @Test
+    public void jdbcRange() {
+        ShardParser parser = buildParserForId();
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put(1, 506);
+        map.put(2, 507);
+        SQLParsedResult parsedResult = parser.parse("update db.user set name = 'allen' where id >= ? and id < ?", map);
+        Assert.isTrue(!parsedResult.isFanOut());
+        Assert.equals(parsedResult.getSql(),
+                      "update db_02.user_0122 AS user set name = 'allen' where id >= ? and id < ?");
+        map.put(2, 508);
+        parsedResult = parser.parse("update db.user set name = 'allen' where id >= ? and id < ?", map);
+        Assert.isTrue(parsedResult.isFanOut());
+        Assert.equals(parsedResult.getSubResults().size(), 2);
+        Assert.isTrue(parsedResult.getMergeInfo() == null);
+        Assert.equals(parsedResult.getSubResults().get(1).getSql(),
+                      "update db_03.user_0123 AS user set name = 'allen' where id >= ? and id < ?");
+    }
+
+    @Test
+    public void unboundedRange() {
+        ShardParser parser = buildParserForId();
+        // 无界的范围条件和or中的范围条件不参与路由
+        SQLParsedResult parsedResult = parser.parse("select * from db.user where id > 1 and id = 506", null);
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where id > 1 and id = 506");
+        parsedResult = parser.parse("select * from db.user where (id between 1 and 3 or name = 'a') and id = 507",
+                                    null);
+        Assert.equals(parsedResult.getSql(),
+                      "select * from db_03.user_0123 AS user where (id between 1 and 3 or name = 'a') and id = 507");
+    }
+
+    @Test
+    public void unsupportedMerge() {
+        ShardParser parser = buildParserForId();
+        try {
+            parser.parse("select count(*) from db.user where id between 1 and 3", null);
+            throw new Error();
+        } catch (UnsupportedSQLExpressionException e) {
+            // ok
+        }
+        try {
+            parser.parse("select id from db.user where id between 1 and 3 order by name", null);
+            throw new Error();
+        } catch (UnsupportedSQLExpressionException e) {
+            // ok
+        }
+    }
+
+    /**
+     * 字符串在数据库中按字典序比较, 字符串类型的分片键上的范围条件不按数值区间路由
+     */
+    @Test
+    public void stringRange() {
+        JumpHashShardRouteRule rule = new JumpHashShardRouteRule(4, 8);
+        List<SimpleShardRouteRuleBinding> bindings = new ArrayList<SimpleShardRouteRuleBinding>();
+        bindings.add(new SimpleShardRouteRuleBinding("db", "user", "name", rule, null));
+        ShardParser parser = new SimpleShardParser(new LiteralNormalizingSQLParser(new JSQLParser()),
+                                                   new SimpleShardRouter(bindings));
+        // 范围条件不参与路由时使用上下文中的路由信息
+        ShardRouteContext.setRouteInfo("db", "user", new ShardRouteInfo("db_1", "user_5"));
+        try {
+            String expected = "db_1.user_5";
+            SQLParsedResult parsedResult = parser.parse("select * from db.user where name >= '100' and name <= '200'",
+                                                        null);
+            Assert.isTrue(!parsedResult.isFanOut());
+            Assert.equals(parsedResult.getSql(), "select * from " + expected
+                                                 + " AS user where name >= '100' and name <= '200'");
+            Map<Object, Object> map = new HashMap<Object, Object>();
+            map.put(1, "100");
+            map.put(2, "200");
+            parsedResult = parser.parse("select * from db.user where name between ? and ?", map);
+            Assert.isTrue(!parsedResult.isFanOut());
+            Assert.equals(parsedResult.getSql(), "select * from " + expected + " AS user where name between ? and ?");
+        } finally {
+            ShardRouteContext.clearContext();
+        }
+    }
+}
@@ -51,7 +51,7 @@ public class SelectTest extends BaseTestShardParser {
     public void testAlias00() {
         ShardParser parser = buildParserForId();
         SQLParsedResult parsedResult = parser.parse("select * from user where id = 506", null);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 AS user WHERE id = 506");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where id = 506");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -61,7 +61,7 @@ public class SelectTest extends BaseTestShardParser {
     public void testAlias01() {
         ShardParser parser = buildParserForId();
         SQLParsedResult parsedResult = parser.parse("select * from user user1 where id = 506", null);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 user1 WHERE id = 506");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 user1 where id = 506");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -71,7 +71,7 @@ public class SelectTest extends BaseTestShardParser {
     public void testAlias02() {
         ShardParser parser = buildParserForId();
         SQLParsedResult parsedResult = parser.parse("select * from user user1 where user1.id = 506", null);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 user1 WHERE user1.id = 506");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 user1 where user1.id = 506");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -83,7 +83,7 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from db.user user0, db.user user1 where user0.id = 506 and user1.id = 507 ",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_02.user_0122 user0, db_03.user_0123 user1 WHERE user0.id = 506 AND user1.id = 507");
+                      "select * from db_02.user_0122 user0, db_03.user_0123 user1 where user0.id = 506 and user1.id = 507 ");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         expectedSchemas.add("db_03");
@@ -95,7 +95,7 @@ public class SelectTest extends BaseTestShardParser {
     public void testLetter00() {
         ShardParser parser = buildParserForId();
         SQLParsedResult parsedResult = parser.parse("select * from useR where usEr.iD = 506", null);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 AS useR WHERE usEr.iD = 506");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS useR where usEr.iD = 506");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -105,7 +105,7 @@ public class SelectTest extends BaseTestShardParser {
     public void testLetter01() {
         ShardParser parser = buildParserForId();
         SQLParsedResult parsedResult = parser.parse("select * from useR useR1 where usEr1.iD = 506", null);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 useR1 WHERE usEr1.iD = 506");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 useR1 where usEr1.iD = 506");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -116,7 +116,7 @@ public class SelectTest extends BaseTestShardParser {
     public void testHitSdKey00a() {
         ShardParser parser = buildParserForId();
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id = 506", null);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 AS user WHERE id = 506");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where id = 506");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -128,14 +128,14 @@ public class SelectTest extends BaseTestShardParser {
         Map<Object, Object> map = new HashMap<Object, Object>();
         map.put(1, 506);
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id = ?", map);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 AS user WHERE id = ?");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where id = ?");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
 
         map.put(1, 507);
         parsedResult = parser.parse("select * from db.user where id = ?", map);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_03.user_0123 AS user WHERE id = ?");
+        Assert.equals(parsedResult.getSql(), "select * from db_03.user_0123 AS user where id = ?");
         expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_03");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -145,7 +145,7 @@ public class SelectTest extends BaseTestShardParser {
     public void testHitSdKey01a() {
         ShardParser parser = buildParserForId();
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id in (506,634,762)", null);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 AS user WHERE id IN (506, 634, 762)");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where id in (506,634,762)");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -159,7 +159,7 @@ public class SelectTest extends BaseTestShardParser {
         map.put(2, 634);
         map.put(3, 762);
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id in (?,?,?)", map);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 AS user WHERE id IN (?, ?, ?)");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where id in (?,?,?)");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -169,7 +169,7 @@ public class SelectTest extends BaseTestShardParser {
     public void testHitSdKey02a() {
         ShardParser parser = buildParserForId();
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id between 506 and 506", null);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 AS user WHERE id BETWEEN 506 AND 506");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where id between 506 and 506");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -182,7 +182,7 @@ public class SelectTest extends BaseTestShardParser {
         map.put(1, 506);
         map.put(2, 506);
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id between ? and ?", map);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 AS user WHERE id BETWEEN ? AND ?");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where id between ? and ?");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -193,7 +193,7 @@ public class SelectTest extends BaseTestShardParser {
     public void testNotHitSdKey00a() {
         ShardParser parser = buildParserForId();
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id != 506 and id = 507 ", null);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_03.user_0123 AS user WHERE id != 506 AND id = 507");
+        Assert.equals(parsedResult.getSql(), "select * from db_03.user_0123 AS user where id != 506 and id = 507 ");
     }
 
     @Test
@@ -202,7 +202,7 @@ public class SelectTest extends BaseTestShardParser {
         Map<Object, Object> map = new HashMap<Object, Object>();
         map.put(1, 507);
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id != 506 and id = ?", map);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_03.user_0123 AS user WHERE id != 506 AND id = ?");
+        Assert.equals(parsedResult.getSql(), "select * from db_03.user_0123 AS user where id != 506 and id = ?");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_03");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -214,7 +214,7 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id not in (506,634,762) and id in (507,635,763)",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_03.user_0123 AS user WHERE id NOT IN (506, 634, 762) AND id IN (507, 635, 763)");
+                      "select * from db_03.user_0123 AS user where id not in (506,634,762) and id in (507,635,763)");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_03");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -230,7 +230,7 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse(" select * from db.user where id not in (506,634,762) and id in (?,?,?)",
                                                     map);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_03.user_0123 AS user WHERE id NOT IN (506, 634, 762) AND id IN (?, ?, ?)");
+                      " select * from db_03.user_0123 AS user where id not in (506,634,762) and id in (?,?,?)");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_03");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -242,7 +242,7 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id not between 506 and 506 and id between 507 and 507",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_03.user_0123 AS user WHERE id NOT BETWEEN 506 AND 506 AND id BETWEEN 507 AND 507");
+                      "select * from db_03.user_0123 AS user where id not between 506 and 506 and id between 507 and 507");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_03");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -257,7 +257,7 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id not between 506 and 506 and id between ? and ?",
                                                     map);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_03.user_0123 AS user WHERE id NOT BETWEEN 506 AND 506 AND id BETWEEN ? AND ?");
+                      "select * from db_03.user_0123 AS user where id not between 506 and 506 and id between ? and ?");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_03");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -271,7 +271,7 @@ public class SelectTest extends BaseTestShardParser {
     public void testOneTabQuery00a() {
         ShardParser parser = buildParserForId();
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id = 506 and name = 'allen'", null);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 AS user WHERE id = 506 AND name = 'allen'");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where id = 506 and name = 'allen'");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -281,7 +281,7 @@ public class SelectTest extends BaseTestShardParser {
     public void testOneTabQuery00b() {
         ShardParser parser = buildParserForName();
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id = 506 and name = 'allen'", null);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0010 AS user WHERE id = 506 AND name = 'allen'");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0010 AS user where id = 506 and name = 'allen'");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -295,7 +295,7 @@ public class SelectTest extends BaseTestShardParser {
         map.put(2, "allen");
         map.put(3, "desc");
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id= ? and name = ?", map);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0122 AS user WHERE id = ? AND name = ?");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0122 AS user where id= ? and name = ?");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -309,7 +309,7 @@ public class SelectTest extends BaseTestShardParser {
         map.put(2, "allen");
         map.put(3, "desc");
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id= ? and name = ?", map);
-        Assert.equals(parsedResult.getSql(), "SELECT * FROM db_02.user_0010 AS user WHERE id = ? AND name = ?");
+        Assert.equals(parsedResult.getSql(), "select * from db_02.user_0010 AS user where id= ? and name = ?");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
@@ -324,7 +324,7 @@ public class SelectTest extends BaseTestShardParser {
                                                     null);
 
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_02.user_0122 AS user, db_03.shop_0123 AS shop WHERE user.id = 506 AND shop.user_id = 507");
+                      "select * from db_02.user_0122 AS user, db_03.shop_0123 AS shop where user.id = 506 and shop.user_id = 507");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         expectedSchemas.add("db_03");
@@ -340,7 +340,7 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from user, shop where user.id = ? and shop.user_id = ?",
                                                     map);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_02.user_0122 AS user, db_03.shop_0123 AS shop WHERE user.id = ? AND shop.user_id = ?");
+                      "select * from db_02.user_0122 AS user, db_03.shop_0123 AS shop where user.id = ? and shop.user_id = ?");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         expectedSchemas.add("db_03");
@@ -354,8 +354,8 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from user left join shop on user.id=shop.user_id left join item on shop.id = item.shop_id where id = 506 and name = 'allen' and shop.user_id = 12 and item.user_id = 12",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_02.user_0122 AS user LEFT JOIN db_04.shop_0012 AS shop ON user.id = shop.user_id LEFT JOIN db_04.item_0012 AS item"
-                              + " ON shop.id = item.shop_id WHERE id = 506 AND name = 'allen' AND shop.user_id = 12 AND item.user_id = 12");
+                      "select * from db_02.user_0122 AS user left join db_04.shop_0012 AS shop on user.id=shop.user_id left join db_04.item_0012 AS item"
+                              + " on shop.id = item.shop_id where id = 506 and name = 'allen' and shop.user_id = 12 and item.user_id = 12");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         expectedSchemas.add("db_04");
@@ -368,8 +368,8 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from user left join shop on user.id=shop.user_id left join item on shop.id = item.shop_id where id = 506 and name = 'allen' and shop.user_id = 12 and item.user_id = 12",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_02.user_0122 AS user LEFT JOIN db_04.shop_0012 AS shop ON user.id = shop.user_id LEFT JOIN db_04.item_0012 AS item"
-                              + " ON shop.id = item.shop_id WHERE id = 506 AND name = 'allen' AND shop.user_id = 12 AND item.user_id = 12");
+                      "select * from db_02.user_0122 AS user left join db_04.shop_0012 AS shop on user.id=shop.user_id left join db_04.item_0012 AS item"
+                              + " on shop.id = item.shop_id where id = 506 and name = 'allen' and shop.user_id = 12 and item.user_id = 12");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         expectedSchemas.add("db_04");
@@ -383,8 +383,8 @@ public class SelectTest extends BaseTestShardParser {
                                                             + "and name = 'allen' and id in (select user_id from shop)",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db.user AS user LEFT JOIN merchant ON user.merchant_id = merchant.id WHERE id = 506 "
-                              + "AND name = 'allen' AND id IN (SELECT user_id FROM db.shop AS shop)");
+                      "select * from db.user AS user left join merchant on user.merchant_id = merchant.id where id = 506 "
+                              + "and name = 'allen' and id in (select user_id from db.shop AS shop)");
         Set<String> set = new HashSet<>();
         set.add("db");
         Assert.isTrue(parsedResult.getSchemas().equals(set));
@@ -397,7 +397,7 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id = 506 and name in (select user_id from shop where user_id = 507) ",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_02.user_0122 AS user WHERE id = 506 AND name IN (SELECT user_id FROM db_03.shop_0123 AS shop WHERE user_id = 507)");
+                      "select * from db_02.user_0122 AS user where id = 506 and name in (select user_id from db_03.shop_0123 AS shop where user_id = 507) ");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         expectedSchemas.add("db_03");
@@ -413,7 +413,7 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id = ? and name in (select user_id from shop where user_id = ?) ",
                                                     map);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_02.user_0122 AS user WHERE id = ? AND name IN (SELECT user_id FROM db_03.shop_0123 AS shop WHERE user_id = ?)");
+                      "select * from db_02.user_0122 AS user where id = ? and name in (select user_id from db_03.shop_0123 AS shop where user_id = ?) ");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_02");
         expectedSchemas.add("db_03");
@@ -466,7 +466,7 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id != 506 and name in (select user_id from shop where user_id != 507) ",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_04.user_0124 AS user WHERE id != 506 AND name IN (SELECT user_id FROM db_05.shop_0125 AS shop WHERE user_id != 507)");
+                      "select * from db_04.user_0124 AS user where id != 506 and name in (select user_id from db_05.shop_0125 AS shop where user_id != 507) ");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_05");
         expectedSchemas.add("db_04");
@@ -482,7 +482,7 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id != 507 AND name in (select user_id from shop where user_id != 507) ",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_07.user_0125 AS user WHERE id != 507 AND name IN (SELECT user_id FROM db_01.shop_0123 AS shop WHERE user_id != 507)");
+                      "select * from db_07.user_0125 AS user where id != 507 AND name in (select user_id from db_01.shop_0123 AS shop where user_id != 507) ");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_01");
         expectedSchemas.add("db_07");
@@ -497,7 +497,7 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id != 506 and name in (select user_id from shop where user_id != 507) ",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_04.user_0124 AS user WHERE id != 506 AND name IN (SELECT user_id FROM db_05.shop_0125 AS shop WHERE user_id != 507)");
+                      "select * from db_04.user_0124 AS user where id != 506 and name in (select user_id from db_05.shop_0125 AS shop where user_id != 507) ");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_04");
         expectedSchemas.add("db_05");
@@ -512,7 +512,7 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id != 507 AND name in (select user_id from shop where user_id != 507) ",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db_07.user_0125 AS user WHERE id != 507 AND name IN (SELECT user_id FROM db_01.shop_0123 AS shop WHERE user_id != 507)");
+                      "select * from db_07.user_0125 AS user where id != 507 AND name in (select user_id from db_01.shop_0123 AS shop where user_id != 507) ");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db_01");
         expectedSchemas.add("db_07");
@@ -529,9 +529,22 @@ public class SelectTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("select * from db.user where id = 507 AND name in (select user_id from shop where user_id = 507) ",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "SELECT * FROM db.user AS user WHERE id = 507 AND name IN (SELECT user_id FROM db.shop AS shop WHERE user_id = 507)");
+                      "select * from db.user AS user where id = 507 AND name in (select user_id from db.shop AS shop where user_id = 507) ");
         Set<String> expectedSchemas = new HashSet<>();
         expectedSchemas.add("db");
         Assert.isTrue(parsedResult.getSchemas().equals(expectedSchemas));
     }
+
+    // 保留原始sql的格式和注释
+    @Test
+    public void testKeepFormat() {
+        ShardParser parser = buildParserForId();
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put(1, 507);
+        SQLParsedResult parsedResult = parser.parse("/* report */ select *\r\n\tfrom db.user u -- user table\r\n"
+                                                    + "\twhere u.id = ? and exists (select 1 from shop where user_id = 506)",
+                                                    map);
+        Assert.equals(parsedResult.getSql(), "/* report */ select *\r\n\tfrom db_03.user_0123 u -- user table\r\n"
+                                             + "\twhere u.id = ? and exists (select 1 from db_02.shop_0122 AS shop where user_id = 506)");
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * #%L
+ * ddal-jsqlparser
+ * %%
+ * Copyright (C) 2016 - 2017 the original author or authors.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+package org.hellojavaer.ddal.jsqlparser;
+
+import org.hellojavaer.ddal.core.utils.Assert;
+import org.hellojavaer.ddal.ddr.shard.ShardParser;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteContext;
+import org.hellojavaer.ddal.ddr.shard.ShardRouteInfo;
+import org.hellojavaer.ddal.ddr.shard.rule.SpelShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.rule.TimePartitionShardRouteRule;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardParser;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouteRuleBinding;
+import org.hellojavaer.ddal.ddr.shard.simple.SimpleShardRouter;
+import org.hellojavaer.ddal.ddr.sqlparse.SQLParsedResult;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ *
+ * @author <a href="mailto:hellojavaer@gmail.com">Kaiming Zou</a>,created on 27/09/2017.
+ */
+public class TimePartitionRouteTest {
+
+    private ShardParser buildParser() {
+        SimpleShardRouteRuleBinding log = new SimpleShardRouteRuleBinding();
+        log.setScName("audit");
+        log.setTbName("log");
+        log.setSdKey("created_at");
+        log.setRule(new TimePartitionShardRouteRule(TimePartitionShardRouteRule.Unit.MONTH,
+                                                    TimeZone.getTimeZone("GMT+8")));
+        List<SimpleShardRouteRuleBinding> bindings = new ArrayList<SimpleShardRouteRuleBinding>();
+        bindings.add(log);
+        return new SimpleShardParser(new JSQLParser(), new SimpleShardRouter(bindings));
+    }
+
+    @Test
+    public void equalTo() {
+        ShardParser parser = buildParser();
+        SQLParsedResult parsedResult = parser.parse("select * from audit.log where created_at = '2017-09-27 10:00:00'",
+                                                    null);
+        Assert.equals(parsedResult.getSql(),
+                      "select * from audit.log_201709 AS log where created_at = '2017-09-27 10:00:00'");
+    }
+
+    @Test
+    public void timestampRange() {
+        ShardParser parser = buildParser();
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        // 2017-08-15 00:00:00 ~ 2017-10-01 00:00:00 GMT+8
+        map.put(1, new Timestamp(1502726400000L));
+        map.put(2, new Timestamp(1506787200000L));
+        SQLParsedResult parsedResult = parser.parse("select id from audit.log where created_at >= ? and created_at < ? order by id",
+                                                    map);
+        Assert.isTrue(parsedResult.isFanOut());
+        Assert.equals(parsedResult.getSubResults().size(), 2);
+        Assert.equals(parsedResult.getSubResults().get(0).getSql(),
+                      "select id from audit.log_201708 AS log where created_at >= ? and created_at < ? order by id");
+        Assert.equals(parsedResult.getSubResults().get(1).getSql(),
+                      "select id from audit.log_201709 AS log where created_at >= ? and created_at < ? order by id");
+        // 包含右边界时命中201710
+        parsedResult = parser.parse("select id from audit.log where created_at between ? and ? order by id", map);
+        Assert.equals(parsedResult.getSubResults().size(), 3);
+        // 一个月内的范围不需要拆分
+        map.put(1, new Timestamp(1506787200000L - 1000));
+        parsedResult = parser.parse("select id from audit.log where created_at >= ? and created_at < ?", map);
+        Assert.isTrue(!parsedResult.isFanOut());
+        Assert.equals(parsedResult.getSql(),
+                      "select id from audit.log_201709 AS log where created_at >= ? and created_at < ?");
+    }
+
+    /**
+     * 其他规则的时间类型范围条件不参与路由(否则按毫秒逐个求值)
+     */
+    @Test(timeout = 10000)
+    public void timestampRangeWithSpelRule() {
+        SimpleShardRouteRuleBinding log = new SimpleShardRouteRuleBinding();
+        log.setScName("audit");
+        log.setTbName("log");
+        log.setSdKey("created_at");
+        log.setRule(new SpelShardRouteRule(null, "{tbName}_{format('%tY', sdValue)}"));
+        List<SimpleShardRouteRuleBinding> bindings = new ArrayList<SimpleShardRouteRuleBinding>();
+        bindings.add(log);
+        ShardParser parser = new SimpleShardParser(new JSQLParser(), new SimpleShardRouter(bindings));
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put(1, new Timestamp(1502726400000L));
+        map.put(2, new Timestamp(1506787200000L));
+        ShardRouteContext.setRouteInfo("audit", "log", new ShardRouteInfo("audit", "log_2017"));
+        try {
+            SQLParsedResult parsedResult = parser.parse("select id from audit.log where created_at between ? and ?",
+                                                        map);
+            Assert.isTrue(!parsedResult.isFanOut());
+            Assert.equals(parsedResult.getSql(),
+                          "select id from audit.log_2017 AS log where created_at between ? and ?");
+        } finally {
+            ShardRouteContext.clearContext();
+        }
+    }
+}
@@ -41,7 +41,7 @@ public class UpdateTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("update db.user set `desc` = null where id = 11 and name = 'allen'",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "UPDATE db_03.user_0011 AS user SET `desc` = NULL WHERE id = 11 AND name = 'allen'");
+                      "update db_03.user_0011 AS user set `desc` = null where id = 11 and name = 'allen'");
     }
 
     @Test
@@ -50,7 +50,7 @@ public class UpdateTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("update db.user set `desc` = null where id= 11 and name = 'allen'",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "UPDATE db_02.user_0010 AS user SET `desc` = NULL WHERE id = 11 AND name = 'allen'");
+                      "update db_02.user_0010 AS user set `desc` = null where id= 11 and name = 'allen'");
     }
 
     @Test
@@ -62,7 +62,7 @@ public class UpdateTest extends BaseTestShardParser {
         map.put(3, "desc");
         SQLParsedResult parsedResult = parser.parse("update db.user set `desc` = null where id= ? and name = ?", map);
         Assert.equals(parsedResult.getSql(),
-                      "UPDATE db_02.user_0122 AS user SET `desc` = NULL WHERE id = ? AND name = ?");
+                      "update db_02.user_0122 AS user set `desc` = null where id= ? and name = ?");
     }
 
     @Test
@@ -74,7 +74,7 @@ public class UpdateTest extends BaseTestShardParser {
         map.put(3, "desc");
         SQLParsedResult parsedResult = parser.parse("update db.user set `desc` = null where id= ? and name = ?", map);
         Assert.equals(parsedResult.getSql(),
-                      "UPDATE db_02.user_0010 AS user SET `desc` = NULL WHERE id = ? AND name = ?");
+                      "update db_02.user_0010 AS user set `desc` = null where id= ? and name = ?");
     }
 
     @Test
@@ -83,6 +83,6 @@ public class UpdateTest extends BaseTestShardParser {
         SQLParsedResult parsedResult = parser.parse("update db.user set `desc` = null where id= 506 and id in (select user_id from shop where user_id = 507)",
                                                     null);
         Assert.equals(parsedResult.getSql(),
-                      "UPDATE db_02.user_0122 AS user SET `desc` = NULL WHERE id = 506 AND id IN (SELECT user_id FROM db_03.shop_0123 AS shop WHERE user_id = 507)");
+                      "update db_02.user_0122 AS user set `desc` = null where id= 506 and id in (select user_id from db_03.shop_0123 AS shop where user_id = 507)");
     }
 }